@@ -0,0 +1,50 @@
+#!/bin/bash
+# Compares time to readiness and resident memory of the JVM image (Dockerfile) and the native image (Dockerfile.native).
+#
+# Usage: scripts/compare-startup.sh [runs]
+# The containers need the same environment as in ECS, pass it through these variables:
+#   SPRING_DATASOURCE_URL, SPRING_DATASOURCE_USERNAME, SPRING_DATASOURCE_PASSWORD,
+#   AWS_ACCESS_KEY_ID, AWS_SECRET_ACCESS_KEY, AWS_SESSION_TOKEN (CloudWatch logging)
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=18080
+
+docker build -q -t demorfid-jvm -f Dockerfile . > /dev/null
+docker build -q -t demorfid-native -f Dockerfile.native . > /dev/null
+
+ENV_ARGS=()
+for name in SPRING_DATASOURCE_URL SPRING_DATASOURCE_USERNAME SPRING_DATASOURCE_PASSWORD \
+            AWS_ACCESS_KEY_ID AWS_SECRET_ACCESS_KEY AWS_SESSION_TOKEN; do
+    if [ -n "${!name:-}" ]; then
+        ENV_ARGS+=(-e "$name")
+    fi
+done
+
+now_ms() {
+    date +%s%3N
+}
+
+# starts the image, waits for /actuator/health/readiness and prints "<ms to ready> <memory usage>"
+measure() {
+    local image=$1
+    local start ready container
+    start=$(now_ms)
+    container=$(docker run -d -p "$PORT:8080" "${ENV_ARGS[@]}" "$image")
+    until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+        sleep 0.05
+    done
+    ready=$(now_ms)
+    # one request so the memory figure includes the first request path
+    curl -sf "http://localhost:$PORT/api/products" > /dev/null || true
+    echo "$((ready - start)) $(docker stats --no-stream --format '{{.MemUsage}}' "$container" | cut -d/ -f1)"
+    docker rm -f "$container" > /dev/null
+}
+
+printf "%-18s %5s %14s %14s\n" "image" "run" "ready (ms)" "memory"
+for image in demorfid-jvm demorfid-native; do
+    for run in $(seq 1 "$RUNS"); do
+        read -r ready memory < <(measure "$image")
+        printf "%-18s %5d %14s %14s\n" "$image" "$run" "$ready" "$memory"
+    done
+done
@@ -0,0 +1,64 @@
+package com.example.demoRFID.Config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Binary response formats, picked with the Accept header:
+ * - application/cbor and application/x-jackson-smile, for every response. Their ObjectMapper is built from the
+ *   application's Jackson2ObjectMapperBuilder, so they carry the same fields and date formats as the JSON.
+ *   Smile also writes each repeated string value (location and site names, EPC prefixes) once per response.
+ * - application/x-protobuf for the RfidTx and LatestEPC responses, see RfidProtobufHttpMessageConverter. Other
+ *   responses are not acceptable as Protobuf (406).
+ *
+ * The converters are added after the JSON one, so JSON stays the answer to a missing or wildcard Accept header.
+ */
+@Configuration
+public class ContentNegotiationConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public ContentNegotiationConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        Jackson2ObjectMapperBuilder smile = objectMapperBuilder.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+        replaceOrAdd(converters, MappingJackson2SmileHttpMessageConverter.class, new MappingJackson2SmileHttpMessageConverter(
+                smile.factory(SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build()).build()));
+        // plain CBOR, string references are not understood by every decoder
+        Jackson2ObjectMapperBuilder cbor = objectMapperBuilder.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+        replaceOrAdd(converters, MappingJackson2CborHttpMessageConverter.class,
+                new MappingJackson2CborHttpMessageConverter(cbor.factory(new CBORFactory()).build()));
+        converters.add(new RfidProtobufHttpMessageConverter());
+    }
+
+    // the framework registers its own Smile and CBOR converters when the libraries are present
+    private static void replaceOrAdd(List<HttpMessageConverter<?>> converters, Class<?> type, HttpMessageConverter<?> converter) {
+        for (int i = 0; i < converters.size(); i++) {
+            if (type.isInstance(converters.get(i))) {
+                converters.set(i, converter);
+                return;
+            }
+        }
+        int position = converters.size();
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                position = i + 1;
+            }
+        }
+        converters.add(position, converter);
+    }
+}
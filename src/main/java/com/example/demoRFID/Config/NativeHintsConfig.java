@@ -0,0 +1,80 @@
+package com.example.demoRFID.Config;
+
+import com.example.demoRFID.Model.CurrentLocation;
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.ProductSiteReads;
+import com.example.demoRFID.Model.ProductUpsertResult;
+import com.example.demoRFID.Model.ReadBurst;
+import com.example.demoRFID.Model.ReportSnapshot;
+import com.example.demoRFID.Model.Request.RfidBatchRequest;
+import com.example.demoRFID.Model.Request.RfidRequest;
+import com.example.demoRFID.Model.Request.RfidTxBulkRequest;
+import com.example.demoRFID.Model.Request.RfidTxRequest;
+import com.example.demoRFID.Model.Request.RfidTxUpdateRequest;
+import com.example.demoRFID.Model.Rfid;
+import com.example.demoRFID.Model.RfidBatchResult;
+import com.example.demoRFID.Model.RfidId;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxBulkResult;
+import com.example.demoRFID.Model.RfidTxId;
+import com.example.demoRFID.Model.RfidTxImportStatus;
+import com.example.demoRFID.Model.RssiTrend;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Model.TopEPC;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+
+/**
+ * Reachability metadata for the GraalVM native image (mvn -Pnative native:compile).
+ *
+ * Spring AOT already covers the beans and the JPA managed types. What it cannot infer is registered here:
+ * - the entities and DTOs serialized by Jackson, since the controllers return ResponseEntity<?>
+ * - the constructors used by the JPQL "select new" expressions (LatestEPC, TopEPC)
+ * - the logback appender and filter instantiated by name from logback.xml
+ * - the AWS SDK classes and resources the CloudWatch Logs client loads reflectively
+ */
+@Configuration
+@RegisterReflectionForBinding({RfidTx.class, RfidTxId.class, Rfid.class, RfidId.class, Location.class, Site.class,
+        Product.class, LatestEPC.class, TopEPC.class, CurrentLocation.class, ReadBurst.class, RfidTxRequest.class,
+        RfidTxUpdateRequest.class, RfidTxBulkRequest.class, RfidTxBulkResult.class, ProductSiteReads.class,
+        RssiTrend.class, ReportSnapshot.class, RfidRequest.class, RfidBatchRequest.class, RfidBatchResult.class,
+        RfidBatchResult.Rejection.class, ProductUpsertResult.class, ProductUpsertResult.Row.class,
+        RfidTxImportStatus.class})
+@ImportRuntimeHints(NativeHintsConfig.ApplicationRuntimeHints.class)
+public class NativeHintsConfig {
+
+    static class ApplicationRuntimeHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            hints.reflection().registerType(LatestEPC.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(TopEPC.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+            hints.reflection().registerType(CloudWatchAppender.class,
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.reflection().registerType(TypeReference.of("ch.qos.logback.classic.filter.ThresholdFilter"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+            hints.resources().registerPattern("logback.xml");
+            hints.resources().registerPattern("logback-console.xml");
+
+            // the SDK picks its HTTP client through ServiceLoader and reads interceptor lists from the class path
+            hints.reflection().registerType(TypeReference.of("software.amazon.awssdk.http.apache.ApacheSdkHttpService"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(TypeReference.of("software.amazon.awssdk.http.nio.netty.NettySdkAsyncHttpService"),
+                    MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+            hints.reflection().registerType(
+                    TypeReference.of("software.amazon.awssdk.services.cloudwatchlogs.DefaultCloudWatchLogsClientBuilder"),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+            hints.resources().registerPattern("META-INF/services/software.amazon.awssdk.*");
+            hints.resources().registerPattern("software/amazon/awssdk/global/handlers/execution.interceptors");
+            hints.resources().registerPattern("software/amazon/awssdk/services/cloudwatchlogs/execution.interceptors");
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demoRFID.Config;
+
+import com.example.demoRFID.Service.QueryPlanGuard;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint /actuator/queryplans: re-runs the QueryPlanGuard EXPLAIN check and returns the plan of every
+ * RfidTxRepository query with its flagged full scans. Exposed with the other actuator endpoints, behind
+ * authentication like everything outside the health probes.
+ */
+@Component
+@Endpoint(id = "queryplans")
+public class QueryPlanEndpoint {
+
+    private final QueryPlanGuard queryPlanGuard;
+
+    public QueryPlanEndpoint(QueryPlanGuard queryPlanGuard) {
+        this.queryPlanGuard = queryPlanGuard;
+    }
+
+    @ReadOperation
+    public List<QueryPlanGuard.QueryPlan> queryPlans() {
+        return queryPlanGuard.check();
+    }
+}
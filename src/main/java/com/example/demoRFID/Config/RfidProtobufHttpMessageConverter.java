@@ -0,0 +1,269 @@
+package com.example.demoRFID.Config;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Repository.RfidTxProjectionRepository;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes RfidTx and LatestEPC responses, single or in lists, as the Protobuf messages of proto/rfid.proto
+ * (application/x-protobuf).
+ *
+ * The messages are encoded directly with CodedOutputStream, without generated classes: every message size is
+ * computed by a first pass over its fields, then the fields are written. A list of reads is written as an
+ * RfidTxList, its locations and products once each after the reads. The fields= projections of the reads are
+ * written as RfidTxList too, with only the selected fields set.
+ *
+ * Only writing is supported. canWrite checks the element type of collections, so a response declared as a list of
+ * anything else is not acceptable as Protobuf (406). The controllers declare ResponseEntity<?>, which hides the
+ * element type: the list is then checked by RfidProtobufResponseAdvice, on the value, before it is written.
+ */
+public class RfidProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    // writes the fields of a message, or only computes their size when output is null
+    private interface Fields<T> {
+        int write(T value, CodedOutputStream output) throws IOException;
+    }
+
+    public RfidProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    /**
+     * Whether a response value can be written: an RfidTx, a LatestEPC, or a collection of either, or of fields=
+     * projections of RfidTx.
+     *
+     * @param value The response value.
+     * @return true when writeInternal can encode it.
+     */
+    public static boolean canEncode(Object value) {
+        Collection<?> values = value instanceof Collection<?> collection ? collection : List.of(value);
+        return values.stream().allMatch(RfidProtobufHttpMessageConverter::isRead)
+                || values.stream().allMatch(LatestEPC.class::isInstance);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return canWrite(null, clazz);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && canWrite(type, clazz);
+    }
+
+    // the declared type when it is known, the class of the value otherwise
+    private static boolean canWrite(Type type, Class<?> clazz) {
+        ResolvableType declared = type == null ? ResolvableType.NONE : ResolvableType.forType(type);
+        Class<?> resolved = declared.resolve(Object.class);
+        if (resolved == Object.class) {
+            declared = ResolvableType.forClass(clazz);
+            resolved = clazz;
+        }
+        if (Collection.class.isAssignableFrom(resolved)) {
+            Class<?> element = declared.asCollection().resolveGeneric(0);
+            // an unknown element type is checked on the value, by RfidProtobufResponseAdvice
+            return element == null || element == Object.class || RfidTx.class.isAssignableFrom(element)
+                    || LatestEPC.class.isAssignableFrom(element) || Map.class.isAssignableFrom(element);
+        }
+        return RfidTx.class.isAssignableFrom(resolved) || LatestEPC.class.isAssignableFrom(resolved);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf requests are not supported", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Protobuf requests are not supported", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        Collection<?> values = value instanceof Collection<?> collection ? collection : List.of(value);
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+        if (!values.isEmpty() && values.stream().allMatch(RfidProtobufHttpMessageConverter::isRead)) {
+            writeReads(values, output);
+        } else if (values.stream().allMatch(LatestEPC.class::isInstance)) {
+            // an empty list is the empty message of both lists
+            for (Object scan : values) {
+                message(1, (LatestEPC) scan, RfidProtobufHttpMessageConverter::latestEpc, output);
+            }
+        } else {
+            throw new HttpMessageNotWritableException("Protobuf responses are only available for RfidTx and LatestEPC");
+        }
+        output.flush();
+    }
+
+    // RfidTxList: the reads, then every location and product they reference
+    private static void writeReads(Collection<?> reads, CodedOutputStream output) throws IOException {
+        Map<Long, Location> locations = new LinkedHashMap<>();
+        Map<Long, Product> products = new LinkedHashMap<>();
+        for (Object value : reads) {
+            RfidTx read = value instanceof Map<?, ?> row ? projection(row) : (RfidTx) value;
+            message(1, read, RfidProtobufHttpMessageConverter::rfidTx, output);
+            if (read.getLocation() != null && read.getLocation().getLocationId() != null) {
+                locations.putIfAbsent(read.getLocation().getLocationId(), read.getLocation());
+            }
+            Product product = read.getRfid() == null ? null : read.getRfid().getProduct();
+            if (product != null && product.getRefCode() != null) {
+                products.putIfAbsent(product.getRefCode(), product);
+            }
+        }
+        for (Location location : locations.values()) {
+            message(2, location, RfidProtobufHttpMessageConverter::location, output);
+        }
+        for (Product product : products.values()) {
+            message(3, product, RfidProtobufHttpMessageConverter::product, output);
+        }
+    }
+
+    // an RfidTx, or a fields= projection of one
+    private static boolean isRead(Object value) {
+        return value instanceof RfidTx || value instanceof Map<?, ?> row
+                && RfidTxProjectionRepository.FIELDS.containsAll(row.keySet());
+    }
+
+    // the RfidTx holding the selected fields of a projection, the others stay null and are not written
+    private static RfidTx projection(Map<?, ?> row) {
+        RfidTx read = new RfidTx();
+        read.setTagId((String) row.get("tagId"));
+        read.setEpc((String) row.get("epc"));
+        read.setScanDate((LocalDateTime) row.get("scanDate"));
+        read.setLocation((Location) row.get("location"));
+        read.setRssi((BigDecimal) row.get("rssi"));
+        read.setLocationWinner((Boolean) row.get("locationWinner"));
+        read.setSiteId((Long) row.get("siteId"));
+        read.setRefCode((Long) row.get("refCode"));
+        return read;
+    }
+
+    private static <T> void message(int field, T value, Fields<T> fields, CodedOutputStream output) throws IOException {
+        output.writeTag(field, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        output.writeUInt32NoTag(fields.write(value, null));
+        fields.write(value, output);
+    }
+
+    private static int rfidTx(RfidTx read, CodedOutputStream output) throws IOException {
+        Location location = read.getLocation();
+        Long siteId = read.getSiteId();
+        if (siteId == null && location != null && location.getSite() != null) {
+            siteId = location.getSite().getSiteId();
+        }
+        Long refCode = read.getRefCode();
+        if (refCode == null && read.getRfid() != null && read.getRfid().getProduct() != null) {
+            refCode = read.getRfid().getProduct().getRefCode();
+        }
+        int size = string(1, read.getTagId(), output);
+        size += string(2, read.getEpc(), output);
+        size += int64(3, micros(read.getScanDate()), output);
+        size += int64(4, location == null ? null : location.getLocationId(), output);
+        if (read.getRssi() != null) {
+            size += CodedOutputStream.computeDoubleSize(5, read.getRssi().doubleValue());
+            if (output != null) {
+                output.writeDouble(5, read.getRssi().doubleValue());
+            }
+        }
+        if (read.getLocationWinner() != null) {
+            // optional field, written even when false
+            size += CodedOutputStream.computeBoolSize(6, read.getLocationWinner());
+            if (output != null) {
+                output.writeBool(6, read.getLocationWinner());
+            }
+        }
+        size += int64(7, siteId, output);
+        size += int64(8, refCode, output);
+        return size;
+    }
+
+    private static int location(Location location, CodedOutputStream output) throws IOException {
+        int size = int64(1, location.getLocationId(), output);
+        size += string(2, location.getLocationName(), output);
+        if (location.getSite() != null) {
+            size += int64(3, location.getSite().getSiteId(), output);
+            size += string(4, location.getSite().getSiteName(), output);
+        }
+        return size;
+    }
+
+    private static int product(Product product, CodedOutputStream output) throws IOException {
+        int size = int64(1, product.getRefCode(), output);
+        size += string(2, product.getName(), output);
+        size += int64(3, product.getGtin(), output);
+        return size;
+    }
+
+    private static int latestEpc(LatestEPC scan, CodedOutputStream output) throws IOException {
+        int size = string(1, scan.getEpc(), output);
+        size += int64(2, scan.getNumberOfTransactions(), output);
+        if (scan.getAverageRssi() != null) {
+            size += CodedOutputStream.computeDoubleSize(3, scan.getAverageRssi());
+            if (output != null) {
+                output.writeDouble(3, scan.getAverageRssi());
+            }
+        }
+        size += string(4, scan.getMostRecentLocation(), output);
+        return size;
+    }
+
+    // proto3 scalars: null and default values are not written
+    private static int string(int field, String value, CodedOutputStream output) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        if (output != null) {
+            output.writeString(field, value);
+        }
+        return CodedOutputStream.computeStringSize(field, value);
+    }
+
+    private static int int64(int field, Long value, CodedOutputStream output) throws IOException {
+        if (value == null || value == 0) {
+            return 0;
+        }
+        if (output != null) {
+            output.writeInt64(field, value);
+        }
+        return CodedOutputStream.computeInt64Size(field, value);
+    }
+
+    private static Long micros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return null;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.demoRFID.Config;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Answers 406 Not Acceptable, with no body, when application/x-protobuf was negotiated for a list the Protobuf
+ * converter cannot encode. The controllers return ResponseEntity<?>, so the element type of a list response is
+ * only known from its value, after the converter has been chosen.
+ */
+@ControllerAdvice
+public class RfidProtobufResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return RfidProtobufHttpMessageConverter.class.isAssignableFrom(converterType);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || RfidProtobufHttpMessageConverter.canEncode(body)) {
+            return body;
+        }
+        // a null body is not written
+        response.setStatusCode(HttpStatus.NOT_ACCEPTABLE);
+        return null;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demoRFID.Config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the @Scheduled background jobs (read burst compaction).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -18,6 +18,8 @@ public class SecurityConfig {
                                 "/api/products/**",
                                 "/api/rfid/**",
                                 "/api/sites/**",
+                                "/api/reports/**",
+                                "/api/tags/**",
                                 "/swagger-ui/**",         // Swagger
                                 "/v3/api-docs/**",        // Swagger API
                                 "/swagger-resources/**",  // Swagger resources
@@ -0,0 +1,33 @@
+package com.example.demoRFID.Config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+
+/**
+ * Startup tuning used together with spring.main.lazy-initialization=true (prod profile).
+ *
+ * Lazy initialization defers every bean to its first use. The beans on the request path are excluded so
+ * the first request after a scale-out does not pay for them, and so the schema is validated before the
+ * task reports healthy:
+ * - the application's own controllers, services, repositories and configuration
+ * - the DataSource and the EntityManagerFactory (which triggers the Flyway migration and Hibernate validation)
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final String APPLICATION_PACKAGE = "com.example.demoRFID";
+
+    @Bean
+    public static LazyInitializationExcludeFilter requestPathBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null
+                && (beanType.getName().startsWith(APPLICATION_PACKAGE)
+                || DataSource.class.isAssignableFrom(beanType)
+                || EntityManagerFactory.class.isAssignableFrom(beanType)
+                || AbstractEntityManagerFactoryBean.class.isAssignableFrom(beanType));
+    }
+}
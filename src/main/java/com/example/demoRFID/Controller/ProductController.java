@@ -3,6 +3,7 @@ package com.example.demoRFID.Controller;
 import com.example.demoRFID.ErrorMessage;
 import com.example.demoRFID.Model.Exceptions.InvalidInputException;
 import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.ProductUpsertResult;
 import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
 import com.example.demoRFID.Service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -62,6 +63,36 @@ public class ProductController {
     }
 
 
+    /**
+     * Create or update a batch of products, e.g. a catalog sync.
+     *
+     * @param products The product details.
+     * @return The counts per outcome and the outcome of every product, or an error message.
+     */
+    @Operation(summary = "Create or update a batch of products", description = "Creates the new products, updates the changed ones and reports the outcome of every product.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the rows",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductUpsertResult.class))),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<?> upsertProducts(@RequestBody List<Product> products) {
+        ProductUpsertResult result;
+        try {
+            result = productService.upsertProducts(products);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            // Handle any other exceptions that might occur
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred.");
+        }
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
     /**
      * Get a product by its reference code.
      *
@@ -0,0 +1,144 @@
+package com.example.demoRFID.Controller;
+
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.ProductSiteReads;
+import com.example.demoRFID.Model.ReportSnapshot;
+import com.example.demoRFID.Model.RssiTrend;
+import com.example.demoRFID.Service.ReportingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+
+@RestController
+@RequestMapping("/api/reports")
+public class ReportController {
+    @Autowired
+    private ReportingService reportingService;
+
+
+    /**
+     * Get the reads per product per site within a date range.
+     *
+     * @param startdatetime The start date and time for the scan range.
+     * @param enddatetime The end date and time for the scan range.
+     * @param siteName The site name to filter by (optional).
+     * @return The report or an error message.
+     */
+    @Operation(summary = "Get the reads per product per site within a date range", description = "Counts the reads and tags and averages the RSSI per site and product, from the reporting snapshot.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ProductSiteReads.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No snapshot or no reads found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/reads-per-product-site")
+    public ResponseEntity<?> getReadsPerProductPerSite(
+            @Parameter(description = "The start date and time for the scan range, in the format 'yyyy-MM-dd HH:mm:ss'.", required = true)
+            @RequestParam String startdatetime,
+            @Parameter(description = "The end date and time for the scan range, in the format 'yyyy-MM-dd HH:mm:ss'.", required = true)
+            @RequestParam String enddatetime,
+            @Parameter(description = "The site name to filter by (optional).")
+            @RequestParam(required = false) String siteName) {
+        List<ProductSiteReads> report;
+        try {
+            report = reportingService.getReadsPerProductPerSite(siteName, startdatetime, enddatetime);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(report);
+    }
+
+    /**
+     * Get the RSSI trend per site within a date range.
+     *
+     * @param granularity The period of the trend: day, week, month or year.
+     * @param startdatetime The start date and time for the scan range.
+     * @param enddatetime The end date and time for the scan range.
+     * @param siteName The site name to filter by (optional).
+     * @param refCode The product refCode to filter by (optional).
+     * @return The report or an error message.
+     */
+    @Operation(summary = "Get the RSSI trend per site within a date range", description = "Aggregates the RSSI of the reads per site and day, week, month or year, from the reporting snapshot.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Report retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RssiTrend.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No snapshot or no reads found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/rssi-trend")
+    public ResponseEntity<?> getRssiTrend(
+            @Parameter(description = "The period of the trend: day, week, month or year.", required = true)
+            @RequestParam String granularity,
+            @Parameter(description = "The start date and time for the scan range, in the format 'yyyy-MM-dd HH:mm:ss'.", required = true)
+            @RequestParam String startdatetime,
+            @Parameter(description = "The end date and time for the scan range, in the format 'yyyy-MM-dd HH:mm:ss'.", required = true)
+            @RequestParam String enddatetime,
+            @Parameter(description = "The site name to filter by (optional).")
+            @RequestParam(required = false) String siteName,
+            @Parameter(description = "The product refCode to filter by (optional).")
+            @RequestParam(required = false) String refCode) {
+        List<RssiTrend> report;
+        try {
+            report = reportingService.getRssiTrend(granularity, siteName, refCode, startdatetime, enddatetime);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(report);
+    }
+
+    /**
+     * Get the reporting snapshot the reports are answered from.
+     *
+     * @return The snapshot time, scan days and number of reads, or an error message.
+     */
+    @Operation(summary = "Get the reporting snapshot", description = "Describes the snapshot of the reads the reports are answered from.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Snapshot retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ReportSnapshot.class))),
+            @ApiResponse(responseCode = "404", description = "No snapshot taken yet",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/snapshot")
+    public ResponseEntity<?> getSnapshot() {
+        ReportSnapshot snapshot;
+        try {
+            snapshot = reportingService.getSnapshot();
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(snapshot);
+    }
+}
@@ -0,0 +1,211 @@
+package com.example.demoRFID.Controller;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.Request.RfidBatchRequest;
+import com.example.demoRFID.Model.Request.RfidRequest;
+import com.example.demoRFID.Model.Rfid;
+import com.example.demoRFID.Model.RfidBatchResult;
+import com.example.demoRFID.Service.RfidService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+
+@RestController
+@RequestMapping("/api/tags")
+public class RfidController {
+    @Autowired
+    private RfidService rfidService;
+
+
+    /**
+     * Register an RFID tag to a product.
+     *
+     * @param request The TagID, EPC and product refCode of the tag.
+     * @return The registered tag or an error message.
+     */
+    @Operation(summary = "Register an RFID tag", description = "Registers an RFID tag to an existing product.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Tag registered successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Rfid.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Product not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "409", description = "Tag already registered",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping
+    public ResponseEntity<?> createRfid(@RequestBody RfidRequest request) {
+        Rfid rfid;
+        try {
+            rfid = rfidService.createRfid(request);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (DuplicateKeyException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return new ResponseEntity<>(rfid, HttpStatus.CREATED);
+    }
+
+    /**
+     * Register a batch of RFID tags, e.g. a shipment.
+     *
+     * @param request The tags and the refCode of the tags without their own.
+     * @return The number of registered and rejected tags with the rejections, or an error message.
+     */
+    @Operation(summary = "Register a batch of RFID tags", description = "Registers every valid tag of the batch and reports why the others were rejected.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed, see the rejections",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidBatchResult.class))),
+            @ApiResponse(responseCode = "400", description = "Empty or oversized batch",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> registerRfids(@RequestBody RfidBatchRequest request) {
+        RfidBatchResult result;
+        try {
+            result = rfidService.registerRfids(request);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    /**
+     * Get a registered RFID tag.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return The tag with its product or an error message.
+     */
+    @Operation(summary = "Get a registered RFID tag", description = "Retrieves a tag and its product by TagID and EPC.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tag found successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Rfid.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Tag not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping
+    public ResponseEntity<?> getRfid(
+            @Parameter(description = "The TagID of the tag.", required = true)
+            @RequestParam String tagId,
+            @Parameter(description = "The EPC of the tag.", required = true)
+            @RequestParam String epc) {
+        Rfid rfid;
+        try {
+            rfid = rfidService.getRfid(tagId, epc);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(rfid);
+    }
+
+    /**
+     * Move a registered RFID tag to another product.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @param refCode The reference code of the new product.
+     * @return The updated tag or an error message.
+     */
+    @Operation(summary = "Move an RFID tag to another product", description = "Changes the product a registered tag is attached to.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tag updated successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Rfid.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Tag or product not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PutMapping
+    public ResponseEntity<?> updateRfid(
+            @Parameter(description = "The TagID of the tag.", required = true)
+            @RequestParam String tagId,
+            @Parameter(description = "The EPC of the tag.", required = true)
+            @RequestParam String epc,
+            @Parameter(description = "The reference code of the new product.", required = true)
+            @RequestParam String refCode) {
+        Rfid rfid;
+        try {
+            rfid = rfidService.updateRfid(tagId, epc, refCode);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(rfid);
+    }
+
+    /**
+     * Delete a registered RFID tag.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return A success message or an error message.
+     */
+    @Operation(summary = "Delete a registered RFID tag", description = "Deletes a tag that has no RFID transactions.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tag deleted successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "404", description = "Tag not found"),
+            @ApiResponse(responseCode = "409", description = "Tag has RFID transactions"),
+            @ApiResponse(responseCode = "500", description = "Unexpected error")
+    })
+    @DeleteMapping
+    public ResponseEntity<?> deleteRfid(
+            @Parameter(description = "The TagID of the tag.", required = true)
+            @RequestParam String tagId,
+            @Parameter(description = "The EPC of the tag.", required = true)
+            @RequestParam String epc) {
+        try {
+            rfidService.deleteRfid(tagId, epc);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (DataIntegrityViolationException ex) {
+            return new ResponseEntity<>(ErrorMessage.RFID_DELETE_FAILURE.getMessage(), HttpStatus.CONFLICT);
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(ErrorMessage.RFID_DEL_SUCCESS_TAG.format(tagId, epc));
+    }
+}
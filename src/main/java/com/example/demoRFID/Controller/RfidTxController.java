@@ -1,33 +1,63 @@
 package com.example.demoRFID.Controller;
 
 import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.CurrentLocation;
 import com.example.demoRFID.Model.LatestEPC;
 import com.example.demoRFID.Model.Exceptions.InvalidInputException;
 import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.Request.RfidTxBulkRequest;
 import com.example.demoRFID.Model.Request.RfidTxRequest;
 import com.example.demoRFID.Model.Request.RfidTxUpdateRequest;
 import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxBulkResult;
+import com.example.demoRFID.Model.RfidTxImportStatus;
 import com.example.demoRFID.Model.TopEPC;
+import com.example.demoRFID.Service.RfidTxBulkService;
+import com.example.demoRFID.Service.RfidTxExportService;
+import com.example.demoRFID.Service.RfidTxImportService;
 import com.example.demoRFID.Service.RfidTxService;
+import com.example.demoRFID.Utils.ValidationUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
 
 
 @RestController
 @RequestMapping("/api/rfid")
+@Tag(name = "rfid-tx-controller", description = "RFID transactions. Reads moved to the archive (older than rfid.archive.age-days) are only included by the by-scan-date-range, by-site and by-product lookups, every other endpoint reads RFID_Tx alone.")
 public class RfidTxController {
+    // the fields= parameter of the list endpoints, see RfidTxRepository.FIELDS
+    private static final String FIELDS_DESCRIPTION = "The comma separated fields to return, among tagId, epc, scanDate, location, rssi, locationWinner, siteId and refCode, every field if absent.";
+
     @Autowired
     private RfidTxService rfidTxService;
+    @Autowired
+    private RfidTxBulkService rfidTxBulkService;
+    @Autowired
+    private RfidTxImportService rfidTxImportService;
+    @Autowired
+    private RfidTxExportService rfidTxExportService;
 
 
     /**
@@ -149,6 +179,44 @@ public class RfidTxController {
 
     }
 
+    // Endpoint to get the current location of a tag
+    /**
+     * Get the current location of a tag.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return The last site, location, scan date and RSSI of the tag or an error message.
+     */
+    @Operation(summary = "Get the current location of a tag", description = "Returns where a tag was seen last. Served from memory, without database access.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Current location retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CurrentLocation.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid TagID or EPC format",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "The tag has never been read",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/current-location")
+    public ResponseEntity<?> getCurrentLocation(@Parameter(description = "The TagID of the tag.", required = true)
+        @RequestParam String tagId,
+        @Parameter(description = "The EPC of the tag.", required = true)
+        @RequestParam String epc) {
+        CurrentLocation currentLocation;
+        try {
+            currentLocation = rfidTxService.getCurrentLocation(tagId, epc);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(currentLocation);
+    }
+
     // Endpoint to get RfidTx by EPC
     /**
      * Get RFID transactions by EPC.
@@ -170,10 +238,12 @@ public class RfidTxController {
     })
     @GetMapping("/by-epc")
     public ResponseEntity<?> getByEpc(@Parameter(description = "The EPC to search for.", required = true)
-        @RequestParam String epc) {
-        List<RfidTx> rfidTxList;
+        @RequestParam String epc,
+        @Parameter(description = FIELDS_DESCRIPTION)
+        @RequestParam(required = false) String fields) {
+        List<?> rfidTxList;
         try {
-            rfidTxList = rfidTxService.getRfidTxByEpc(epc);
+            rfidTxList = ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByEpc(epc) : rfidTxService.getRfidTxByEpc(epc, fields);
         } catch (InvalidInputException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         } catch (ResourceNotFoundException ex) {
@@ -206,10 +276,12 @@ public class RfidTxController {
     @GetMapping("/by-tagid")
     public ResponseEntity<?> getByTagId(
             @Parameter(description = "The TagID to search for.", required = true)
-            @RequestParam String tagId) {
-        List<RfidTx> rfidTxList ;
+            @RequestParam String tagId,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
         try {
-            rfidTxList=rfidTxService.getRfidTxByTagId(tagId);
+            rfidTxList=ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByTagId(tagId) : rfidTxService.getRfidTxByTagId(tagId, fields);
         } catch (InvalidInputException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         } catch (ResourceNotFoundException ex) {
@@ -244,10 +316,12 @@ public class RfidTxController {
             @Parameter(description = "The EPC to search for.", required = true)
             @RequestParam String epc,
             @Parameter(description = "The TagID to search for.", required = true)
-            @RequestParam String tagId) {
-        List<RfidTx> rfidTxList ;
+            @RequestParam String tagId,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
         try {
-            rfidTxList= rfidTxService.getRfidTxByEpcAndTagId(epc, tagId);
+            rfidTxList= ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByEpcAndTagId(epc, tagId) : rfidTxService.getRfidTxByEpcAndTagId(epc, tagId, fields);
         } catch (InvalidInputException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         }  catch (ResourceNotFoundException ex) {
@@ -284,10 +358,158 @@ public class RfidTxController {
             @Parameter(description = "The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
             @RequestParam String startDate,
             @Parameter(description = "The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
-            @RequestParam String endDate) {
-        List<RfidTx> rfidTxList ;
+            @RequestParam String endDate,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
         try {
-            rfidTxList= rfidTxService.getRfidTxByScanDateRange(startDate, endDate);
+            rfidTxList= ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByScanDateRange(startDate, endDate) : rfidTxService.getRfidTxByScanDateRange(startDate, endDate, fields);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        }
+        catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        }
+        catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(rfidTxList);
+    }
+
+    /**
+     * Export the RFID transactions of a scan date range as a Parquet file.
+     *
+     * @param startDate The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @param endDate The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @param siteName The site of the reads, every site if absent.
+     * @param columns The comma separated columns to export, every column if absent.
+     * @return The zstd-compressed Parquet file or an error message.
+     */
+    @Operation(summary = "Export RFID transactions as Parquet", description = "Exports the reads of a scan date range, optionally of one site, as a zstd-compressed Parquet file with the requested columns among tagId, epc, scanDate, locationId, rssi, locationWinner, siteId and refCode. The file is written in full before it is sent, the range covers at most rfid.export.max-days days.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Parquet file",
+                    content = @Content(mediaType = "application/vnd.apache.parquet")),
+            @ApiResponse(responseCode = "400", description = "Invalid input data or range too long",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/export")
+    public ResponseEntity<?> exportRfidTx(
+            @Parameter(description = "The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String startDate,
+            @Parameter(description = "The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String endDate,
+            @Parameter(description = "The site name, every site if absent.")
+            @RequestParam(required = false) String siteName,
+            @Parameter(description = "The comma separated columns to export, every column if absent.")
+            @RequestParam(required = false) String columns) {
+        long size;
+        InputStream parquet;
+        Path file = null;
+        try {
+            file = rfidTxExportService.exportRfidTx(startDate, endDate, siteName, columns);
+            size = Files.size(file);
+            // the temporary file is deleted once sent
+            parquet = Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            // written but not opened for sending, nothing else deletes it
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    ex.addSuppressed(e);
+                }
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType("application/vnd.apache.parquet"))
+                .contentLength(size)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rfid_tx.parquet\"")
+                .body(new InputStreamResource(parquet));
+    }
+
+    /**
+     * Get the RFID transactions of a site by scan date range.
+     *
+     * @param siteName The site name.
+     * @param startDate The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @param endDate The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @return The list of RFID transactions of the site within the date range or an error message.
+     */
+    @Operation(summary = "Get the RFID transactions of a site by scan date range", description = "Retrieves the RFID transactions read at the locations of a site within the specified date range.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "RFID transactions retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTx.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid site name, date format or date range",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No RFID transactions found for the given site and date range",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/by-site")
+    public ResponseEntity<?> getBySite(
+            @Parameter(description = "The site name.", required = true)
+            @RequestParam String siteName,
+            @Parameter(description = "The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String startDate,
+            @Parameter(description = "The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String endDate,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
+        try {
+            rfidTxList= ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxBySiteAndScanDateRange(siteName, startDate, endDate) : rfidTxService.getRfidTxBySiteAndScanDateRange(siteName, startDate, endDate, fields);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        }
+        catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        }
+        catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(rfidTxList);
+    }
+
+    /**
+     * Get the RFID transactions of a product by scan date range.
+     *
+     * @param refCode The reference code of the product.
+     * @param startDate The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @param endDate The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.
+     * @return The list of RFID transactions of the product within the date range or an error message.
+     */
+    @Operation(summary = "Get the RFID transactions of a product by scan date range", description = "Retrieves the RFID transactions of the tags of a product within the specified date range.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "RFID transactions retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTx.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid refCode, date format or date range",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "No RFID transactions found for the given product and date range",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/by-product")
+    public ResponseEntity<?> getByProduct(
+            @Parameter(description = "The reference code of the product.", required = true)
+            @RequestParam String refCode,
+            @Parameter(description = "The start date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String startDate,
+            @Parameter(description = "The end date for the scan range in 'yyyy-MM-dd HH:mm:ss' format.", required = true)
+            @RequestParam String endDate,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
+        try {
+            rfidTxList= ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByRefCodeAndScanDateRange(refCode, startDate, endDate) : rfidTxService.getRfidTxByRefCodeAndScanDateRange(refCode, startDate, endDate, fields);
         } catch (InvalidInputException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         }
@@ -330,10 +552,12 @@ public class RfidTxController {
             @Parameter(description = "The start date for the search range in 'yyyy-MM-dd HH:mm:ss' format (optional).")
             @RequestParam(required = false) String startDate,
             @Parameter(description = "The end date for the search range in 'yyyy-MM-dd HH:mm:ss' format (optional).")
-            @RequestParam(required = false) String endDate) {
-        List<RfidTx> rfidTxList ;
+            @RequestParam(required = false) String endDate,
+            @Parameter(description = FIELDS_DESCRIPTION)
+            @RequestParam(required = false) String fields) {
+        List<?> rfidTxList ;
         try {
-            rfidTxList= rfidTxService.getRfidTxByCriteria(epc, tagId, startDate, endDate);
+            rfidTxList= ValidationUtils.isNullOrEmpty(fields) ? rfidTxService.getRfidTxByCriteria(epc, tagId, startDate, endDate) : rfidTxService.getRfidTxByCriteria(epc, tagId, startDate, endDate, fields);
         } catch (InvalidInputException ex) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
         }catch (ResourceNotFoundException ex) {
@@ -430,5 +654,182 @@ public class RfidTxController {
         return new ResponseEntity<>(rfidTx, HttpStatus.OK);
     }
 
-}
+    /**
+     * Delete every RFID transaction matching a filter.
+     *
+     * @param request The filter: date range and site, location and/or EPC.
+     * @return The number of deleted reads and bursts or an error message.
+     */
+    @Operation(summary = "Delete the RFID transactions matching a filter", description = "Deletes the reads of a date range of a site, location and/or EPC, e.g. of a misconfigured reader, in chunks of scan dates.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "RFID transactions deleted successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTxBulkResult.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> bulkDeleteRfidTx(
+            @Parameter(description = "The filter of the RFID transactions to delete.", required = true)
+            @RequestBody RfidTxBulkRequest request) {
+        RfidTxBulkResult result;
+        try {
+            result = rfidTxBulkService.deleteRfidTx(request);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    /**
+     * Move every RFID transaction matching a filter to another location.
+     *
+     * @param request The filter: date range and site, location and/or EPC, and the new location.
+     * @return The number of moved reads and bursts or an error message.
+     */
+    @Operation(summary = "Move the RFID transactions matching a filter to another location", description = "Reassigns the reads of a date range of a site, location and/or EPC to newLocationName of newSiteName (siteName by default), in chunks of scan dates.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "RFID transactions moved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTxBulkResult.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input data",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping("/bulk-reassign")
+    public ResponseEntity<?> bulkReassignRfidTx(
+            @Parameter(description = "The filter of the RFID transactions to move and their new location.", required = true)
+            @RequestBody RfidTxBulkRequest request) {
+        RfidTxBulkResult result;
+        try {
+            result = rfidTxBulkService.reassignLocation(request);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(result);
+    }
+
+    /**
+     * Import historical RFID transactions from a CSV file.
+     *
+     * @param request The request, whose body is the CSV file.
+     * @return The status of the queued import or an error message.
+     */
+    @Operation(summary = "Import RFID transactions from CSV", description = "Stores the file and queues its import. The first line names the columns siteName, locationName, tagId, epc, refCode, rssi and scanDate.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import queued",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTxImportStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid header",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<?> importRfidTx(HttpServletRequest request) {
+        RfidTxImportStatus status;
+        try {
+            status = rfidTxImportService.startImport(request.getInputStream());
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
 
+    /**
+     * Get the progress of a CSV import.
+     *
+     * @param importId The id of the import.
+     * @return The status of the import or an error message.
+     */
+    @Operation(summary = "Get the progress of a CSV import", description = "Retrieves the state and the processed, imported and rejected line counts of an import.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import found",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTxImportStatus.class))),
+            @ApiResponse(responseCode = "404", description = "Import not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @GetMapping("/import/{importId}")
+    public ResponseEntity<?> getImportStatus(@PathVariable String importId) {
+        RfidTxImportStatus status;
+        try {
+            status = rfidTxImportService.getStatus(importId);
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(status);
+    }
+
+    /**
+     * Resume a failed CSV import from its checkpoint.
+     *
+     * @param importId The id of the import.
+     * @return The status of the queued import or an error message.
+     */
+    @Operation(summary = "Resume a failed CSV import", description = "Queues a failed or interrupted import again, from the last line committed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Import queued",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = RfidTxImportStatus.class))),
+            @ApiResponse(responseCode = "400", description = "Import not failed",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Import not found",
+                    content = @Content),
+            @ApiResponse(responseCode = "500", description = "Unexpected error",
+                    content = @Content)
+    })
+    @PostMapping("/import/{importId}/resume")
+    public ResponseEntity<?> resumeImport(@PathVariable String importId) {
+        RfidTxImportStatus status;
+        try {
+            status = rfidTxImportService.resumeImport(importId);
+        } catch (InvalidInputException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
+
+    /**
+     * Download the rejected lines of a CSV import.
+     *
+     * @param importId The id of the import.
+     * @return The reject file or an error message.
+     */
+    @Operation(summary = "Download the rejected lines of a CSV import", description = "Returns the line number, the reason and the content of every rejected line, as CSV.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reject file"),
+            @ApiResponse(responseCode = "404", description = "Import not found"),
+            @ApiResponse(responseCode = "500", description = "Unexpected error")
+    })
+    @GetMapping(value = "/import/{importId}/rejects", produces = "text/csv")
+    public ResponseEntity<?> getImportRejects(@PathVariable String importId) {
+        Resource rejects;
+        try {
+            rejects = new FileSystemResource(rfidTxImportService.getRejects(importId));
+        } catch (ResourceNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(ex.getMessage());
+        } catch (Exception ex) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(ex.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(rejects);
+    }
+
+}
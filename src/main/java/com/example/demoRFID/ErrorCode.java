@@ -29,7 +29,11 @@ public enum ErrorCode {
     SITE_INV_IN("ERR-SITE-IN-001"),
     SITE_RES_NOT_FOUND("ERR-SITE-RES-002"),
     SITE_DATA_INT("ERR-SITE-RES-003"),
-    RFID_INV_IN("ERR-RFID-IN-001"),;
+    RFID_INV_IN("ERR-RFID-IN-001"),
+    RFID_RES_NOT_FOUND("ERR-RFID-RES-002"),
+    RFID_DATA_INT("ERR-RFID-RES-003"),
+    REPORT_INV_IN("ERR-REPORT-IN-001"),
+    REPORT_RES_NOT_FOUND("ERR-REPORT-RES-002"),;
 
     private final String message;
 
@@ -21,12 +21,14 @@ import lombok.Getter;
 @Getter
 public enum ErrorMessage {
     DATE_FORMAT("Date should look like yyyy-MM-dd HH:mm:ss \n"),
-    EPC_FORMAT("EPC should look like 'EPC' followed by 3 digits \n"),
+    EPC_FORMAT("EPC should look like 'EPC' followed by 3 digits or be a 96-bit SGTIN in hex (24 characters) \n"),
     SITE_NAME_FORMAT("Site name cannot be empty"),
     SITE_ID_FORMAT("Site id cannot be empty"),
     PRODUCT_NOT_FOUND("Product with refCode: %s not found"),
     PRODUCT_ALREADY_EXISTS("Product with refCode: %s already exists"),
     INVALID_REFCODE("RefCode should be %s digits long"),
+    INVALID_GTIN("GTIN should be a GTIN-14 of up to 14 digits with a valid check digit"),
+    PRODUCT_GTIN_ALREADY_EXISTS("GTIN %s already belongs to product with refCode: %s"),
     NO_PRODUCTS("Looks like you have no products yet"),
     NO_SITES("Looks like you have no sites yet"),
     PRODUCT_DELETE_SUCCESS("Successfully deleted product with RefCode %s"),
@@ -44,6 +46,9 @@ public enum ErrorMessage {
     RFIDTX_TAG_ID_NOT_FOUND("RFID transactions with tagId %s not found"),
     RFIDTX_TAG_ID_EPC_NOT_FOUND("RFID transactions not found with tagId: %s and epc: %s"),
     RFIDTX_DATE_NOT_FOUND("RFID transactions not found between : %s and %s"),
+    RFIDTX_SITE_NOT_FOUND("RFID transactions of site %s not found between : %s and %s"),
+    RFIDTX_REFCODE_NOT_FOUND("RFID transactions of product with refCode %s not found between : %s and %s"),
+    CURRENT_LOCATION_NOT_FOUND("No current location for tagId: %s and epc: %s"),
     DATE_ORDER_ERROR("Start Date should occur before End date"),
     RFID_TX_DELETE_FAILURE("Cannot delete Transaction because it is does not exist"),
     RFID_TX_ADD_FAILURE("Cannot add Transaction because it already exists"),
@@ -52,6 +57,9 @@ public enum ErrorMessage {
     RFIDTX_NOT_FOUND("RfidTx not found"),
     RFIDTX_SUCCESS("Successfully retrieved RfidTx By Criteria"),
     RFID_DEL_SUCCESS("Successfully deleted RfidTx"),
+    BULK_FILTER_REQUIRED("A bulk operation needs a startDate, an endDate and a siteName or an EPC"),
+    BULK_LOCATION_REQUIRED("locationName needs a siteName"),
+    BULK_NEW_LOCATION_REQUIRED("newLocationName is required, with newSiteName unless the filter has a siteName"),
     SITE_ALREADY_EXISTS("Site with id: %s already exists"),
     PRODUCT_SUCCESS("Product with refcode %s saved successfully"),
     SITE_SUCCESS("Site with id %s saved successfully"),
@@ -63,7 +71,38 @@ public enum ErrorMessage {
     SITE_NOT_FOUND("Site with id: %s not found"),
     PRODUCT_FETCH_ALL_SUCCESS("Found %s Products"),
     PRODUCT_UPDATE_SUCCESS("Product with RefCode %s updated successfully"),
+    PRODUCT_BATCH_SIZE("A bulk upsert should hold between 1 and %s products"),
+    PRODUCT_BATCH_DUPLICATE("RefCode %s listed more than once in the request"),
+    PRODUCT_BATCH_GTIN_DUPLICATE("GTIN %s listed more than once in the request"),
+    PRODUCT_BATCH_FAILURE("Upsert failed: %s"),
+    PRODUCT_BATCH_SUCCESS("Bulk upsert created %s products, updated %s, left %s unchanged and rejected %s"),
+    PRODUCT_NAME_EMPTY("Product name cannot be empty"),
     PRODUCT_DEL_SUCCESS("Product with RefCode %s was deleted successfully"),
+    RFID_ALREADY_EXISTS("Tag with tagId: %s and epc: %s already exists"),
+    RFID_NOT_FOUND("Tag with tagId: %s and epc: %s not found"),
+    RFID_SUCCESS("Tag with tagId %s and epc %s saved successfully"),
+    RFID_FETCH_SUCCESS("Found tag with tagId: %s and epc: %s"),
+    RFID_DEL_SUCCESS_TAG("Tag with tagId %s and epc %s was deleted successfully"),
+    RFID_DELETE_FAILURE("Cannot delete tag because it has RFID transactions"),
+    RFID_BATCH_SIZE("A batch should hold between 1 and %s tags"),
+    RFID_BATCH_DUPLICATE("Tag listed more than once in the batch"),
+    RFID_BATCH_FAILURE("Registration failed: %s"),
+    RFID_BATCH_SUCCESS("Registered %s tags, rejected %s"),
+    RFID_EPC_GTIN_MISMATCH("EPC encodes the GTIN of product with refCode: %s"),
+    REPORT_SNAPSHOT_NOT_READY("No reporting snapshot has been taken yet"),
+    REPORT_GRANULARITY("Granularity must be one of: %s"),
+    REPORT_NOT_FOUND("No reads in the reporting snapshot between : %s and %s"),
+    IMPORT_HEADER("The first line should name the columns %s"),
+    IMPORT_COLUMN_COUNT("Expected %s columns, found %s"),
+    IMPORT_RSSI_FORMAT("RSSI should be a decimal number"),
+    IMPORT_NOT_FOUND("No import with id: %s"),
+    IMPORT_NOT_RESUMABLE("Import %s is %s, only a failed import can be resumed"),
+    IMPORT_INTERRUPTED("Import interrupted by a restart"),
+    IMPORT_FAILURE("Import %s stopped after line %s: %s"),
+    IMPORT_SUCCESS("Import %s wrote %s reads and rejected %s lines in %s ms"),
+    EXPORT_COLUMNS("Columns should be a comma separated list of: %s"),
+    EXPORT_RANGE("An export covers at most %s days, split the range"),
+    RFIDTX_FIELDS("Fields should be a comma separated list of: %s"),
     INVALID_INPUT("Invalid input provided");
 
     private final String message;
@@ -0,0 +1,30 @@
+package com.example.demoRFID.Model.Converters;
+
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores an EPC as the bytes of RfidKeyCodec.encodeEpc (VARBINARY) instead of a VARCHAR.
+ * Query parameters compared with a converted attribute are converted too, so repositories keep taking Strings.
+ */
+@Converter
+public class EpcConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String epc) {
+        if (epc == null) {
+            return null;
+        }
+        byte[] bytes = RfidKeyCodec.encodeEpc(epc);
+        if (bytes == null) {
+            throw new IllegalArgumentException("Not an EPC: " + epc);
+        }
+        return bytes;
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return RfidKeyCodec.decodeEpc(bytes);
+    }
+}
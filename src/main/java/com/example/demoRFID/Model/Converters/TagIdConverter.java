@@ -0,0 +1,30 @@
+package com.example.demoRFID.Model.Converters;
+
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a tagId ("TAG" + digits) as the BIGINT of RfidKeyCodec.encodeTagId instead of a VARCHAR.
+ * Query parameters compared with a converted attribute are converted too, so repositories keep taking Strings.
+ */
+@Converter
+public class TagIdConverter implements AttributeConverter<String, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(String tagId) {
+        if (tagId == null) {
+            return null;
+        }
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        if (tagKey < 0) {
+            throw new IllegalArgumentException("Not a tagId: " + tagId);
+        }
+        return tagKey;
+    }
+
+    @Override
+    public String convertToEntityAttribute(Long tagKey) {
+        return tagKey == null ? null : RfidKeyCodec.decodeTagId(tagKey);
+    }
+}
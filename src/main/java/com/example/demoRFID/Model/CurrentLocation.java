@@ -0,0 +1,41 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Model class representing where an RFID tag was seen last, as kept by the CurrentLocationIndex.
+ * This class uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
+ * and hashCode methods.
+ *
+ * Fields:
+ * - tagId: The unique identifier of the RFID tag.
+ * - epc: The Electronic Product Code (EPC) of the RFID tag.
+ * - siteName: The site of the last read, formatted for display.
+ * - locationName: The location of the last read, formatted for display.
+ * - scanDate: The date and time of the last read.
+ * - rssi: The RSSI of the last read (the average RSSI when the last read is a compacted read burst).
+ * - readCount: The number of reads of the tag, only filled when the per-tag state is kept in the TagStateStore.
+ * - averageRssi: The average RSSI of the reads of the tag, only filled with readCount.
+ *
+ * Annotations:
+ * - @NoArgsConstructor: Generates a no-argument constructor.
+ * - @AllArgsConstructor: Generates an all-argument constructor.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CurrentLocation {
+    private String tagId;
+    private String epc;
+    private String siteName;
+    private String locationName;
+    private LocalDateTime scanDate;
+    private BigDecimal rssi;
+    private Long readCount;
+    private BigDecimal averageRssi;
+}
@@ -1,6 +1,7 @@
 package com.example.demoRFID.Model;
 
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -16,11 +17,13 @@ import com.google.gson.GsonBuilder;
  * Fields:
  * - refCode: The unique identifier for the product, annotated with @Id to mark it as the primary key.
  * - name: The name of the product.
+ * - gtin: The GTIN-14 of the product (optional), the GTIN SGTIN-96 EPCs of the product decode to.
  *
  * Annotations:
  * - @Entity: Specifies that this class is an entity and is mapped to a database table.
  * - @Table(name = "PRODUCT"): Specifies the name of the table in the database that this entity is mapped to.
  * - @Id: Marks the refCode field as the primary key of the entity.
+ * - @Column(unique = true): A GTIN belongs to one product.
  *
  * Overrides:
  * - toString(): Overrides the default toString() method to return a JSON representation of the Product object
@@ -33,6 +36,8 @@ public class Product {
     @Id
     private Long refCode;
     private String name;
+    @Column(unique = true)
+    private Long gtin;
 
     @Override
     public String toString() {
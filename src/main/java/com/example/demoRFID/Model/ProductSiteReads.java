@@ -0,0 +1,28 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Row of the reads per product per site report (ReportingService).
+ *
+ * Fields:
+ * - siteName: The site of the reads.
+ * - refCode: The product of the tags read.
+ * - productName: The name of the product.
+ * - reads: The number of reads.
+ * - tags: The number of distinct tags read.
+ * - averageRssi: The average RSSI of the reads.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSiteReads {
+    private String siteName;
+    private Long refCode;
+    private String productName;
+    private long reads;
+    private long tags;
+    private Double averageRssi;
+}
@@ -0,0 +1,51 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product upsert (ProductService.upsertProducts).
+ *
+ * Fields:
+ * - created: The number of products created.
+ * - updated: The number of existing products whose name or GTIN changed.
+ * - unchanged: The number of existing products already up to date, not written.
+ * - rejected: The number of rows rejected.
+ * - rows: The outcome of every row, in request order.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductUpsertResult {
+    private int created;
+    private int updated;
+    private int unchanged;
+    private int rejected;
+    private List<Row> rows;
+
+    public enum Status {
+        CREATED, UPDATED, UNCHANGED, REJECTED
+    }
+
+    /**
+     * The outcome of one row of the request.
+     *
+     * Fields:
+     * - index: The position of the row in the request, from 0.
+     * - refCode: The reference code of the row.
+     * - status: What was done with the row.
+     * - reason: Why the row was rejected, null otherwise.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        private int index;
+        private Long refCode;
+        private Status status;
+        private String reason;
+    }
+}
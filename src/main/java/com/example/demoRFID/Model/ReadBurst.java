@@ -0,0 +1,83 @@
+package com.example.demoRFID.Model;
+
+import com.example.demoRFID.Model.Converters.EpcConverter;
+import com.example.demoRFID.Model.Converters.TagIdConverter;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Entity class representing a read burst, the aggregate of consecutive reads of one RFID tag at one location.
+ * Bursts are written by the compaction job (ReadBurstService) which deletes the RFID_Tx rows it merged,
+ * so a read is always stored either as an RFID_Tx row (the uncompacted tail) or inside exactly one burst.
+ * This class is mapped to the "READ_BURST" table in the database.
+ * It uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
+ * and hashCode methods.
+ *
+ * Fields:
+ * - burstId: Generated identifier of the burst.
+ * - tagId: The unique identifier of the RFID tag.
+ * - epc: The Electronic Product Code (EPC) associated with the RFID tag.
+ * - location: A many-to-one relationship with the Location entity where all the reads of the burst happened.
+ * - firstSeen: The scan date of the first read of the burst.
+ * - lastSeen: The scan date of the last read of the burst.
+ * - readCount: The number of reads merged into the burst.
+ * - minRssi: The lowest RSSI value of the merged reads.
+ * - maxRssi: The highest RSSI value of the merged reads.
+ * - rssiSum: The sum of the RSSI values of the merged reads, kept instead of the average so bursts can be extended exactly.
+ *
+ * Annotations:
+ * - @Entity: Specifies that this class is an entity and is mapped to a database table.
+ * - @Table(name = "READ_BURST"): Specifies the name of the table in the database that this entity is mapped to.
+ * - @Id, @GeneratedValue: Marks burstId as the primary key, generated by the database.
+ * - @ManyToOne, @JoinColumn(name = "locationId"): Specifies the foreign key column for the relationship with the Location entity.
+ * - @Convert(TagIdConverter / EpcConverter): Stores tagId and epc in their compact form, like RfidTx.
+ */
+@Entity
+@Table(name = "READ_BURST")
+@Data
+public class ReadBurst {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long burstId;
+
+    @Convert(converter = TagIdConverter.class)
+    private String tagId;
+
+    @Column(length = 12)
+    @Convert(converter = EpcConverter.class)
+    private String epc;
+
+    @ManyToOne
+    @JoinColumn(name = "locationId")
+    private Location location;
+
+    private LocalDateTime firstSeen;
+
+    private LocalDateTime lastSeen;
+
+    private Long readCount;
+
+    private BigDecimal minRssi;
+
+    private BigDecimal maxRssi;
+
+    private BigDecimal rssiSum;
+
+    private Boolean locationWinner;
+
+    /**
+     * Average RSSI of the merged reads.
+     *
+     * @return rssiSum divided by readCount, or null if the burst has no reads.
+     */
+    public BigDecimal getAvgRssi() {
+        if (rssiSum == null || readCount == null || readCount == 0) {
+            return null;
+        }
+        return rssiSum.divide(BigDecimal.valueOf(readCount), 2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * State of the reporting snapshot (ReportingService), the reports reflect RFID_Tx as of takenAt.
+ *
+ * Fields:
+ * - takenAt: When the last snapshot finished.
+ * - firstDay: The oldest scan day in the snapshot or the archive.
+ * - lastDay: The most recent scan day in the snapshot.
+ * - reads: The number of reads in the snapshot and the archive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportSnapshot {
+    private LocalDateTime takenAt;
+    private LocalDate firstDay;
+    private LocalDate lastDay;
+    private long reads;
+}
@@ -0,0 +1,20 @@
+package com.example.demoRFID.Model.Request;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing a request to register a batch of RFID tags, e.g. a shipment.
+ * This class uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
+ * and hashCode methods.
+ *
+ * Fields:
+ * - refCode: The reference code of the product of the tags without a refCode of their own.
+ * - tags: The tags to register.
+ */
+@Data
+public class RfidBatchRequest {
+    private String refCode;
+    private List<RfidRequest> tags;
+}
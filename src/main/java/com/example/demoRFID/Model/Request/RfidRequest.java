@@ -0,0 +1,20 @@
+package com.example.demoRFID.Model.Request;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) representing a request to register an RFID tag to a product.
+ * This class uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
+ * and hashCode methods.
+ *
+ * Fields:
+ * - tagId: The unique identifier of the RFID tag.
+ * - epc: The Electronic Product Code (EPC) of the RFID tag.
+ * - refCode: The reference code of the product the tag is attached to.
+ */
+@Data
+public class RfidRequest {
+    private String tagId;
+    private String epc;
+    private String refCode;
+}
@@ -0,0 +1,29 @@
+package com.example.demoRFID.Model.Request;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) representing the filter of a bulk delete or bulk location reassignment of RFID
+ * transactions (RfidTxBulkService).
+ * This class uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
+ * and hashCode methods.
+ *
+ * Fields:
+ * - siteName: The name of the site of the reads, required unless epc is given.
+ * - locationName: The name of the location of the reads within the site (optional).
+ * - epc: The Electronic Product Code (EPC) of the reads, required unless siteName is given.
+ * - startDate: The start of the scan date range, in 'yyyy-MM-dd HH:mm:ss' format.
+ * - endDate: The end of the scan date range, in 'yyyy-MM-dd HH:mm:ss' format.
+ * - newSiteName: The site of the location the reads are moved to, siteName if empty (reassignment only).
+ * - newLocationName: The location the reads are moved to (reassignment only).
+ */
+@Data
+public class RfidTxBulkRequest {
+    private String siteName;
+    private String locationName;
+    private String epc;
+    private String startDate;
+    private String endDate;
+    private String newSiteName;
+    private String newLocationName;
+}
@@ -1,5 +1,7 @@
 package com.example.demoRFID.Model;
 
+import com.example.demoRFID.Model.Converters.EpcConverter;
+import com.example.demoRFID.Model.Converters.TagIdConverter;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -22,6 +24,8 @@ import lombok.*;
  * - @Id: Marks the tagId and epc fields as part of the composite primary key.
  * - @Column(name = "tagId"): Maps the tagId field to the "tagId" column in the "RFID" table.
  * - @Column(name = "epc"): Maps the epc field to the "epc" column in the "RFID" table.
+ * - @Convert(TagIdConverter / EpcConverter): Stores tagId as a BIGINT and epc as a VARBINARY(12) (see RfidKeyCodec),
+ *   the Java attributes and the REST API keep the string formats.
  * - @ManyToOne: Indicates a many-to-one relationship between Rfid and Product.
  * - @JoinColumn(name = "refCode", referencedColumnName = "refCode"): Specifies the foreign key column and the column it references in the Product table.
  */
@@ -33,10 +37,12 @@ public class Rfid {
 
     @Id
     @Column(name = "tagId")
+    @Convert(converter = TagIdConverter.class)
     private String tagId;
 
     @Id
-    @Column(name = "epc")
+    @Column(name = "epc", length = 12)
+    @Convert(converter = EpcConverter.class)
     private String epc;
 
     @ManyToOne
@@ -0,0 +1,43 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch registration of RFID tags (RfidService.registerRfids).
+ *
+ * Fields:
+ * - registered: The number of tags registered.
+ * - rejected: The number of tags rejected.
+ * - rejections: One entry per rejected tag, the tags not listed were registered.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RfidBatchResult {
+    private int registered;
+    private int rejected;
+    private List<Rejection> rejections;
+
+    /**
+     * A rejected tag of the batch.
+     *
+     * Fields:
+     * - index: The position of the tag in the request, from 0.
+     * - tagId: The TagID of the tag.
+     * - epc: The EPC of the tag.
+     * - reason: Why the tag was not registered.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rejection {
+        private int index;
+        private String tagId;
+        private String epc;
+        private String reason;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demoRFID.Model;
+
+import com.example.demoRFID.Utils.RfidKeyCodec;
+
+/**
+ * In-memory key of an RFID tag (tagId and EPC) made of the compact encodings of RfidKeyCodec, used instead of
+ * RfidId by the in-memory per-tag maps: three primitives instead of two Strings per entry.
+ *
+ * Fields:
+ * - tagKey: The encoded tagId.
+ * - epcHigh: The first part of the encoded EPC (0 for an "EPC" + digits EPC).
+ * - epcLow: The second part of the encoded EPC.
+ */
+public record RfidKey(long tagKey, long epcHigh, int epcLow) {
+
+    /**
+     * Creates the key of a tag without allocating the upper-case Strings.
+     *
+     * @param tagId The tagId, any case.
+     * @param epc The EPC, any case.
+     * @return The key.
+     * @throws IllegalArgumentException if the tagId is not in the TAG digits format or the EPC is neither in the
+     * EPC digits format nor an SGTIN-96.
+     */
+    public static RfidKey of(CharSequence tagId, CharSequence epc) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (tagKey < 0 || epcHigh < 0) {
+            throw new IllegalArgumentException("Not an RFID key: " + tagId + ", " + epc);
+        }
+        return new RfidKey(tagKey, epcHigh, RfidKeyCodec.encodeEpcLow(epc));
+    }
+
+    /**
+     * Creates the key of a tag from its stored columns.
+     *
+     * @param tagKey The stored tagId.
+     * @param epc The stored EPC (see RfidKeyCodec.encodeEpc).
+     * @return The key.
+     * @throws IllegalArgumentException if epc is not an encoded EPC.
+     */
+    public static RfidKey ofStored(long tagKey, byte[] epc) {
+        if (epc.length == 2) {
+            return new RfidKey(tagKey, 0, ((epc[0] & 0xff) << 8) | (epc[1] & 0xff));
+        }
+        if (epc.length != 12) {
+            throw new IllegalArgumentException("Not an encoded EPC, length " + epc.length);
+        }
+        long epcHigh = 0;
+        for (int i = 0; i < 8; i++) {
+            epcHigh = (epcHigh << 8) | (epc[i] & 0xff);
+        }
+        int epcLow = 0;
+        for (int i = 8; i < 12; i++) {
+            epcLow = (epcLow << 8) | (epc[i] & 0xff);
+        }
+        return new RfidKey(tagKey, epcHigh, epcLow);
+    }
+
+    public String tagId() {
+        return RfidKeyCodec.decodeTagId(tagKey);
+    }
+
+    public String epc() {
+        return RfidKeyCodec.decodeEpc(epcHigh, epcLow);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.demoRFID.Model;
 
+import com.example.demoRFID.Model.Converters.EpcConverter;
+import com.example.demoRFID.Model.Converters.TagIdConverter;
 import com.example.demoRFID.Utils.ConversionUtils;
 import jakarta.persistence.*;
 import lombok.*;
@@ -9,6 +11,8 @@ import java.time.LocalDateTime;
 /**
  * Entity class representing an RFID transaction in the system.
  * This class is mapped to the "RFID_Tx" table in the database and uses a composite primary key defined by the RfidTxId class.
+ * The table is clustered by (scanDate, tagId, epc) and the (tagId, epc, scanDate) order is a unique index
+ * (V8__rfid_tx_time_clustered.sql), the key attributes and RfidTxId are the same in both orders.
  * It uses Lombok's @Data annotation to automatically generate getter, setter, toString, equals,
  * and hashCode methods.
  *
@@ -20,6 +24,11 @@ import java.time.LocalDateTime;
  *   The join columns tagId and epc are mapped to the corresponding fields in the Rfid entity with insertable and updatable set to false.
  * - location: A many-to-one relationship with the Location entity, representing the location where the RFID tag was scanned.
  * - rssi: The Received Signal Strength Indicator (RSSI) value for the RFID tag at the time of the transaction.
+ * - locationWinner: Whether the location of this read won the location arbitration (LocationArbiter) against the other
+ *   locations of the site that saw the tag at the same moment. Null for reads stored without arbitration.
+ * - siteId: The site of the location, copied from it so site scoped queries do not join Location and Site.
+ * - refCode: The product of the tag, copied from it so product scoped queries do not join Rfid and Product.
+ *   Both are filled when the read is stored, and by RfidTxBackfillService for reads stored before they existed.
  *
  * Annotations:
  * - @Entity: Specifies that this class is an entity and is mapped to a database table.
@@ -29,6 +38,8 @@ import java.time.LocalDateTime;
  * - @Column(name = "tagId"): Maps the tagId field to the "tagId" column in the database.
  * - @Column(name = "epc"): Maps the epc field to the "epc" column in the database.
  * - @Column(name = "scanDate"): Maps the scanDate field to the "scanDate" column in the database.
+ * - @Convert(TagIdConverter / EpcConverter): Stores tagId as a BIGINT and epc as a VARBINARY(12) (see RfidKeyCodec),
+ *   the Java attributes and the REST API keep the string formats.
  * - @ManyToOne: Indicates a many-to-one relationship between RfidTx and another entity (Rfid or Location).
  * - @JoinColumns: Specifies multiple join columns for the relationship with the Rfid entity.
  * - @JoinColumn(name = "locationId"): Specifies the foreign key column for the relationship with the Location entity.
@@ -46,10 +57,12 @@ import java.time.LocalDateTime;
 public class RfidTx {
     @Id
     @Column(name = "tagId")
+    @Convert(converter = TagIdConverter.class)
     private String tagId;
 
     @Id
-    @Column(name = "epc")
+    @Column(name = "epc", length = 12)
+    @Convert(converter = EpcConverter.class)
     private String epc;
 
     @Id
@@ -70,6 +83,12 @@ public class RfidTx {
 
     private BigDecimal rssi;
 
+    private Boolean locationWinner;
+
+    private Long siteId;
+
+    private Long refCode;
+
     @Override
     public String toString() {
         return "RfidTx{" +
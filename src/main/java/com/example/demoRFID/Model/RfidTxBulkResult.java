@@ -0,0 +1,22 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a bulk delete or bulk location reassignment of RFID transactions (RfidTxBulkService).
+ *
+ * Fields:
+ * - reads: The number of RFID_Tx rows deleted or moved.
+ * - bursts: The number of compacted read bursts deleted or moved.
+ * - tags: The number of distinct tags whose reads were affected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RfidTxBulkResult {
+    private long reads;
+    private long bursts;
+    private long tags;
+}
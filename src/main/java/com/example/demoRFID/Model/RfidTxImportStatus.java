@@ -0,0 +1,38 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a CSV import of RFID transactions (RfidTxImportService).
+ *
+ * Fields:
+ * - importId: The identifier of the import, returned when the file is uploaded.
+ * - state: QUEUED until another import finishes, RUNNING, COMPLETED, or FAILED (resumable from its checkpoint).
+ * - lines: The number of data lines processed and committed, the header excluded.
+ * - imported: The number of reads written.
+ * - rejected: The number of lines written to the reject file.
+ * - startedAt: When the file was uploaded.
+ * - finishedAt: When the import completed or failed, null while it runs.
+ * - message: Why the import failed, null otherwise.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RfidTxImportStatus {
+    private String importId;
+    private State state;
+    private long lines;
+    private long imported;
+    private long rejected;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+
+    public enum State {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demoRFID.Model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Row of the RSSI trend report (ReportingService): the RSSI of the reads of a site over one period.
+ *
+ * Fields:
+ * - period: The first day of the period (day, week starting on Monday, or month).
+ * - siteName: The site of the reads.
+ * - reads: The number of reads.
+ * - averageRssi: The average RSSI of the reads.
+ * - minRssi: The lowest RSSI of the reads.
+ * - maxRssi: The highest RSSI of the reads.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RssiTrend {
+    private LocalDate period;
+    private String siteName;
+    private long reads;
+    private Double averageRssi;
+    private Double minRssi;
+    private Double maxRssi;
+}
@@ -2,11 +2,37 @@ package com.example.demoRFID.Repository;
 
 import com.example.demoRFID.Model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+    /**
+     * Finds the product with a GTIN.
+     *
+     * @param gtin The GTIN-14.
+     * @return The product, or an empty Optional if no product has this GTIN.
+     */
+    Optional<Product> findByGtin(Long gtin);
+
+    /**
+     * Finds the products with any of a set of GTINs, in one query.
+     *
+     * @param gtins The GTIN-14s.
+     * @return The products owning one of the GTINs.
+     */
+    List<Product> findByGtinIn(Collection<Long> gtins);
+
+    /**
+     * Returns the GTIN to refCode mapping of the products that have a GTIN.
+     *
+     * @return Rows of [gtin, refCode].
+     */
+    @Query("SELECT p.gtin, p.refCode FROM Product p WHERE p.gtin IS NOT NULL")
+    List<Object[]> findGtinMappings();
 }
@@ -0,0 +1,274 @@
+package com.example.demoRFID.Repository;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.ReadBurst;
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ReadBurstRepository extends JpaRepository<ReadBurst, Long> {
+
+    /**
+     * Method to find the most recent burst of a tag, locked for update.
+     * The compaction job extends this burst when the next uncompacted read continues it.
+     *
+     * @param tagId The TagID of the burst.
+     * @param epc The EPC of the burst.
+     * @return An Optional containing the burst with the latest lastSeen, or an empty Optional if the tag has no burst.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ReadBurst> findFirstByTagIdAndEpcOrderByLastSeenDesc(String tagId, String epc);
+
+    /**
+     * Custom query method returning the latest burst of every tag whose lastSeen falls in a range, used to load
+     * the CurrentLocationIndex in parallel chunks when reads are compacted.
+     * The latest burst is the latest one that did not lose the location arbitration, or the latest burst if they
+     * all lost it.
+     *
+     * @param from The start of the chunk, included.
+     * @param to The end of the chunk, excluded.
+     * @return A list of [tagId, epc, lastSeen, average rssi, siteName, locationName, locationId, readCount, rssiSum,
+     *         locationWinner] rows, one per tag, readCount and rssiSum covering the bursts of the tag in the range.
+     */
+    @Query(value = "WITH LatestBursts AS (" +
+            "    SELECT" +
+            "        b.tagId AS tagId," +
+            "        b.epc AS epc," +
+            "        b.lastSeen AS lastSeen," +
+            "        b.rssiSum / b.readCount AS rssi," +
+            "        s.siteName AS siteName," +
+            "        loc.locationName AS locationName," +
+            "        loc.locationId AS locationId," +
+            "        SUM(b.readCount) OVER (PARTITION BY b.tagId, b.epc) AS readCount," +
+            "        SUM(b.rssiSum) OVER (PARTITION BY b.tagId, b.epc) AS rssiSum," +
+            "        b.locationWinner AS locationWinner," +
+            "        ROW_NUMBER() OVER (PARTITION BY b.tagId, b.epc" +
+            "            ORDER BY CASE WHEN b.locationWinner = false THEN 1 ELSE 0 END, b.lastSeen DESC) AS rn" +
+            "    FROM" +
+            "        ReadBurst b" +
+            "        JOIN Location loc ON b.location.locationId = loc.locationId" +
+            "        JOIN Site s ON loc.site.siteId = s.siteId" +
+            "    WHERE" +
+            "        b.lastSeen >= :from AND b.lastSeen < :to" +
+            ")" +
+            " SELECT tagId, epc, lastSeen, rssi, siteName, locationName, locationId, readCount, rssiSum, locationWinner" +
+            " FROM LatestBursts WHERE rn = 1")
+    List<Object[]> findLatestBurstPerTag(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Custom query method returning the oldest lastSeen of the bursts.
+     *
+     * @return The oldest lastSeen, or null if there are no bursts.
+     */
+    @Query("SELECT MIN(b.lastSeen) FROM ReadBurst b")
+    LocalDateTime findMinLastSeen();
+
+    /**
+     * Custom query method returning the most recent lastSeen of the bursts.
+     *
+     * @return The most recent lastSeen, or null if there are no bursts.
+     */
+    @Query("SELECT MAX(b.lastSeen) FROM ReadBurst b")
+    LocalDateTime findMaxLastSeen();
+
+    /**
+     * Custom native query answering findLatestScans from the bursts plus the uncompacted RFID_Tx tail.
+     * A burst is part of the range when it overlaps it and then counts with all its reads, its lastSeen
+     * decides the most recent location, bursts and uncompacted reads that lost the location arbitration come last.
+     * Columns: epc, numberOfTransactions, averageRssi, mostRecentLocation.
+     *
+     * @param startDateTime The start of the date range for the scans.
+     * @param endDateTime The end of the date range for the scans.
+     * @param epc The stored form of the EPC to filter by (RfidKeyCodec.encodeEpc), or null to include all EPCs.
+     * @param siteName The site name to filter by, or null to include all sites.
+     * @return One row per EPC with the columns listed above, epc in its stored form.
+     */
+    @Query(value = "WITH reads AS (" +
+            "    SELECT b.epc, b.location_id, b.last_seen AS seen, b.read_count AS read_count, b.rssi_sum AS rssi_sum," +
+            "        COALESCE(b.location_winner, 1) AS winner" +
+            "    FROM read_burst b" +
+            "    WHERE b.first_seen <= :enddatetime AND b.last_seen >= :startdatetime" +
+            "        AND (:epc IS NULL OR b.epc = :epc)" +
+            "    UNION ALL" +
+            "    SELECT tx.epc, tx.location_id, tx.scan_date, 1, tx.rssi, COALESCE(tx.location_winner, 1)" +
+            "    FROM rfid_tx tx" +
+            "    WHERE tx.scan_date BETWEEN :startdatetime AND :enddatetime" +
+            "        AND (:epc IS NULL OR tx.epc = :epc)" +
+            "), ranked AS (" +
+            "    SELECT r.epc," +
+            "        SUM(r.read_count) OVER (PARTITION BY r.epc) AS number_of_transactions," +
+            "        SUM(r.rssi_sum) OVER (PARTITION BY r.epc) / SUM(r.read_count) OVER (PARTITION BY r.epc) AS average_rssi," +
+            "        CONCAT(s.site_name, ' - ', l.location_name) AS most_recent_location," +
+            "        ROW_NUMBER() OVER (PARTITION BY r.epc ORDER BY r.winner DESC, r.seen DESC) AS rn" +
+            "    FROM reads r" +
+            "        JOIN location l ON r.location_id = l.location_id" +
+            "        JOIN site s ON l.site_id = s.site_id" +
+            "    WHERE (:siteName IS NULL OR s.site_name = :siteName)" +
+            ")" +
+            " SELECT epc, number_of_transactions, average_rssi, most_recent_location FROM ranked WHERE rn = 1",
+            nativeQuery = true)
+    List<Object[]> findLatestScans(@Param("startdatetime") LocalDateTime startDateTime,
+                                   @Param("enddatetime") LocalDateTime endDateTime,
+                                   @Param("epc") byte[] epc,
+                                   @Param("siteName") String siteName);
+
+    /**
+     * Custom native query answering findTopReads from the bursts plus the uncompacted RFID_Tx tail.
+     * Bursts overlapping the range count with all their reads. Columns: epc, readCount.
+     *
+     * @param limit The maximum number of top EPCs to return.
+     * @param startDateTime The start of the date range for the scans.
+     * @param endDateTime The end of the date range for the scans.
+     * @return One row per EPC ordered by read count, highest first, epc in its stored form.
+     */
+    @Query(value = "SELECT r.epc, SUM(r.read_count) AS read_count FROM (" +
+            "    SELECT b.epc, b.read_count FROM read_burst b" +
+            "    WHERE b.first_seen <= :enddatetime AND b.last_seen >= :startdatetime" +
+            "    UNION ALL" +
+            "    SELECT tx.epc, 1 FROM rfid_tx tx" +
+            "    WHERE tx.scan_date BETWEEN :startdatetime AND :enddatetime" +
+            ") r" +
+            " GROUP BY r.epc" +
+            " ORDER BY read_count DESC" +
+            " LIMIT :limit",
+            nativeQuery = true)
+    List<Object[]> findTopReads(@Param("limit") int limit,
+                                @Param("startdatetime") LocalDateTime startDateTime,
+                                @Param("enddatetime") LocalDateTime endDateTime);
+
+    /**
+     * Custom query method returning the firstSeen of the bursts lying entirely within a scan date range and
+     * matching the bulk filter of RfidTxBulkService, in order, used to cut the range in chunks of a bounded number
+     * of bursts. Bursts crossing a bound of the range are not part of it.
+     *
+     * @param from The start of the range, included.
+     * @param rangeEnd The end of the range, excluded.
+     * @param siteId The site of the bursts, or null for every site.
+     * @param locationId The location of the bursts, or null for every location.
+     * @param epc The EPC of the bursts, or null for every EPC.
+     * @param pageable The firstSeen to return: page n of size 1 is the firstSeen of the (n + 1)th matching burst.
+     * @return The firstSeen, or an empty list if fewer bursts match.
+     */
+    @Query("SELECT b.firstSeen FROM ReadBurst b WHERE " +
+            "b.firstSeen >= :from AND b.lastSeen < :rangeEnd" +
+            " AND (:siteId IS NULL OR b.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR b.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR b.epc = :epc)" +
+            " ORDER BY b.firstSeen")
+    List<LocalDateTime> findFirstSeenMatching(@Param("from") LocalDateTime from, @Param("rangeEnd") LocalDateTime rangeEnd,
+                                              @Param("siteId") Long siteId, @Param("locationId") Long locationId,
+                                              @Param("epc") String epc, Pageable pageable);
+
+    /**
+     * Custom query method returning the tags of the bursts of one chunk, see findFirstSeenMatching.
+     *
+     * @param from The start of the chunk, included, on firstSeen.
+     * @param to The end of the chunk, excluded, on firstSeen.
+     * @param rangeEnd The end of the whole range, excluded, on lastSeen.
+     * @return A list of [tagId, epc, readCount, rssiSum] rows, one per tag, covering its matching bursts.
+     */
+    @Query("SELECT b.tagId, b.epc, SUM(b.readCount), SUM(b.rssiSum) FROM ReadBurst b WHERE " +
+            "b.firstSeen >= :from AND b.firstSeen < :to AND b.lastSeen < :rangeEnd" +
+            " AND (:siteId IS NULL OR b.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR b.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR b.epc = :epc)" +
+            " GROUP BY b.tagId, b.epc")
+    List<Object[]> findTagsMatching(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                    @Param("rangeEnd") LocalDateTime rangeEnd, @Param("siteId") Long siteId,
+                                    @Param("locationId") Long locationId, @Param("epc") String epc);
+
+    /**
+     * Custom query method deleting the bursts of one chunk, see findFirstSeenMatching.
+     *
+     * @param from The start of the chunk, included, on firstSeen.
+     * @param to The end of the chunk, excluded, on firstSeen.
+     * @param rangeEnd The end of the whole range, excluded, on lastSeen.
+     * @param siteId The site of the bursts, or null for every site.
+     * @param locationId The location of the bursts, or null for every location.
+     * @param epc The EPC of the bursts, or null for every EPC.
+     * @return The number of deleted bursts.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ReadBurst b WHERE " +
+            "b.firstSeen >= :from AND b.firstSeen < :to AND b.lastSeen < :rangeEnd" +
+            " AND (:siteId IS NULL OR b.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR b.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR b.epc = :epc)")
+    int deleteMatching(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                       @Param("rangeEnd") LocalDateTime rangeEnd, @Param("siteId") Long siteId,
+                       @Param("locationId") Long locationId, @Param("epc") String epc);
+
+    /**
+     * Custom query method moving the bursts of one chunk to another location, see deleteMatching.
+     *
+     * @param newLocation The location the bursts are moved to.
+     * @return The number of updated bursts.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ReadBurst b SET b.location = :newLocation WHERE " +
+            "b.firstSeen >= :from AND b.firstSeen < :to AND b.lastSeen < :rangeEnd" +
+            " AND (:siteId IS NULL OR b.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR b.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR b.epc = :epc)")
+    int reassignMatching(@Param("newLocation") Location newLocation,
+                         @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                         @Param("rangeEnd") LocalDateTime rangeEnd, @Param("siteId") Long siteId,
+                         @Param("locationId") Long locationId, @Param("epc") String epc);
+
+    /**
+     * Custom query method returning the oldest bursts last seen before a date, locked for update, to be deleted by
+     * the retention job (RfidTxRetentionService).
+     *
+     * @param before The lastSeen the bursts are older than.
+     * @param pageable The chunk, first page.
+     * @return The bursts, oldest lastSeen first.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ReadBurst b WHERE b.lastSeen < :before ORDER BY b.lastSeen")
+    List<ReadBurst> findOldest(@Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Custom query method returning the oldest bursts last seen before a date outside of the given sites, locked
+     * for update. Bursts without location are returned too.
+     *
+     * @param before The lastSeen the bursts are older than.
+     * @param excludedSiteIds The sites kept, not empty.
+     * @param pageable The chunk, first page.
+     * @return The bursts, oldest lastSeen first.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ReadBurst b WHERE b.lastSeen < :before" +
+            " AND (b.location IS NULL OR b.location.locationId NOT IN" +
+            " (SELECT l.locationId FROM Location l WHERE l.site.siteId IN :excludedSiteIds))" +
+            " ORDER BY b.lastSeen")
+    List<ReadBurst> findOldestExceptSites(@Param("before") LocalDateTime before,
+                                          @Param("excludedSiteIds") Collection<Long> excludedSiteIds, Pageable pageable);
+
+    /**
+     * Custom query method returning the oldest bursts of a site last seen before a date, locked for update.
+     *
+     * @param siteId The site of the bursts.
+     * @param before The lastSeen the bursts are older than.
+     * @param pageable The chunk, first page.
+     * @return The bursts, oldest lastSeen first.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM ReadBurst b WHERE b.lastSeen < :before" +
+            " AND b.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId)" +
+            " ORDER BY b.lastSeen")
+    List<ReadBurst> findOldestOfSite(@Param("siteId") Long siteId, @Param("before") LocalDateTime before, Pageable pageable);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -47,4 +48,14 @@ public interface RfidRepository extends JpaRepository<Rfid, RfidId> {
      */
     @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END FROM Rfid r WHERE r.id.tagId = :tagId AND r.id.epc = :epc AND r.product.refCode = :refCode")
     boolean existsByTagIdAndEpcAndRefCode(@Param("tagId") String tagId, @Param("epc") String epc, @Param("refCode") String refCode);
+
+    /**
+     * Custom query method returning the registered tags among a set of TagIDs, in one query, so a batch of
+     * tags is checked for duplicates without one lookup per tag.
+     *
+     * @param tagIds The TagIDs to look for.
+     * @return A list of [tagId, epc] rows.
+     */
+    @Query("SELECT r.tagId, r.epc FROM Rfid r WHERE r.tagId IN :tagIds")
+    List<Object[]> findKeysByTagIdIn(@Param("tagIds") Collection<String> tagIds);
 }
@@ -0,0 +1,38 @@
+package com.example.demoRFID.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sparse field projection of RFID_Tx (the fields= parameter of the /api/rfid list endpoints), part of
+ * RfidTxRepository and implemented by RfidTxProjectionRepositoryImpl.
+ */
+public interface RfidTxProjectionRepository {
+
+    /**
+     * The fields that can be selected, named like the RfidTx JSON. location is the Location with its Site.
+     */
+    List<String> FIELDS = List.of("tagId", "epc", "scanDate", "location", "rssi", "locationWinner", "siteId", "refCode");
+
+    /**
+     * The fields of the RfidTx key.
+     */
+    List<String> KEY = List.of("tagId", "epc", "scanDate");
+
+    /**
+     * Custom query method selecting only the given fields of the RFID transactions matching a filter. Location and
+     * Site are joined only when location is selected, and no entity is loaded. Null filter values are ignored.
+     *
+     * @param fields The fields to select, among FIELDS.
+     * @param tagId The TagID to filter by, or null.
+     * @param epc The EPC to filter by, or null.
+     * @param from The start of the scan date range, included, or null.
+     * @param to The end of the scan date range, included, or null.
+     * @param siteId The denormalized siteId to filter by, or null.
+     * @param refCode The denormalized refCode to filter by, or null.
+     * @return One map per transaction, holding the selected fields in the given order.
+     */
+    List<Map<String, Object>> findProjection(List<String> fields, String tagId, String epc, LocalDateTime from,
+                                             LocalDateTime to, Long siteId, Long refCode);
+}
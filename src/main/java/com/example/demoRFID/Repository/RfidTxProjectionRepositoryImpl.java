@@ -0,0 +1,111 @@
+package com.example.demoRFID.Repository;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Site;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JPQL implementation of RfidTxProjectionRepository. The query is built from the selected fields, so the
+ * converters of tagId and epc still apply, and from the filter values actually given, so each filter is a plain
+ * predicate the indexes of RFID_Tx can serve.
+ */
+public class RfidTxProjectionRepositoryImpl implements RfidTxProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Map<String, Object>> findProjection(List<String> fields, String tagId, String epc, LocalDateTime from,
+                                                    LocalDateTime to, Long siteId, Long refCode) {
+        List<String> select = new ArrayList<>();
+        for (String field : fields) {
+            if (field.equals("location")) {
+                select.add("loc.locationId");
+                select.add("loc.locationName");
+                select.add("s.siteId");
+                select.add("s.siteName");
+            } else {
+                select.add("tx." + field);
+            }
+        }
+        StringBuilder jpql = new StringBuilder("SELECT ").append(String.join(", ", select)).append(" FROM RfidTx tx");
+        if (fields.contains("location")) {
+            jpql.append(" LEFT JOIN tx.location loc LEFT JOIN loc.site s");
+        }
+        List<String> where = new ArrayList<>();
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (tagId != null) {
+            where.add("tx.tagId = :tagId");
+            parameters.put("tagId", tagId);
+        }
+        if (epc != null) {
+            where.add("tx.epc = :epc");
+            parameters.put("epc", epc);
+        }
+        if (from != null) {
+            where.add("tx.scanDate >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            where.add("tx.scanDate <= :to");
+            parameters.put("to", to);
+        }
+        if (siteId != null) {
+            where.add("tx.siteId = :siteId");
+            parameters.put("siteId", siteId);
+        }
+        if (refCode != null) {
+            where.add("tx.refCode = :refCode");
+            parameters.put("refCode", refCode);
+        }
+        if (!where.isEmpty()) {
+            jpql.append(" WHERE ").append(String.join(" AND ", where));
+        }
+        TypedQuery<Tuple> query = entityManager.createQuery(jpql.toString(), Tuple.class);
+        parameters.forEach(query::setParameter);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : query.getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int column = 0;
+            for (String field : fields) {
+                if (field.equals("location")) {
+                    row.put(field, location(tuple, column));
+                    column += 4;
+                } else {
+                    row.put(field, tuple.get(column++));
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // the Location of the JSON, with its Site, from locationId, locationName, siteId and siteName
+    private static Location location(Tuple tuple, int column) {
+        Long locationId = (Long) tuple.get(column);
+        if (locationId == null) {
+            return null;
+        }
+        Location location = new Location();
+        location.setLocationId(locationId);
+        location.setLocationName((String) tuple.get(column + 1));
+        Long siteId = (Long) tuple.get(column + 2);
+        if (siteId != null) {
+            Site site = new Site();
+            site.setSiteId(siteId);
+            site.setSiteName((String) tuple.get(column + 3));
+            location.setSite(site);
+        }
+        return location;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.demoRFID.Repository;
 
 import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
 import com.example.demoRFID.Model.RfidTx;
 import com.example.demoRFID.Model.RfidTxId;
 import com.example.demoRFID.Model.TopEPC;
+import jakarta.persistence.LockModeType;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,15 +17,18 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId> {
+public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId>, RfidTxProjectionRepository {
     /**
      * Custom query method to find the latest RFID scans based on specific criteria.
      * This method uses a Common Table Expression (CTE) to retrieve the most recent scan for each EPC within a given date range.
      * It also calculates the number of transactions and the average RSSI for each EPC.
+     * Reads flagged as losers of the location arbitration (locationWinner = false) are only used for the most
+     * recent location when the EPC has no other read in the range.
      *
      * @param startDateTime The start of the date range for the scans.
      * @param endDateTime The end of the date range for the scans.
@@ -37,7 +44,7 @@ public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId> {
             "        scanDate as scanDate," +
             "        COUNT(*) OVER (PARTITION BY epc) AS NumberOfTransactions," +  // Precompute count
             "        AVG(rssi) OVER (PARTITION BY epc) AS AverageRSSI," +  // Precompute average
-            "        ROW_NUMBER() OVER (PARTITION BY epc ORDER BY scanDate DESC) AS rn" +
+            "        ROW_NUMBER() OVER (PARTITION BY epc ORDER BY CASE WHEN tx.locationWinner = false THEN 1 ELSE 0 END, scanDate DESC) AS rn" +  // reads that lost the location arbitration last
             "    FROM" +
             "        RfidTx tx" +
             "        JOIN Location loc ON tx.location.locationId = loc.locationId" +
@@ -58,6 +65,45 @@ public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId> {
                                     @Param("epc") String epc,
                                     @Param("siteName") String siteName);
 
+    /**
+     * Same result as findLatestScans, read from the denormalized siteId column: the scans of the range are a
+     * single-table range scan (on (siteId, scanDate) when a site is given) and Location and Site are only joined
+     * to the one row kept per EPC to build mostRecentLocation. Only valid once every read has its siteId
+     * (RfidTxBackfillService.isComplete).
+     *
+     * @param startDateTime The start of the date range for the scans.
+     * @param endDateTime The end of the date range for the scans.
+     * @param epc The EPC to filter by, or null to include all EPCs.
+     * @param siteId The site to filter by, or null to include all sites.
+     * @return A list of LatestEPC objects representing the latest scan details for each EPC.
+     */
+    @Query(value = "WITH LatestScans AS (" +
+            "    SELECT" +
+            "        tx.epc AS epc," +
+            "        tx.location.locationId AS locationId," +
+            "        COUNT(*) OVER (PARTITION BY tx.epc) AS NumberOfTransactions," +
+            "        AVG(tx.rssi) OVER (PARTITION BY tx.epc) AS AverageRSSI," +
+            "        ROW_NUMBER() OVER (PARTITION BY tx.epc ORDER BY CASE WHEN tx.locationWinner = false THEN 1 ELSE 0 END, tx.scanDate DESC) AS rn" +
+            "    FROM" +
+            "        RfidTx tx" +
+            "    WHERE" +
+            "        tx.scanDate BETWEEN :startdatetime AND :enddatetime" +
+            "        AND (:siteId IS NULL OR tx.siteId = :siteId)" +
+            "        AND (:epc IS NULL OR tx.epc = :epc)" +
+            ")" +
+            " SELECT new com.example.demoRFID.Model.LatestEPC(ls.epc, ls.NumberOfTransactions, ls.AverageRSSI, CONCAT(s.siteName, ' - ', loc.locationName))" +
+            "   FROM" +
+            "    LatestScans ls" +
+            "    JOIN Location loc ON ls.locationId = loc.locationId" +
+            "    JOIN Site s ON loc.site.siteId = s.siteId" +
+            "   WHERE" +
+            "    ls.rn = 1"
+            )
+    List<LatestEPC> findLatestScansBySiteId(@Param("startdatetime") LocalDateTime startDateTime,
+                                            @Param("enddatetime") LocalDateTime endDateTime,
+                                            @Param("epc") String epc,
+                                            @Param("siteId") Long siteId);
+
     /**
      * Custom query method to find the top EPCs by the number of reads within a given date range.
      * This method groups RFID transactions by EPC and counts the number of transactions for each EPC.
@@ -113,6 +159,42 @@ public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId> {
      */
     Optional<List<RfidTx>> findByScanDateBetween(LocalDateTime startDate, LocalDateTime endDate);
 
+    /**
+     * Custom query method reading the key and RSSI of the latest reads within a date range, without loading any
+     * entity. Used by WarmUpService to warm the scan_date range path with a bounded result.
+     *
+     * @param startDate The start of the date range.
+     * @param endDate The end of the date range.
+     * @param limit The maximum number of rows.
+     * @return A list of [tagId, epc, scanDate, rssi] rows, tagId and epc in their stored form.
+     */
+    @Query(value = "SELECT tag_id, epc, scan_date, rssi FROM rfid_tx WHERE scan_date BETWEEN :startDate AND :endDate" +
+            " ORDER BY scan_date DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findLatestReadsBetween(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                                          @Param("limit") int limit);
+
+
+    /**
+     * Method to retrieve RFID transactions of a site within a date range, a range scan of the
+     * (siteId, scanDate) index.
+     *
+     * @param siteId The site of the transactions.
+     * @param startDate The start of the date range.
+     * @param endDate The end of the date range.
+     * @return A list of RfidTx objects.
+     */
+    List<RfidTx> findBySiteIdAndScanDateBetween(Long siteId, LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Method to retrieve RFID transactions of a product within a date range, a range scan of the
+     * (refCode, scanDate) index.
+     *
+     * @param refCode The product of the transactions.
+     * @param startDate The start of the date range.
+     * @param endDate The end of the date range.
+     * @return A list of RfidTx objects.
+     */
+    List<RfidTx> findByRefCodeAndScanDateBetween(Long refCode, LocalDateTime startDate, LocalDateTime endDate);
 
     /**
      * Custom query method to retrieve RFID transactions based on various criteria.
@@ -135,8 +217,343 @@ public interface RfidTxRepository extends JpaRepository<RfidTx, RfidTxId> {
                                 @Param("startDate") LocalDateTime startDate,
                                 @Param("endDate") LocalDateTime endDate);
 
+    /**
+     * Custom query method returning the latest read of every tag within a scan date range, used to load the
+     * CurrentLocationIndex in parallel chunks. The latest read is the latest one that did not lose the location
+     * arbitration, or the latest read if they all lost it (locationWinner false), but every read is counted.
+     *
+     * @param from The start of the chunk, included.
+     * @param to The end of the chunk, excluded.
+     * @return A list of [tagId, epc, scanDate, rssi, siteName, locationName, locationId, readCount, rssiSum,
+     *         locationWinner] rows, one per tag, readCount and rssiSum covering all the reads of the tag in the range.
+     */
+    @Query(value = "WITH LatestReads AS (" +
+            "    SELECT" +
+            "        tx.tagId AS tagId," +
+            "        tx.epc AS epc," +
+            "        tx.scanDate AS scanDate," +
+            "        tx.rssi AS rssi," +
+            "        s.siteName AS siteName," +
+            "        loc.locationName AS locationName," +
+            "        loc.locationId AS locationId," +
+            "        COUNT(*) OVER (PARTITION BY tx.tagId, tx.epc) AS readCount," +
+            "        SUM(tx.rssi) OVER (PARTITION BY tx.tagId, tx.epc) AS rssiSum," +
+            "        tx.locationWinner AS locationWinner," +
+            "        ROW_NUMBER() OVER (PARTITION BY tx.tagId, tx.epc" +
+            "            ORDER BY CASE WHEN tx.locationWinner = false THEN 1 ELSE 0 END, tx.scanDate DESC) AS rn" +
+            "    FROM" +
+            "        RfidTx tx" +
+            "        JOIN Location loc ON tx.location.locationId = loc.locationId" +
+            "        JOIN Site s ON loc.site.siteId = s.siteId" +
+            "    WHERE" +
+            "        tx.scanDate >= :from AND tx.scanDate < :to" +
+            ")" +
+            " SELECT tagId, epc, scanDate, rssi, siteName, locationName, locationId, readCount, rssiSum, locationWinner" +
+            " FROM LatestReads WHERE rn = 1")
+    List<Object[]> findLatestReadPerTag(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Custom query method returning the latest read of a tag that did not lose the location arbitration.
+     *
+     * @param tagId The TagID to filter by.
+     * @param epc The EPC to filter by.
+     * @return An Optional containing the latest winning read, or an empty Optional if the tag has no read.
+     */
+    @Query("SELECT tx FROM RfidTx tx WHERE tx.tagId = :tagId AND tx.epc = :epc " +
+            "AND (tx.locationWinner IS NULL OR tx.locationWinner = true) " +
+            "ORDER BY tx.scanDate DESC LIMIT 1")
+    Optional<RfidTx> findLatestWinningRead(@Param("tagId") String tagId, @Param("epc") String epc);
+
+    /**
+     * Custom query method returning the oldest scan date stored.
+     *
+     * @return The oldest scan date, or null if there are no transactions.
+     */
+    @Query("SELECT MIN(tx.scanDate) FROM RfidTx tx")
+    LocalDateTime findMinScanDate();
+
+    /**
+     * Custom query method returning the most recent scan date stored.
+     *
+     * @return The most recent scan date, or null if there are no transactions.
+     */
+    @Query("SELECT MAX(tx.scanDate) FROM RfidTx tx")
+    LocalDateTime findMaxScanDate();
+
+    /**
+     * Custom query method re-flagging the reads of a location arbitration window after its winner changed.
+     *
+     * @param tagId The TagID of the reads.
+     * @param epc The EPC of the reads.
+     * @param from The scan date of the first read of the window.
+     * @param to The last scan date covered by the window.
+     * @param locationIds The locations that saw the tag in the window.
+     * @param winner The winning location.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RfidTx tx SET tx.locationWinner = CASE WHEN tx.location.locationId = :winner THEN true ELSE false END " +
+            "WHERE tx.tagId = :tagId AND tx.epc = :epc AND tx.scanDate BETWEEN :from AND :to " +
+            "AND tx.location.locationId IN :locationIds")
+    int updateLocationWinner(@Param("tagId") String tagId,
+                             @Param("epc") String epc,
+                             @Param("from") LocalDateTime from,
+                             @Param("to") LocalDateTime to,
+                             @Param("locationIds") Collection<Long> locationIds,
+                             @Param("winner") Long winner);
+
+    /**
+     * Custom query method listing the tags that have uncompacted reads older than the compaction horizon.
+     *
+     * @param horizon Only reads scanned before this date are considered.
+     * @param pageable The maximum number of tags to return.
+     * @return A list of [tagId, epc] pairs.
+     */
+    @Query("SELECT DISTINCT tx.tagId, tx.epc FROM RfidTx tx WHERE tx.scanDate < :horizon")
+    List<Object[]> findCompactionCandidates(@Param("horizon") LocalDateTime horizon, Pageable pageable);
+
+    /**
+     * Method to retrieve, and lock for update, the oldest uncompacted reads of a tag before the compaction horizon.
+     *
+     * @param tagId The TagID to filter by.
+     * @param epc The EPC to filter by.
+     * @param horizon Only reads scanned before this date are returned.
+     * @param pageable The maximum number of reads to return.
+     * @return The reads ordered by scan date.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<RfidTx> findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc(String tagId, String epc, LocalDateTime horizon, Pageable pageable);
+
+    /**
+     * Custom query method deleting the reads of a tag up to a scan date once they have been merged into bursts.
+     *
+     * @param tagId The TagID of the reads.
+     * @param epc The EPC of the reads.
+     * @param upTo The scan date of the last merged read, included.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM RfidTx tx WHERE tx.tagId = :tagId AND tx.epc = :epc AND tx.scanDate <= :upTo")
+    int deleteCompacted(@Param("tagId") String tagId, @Param("epc") String epc, @Param("upTo") LocalDateTime upTo);
 
+    /**
+     * Custom query method returning the oldest scan date, from a given one, of the reads that have a location
+     * but no siteId yet.
+     *
+     * @param from Only reads scanned at or after this date are considered.
+     * @return The oldest scan date, or null if every read from that date is backfilled.
+     */
+    @Query("SELECT MIN(tx.scanDate) FROM RfidTx tx WHERE tx.siteId IS NULL AND tx.scanDate >= :from AND tx.location IS NOT NULL")
+    LocalDateTime findMinScanDateToBackfill(@Param("from") LocalDateTime from);
 
+    /**
+     * Custom query method copying the site of the location and the product of the tag onto the reads of a scan
+     * date range that do not have them yet.
+     *
+     * @param from The start of the range, included.
+     * @param to The end of the range, excluded.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE rfid_tx tx" +
+            " JOIN location loc ON loc.location_id = tx.location_id" +
+            " JOIN rfid r ON r.tag_id = tx.tag_id AND r.epc = tx.epc" +
+            " SET tx.site_id = loc.site_id, tx.ref_code = r.ref_code" +
+            " WHERE tx.scan_date >= :from AND tx.scan_date < :to AND tx.site_id IS NULL",
+            nativeQuery = true)
+    int backfillSiteAndRefCode(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 
+    /**
+     * Custom query method counting the reads that have a location but no siteId yet, and among them the reads
+     * backfillSiteAndRefCode can never fill: their location has no site or their tag is not registered.
+     *
+     * @return One row [reads left, reads that can not be filled].
+     */
+    @Query(value = "SELECT COUNT(*), COALESCE(SUM(CASE WHEN loc.site_id IS NULL OR r.tag_id IS NULL THEN 1 ELSE 0 END), 0)" +
+            " FROM rfid_tx tx" +
+            " JOIN location loc ON loc.location_id = tx.location_id" +
+            " LEFT JOIN rfid r ON r.tag_id = tx.tag_id AND r.epc = tx.epc" +
+            " WHERE tx.site_id IS NULL",
+            nativeQuery = true)
+    List<Object[]> countLeftToBackfill();
 
+    /**
+     * Custom query method deleting the reads of a scan date range, a range of the clustered index.
+     * Runs in the caller's transaction.
+     *
+     * @param from The start of the range, included.
+     * @param to The end of the range, excluded.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM rfid_tx WHERE scan_date >= :from AND scan_date < :to", nativeQuery = true)
+    int deleteByScanDateRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Custom query method locking the reads the next deleteOldestExceptSites would delete, so their tags can be
+     * uncounted. Called in the transaction of the delete.
+     *
+     * @param before The scan date the reads are older than.
+     * @param excludedSiteIds The sites kept, not empty.
+     * @param limit The maximum number of rows.
+     * @return A list of [tagId, epc, rssi] rows, tagId and epc in their stored form.
+     */
+    @Query(value = "SELECT tag_id, epc, rssi FROM rfid_tx WHERE scan_date < :before AND (site_id IS NULL OR site_id NOT IN (:excludedSiteIds))" +
+            " ORDER BY scan_date, tag_id, epc LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Object[]> findOldestExceptSites(@Param("before") LocalDateTime before, @Param("excludedSiteIds") Collection<Long> excludedSiteIds,
+                                         @Param("limit") int limit);
+
+    /**
+     * Custom query method deleting the oldest reads scanned before a date, in primary key order, outside of the
+     * given sites. Reads without siteId are deleted too.
+     *
+     * @param before The scan date the deleted reads are older than.
+     * @param excludedSiteIds The sites kept, not empty.
+     * @param limit The maximum number of deleted rows.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM rfid_tx WHERE scan_date < :before AND (site_id IS NULL OR site_id NOT IN (:excludedSiteIds))" +
+            " ORDER BY scan_date, tag_id, epc LIMIT :limit", nativeQuery = true)
+    int deleteOldestExceptSites(@Param("before") LocalDateTime before, @Param("excludedSiteIds") Collection<Long> excludedSiteIds,
+                                @Param("limit") int limit);
+
+    /**
+     * Custom query method locking the reads the next deleteOldest would delete, so their tags can be uncounted.
+     * Called in the transaction of the delete.
+     *
+     * @param before The scan date the reads are older than.
+     * @param limit The maximum number of rows.
+     * @return A list of [tagId, epc, rssi] rows, tagId and epc in their stored form.
+     */
+    @Query(value = "SELECT tag_id, epc, rssi FROM rfid_tx WHERE scan_date < :before ORDER BY scan_date, tag_id, epc" +
+            " LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Object[]> findOldest(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Custom query method deleting the oldest reads scanned before a date, in primary key order.
+     *
+     * @param before The scan date the deleted reads are older than.
+     * @param limit The maximum number of deleted rows.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM rfid_tx WHERE scan_date < :before ORDER BY scan_date, tag_id, epc LIMIT :limit", nativeQuery = true)
+    int deleteOldest(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Custom query method locking the reads the next deleteOldestOfSite would delete, so their tags can be
+     * uncounted. Called in the transaction of the delete.
+     *
+     * @param siteId The site of the reads.
+     * @param before The scan date the reads are older than.
+     * @param limit The maximum number of rows.
+     * @return A list of [tagId, epc, rssi] rows, tagId and epc in their stored form.
+     */
+    @Query(value = "SELECT tag_id, epc, rssi FROM rfid_tx WHERE site_id = :siteId AND scan_date < :before" +
+            " ORDER BY scan_date, tag_id, epc LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Object[]> findOldestOfSite(@Param("siteId") Long siteId, @Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Custom query method deleting the oldest reads of a site scanned before a date, in (siteId, scanDate) index
+     * order.
+     *
+     * @param siteId The site of the deleted reads.
+     * @param before The scan date the deleted reads are older than.
+     * @param limit The maximum number of deleted rows.
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM rfid_tx WHERE site_id = :siteId AND scan_date < :before" +
+            " ORDER BY scan_date, tag_id, epc LIMIT :limit", nativeQuery = true)
+    int deleteOldestOfSite(@Param("siteId") Long siteId, @Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * Custom query method returning the tags read within a scan date range, filtered like the bulk operations
+     * (RfidTxBulkService). The site is matched through the location, so reads not backfilled yet are included.
+     *
+     * @param from The start of the range, included.
+     * @param to The end of the range, excluded.
+     * @param siteId The site of the reads, or null for every site.
+     * @param locationId The location of the reads, or null for every location.
+     * @param epc The EPC of the reads, or null for every EPC.
+     * @return A list of [tagId, epc, readCount, rssiSum] rows, one per tag, covering its matching reads.
+     */
+    @Query("SELECT tx.tagId, tx.epc, COUNT(tx), SUM(tx.rssi) FROM RfidTx tx WHERE " +
+            "tx.scanDate >= :from AND tx.scanDate < :to" +
+            " AND (:siteId IS NULL OR tx.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR tx.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR tx.epc = :epc)" +
+            " GROUP BY tx.tagId, tx.epc")
+    List<Object[]> findTagsMatching(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                    @Param("siteId") Long siteId, @Param("locationId") Long locationId, @Param("epc") String epc);
+
+    /**
+     * Custom query method returning the scan dates of the reads matching the bulk filter, in order, used to cut
+     * the range of a bulk operation in chunks of a bounded number of rows, see findTagsMatching.
+     *
+     * @param pageable The scan date to return: page n of size 1 is the scan date of the (n + 1)th matching read.
+     * @return The scan date, or an empty list if fewer reads match.
+     */
+    @Query("SELECT tx.scanDate FROM RfidTx tx WHERE " +
+            "tx.scanDate >= :from AND tx.scanDate < :to" +
+            " AND (:siteId IS NULL OR tx.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR tx.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR tx.epc = :epc)" +
+            " ORDER BY tx.scanDate")
+    List<LocalDateTime> findScanDatesMatching(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                              @Param("siteId") Long siteId, @Param("locationId") Long locationId,
+                                              @Param("epc") String epc, Pageable pageable);
+
+    /**
+     * Method to retrieve the reads of a tag within a scan date range, at every site, used to elect again the
+     * winners of the location arbitration after a bulk location reassignment.
+     *
+     * @param tagId The TagID to filter by.
+     * @param epc The EPC to filter by.
+     * @param startDate The start of the range, included.
+     * @param endDate The end of the range, included.
+     * @return The reads ordered by scan date.
+     */
+    List<RfidTx> findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc(String tagId, String epc,
+                                                                       LocalDateTime startDate, LocalDateTime endDate);
+
+    /**
+     * Custom query method deleting the reads of a scan date range matching the bulk filter, see findTagsMatching.
+     *
+     * @return The number of deleted rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RfidTx tx WHERE " +
+            "tx.scanDate >= :from AND tx.scanDate < :to" +
+            " AND (:siteId IS NULL OR tx.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR tx.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR tx.epc = :epc)")
+    int deleteMatching(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                       @Param("siteId") Long siteId, @Param("locationId") Long locationId, @Param("epc") String epc);
+
+    /**
+     * Custom query method moving the reads of a scan date range matching the bulk filter to another location,
+     * with its siteId, see findTagsMatching.
+     *
+     * @param newLocation The location the reads are moved to.
+     * @param newSiteId The site of that location.
+     * @return The number of updated rows.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE RfidTx tx SET tx.location = :newLocation, tx.siteId = :newSiteId WHERE " +
+            "tx.scanDate >= :from AND tx.scanDate < :to" +
+            " AND (:siteId IS NULL OR tx.location.locationId IN (SELECT l.locationId FROM Location l WHERE l.site.siteId = :siteId))" +
+            " AND (:locationId IS NULL OR tx.location.locationId = :locationId)" +
+            " AND (:epc IS NULL OR tx.epc = :epc)")
+    int reassignMatching(@Param("newLocation") Location newLocation, @Param("newSiteId") Long newSiteId,
+                         @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                         @Param("siteId") Long siteId, @Param("locationId") Long locationId, @Param("epc") String epc);
 }
@@ -0,0 +1,75 @@
+package com.example.demoRFID.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.DatabaseMetaData;
+import java.sql.JDBCType;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stops the startup when the tag key columns are not in their compact form yet (V4__compact_rfid_keys.sql).
+ *
+ * TagIdConverter and EpcConverter write a BIGINT tagId and a VARBINARY EPC. Against the former VARCHAR columns
+ * MySQL silently coerces them and the keys are corrupted, and ddl-auto=update, used by the default profile, does not
+ * change column types. The check runs once the EntityManagerFactory is built (after Flyway and Hibernate changed the
+ * schema), before the scheduled jobs and the web server start; tables not created yet are skipped.
+ */
+@Service
+@DependsOn("entityManagerFactory")
+public class CompactKeySchemaCheck implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactKeySchemaCheck.class);
+
+    private static final List<String> TABLES = List.of("rfid", "rfid_tx", "read_burst");
+    private static final Map<String, Integer> COLUMN_TYPES = Map.of("tag_id", Types.BIGINT, "epc", Types.VARBINARY);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public CompactKeySchemaCheck(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        List<String> mismatches = check();
+        if (!mismatches.isEmpty()) {
+            String message = "Tag key columns not migrated by V4__compact_rfid_keys.sql: " + String.join(", ", mismatches);
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Compact key schema check failed", message);
+            throw new IllegalStateException(message);
+        }
+    }
+
+    /**
+     * @return The key columns whose type is not the compact one, as table.column (type), empty if the schema is migrated.
+     */
+    public List<String> check() {
+        return jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            List<String> mismatches = new ArrayList<>();
+            for (String table : TABLES) {
+                for (Map.Entry<String, Integer> column : COLUMN_TYPES.entrySet()) {
+                    try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column.getKey())) {
+                        if (columns.next() && columns.getInt("DATA_TYPE") != column.getValue()) {
+                            mismatches.add(table + "." + column.getKey() + " (" + columns.getString("TYPE_NAME")
+                                    + ", expected " + JDBCType.valueOf(column.getValue()).getName() + ")");
+                        }
+                    }
+                }
+            }
+            return mismatches;
+        });
+    }
+}
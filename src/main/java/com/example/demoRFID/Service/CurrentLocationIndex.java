@@ -0,0 +1,380 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.CurrentLocation;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.ConversionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
+/**
+ * In-memory index of the current location of every tag: (tagId, epc) to last site/location, scan date and RSSI.
+ *
+ * The index is loaded before the instance reports ready, with a parallel scan of RFID_Tx (and READ_BURST when
+ * reads are compacted) split in rfid.current-location.load-chunks scan date ranges. RfidTxService keeps it up
+ * to date on add, update and delete, so lookups are a single hash map access without any database work.
+ * Reads written through other instances are picked up every rfid.current-location.refresh-interval-ms by
+ * re-reading the latest read per tag scanned after the newest scan date already applied (minus
+ * rfid.current-location.refresh-overlap-ms for reads arriving out of order).
+ * Reads that lost the location arbitration (locationWinner = false) never become the current location.
+ *
+ * With rfid.tag-state.enabled the entries are kept off heap in the TagStateStore (by locationId, together with
+ * the read count and RSSI sum of the tag) instead of the heap map. A store reopened from a cleanly closed file
+ * skips the load and only catches up from the newest scan date it recorded. The read count and RSSI sum of a tag
+ * always cover every stored read of the tag: its RFID_Tx rows, whether they won the location arbitration or not,
+ * and the reads merged into its bursts. The load counts them all, a read inserted through this instance is counted
+ * once (onAdded), a deleted one uncounted (onDeleted, onReadsDeleted) and an updated one only changes the RSSI sum
+ * (onUpdated). Reads written through other instances are not counted by the refresh, and the counts of a reopened
+ * store are the ones it was closed with.
+ */
+@Service
+@Order(0)
+public class CurrentLocationIndex implements ApplicationRunner {
+
+    private final RfidTxRepository rfidTxRepository;
+    private final ReadBurstRepository readBurstRepository;
+    private final ReadBurstService readBurstService;
+    private final TagStateStore tagStateStore;
+    private final LocationRepository locationRepository;
+    private final Map<RfidKey, CurrentLocation> index = new ConcurrentHashMap<>();
+    // site and location names are shared by many tags, keep one instance of each
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    // display names of the locations referenced by the TagStateStore
+    private final Map<Long, LocationNames> locationNames = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(CurrentLocationIndex.class);
+
+    @Value("${rfid.current-location.load-chunks:32}")
+    private int loadChunks;
+
+    @Value("${rfid.current-location.load-threads:4}")
+    private int loadThreads;
+
+    @Value("${rfid.current-location.refresh-overlap-ms:60000}")
+    private long refreshOverlapMs;
+
+    // newest scan date applied by the load or a refresh, the next refresh starts from there
+    private volatile LocalDateTime refreshedUpTo;
+
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private record LocationNames(String siteName, String locationName) {
+    }
+
+    @Autowired
+    public CurrentLocationIndex(RfidTxRepository rfidTxRepository, ReadBurstRepository readBurstRepository,
+                                ReadBurstService readBurstService, TagStateStore tagStateStore,
+                                LocationRepository locationRepository) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.readBurstRepository = readBurstRepository;
+        this.readBurstService = readBurstService;
+        this.tagStateStore = tagStateStore;
+        this.locationRepository = locationRepository;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+        if (tagStateStore.isEnabled() && tagStateStore.isRestored()) {
+            refreshedUpTo = tagStateStore.getHighWaterMark();
+            logger.info("{}|{}", LocalDateTime.now(), "Current location index reopened with " + tagStateStore.size() + " tags");
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, loadThreads));
+        try {
+            if (readBurstService.isEnabled()) {
+                load(executor, readBurstRepository.findMinLastSeen(), readBurstRepository.findMaxLastSeen(),
+                        readBurstRepository::findLatestBurstPerTag);
+            }
+            LocalDateTime max = rfidTxRepository.findMaxScanDate();
+            load(executor, rfidTxRepository.findMinScanDate(), max, rfidTxRepository::findLatestReadPerTag);
+            refreshedUpTo = max;
+            if (tagStateStore.isEnabled() && max != null) {
+                tagStateStore.setHighWaterMark(max);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        long size = tagStateStore.isEnabled() ? tagStateStore.size() : index.size();
+        logger.info("{}|{}", LocalDateTime.now(),
+                "Current location index loaded " + size + " tags in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void load(ExecutorService executor, LocalDateTime min, LocalDateTime max,
+                      BiFunction<LocalDateTime, LocalDateTime, List<Object[]>> latestPerTag) {
+        if (min == null || max == null) {
+            return;
+        }
+        // the last chunk ends just after max because chunk ends are excluded
+        LocalDateTime end = max.plusNanos(1_000);
+        long chunkNanos = Math.max(1, Duration.between(min, end).toNanos() / Math.max(1, loadChunks));
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (LocalDateTime from = min; from.isBefore(end); from = from.plusNanos(chunkNanos)) {
+            LocalDateTime chunkStart = from;
+            LocalDateTime chunkEnd = from.plusNanos(chunkNanos).isBefore(end) ? from.plusNanos(chunkNanos) : end;
+            chunks.add(CompletableFuture.runAsync(() -> {
+                for (Object[] row : latestPerTag.apply(chunkStart, chunkEnd)) {
+                    if (tagStateStore.isEnabled()) {
+                        // chunks are disjoint, so their counts add up
+                        tagStateStore.add((String) row[0], (String) row[1], ((Number) row[6]).longValue(),
+                                (LocalDateTime) row[2], toBigDecimal(row[3]), ((Number) row[7]).longValue(),
+                                toBigDecimal(row[8]), isWinner(row));
+                    } else if (isWinner(row)) {
+                        put(toCurrentLocation(row));
+                    }
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Applies the reads written through other instances since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${rfid.current-location.refresh-interval-ms:5000}")
+    public void refreshRecent() {
+        LocalDateTime from = refreshedUpTo;
+        if (from == null) {
+            from = rfidTxRepository.findMaxScanDate();
+            if (from == null) {
+                return;
+            }
+        }
+        LocalDateTime newest = from;
+        for (Object[] row : rfidTxRepository.findLatestReadPerTag(from.minusNanos(refreshOverlapMs * 1_000_000), END_OF_TIME)) {
+            CurrentLocation candidate = toCurrentLocation(row);
+            if (isWinner(row) && tagStateStore.isEnabled()) {
+                // the overlap re-reads reads already counted, only the last read is taken
+                tagStateStore.setLast(candidate.getTagId(), candidate.getEpc(), ((Number) row[6]).longValue(),
+                        candidate.getScanDate(), candidate.getRssi(), true);
+            } else if (isWinner(row)) {
+                put(candidate);
+            }
+            if (candidate.getScanDate().isAfter(newest)) {
+                newest = candidate.getScanDate();
+            }
+        }
+        refreshedUpTo = newest;
+        if (tagStateStore.isEnabled()) {
+            tagStateStore.setHighWaterMark(newest);
+        }
+    }
+
+    // a row is a loser when all the reads, or bursts, of its tag in the range lost the location arbitration
+    private static boolean isWinner(Object[] row) {
+        return row.length < 10 || !Boolean.FALSE.equals(row[9]);
+    }
+
+    // row layout of findLatestReadPerTag / findLatestBurstPerTag: tagId, epc, scanDate, rssi, siteName, locationName
+    private CurrentLocation toCurrentLocation(Object[] row) {
+        return new CurrentLocation((String) row[0], (String) row[1], display((String) row[4]), display((String) row[5]),
+                (LocalDateTime) row[2], toBigDecimal(row[3]), null, null);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private static BigDecimal toBigDecimal(Object value) {
+        if (value == null || value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+
+    private String display(String name) {
+        if (name == null) {
+            return null;
+        }
+        return names.computeIfAbsent(name, ConversionUtils::convertStringCompositeNamesToShow);
+    }
+
+    // keeps the entry with the latest scan date, so chunks and concurrent writes can be applied in any order
+    private void put(CurrentLocation candidate) {
+        index.merge(RfidKey.of(candidate.getTagId(), candidate.getEpc()), candidate,
+                (current, next) -> next.getScanDate().isBefore(current.getScanDate()) ? current : next);
+    }
+
+    /**
+     * Returns the current location of a tag.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return An Optional containing the current location, or an empty Optional if the tag was never read.
+     */
+    public Optional<CurrentLocation> find(String tagId, String epc) {
+        if (!tagStateStore.isEnabled()) {
+            return Optional.ofNullable(index.get(RfidKey.of(tagId, epc)));
+        }
+        Optional<TagStateStore.TagState> state = tagStateStore.get(tagId, epc);
+        // locationId 0: only reads that lost the location arbitration were counted
+        if (state.isEmpty() || state.get().locationId() == 0) {
+            return Optional.empty();
+        }
+        TagStateStore.TagState tagState = state.get();
+        LocationNames location = locationNames(tagState.locationId());
+        if (location == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new CurrentLocation(tagId, epc, location.siteName(), location.locationName(),
+                tagState.lastScanDate(), tagState.lastRssi(), tagState.readCount(), tagState.averageRssi()));
+    }
+
+    private LocationNames locationNames(long locationId) {
+        LocationNames cached = locationNames.get(locationId);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<Location> location = locationRepository.findById(locationId);
+        if (location.isEmpty()) {
+            return null;
+        }
+        LocationNames loaded = new LocationNames(display(location.get().getSite().getSiteName()),
+                display(location.get().getLocationName()));
+        locationNames.put(locationId, loaded);
+        return loaded;
+    }
+
+    /**
+     * Applies a read that was just inserted, counted once. A read already stored (e.g. written again by a resumed
+     * import) must not be applied.
+     *
+     * @param saved The saved read.
+     * @param siteName The normalized site name of the read.
+     * @param locationName The normalized location name of the read.
+     */
+    public void onAdded(RfidTx saved, String siteName, String locationName) {
+        if (tagStateStore.isEnabled()) {
+            Long locationId = saved.getLocation().getLocationId();
+            locationNames.putIfAbsent(locationId, new LocationNames(display(siteName), display(locationName)));
+            tagStateStore.add(saved.getTagId(), saved.getEpc(), locationId, saved.getScanDate(), saved.getRssi(), 1,
+                    saved.getRssi(), !Boolean.FALSE.equals(saved.getLocationWinner()));
+            return;
+        }
+        onUpdated(saved, saved.getRssi(), siteName, locationName);
+    }
+
+    /**
+     * Applies a read that was just updated (its location or RSSI changed, it is not counted again, its RSSI replaces
+     * the previous one in the RSSI sum of its tag).
+     *
+     * @param saved The saved read.
+     * @param previousRssi The RSSI of the read before the update.
+     * @param siteName The normalized site name of the read.
+     * @param locationName The normalized location name of the read.
+     */
+    public void onUpdated(RfidTx saved, BigDecimal previousRssi, String siteName, String locationName) {
+        if (tagStateStore.isEnabled() && !Objects.equals(previousRssi, saved.getRssi())) {
+            tagStateStore.subtract(saved.getTagId(), saved.getEpc(), 0,
+                    orZero(previousRssi).subtract(orZero(saved.getRssi())));
+        }
+        if (Boolean.FALSE.equals(saved.getLocationWinner())) {
+            return;
+        }
+        if (tagStateStore.isEnabled()) {
+            Long locationId = saved.getLocation().getLocationId();
+            locationNames.putIfAbsent(locationId, new LocationNames(display(siteName), display(locationName)));
+            tagStateStore.setLast(saved.getTagId(), saved.getEpc(), locationId, saved.getScanDate(), saved.getRssi(), true);
+            return;
+        }
+        put(new CurrentLocation(saved.getTagId(), saved.getEpc(), display(siteName), display(locationName),
+                saved.getScanDate(), saved.getRssi(), null, null));
+    }
+
+    /**
+     * Applies a deleted read: it is uncounted and, if it was the current location of its tag, the previous winning
+     * read takes its place.
+     *
+     * @param tagId The TagID of the deleted read.
+     * @param epc The EPC of the deleted read.
+     * @param scanDate The scan date of the deleted read.
+     * @param rssi The RSSI of the deleted read.
+     */
+    public void onDeleted(String tagId, String epc, LocalDateTime scanDate, BigDecimal rssi) {
+        onReadsDeleted(tagId, epc, 1, orZero(rssi));
+        Optional<CurrentLocation> current = find(tagId, epc);
+        if (current.isPresent() && current.get().getScanDate().equals(scanDate)) {
+            refresh(tagId, epc);
+        }
+    }
+
+    /**
+     * Applies a bulk delete or location reassignment of the reads of a tag within a scan date range: if the
+     * current location of the tag was read in the range, it is reloaded.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @param from The start of the range, included.
+     * @param to The end of the range, excluded.
+     */
+    public void onRangeChanged(String tagId, String epc, LocalDateTime from, LocalDateTime to) {
+        Optional<CurrentLocation> current = find(tagId, epc);
+        if (current.isPresent() && !current.get().getScanDate().isBefore(from) && current.get().getScanDate().isBefore(to)) {
+            refresh(tagId, epc);
+        }
+    }
+
+    /**
+     * Uncounts deleted reads from the read count and RSSI sum of their tag. Only the TagStateStore keeps counts,
+     * the current location itself is handled by onDeleted or onRangeChanged.
+     *
+     * @param tagId The TagID of the deleted reads.
+     * @param epc The EPC of the deleted reads.
+     * @param readCount The number of deleted reads.
+     * @param rssiSum The RSSI sum of the deleted reads.
+     */
+    public void onReadsDeleted(String tagId, String epc, long readCount, BigDecimal rssiSum) {
+        if (tagStateStore.isEnabled()) {
+            tagStateStore.subtract(tagId, epc, readCount, rssiSum);
+        }
+    }
+
+    /**
+     * Reloads the current location of one tag from the database, used when it can not be derived from the
+     * read being written (deleted current read, location arbitration re-flagging older reads).
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     */
+    public void refresh(String tagId, String epc) {
+        RfidKey key = RfidKey.of(tagId, epc);
+        Optional<RfidTx> latest = rfidTxRepository.findLatestWinningRead(tagId, epc);
+        if (latest.isPresent() && latest.get().getLocation() != null) {
+            RfidTx read = latest.get();
+            if (tagStateStore.isEnabled()) {
+                tagStateStore.setLast(tagId, epc, read.getLocation().getLocationId(), read.getScanDate(), read.getRssi(), false);
+            } else {
+                index.put(key, new CurrentLocation(tagId, epc, display(read.getLocation().getSite().getSiteName()),
+                        display(read.getLocation().getLocationName()), read.getScanDate(), read.getRssi(), null, null));
+            }
+        } else if (tagStateStore.isEnabled()) {
+            tagStateStore.remove(tagId, epc);
+        } else {
+            index.remove(key);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Model.RfidTx;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arbitrates between the locations of one site that see the same tag at the same moment.
+ *
+ * Reads of a tag at a site are grouped in windows of rfid.arbitration.window-ms (measured on the scan dates,
+ * anchored on the first read of the window). Inside a window the winning location is the one with the highest
+ * average RSSI, ties going to the location with more reads. Every read is stored, RfidTxService flags it
+ * with locationWinner and asks RfidTxRepository to re-flag the window when a later read changes the winner,
+ * so findLatestScans reports a stable location without post-hoc queries.
+ *
+ * Windows are kept in memory per instance and swept every rfid.arbitration.sweep-interval-ms.
+ */
+@Service
+public class LocationArbiter {
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+
+    @Value("${rfid.arbitration.window-ms:2000}")
+    private long windowMs;
+
+    // how far electAgain walks back, in windows, to find a read that opened its window
+    private static final int MAX_LOOKBACK_WINDOWS = 100;
+
+    private record Key(RfidKey tag, String siteName) {
+    }
+
+    /**
+     * Loads the stored reads of one tag.
+     */
+    @FunctionalInterface
+    public interface ReadLoader {
+        /**
+         * @param from The first scan date, included.
+         * @param to The last scan date, included.
+         * @return The reads of the tag scanned between from and to, ordered by scan date.
+         */
+        List<RfidTx> load(LocalDateTime from, LocalDateTime to);
+    }
+
+    /**
+     * Outcome of admitting a read into its window.
+     *
+     * @param winnerLocationId The location currently winning the window.
+     * @param winnerChanged true if the winner is not the one the already stored reads of the window were flagged with.
+     * @param windowStart The scan date of the first read of the window.
+     * @param windowEnd The last scan date covered by the window (datetime(6) precision).
+     * @param locationIds Every location that saw the tag in the window.
+     */
+    public record Decision(Long winnerLocationId, boolean winnerChanged, LocalDateTime windowStart,
+                           LocalDateTime windowEnd, Set<Long> locationIds) {
+    }
+
+    private static final class Score {
+        private long count;
+        private BigDecimal rssiSum = BigDecimal.ZERO;
+
+        private BigDecimal average() {
+            return rssiSum.divide(BigDecimal.valueOf(count), 4, RoundingMode.HALF_UP);
+        }
+    }
+
+    private static final class Window {
+        private final LocalDateTime start;
+        private final long openedAtNanos = System.nanoTime();
+        private final Map<Long, Score> scores = new HashMap<>();
+        private Long winner;
+
+        private Window(LocalDateTime start) {
+            this.start = start;
+        }
+
+        private boolean covers(LocalDateTime scanDate, long windowMs) {
+            return !scanDate.isBefore(start) && Duration.between(start, scanDate).toMillis() < windowMs;
+        }
+
+        private boolean endsBefore(LocalDateTime scanDate, long windowMs) {
+            return Duration.between(start, scanDate).toMillis() >= windowMs;
+        }
+
+        private Long electWinner() {
+            Long best = null;
+            Score bestScore = null;
+            for (Map.Entry<Long, Score> entry : scores.entrySet()) {
+                Score score = entry.getValue();
+                if (bestScore == null) {
+                    best = entry.getKey();
+                    bestScore = score;
+                    continue;
+                }
+                int byRssi = score.average().compareTo(bestScore.average());
+                if (byRssi > 0 || (byRssi == 0 && score.count > bestScore.count)) {
+                    best = entry.getKey();
+                    bestScore = score;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Adds a read to the window of its tag and site and elects the winning location.
+     *
+     * @param tagId The TagID of the read.
+     * @param epc The EPC of the read.
+     * @param siteName The normalized site name of the read.
+     * @param locationId The location of the read.
+     * @param scanDate The scan date of the read.
+     * @param rssi The RSSI of the read, a higher value is a stronger signal.
+     * @return The decision for the window, or an empty Optional if arbitration is disabled (window-ms = 0) or the
+     *         read is older than the window of its tag and site, to be arbitrated against the stored reads with
+     *         electAgain once stored.
+     */
+    public Optional<Decision> admit(String tagId, String epc, String siteName, Long locationId,
+                                    LocalDateTime scanDate, BigDecimal rssi) {
+        if (windowMs <= 0) {
+            return Optional.empty();
+        }
+        Decision[] decision = new Decision[1];
+        // the read is counted inside compute, atomically with the lookup and with the removal of the window by sweep
+        windows.compute(new Key(RfidKey.of(tagId, epc), siteName), (key, current) -> {
+            if (current != null && scanDate.isBefore(current.start)) {
+                // late read, the live window is kept for the reads to come
+                return current;
+            }
+            Window window = current == null || current.endsBefore(scanDate, windowMs) ? new Window(scanDate) : current;
+            Score score = window.scores.computeIfAbsent(locationId, id -> new Score());
+            score.count++;
+            score.rssiSum = score.rssiSum.add(rssi == null ? BigDecimal.ZERO : rssi);
+            Long previousWinner = window.winner;
+            window.winner = window.electWinner();
+            boolean winnerChanged = previousWinner != null && !previousWinner.equals(window.winner);
+            decision[0] = new Decision(window.winner, winnerChanged, window.start,
+                    window.start.plus(Duration.ofMillis(windowMs)).minusNanos(1_000), Set.copyOf(window.scores.keySet()));
+            return window;
+        });
+        return Optional.ofNullable(decision[0]);
+    }
+
+    /**
+     * Elects again the winners of stored reads of one tag at one site, e.g. after a bulk location reassignment.
+     * The reads are grouped in windows the same way admit groups incoming reads, the in-memory windows are not
+     * used nor changed.
+     *
+     * @param reads The reads, ordered by scan date.
+     * @return One decision per window, to be applied with RfidTxRepository.updateLocationWinner, or an empty list
+     *         if arbitration is disabled.
+     */
+    public List<Decision> arbitrate(List<RfidTx> reads) {
+        List<Decision> decisions = new ArrayList<>();
+        if (windowMs <= 0) {
+            return decisions;
+        }
+        Window window = null;
+        for (RfidTx read : reads) {
+            if (read.getLocation() == null) {
+                continue;
+            }
+            if (window == null || !window.covers(read.getScanDate(), windowMs)) {
+                if (window != null) {
+                    decisions.add(decide(window));
+                }
+                window = new Window(read.getScanDate());
+            }
+            Score score = window.scores.computeIfAbsent(read.getLocation().getLocationId(), id -> new Score());
+            score.count++;
+            score.rssiSum = score.rssiSum.add(read.getRssi() == null ? BigDecimal.ZERO : read.getRssi());
+        }
+        if (window != null) {
+            decisions.add(decide(window));
+        }
+        return decisions;
+    }
+
+    /**
+     * Elects again the windows of stored reads of one tag, at every site it was read, e.g. after some of them were
+     * deleted or moved to another location. Only the windows whose stored locationWinner flags differ from the
+     * election are returned.
+     *
+     * @param reads The reads of the tag, ordered by scan date.
+     * @return The decisions to apply with RfidTxRepository.updateLocationWinner, or an empty list if no stored flag
+     *         changes or arbitration is disabled.
+     */
+    public List<Decision> electAgain(List<RfidTx> reads) {
+        Map<Long, List<RfidTx>> readsBySite = new HashMap<>();
+        for (RfidTx read : reads) {
+            readsBySite.computeIfAbsent(read.getSiteId(), siteId -> new ArrayList<>()).add(read);
+        }
+        List<Decision> stale = new ArrayList<>();
+        for (List<RfidTx> siteReads : readsBySite.values()) {
+            int next = 0;
+            for (Decision decision : arbitrate(siteReads)) {
+                boolean changed = false;
+                LocalDateTime lastScanDate = decision.windowStart();
+                for (; next < siteReads.size() && !siteReads.get(next).getScanDate().isAfter(decision.windowEnd()); next++) {
+                    RfidTx read = siteReads.get(next);
+                    lastScanDate = read.getScanDate();
+                    if (read.getLocation() != null && !Boolean.valueOf(read.getLocation().getLocationId()
+                            .equals(decision.winnerLocationId())).equals(read.getLocationWinner())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    // bounded on the reads elected, not on the window length, reads past them were not part of it
+                    stale.add(new Decision(decision.winnerLocationId(), true, decision.windowStart(), lastScanDate,
+                            decision.locationIds()));
+                }
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Elects again the windows of the stored reads of one tag holding a read scanned between two dates, and the
+     * windows following them up to window-ms after the last date, e.g. after reads of that range were deleted,
+     * updated or admitted out of order. The windows are anchored as admit anchored them: the reads are loaded from a
+     * read with no read in the window-ms before it, which opened its window whatever came before (walking back at
+     * most MAX_LOOKBACK_WINDOWS windows), and up to the end of the last window elected.
+     *
+     * @param from The first scan date of the changed range.
+     * @param to The last scan date of the changed range.
+     * @param loader Loads the stored reads of the tag.
+     * @return The decisions to apply with RfidTxRepository.updateLocationWinner, each bounded on the first and last
+     *         read of its window, or an empty list if no stored flag changes or arbitration is disabled.
+     */
+    public List<Decision> electAgain(LocalDateTime from, LocalDateTime to, ReadLoader loader) {
+        if (windowMs <= 0) {
+            return List.of();
+        }
+        Duration window = Duration.ofMillis(windowMs);
+        LocalDateTime start = from.minus(window);
+        LocalDateTime end = to.plus(window);
+        List<List<RfidTx>> earlier = new ArrayList<>();
+        LocalDateTime lead = start;
+        for (int i = 0; i < MAX_LOOKBACK_WINDOWS; i++) {
+            List<RfidTx> before = loader.load(lead.minus(window), lead.minusNanos(1_000));
+            if (before.isEmpty()) {
+                break;
+            }
+            earlier.add(0, before);
+            lead = before.get(0).getScanDate();
+        }
+        List<RfidTx> reads = new ArrayList<>();
+        earlier.forEach(reads::addAll);
+        // a window anchored up to end ends before end + window-ms, so every window kept is elected on all its reads
+        reads.addAll(loader.load(start, end.plus(window).minusNanos(1_000)));
+        List<Decision> decisions = new ArrayList<>();
+        for (Decision decision : electAgain(reads)) {
+            if (!decision.windowStart().isAfter(end) && !decision.windowEnd().isBefore(start)) {
+                decisions.add(decision);
+            }
+        }
+        return decisions;
+    }
+
+    private Decision decide(Window window) {
+        return new Decision(window.electWinner(), true, window.start,
+                window.start.plus(Duration.ofMillis(windowMs)).minusNanos(1_000), Set.copyOf(window.scores.keySet()));
+    }
+
+    /**
+     * Removes the windows opened more than window-ms ago. Each window is removed only if it is still the one
+     * mapped to its key, under the same bin lock as compute, so a read admitted meanwhile is never lost.
+     */
+    @Scheduled(fixedDelayString = "${rfid.arbitration.sweep-interval-ms:5000}")
+    public void sweep() {
+        long expiredBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMs);
+        windows.forEach((key, window) -> {
+            if (window.openedAtNanos - expiredBefore < 0) {
+                windows.remove(key, window);
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-memory GTIN to product refCode mapping, so the product of an SGTIN-96 EPC is found by decoding the EPC
+ * (SgtinDecoder.gtin14) instead of querying the database for every read.
+ *
+ * The mapping is loaded on first use and replaced as a whole: ProductService invalidates it when a product is
+ * created, updated or deleted through this instance, and it is reloaded every
+ * rfid.gtin-cache.refresh-interval-ms to pick up the changes made through other instances.
+ */
+@Service
+public class ProductGtinCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductGtinCache.class);
+
+    private final ProductRepository productRepository;
+    // null until loaded or after an invalidation
+    private volatile Map<Long, Long> refCodeByGtin;
+
+    @Autowired
+    public ProductGtinCache(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Returns the refCode of the product with a GTIN.
+     *
+     * @param gtin The GTIN-14.
+     * @return The refCode, or an empty Optional if no product has this GTIN.
+     */
+    public Optional<Long> findRefCode(long gtin) {
+        Map<Long, Long> mapping = refCodeByGtin;
+        if (mapping == null) {
+            mapping = load();
+        }
+        return Optional.ofNullable(mapping.get(gtin));
+    }
+
+    /**
+     * Drops the mapping, the next lookup reloads it.
+     */
+    public void invalidate() {
+        refCodeByGtin = null;
+    }
+
+    /**
+     * Reloads the mapping if it was loaded, an unused cache stays empty.
+     */
+    @Scheduled(fixedDelayString = "${rfid.gtin-cache.refresh-interval-ms:60000}")
+    public void refresh() {
+        if (refCodeByGtin != null) {
+            load();
+        }
+    }
+
+    private Map<Long, Long> load() {
+        List<Object[]> rows = productRepository.findGtinMappings();
+        Map<Long, Long> mapping = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            mapping.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        refCodeByGtin = mapping;
+        logger.info("{}|{}", LocalDateTime.now(), "Loaded " + mapping.size() + " product GTINs");
+        return mapping;
+    }
+}
@@ -4,18 +4,33 @@ import com.example.demoRFID.ErrorCode;
 import com.example.demoRFID.ErrorMessage;
 import com.example.demoRFID.Model.Exceptions.InvalidInputException;
 import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.ProductUpsertResult;
 import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
 import com.example.demoRFID.Repository.ProductRepository;
 import com.example.demoRFID.Utils.ValidationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.example.demoRFID.Constants.REFCODE_LENGTH;
 
@@ -26,10 +41,26 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    private final ProductGtinCache productGtinCache;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${rfid.catalog.max-batch:200000}")
+    private int maxBatch;
+
+    @Value("${rfid.catalog.chunk-size:1000}")
+    private int chunkSize;
+
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
 
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository, ProductGtinCache productGtinCache,
+                          JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
         this.productRepository=productRepository;
+        this.productGtinCache=productGtinCache;
+        this.jdbcTemplate=jdbcTemplate;
+        this.transactionTemplate=new TransactionTemplate(transactionManager);
     }
 
     /**
@@ -39,8 +70,8 @@ public class ProductService {
      *
      * @param product The Product object to be created.
      * @return The saved Product object.
-     * @throws InvalidInputException if the reference code or name is invalid.
-     * @throws DuplicateKeyException if a product with the same reference code already exists.
+     * @throws InvalidInputException if the reference code, name or GTIN is invalid.
+     * @throws DuplicateKeyException if a product with the same reference code or GTIN already exists.
      */
     public Product createProduct(Product product) {
         StringBuilder message=new StringBuilder();
@@ -50,6 +81,9 @@ public class ProductService {
         if(ValidationUtils.isNullOrEmpty(product.getName())){
             message.append(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
         }
+        if(product.getGtin()!=null && !ValidationUtils.isValidGtin(product.getGtin())){
+            message.append(ErrorMessage.INVALID_GTIN.getMessage());
+        }
         if(!message.isEmpty()){
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
@@ -59,8 +93,11 @@ public class ProductService {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_DATA_INT.getMessage(), message);
             throw new DuplicateKeyException(ErrorMessage.PRODUCT_ALREADY_EXISTS.format(product.getRefCode()));
         }
+        checkGtinIsFree(product);
         logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.PRODUCT_SUCCESS.format(product.getRefCode()));
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productGtinCache.invalidate();
+        return saved;
     }
 
     /**
@@ -87,6 +124,20 @@ public class ProductService {
         return product.get();
     }
 
+    /**
+     * Returns which of a set of reference codes belong to a product, in one query.
+     *
+     * @param refCodes The reference codes to check.
+     * @return The reference codes that belong to a product.
+     */
+    public Set<Long> findExistingRefCodes(Collection<Long> refCodes) {
+        Set<Long> existing = new HashSet<>();
+        for (Product product : productRepository.findAllById(refCodes)) {
+            existing.add(product.getRefCode());
+        }
+        return existing;
+    }
+
     /**
      * Retrieves all Products from the database.
      * If no products are found, a ResourceNotFoundException is thrown.
@@ -111,8 +162,9 @@ public class ProductService {
      *
      * @param product The Product object to be updated.
      * @return The updated Product object.
-     * @throws InvalidInputException if the reference code or name is invalid.
+     * @throws InvalidInputException if the reference code, name or GTIN is invalid.
      * @throws ResourceNotFoundException if no product with the specified reference code is found.
+     * @throws DuplicateKeyException if another product has the same GTIN.
      */
     public Product updateProduct(Product product) {
         StringBuilder message=new StringBuilder();
@@ -122,6 +174,9 @@ public class ProductService {
         if(ValidationUtils.isNullOrEmpty(product.getName())){
             message.append(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
         }
+        if(product.getGtin()!=null && !ValidationUtils.isValidGtin(product.getGtin())){
+            message.append(ErrorMessage.INVALID_GTIN.getMessage());
+        }
         if(!message.isEmpty()){
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
@@ -131,8 +186,151 @@ public class ProductService {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_RES_NOT_FOUND.getMessage(), ErrorMessage.PRODUCT_NOT_FOUND.format(product.getRefCode()));
             throw new ResourceNotFoundException(ErrorMessage.PRODUCT_NOT_FOUND.format(product.getRefCode()));
         }
+        checkGtinIsFree(product);
         logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.PRODUCT_UPDATE_SUCCESS.format(product.getRefCode()));
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productGtinCache.invalidate();
+        return saved;
+    }
+
+    /**
+     * Creates or updates a batch of Products, e.g. a nightly catalog sync, in a few statements whatever its size.
+     *
+     * Every row is validated with the rules of createProduct and must hold a refCode and a GTIN not listed by
+     * another row. The existing products and the owners of the GTINs are then loaded with chunked IN queries,
+     * rows identical to the stored product are left alone, and the others are written with batched
+     * INSERT ... ON DUPLICATE KEY UPDATE statements of rfid.catalog.chunk-size rows, one transaction per chunk.
+     * A row without GTIN keeps the GTIN of the stored product. A rejected row does not stop the others.
+     *
+     * @param products The products to create or update.
+     * @return The counts per outcome and the outcome of every row.
+     * @throws InvalidInputException if the batch is empty or larger than rfid.catalog.max-batch.
+     */
+    public ProductUpsertResult upsertProducts(List<Product> products) {
+        if (products == null || products.isEmpty() || products.size() > maxBatch) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_INV_IN.getMessage(), ErrorMessage.PRODUCT_BATCH_SIZE.format(maxBatch));
+            throw new InvalidInputException(ErrorMessage.PRODUCT_BATCH_SIZE.format(maxBatch));
+        }
+        ProductUpsertResult.Row[] rows = new ProductUpsertResult.Row[products.size()];
+        Set<Long> refCodes = new HashSet<>();
+        Set<Long> gtins = new HashSet<>();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            String failure = null;
+            if (product == null || product.getRefCode() == null || !ValidationUtils.isValidRefCode(product.getRefCode().toString())) {
+                failure = ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH);
+            } else if (ValidationUtils.isNullOrEmpty(product.getName())) {
+                failure = ErrorMessage.PRODUCT_NAME_EMPTY.getMessage();
+            } else if (product.getGtin() != null && !ValidationUtils.isValidGtin(product.getGtin())) {
+                failure = ErrorMessage.INVALID_GTIN.getMessage();
+            } else if (!refCodes.add(product.getRefCode())) {
+                failure = ErrorMessage.PRODUCT_BATCH_DUPLICATE.format(product.getRefCode());
+            } else if (product.getGtin() != null && !gtins.add(product.getGtin())) {
+                failure = ErrorMessage.PRODUCT_BATCH_GTIN_DUPLICATE.format(product.getGtin());
+            }
+            if (failure != null) {
+                rows[i] = new ProductUpsertResult.Row(i, product == null ? null : product.getRefCode(),
+                        ProductUpsertResult.Status.REJECTED, failure);
+            }
+        }
+
+        Map<Long, Product> existing = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(refCodes))) {
+            for (Product product : productRepository.findAllById(chunk)) {
+                existing.put(product.getRefCode(), product);
+            }
+        }
+        Map<Long, Long> gtinOwners = new HashMap<>();
+        for (List<Long> chunk : chunks(new ArrayList<>(gtins))) {
+            for (Product product : productRepository.findByGtinIn(chunk)) {
+                gtinOwners.put(product.getGtin(), product.getRefCode());
+            }
+        }
+
+        List<Integer> toWrite = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != null) {
+                continue;
+            }
+            Product product = products.get(i);
+            Product stored = existing.get(product.getRefCode());
+            Long owner = product.getGtin() == null ? null : gtinOwners.get(product.getGtin());
+            if (owner != null && !owner.equals(product.getRefCode())) {
+                rows[i] = new ProductUpsertResult.Row(i, product.getRefCode(), ProductUpsertResult.Status.REJECTED,
+                        ErrorMessage.PRODUCT_GTIN_ALREADY_EXISTS.format(product.getGtin(), owner));
+            } else if (stored != null && stored.getName().equals(product.getName())
+                    && (product.getGtin() == null || product.getGtin().equals(stored.getGtin()))) {
+                rows[i] = new ProductUpsertResult.Row(i, product.getRefCode(), ProductUpsertResult.Status.UNCHANGED, null);
+            } else {
+                rows[i] = new ProductUpsertResult.Row(i, product.getRefCode(),
+                        stored == null ? ProductUpsertResult.Status.CREATED : ProductUpsertResult.Status.UPDATED, null);
+                toWrite.add(i);
+            }
+        }
+
+        for (List<Integer> chunk : chunks(toWrite)) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        // row alias instead of VALUES(), deprecated since MySQL 8.0.20
+                        "INSERT INTO product (ref_code, name, gtin) VALUES (?, ?, ?) AS new"
+                                + " ON DUPLICATE KEY UPDATE name = new.name, gtin = COALESCE(new.gtin, gtin)",
+                        chunk, chunk.size(), (statement, index) -> {
+                            Product product = products.get(index);
+                            statement.setLong(1, product.getRefCode());
+                            statement.setString(2, product.getName());
+                            statement.setObject(3, product.getGtin(), Types.BIGINT);
+                        }));
+            } catch (DataAccessException e) {
+                // e.g. a GTIN taken concurrently, the whole chunk is rolled back
+                String failure = ErrorMessage.PRODUCT_BATCH_FAILURE.format(e.getMostSpecificCause().getMessage());
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_DATA_INT.getMessage(), failure);
+                for (int index : chunk) {
+                    rows[index] = new ProductUpsertResult.Row(index, products.get(index).getRefCode(),
+                            ProductUpsertResult.Status.REJECTED, failure);
+                }
+            }
+        }
+        if (!toWrite.isEmpty()) {
+            productGtinCache.invalidate();
+        }
+
+        Map<ProductUpsertResult.Status, Integer> counts = new EnumMap<>(ProductUpsertResult.Status.class);
+        for (ProductUpsertResult.Row row : rows) {
+            counts.merge(row.getStatus(), 1, Integer::sum);
+        }
+        ProductUpsertResult result = new ProductUpsertResult(counts.getOrDefault(ProductUpsertResult.Status.CREATED, 0),
+                counts.getOrDefault(ProductUpsertResult.Status.UPDATED, 0),
+                counts.getOrDefault(ProductUpsertResult.Status.UNCHANGED, 0),
+                counts.getOrDefault(ProductUpsertResult.Status.REJECTED, 0), Arrays.asList(rows));
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.PRODUCT_BATCH_SUCCESS.format(result.getCreated(),
+                result.getUpdated(), result.getUnchanged(), result.getRejected()));
+        return result;
+    }
+
+    private <T> List<List<T>> chunks(List<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += chunkSize) {
+            chunks.add(values.subList(from, Math.min(from + chunkSize, values.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Checks that the GTIN of a product, if any, does not belong to another product.
+     *
+     * @param product The Product object to be saved.
+     * @throws DuplicateKeyException if another product has the same GTIN.
+     */
+    private void checkGtinIsFree(Product product) {
+        if(product.getGtin()==null){
+            return;
+        }
+        Optional<Product> owner = productRepository.findByGtin(product.getGtin());
+        if(owner.isPresent() && !owner.get().getRefCode().equals(product.getRefCode())){
+            String message = ErrorMessage.PRODUCT_GTIN_ALREADY_EXISTS.format(product.getGtin(), owner.get().getRefCode());
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.PRODUCT_DATA_INT.getMessage(), message);
+            throw new DuplicateKeyException(message);
+        }
     }
 
     /**
@@ -157,6 +355,7 @@ public class ProductService {
         //if product is already attached to a rfid a DataIntegrityViolationException will be automatically thrown
         logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.PRODUCT_DEL_SUCCESS.format(refCode));
         productRepository.deleteById(refCode);
+        productGtinCache.invalidate();
     }
 }
 
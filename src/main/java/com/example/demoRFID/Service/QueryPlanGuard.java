@@ -0,0 +1,322 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.lang.reflect.Method;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Guard against plan regressions of the RfidTxRepository queries.
+ *
+ * Runs MySQL EXPLAIN on the SQL of every RfidTxRepository and ReadBurstRepository query, with parameters taken
+ * from a stored read, and flags the plans that read a whole table (access type ALL) or a whole index (index) estimated at
+ * rfid.query-plan-check.min-rows rows or more; smaller tables are scanned by choice of the optimizer.
+ *
+ * The check runs once at startup, before the instance reports ready, and on demand through the
+ * /actuator/queryplans endpoint (QueryPlanEndpoint). Flagged plans are logged as errors and counted by the
+ * gauge rfid.query.plan.full-scans. With rfid.query-plan-check.fail-on-full-scan=true a flagged plan stops
+ * the startup, for staging environments that hold a production-sized copy of the data.
+ *
+ * The SQL is the one the queries actually run, see shapes: a catch-all filter that defeats the indexes is
+ * explained as such. A new repository query gets its shape here, QueryPlanGuardTest fails until it does, and
+ * QueryPlanGuardShapesTest fails when a JPQL or derived query no longer generates the WHERE clauses of its shape.
+ */
+@Service
+public class QueryPlanGuard implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanGuard.class);
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile(":(\\w+)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicInteger fullScans = new AtomicInteger();
+
+    @Value("${rfid.query-plan-check.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rfid.query-plan-check.min-rows:10000}")
+    private long minRows;
+
+    @Value("${rfid.query-plan-check.fail-on-full-scan:false}")
+    private boolean failOnFullScan;
+
+    /**
+     * EXPLAIN result of one query.
+     *
+     * @param query The repository method the SQL belongs to, ReadBurstRepository ones prefixed with the repository.
+     * @param plan The EXPLAIN rows.
+     * @param fullScans The plan rows flagged as full scans, empty if the plan is fine.
+     */
+    public record QueryPlan(String query, List<Map<String, Object>> plan, List<String> fullScans) {
+    }
+
+    @Autowired
+    public QueryPlanGuard(JdbcTemplate jdbcTemplate, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.jdbcTemplate = jdbcTemplate;
+        meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry)
+                .gauge("rfid.query.plan.full-scans", fullScans);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        List<QueryPlan> plans;
+        try {
+            plans = check();
+        } catch (RuntimeException e) {
+            // e.g. a database without EXPLAIN FORMAT compatible with MySQL, never prevents the startup
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Query plan check failed", e.getMessage());
+            return;
+        }
+        long flagged = plans.stream().filter(plan -> !plan.fullScans().isEmpty()).count();
+        if (flagged > 0 && failOnFullScan) {
+            throw new IllegalStateException(flagged + " repository queries scan a whole table, see the query plan check log");
+        }
+    }
+
+    /**
+     * Runs EXPLAIN on every query shape and logs the full scans.
+     *
+     * @return The plan of every query, empty if RFID_Tx has no read to take the parameters from.
+     */
+    public List<QueryPlan> check() {
+        List<Map<String, Object>> sample = jdbcTemplate.queryForList(
+                "SELECT tag_id, epc, site_id, ref_code, location_id FROM rfid_tx LIMIT 1");
+        if (sample.isEmpty()) {
+            logger.info("{}|{}", LocalDateTime.now(), "Query plan check skipped, RFID_Tx is empty");
+            fullScans.set(0);
+            return List.of();
+        }
+        Map<String, Object> read = sample.get(0);
+        Timestamp to = jdbcTemplate.queryForObject("SELECT MAX(scan_date) FROM rfid_tx", Timestamp.class);
+        Timestamp from = Timestamp.valueOf(to.toLocalDateTime().minusDays(1));
+        Object tagId = read.get("tag_id");
+        Object epc = read.get("epc");
+        Object siteId = read.get("site_id") == null ? 0L : read.get("site_id");
+        Object refCode = read.get("ref_code") == null ? 0L : read.get("ref_code");
+        Object locationId = read.get("location_id") == null ? 0L : read.get("location_id");
+
+        List<QueryPlan> plans = new ArrayList<>();
+        for (Map.Entry<String, Object[]> shape : shapes(tagId, epc, siteId, refCode, locationId, from, to).entrySet()) {
+            Object[] statement = shape.getValue();
+            List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + statement[0],
+                    Arrays.copyOfRange(statement, 1, statement.length));
+            List<String> flagged = new ArrayList<>();
+            for (Map<String, Object> row : plan) {
+                Object type = row.get("type");
+                Number rows = (Number) row.get("rows");
+                if (("ALL".equals(type) || "index".equals(type)) && rows != null && rows.longValue() >= minRows) {
+                    flagged.add(row.get("table") + " " + type + " ~" + rows + " rows");
+                }
+            }
+            if (flagged.isEmpty()) {
+                logger.debug("{}|{}", LocalDateTime.now(), "Query plan of " + shape.getKey() + ": " + plan);
+            } else {
+                logger.error("{}|{}|{}", LocalDateTime.now(), "Full scan in query plan of " + shape.getKey(), flagged);
+            }
+            plans.add(new QueryPlan(shape.getKey(), plan, flagged));
+        }
+        int flaggedQueries = (int) plans.stream().filter(plan -> !plan.fullScans().isEmpty()).count();
+        fullScans.set(flaggedQueries);
+        logger.info("{}|{}", LocalDateTime.now(), "Query plan check: " + plans.size() + " queries, "
+                + flaggedQueries + " with a full scan");
+        return plans;
+    }
+
+    /**
+     * SQL and parameters of every query of RfidTxRepository, with its findProjection fragment, and of
+     * ReadBurstRepository, by repository method. Native queries are taken from their @Query annotation. JPQL and
+     * derived queries are the SQL Hibernate generates for them, clause for clause, checked against the generated
+     * SQL by QueryPlanGuardShapesTest: catch-all filters such as (:epc IS NULL OR tx.epc = :epc) stay catch-all,
+     * bound with the values the services pass.
+     */
+    static Map<String, Object[]> shapes(Object tagId, Object epc, Object siteId, Object refCode, Object locationId,
+                                        Timestamp from, Timestamp to) {
+        Map<String, Object[]> shapes = new LinkedHashMap<>();
+
+        String latestScans = "WITH LatestScans AS (SELECT tx.epc AS epc, CONCAT(s.site_name, ' - ', l.location_name) AS mostRecentLocation,"
+                + " tx.rssi AS rssi, tx.scan_date AS scanDate, COUNT(*) OVER (PARTITION BY tx.epc) AS NumberOfTransactions,"
+                + " AVG(tx.rssi) OVER (PARTITION BY tx.epc) AS AverageRSSI,"
+                + " ROW_NUMBER() OVER (PARTITION BY tx.epc ORDER BY CASE WHEN tx.location_winner = false THEN 1 ELSE 0 END, tx.scan_date DESC) AS rn"
+                + " FROM rfid_tx tx JOIN location l ON tx.location_id = l.location_id JOIN site s ON l.site_id = s.site_id"
+                + " WHERE tx.scan_date BETWEEN ? AND ? AND (? IS NULL OR s.site_name = ?) AND (? IS NULL OR tx.epc = ?))"
+                + " SELECT epc, NumberOfTransactions, AverageRSSI, mostRecentLocation FROM LatestScans WHERE rn = 1";
+        shapes.put("findLatestScans", sql(latestScans, from, to, null, null, null, null));
+        shapes.put("findLatestScans(epc)", sql(latestScans, from, to, null, null, epc, epc));
+        String latestScansBySiteId = "WITH LatestScans AS (SELECT tx.epc AS epc, tx.location_id AS locationId,"
+                + " COUNT(*) OVER (PARTITION BY tx.epc) AS NumberOfTransactions, AVG(tx.rssi) OVER (PARTITION BY tx.epc) AS AverageRSSI,"
+                + " ROW_NUMBER() OVER (PARTITION BY tx.epc ORDER BY CASE WHEN tx.location_winner = false THEN 1 ELSE 0 END, tx.scan_date DESC) AS rn"
+                + " FROM rfid_tx tx WHERE tx.scan_date BETWEEN ? AND ? AND (? IS NULL OR tx.site_id = ?) AND (? IS NULL OR tx.epc = ?))"
+                + " SELECT ls.epc, ls.NumberOfTransactions, ls.AverageRSSI, CONCAT(s.site_name, ' - ', l.location_name)"
+                + " FROM LatestScans ls JOIN location l ON ls.locationId = l.location_id JOIN site s ON l.site_id = s.site_id WHERE ls.rn = 1";
+        shapes.put("findLatestScansBySiteId", sql(latestScansBySiteId, from, to, null, null, null, null));
+        shapes.put("findLatestScansBySiteId(siteId)", sql(latestScansBySiteId, from, to, siteId, siteId, null, null));
+        shapes.put("findTopReads", sql("SELECT tx.epc, COUNT(*) FROM rfid_tx tx WHERE tx.scan_date BETWEEN ? AND ?"
+                + " GROUP BY tx.epc ORDER BY COUNT(*) DESC LIMIT ?", from, to, 10));
+        shapes.put("findByEpc", sql("SELECT * FROM rfid_tx WHERE epc = ?", epc));
+        shapes.put("findByTagId", sql("SELECT * FROM rfid_tx WHERE tag_id = ?", tagId));
+        shapes.put("findByEpcAndTagId", sql("SELECT * FROM rfid_tx WHERE epc = ? AND tag_id = ?", epc, tagId));
+        shapes.put("findByScanDateBetween", sql("SELECT * FROM rfid_tx WHERE scan_date BETWEEN ? AND ?", from, to));
+        shapes.put("findBySiteIdAndScanDateBetween", sql("SELECT * FROM rfid_tx WHERE site_id = ? AND scan_date BETWEEN ? AND ?", siteId, from, to));
+        shapes.put("findByRefCodeAndScanDateBetween", sql("SELECT * FROM rfid_tx WHERE ref_code = ? AND scan_date BETWEEN ? AND ?", refCode, from, to));
+        String criteria = "SELECT * FROM rfid_tx rt WHERE (? IS NULL OR rt.epc = ?) AND (? IS NULL OR rt.tag_id = ?)"
+                + " AND (? IS NULL OR rt.scan_date >= ?) AND (? IS NULL OR rt.scan_date <= ?)";
+        shapes.put("findByCriteria(epc, dates)", sql(criteria, epc, epc, null, null, from, from, to, to));
+        shapes.put("findByCriteria(dates)", sql(criteria, null, null, null, null, from, from, to, to));
+        shapes.put("findLatestReadPerTag", sql("WITH LatestReads AS (SELECT tx.tag_id AS tagId, tx.epc AS epc, tx.scan_date AS scanDate,"
+                + " tx.rssi AS rssi, s.site_name AS siteName, l.location_name AS locationName, l.location_id AS locationId,"
+                + " COUNT(*) OVER (PARTITION BY tx.tag_id, tx.epc) AS readCount, SUM(tx.rssi) OVER (PARTITION BY tx.tag_id, tx.epc) AS rssiSum,"
+                + " tx.location_winner AS locationWinner, ROW_NUMBER() OVER (PARTITION BY tx.tag_id, tx.epc"
+                + " ORDER BY CASE WHEN tx.location_winner = false THEN 1 ELSE 0 END, tx.scan_date DESC) AS rn"
+                + " FROM rfid_tx tx JOIN location l ON tx.location_id = l.location_id JOIN site s ON l.site_id = s.site_id"
+                + " WHERE tx.scan_date >= ? AND tx.scan_date < ?)"
+                + " SELECT tagId, epc, scanDate, rssi, siteName, locationName, locationId, readCount, rssiSum, locationWinner"
+                + " FROM LatestReads WHERE rn = 1",
+                from, to));
+        shapes.put("findLatestWinningRead", sql("SELECT * FROM rfid_tx WHERE tag_id = ? AND epc = ?"
+                + " AND (location_winner IS NULL OR location_winner = true) ORDER BY scan_date DESC LIMIT ?", tagId, epc, 1));
+        shapes.put("findMinScanDate", sql("SELECT MIN(scan_date) FROM rfid_tx"));
+        shapes.put("findMaxScanDate", sql("SELECT MAX(scan_date) FROM rfid_tx"));
+        shapes.put("updateLocationWinner", sql("UPDATE rfid_tx SET location_winner = CASE WHEN location_id = ? THEN true ELSE false END"
+                + " WHERE tag_id = ? AND epc = ? AND scan_date BETWEEN ? AND ? AND location_id IN (?)", locationId, tagId, epc, from, to, locationId));
+        shapes.put("findCompactionCandidates", sql("SELECT DISTINCT tag_id, epc FROM rfid_tx WHERE scan_date < ? LIMIT ?", to, 500));
+        shapes.put("findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc", sql("SELECT * FROM rfid_tx"
+                + " WHERE tag_id = ? AND epc = ? AND scan_date < ? ORDER BY scan_date LIMIT ? FOR UPDATE", tagId, epc, to, 1000));
+        shapes.put("deleteCompacted", sql("DELETE FROM rfid_tx WHERE tag_id = ? AND epc = ? AND scan_date <= ?", tagId, epc, to));
+        shapes.put("findMinScanDateToBackfill", sql("SELECT MIN(scan_date) FROM rfid_tx"
+                + " WHERE site_id IS NULL AND scan_date >= ? AND location_id IS NOT NULL", from));
+        String bulkFilter = " WHERE scan_date >= ? AND scan_date < ?"
+                + " AND (? IS NULL OR location_id IN (SELECT l.location_id FROM location l WHERE l.site_id = ?))"
+                + " AND (? IS NULL OR location_id = ?) AND (? IS NULL OR epc = ?)";
+        shapes.put("findTagsMatching", sql("SELECT tag_id, epc, COUNT(*), SUM(rssi) FROM rfid_tx" + bulkFilter
+                + " GROUP BY tag_id, epc", from, to, siteId, siteId, null, null, null, null));
+        shapes.put("findScanDatesMatching", sql("SELECT scan_date FROM rfid_tx" + bulkFilter + " ORDER BY scan_date LIMIT ? OFFSET ?",
+                from, to, siteId, siteId, null, null, null, null, 1, 5000));
+        shapes.put("findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc", sql("SELECT * FROM rfid_tx"
+                + " WHERE tag_id = ? AND epc = ? AND scan_date BETWEEN ? AND ? ORDER BY scan_date", tagId, epc, from, to));
+        shapes.put("deleteMatching", sql("DELETE FROM rfid_tx" + bulkFilter, from, to, siteId, siteId, null, null, null, null));
+        shapes.put("reassignMatching", sql("UPDATE rfid_tx SET location_id = ?, site_id = ?" + bulkFilter,
+                locationId, siteId, from, to, siteId, siteId, null, null, null, null));
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("from", from);
+        parameters.put("to", to);
+        parameters.put("before", from);
+        parameters.put("limit", 1000);
+        parameters.put("siteId", siteId);
+        parameters.put("excludedSiteIds", siteId);
+        shapes.put("findLatestReadsBetween", nativeSql(RfidTxRepository.class, "findLatestReadsBetween",
+                Map.of("startDate", from, "endDate", to, "limit", 100)));
+        for (String method : List.of("backfillSiteAndRefCode", "countLeftToBackfill", "deleteByScanDateRange", "findOldest", "deleteOldest",
+                "findOldestExceptSites", "deleteOldestExceptSites", "findOldestOfSite", "deleteOldestOfSite")) {
+            shapes.put(method, nativeSql(RfidTxRepository.class, method, parameters));
+        }
+
+        // RfidTxProjectionRepositoryImpl: the selected columns, Location and Site only with location, one predicate per filter
+        String projection = "SELECT tx.tag_id, tx.scan_date, l.location_id, l.location_name, s.site_id, s.site_name FROM rfid_tx tx"
+                + " LEFT JOIN location l ON l.location_id = tx.location_id LEFT JOIN site s ON s.site_id = l.site_id";
+        shapes.put("findProjection(epc)", sql("SELECT tx.epc, tx.scan_date, tx.rssi FROM rfid_tx tx WHERE tx.epc = ?", epc));
+        shapes.put("findProjection(tagId, epc)", sql(projection + " WHERE tx.tag_id = ? AND tx.epc = ?", tagId, epc));
+        shapes.put("findProjection(dates)", sql(projection + " WHERE tx.scan_date >= ? AND tx.scan_date <= ?", from, to));
+        shapes.put("findProjection(dates, siteId)", sql(projection
+                + " WHERE tx.scan_date >= ? AND tx.scan_date <= ? AND tx.site_id = ?", from, to, siteId));
+        shapes.put("findProjection(dates, refCode)", sql(projection
+                + " WHERE tx.scan_date >= ? AND tx.scan_date <= ? AND tx.ref_code = ?", from, to, refCode));
+
+        shapes.put("ReadBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc", sql("SELECT * FROM read_burst"
+                + " WHERE tag_id = ? AND epc = ? ORDER BY last_seen DESC LIMIT ? FOR UPDATE", tagId, epc, 1));
+        shapes.put("ReadBurstRepository.findLatestBurstPerTag", sql("WITH LatestBursts AS (SELECT b.tag_id AS tagId, b.epc AS epc,"
+                + " b.last_seen AS lastSeen, b.rssi_sum / b.read_count AS rssi, s.site_name AS siteName, l.location_name AS locationName,"
+                + " l.location_id AS locationId, SUM(b.read_count) OVER (PARTITION BY b.tag_id, b.epc) AS readCount,"
+                + " SUM(b.rssi_sum) OVER (PARTITION BY b.tag_id, b.epc) AS rssiSum, b.location_winner AS locationWinner,"
+                + " ROW_NUMBER() OVER (PARTITION BY b.tag_id, b.epc"
+                + " ORDER BY CASE WHEN b.location_winner = false THEN 1 ELSE 0 END, b.last_seen DESC) AS rn"
+                + " FROM read_burst b JOIN location l ON b.location_id = l.location_id JOIN site s ON l.site_id = s.site_id"
+                + " WHERE b.last_seen >= ? AND b.last_seen < ?)"
+                + " SELECT tagId, epc, lastSeen, rssi, siteName, locationName, locationId, readCount, rssiSum, locationWinner"
+                + " FROM LatestBursts WHERE rn = 1",
+                from, to));
+        shapes.put("ReadBurstRepository.findMinLastSeen", sql("SELECT MIN(last_seen) FROM read_burst"));
+        shapes.put("ReadBurstRepository.findMaxLastSeen", sql("SELECT MAX(last_seen) FROM read_burst"));
+        parameters.put("startdatetime", from);
+        parameters.put("enddatetime", to);
+        parameters.put("epc", null);
+        parameters.put("siteName", null);
+        parameters.put("limit", 10);
+        for (String method : List.of("findLatestScans", "findTopReads")) {
+            shapes.put("ReadBurstRepository." + method, nativeSql(ReadBurstRepository.class, method, parameters));
+        }
+        String burstFilter = " AND (? IS NULL OR location_id IN (SELECT l.location_id FROM location l WHERE l.site_id = ?))"
+                + " AND (? IS NULL OR location_id = ?) AND (? IS NULL OR epc = ?)";
+        String burstChunk = " WHERE first_seen >= ? AND first_seen < ? AND last_seen < ?" + burstFilter;
+        shapes.put("ReadBurstRepository.findFirstSeenMatching", sql("SELECT first_seen FROM read_burst WHERE first_seen >= ? AND last_seen < ?"
+                + burstFilter + " ORDER BY first_seen LIMIT ? OFFSET ?", from, to, siteId, siteId, null, null, null, null, 1, 5000));
+        shapes.put("ReadBurstRepository.findTagsMatching", sql("SELECT tag_id, epc, SUM(read_count), SUM(rssi_sum) FROM read_burst"
+                + burstChunk + " GROUP BY tag_id, epc", from, to, to, siteId, siteId, null, null, null, null));
+        shapes.put("ReadBurstRepository.deleteMatching", sql("DELETE FROM read_burst" + burstChunk,
+                from, to, to, siteId, siteId, null, null, null, null));
+        shapes.put("ReadBurstRepository.reassignMatching", sql("UPDATE read_burst SET location_id = ?" + burstChunk,
+                locationId, from, to, to, siteId, siteId, null, null, null, null));
+        shapes.put("ReadBurstRepository.findOldest", sql("SELECT * FROM read_burst WHERE last_seen < ?"
+                + " ORDER BY last_seen LIMIT ? FOR UPDATE", from, 1000));
+        shapes.put("ReadBurstRepository.findOldestExceptSites", sql("SELECT * FROM read_burst WHERE last_seen < ?"
+                + " AND (location_id IS NULL OR location_id NOT IN (SELECT l.location_id FROM location l WHERE l.site_id IN (?)))"
+                + " ORDER BY last_seen LIMIT ? FOR UPDATE", from, siteId, 1000));
+        shapes.put("ReadBurstRepository.findOldestOfSite", sql("SELECT * FROM read_burst WHERE last_seen < ?"
+                + " AND location_id IN (SELECT l.location_id FROM location l WHERE l.site_id = ?)"
+                + " ORDER BY last_seen LIMIT ? FOR UPDATE", from, siteId, 1000));
+        return shapes;
+    }
+
+    private static Object[] sql(String sql, Object... parameters) {
+        Object[] statement = new Object[parameters.length + 1];
+        statement[0] = sql;
+        System.arraycopy(parameters, 0, statement, 1, parameters.length);
+        return statement;
+    }
+
+    // a native @Query of a repository as written, its named parameters replaced by positional ones
+    private static Object[] nativeSql(Class<?> repository, String method, Map<String, Object> parameters) {
+        Method queryMethod = Arrays.stream(repository.getDeclaredMethods())
+                .filter(candidate -> candidate.getName().equals(method) && candidate.isAnnotationPresent(Query.class))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No @Query method " + method + " in " + repository.getSimpleName()));
+        List<Object> values = new ArrayList<>();
+        values.add(null);
+        StringBuilder sql = new StringBuilder();
+        Matcher parameter = NAMED_PARAMETER.matcher(queryMethod.getAnnotation(Query.class).value());
+        while (parameter.find()) {
+            if (!parameters.containsKey(parameter.group(1))) {
+                throw new IllegalStateException("No value for :" + parameter.group(1) + " of " + method);
+            }
+            values.add(parameters.get(parameter.group(1)));
+            parameter.appendReplacement(sql, "?");
+        }
+        parameter.appendTail(sql);
+        values.set(0, sql.toString());
+        return values.toArray();
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.ReadBurst;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.TopEPC;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Collapses repeated reads of a tag into read bursts and answers the aggregate queries from them.
+ *
+ * A tag sitting in front of a reader produces hundreds of RFID_Tx rows a minute with the same tagId, epc and
+ * location. The compaction job walks the reads of every tag in scan date order and merges consecutive reads at
+ * the same location that are at most rfid.compaction.gap-seconds apart into one ReadBurst, then deletes the
+ * merged RFID_Tx rows. Reads that lost the location arbitration (locationWinner false) are merged apart, into
+ * bursts flagged as losers, so they still count but never become the latest location of the tag. Reads newer than rfid.compaction.settle-seconds are left alone so late reads can still
+ * extend a burst, they form the uncompacted tail that the burst queries read together with READ_BURST.
+ *
+ * Compaction is off by default (rfid.compaction.enabled). Once on, the per read endpoints (by EPC, by tag,
+ * by scan date range, update and delete) only see the uncompacted tail.
+ */
+@Service
+public class ReadBurstService {
+
+    private final ReadBurstRepository readBurstRepository;
+    private final RfidTxRepository rfidTxRepository;
+    private final TransactionTemplate transactionTemplate;
+    private static final Logger logger = LoggerFactory.getLogger(ReadBurstService.class);
+
+    @Value("${rfid.compaction.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rfid.compaction.gap-seconds:30}")
+    private long gapSeconds;
+
+    @Value("${rfid.compaction.settle-seconds:600}")
+    private long settleSeconds;
+
+    @Value("${rfid.compaction.tag-batch-size:500}")
+    private int tagBatchSize;
+
+    @Value("${rfid.compaction.reads-per-transaction:5000}")
+    private int readsPerTransaction;
+
+    @Autowired
+    public ReadBurstService(ReadBurstRepository readBurstRepository, RfidTxRepository rfidTxRepository,
+                            PlatformTransactionManager transactionManager) {
+        this.readBurstRepository = readBurstRepository;
+        this.rfidTxRepository = rfidTxRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indicates whether reads are compacted, in which case findLatestScans and findTopReads must be
+     * answered by this service instead of the RFID_Tx queries.
+     *
+     * @return true if compaction is enabled.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Scheduled compaction run. Every tag is compacted in transactions of at most readsPerTransaction reads,
+     * the reads and the burst being extended are locked, so several instances can run the job at the same time.
+     */
+    @Scheduled(fixedDelayString = "${rfid.compaction.interval-ms:60000}", initialDelayString = "${rfid.compaction.interval-ms:60000}")
+    public void compact() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime horizon = LocalDateTime.now().minusSeconds(settleSeconds);
+        long reads = 0;
+        long started = System.currentTimeMillis();
+        try {
+            List<Object[]> tags;
+            do {
+                tags = rfidTxRepository.findCompactionCandidates(horizon, PageRequest.of(0, tagBatchSize));
+                for (Object[] tag : tags) {
+                    reads += compactTag((String) tag[0], (String) tag[1], horizon);
+                }
+            } while (tags.size() == tagBatchSize);
+        } catch (RuntimeException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Read burst compaction stopped", e.getMessage());
+        }
+        logger.info("{}|{}", LocalDateTime.now(),
+                "Compacted " + reads + " reads into bursts in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    /**
+     * Compacts every read of one tag older than the horizon.
+     *
+     * @param tagId The TagID of the reads.
+     * @param epc The EPC of the reads.
+     * @param horizon Only reads scanned before this date are compacted.
+     * @return The number of compacted reads.
+     */
+    long compactTag(String tagId, String epc, LocalDateTime horizon) {
+        long compacted = 0;
+        Integer merged;
+        do {
+            merged = transactionTemplate.execute(status -> compactChunk(tagId, epc, horizon));
+            compacted += merged == null ? 0 : merged;
+        } while (merged != null && merged == readsPerTransaction);
+        return compacted;
+    }
+
+    private int compactChunk(String tagId, String epc, LocalDateTime horizon) {
+        List<RfidTx> reads = rfidTxRepository.findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc(
+                tagId, epc, horizon, PageRequest.of(0, readsPerTransaction));
+        if (reads.isEmpty()) {
+            return 0;
+        }
+        Duration gap = Duration.ofSeconds(gapSeconds);
+        List<ReadBurst> bursts = new ArrayList<>();
+        // the burst being extended by the winning reads and the one being extended by the losing reads
+        ReadBurst winning = null;
+        ReadBurst losing = null;
+        ReadBurst latest = readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc(tagId, epc).orElse(null);
+        if (latest != null) {
+            bursts.add(latest);
+            if (isWinner(latest.getLocationWinner())) {
+                winning = latest;
+            } else {
+                losing = latest;
+            }
+        }
+        for (RfidTx read : reads) {
+            boolean winner = isWinner(read.getLocationWinner());
+            ReadBurst current = winner ? winning : losing;
+            if (current != null && continues(current, read, gap)) {
+                extend(current, read);
+                continue;
+            }
+            current = start(read);
+            bursts.add(current);
+            if (winner) {
+                winning = current;
+            } else {
+                losing = current;
+            }
+        }
+        readBurstRepository.saveAll(bursts);
+        rfidTxRepository.deleteCompacted(tagId, epc, reads.get(reads.size() - 1).getScanDate());
+        return reads.size();
+    }
+
+    private static boolean continues(ReadBurst burst, RfidTx read, Duration gap) {
+        return Objects.equals(locationId(burst.getLocation()), locationId(read.getLocation()))
+                && !read.getScanDate().isBefore(burst.getLastSeen())
+                && Duration.between(burst.getLastSeen(), read.getScanDate()).compareTo(gap) <= 0;
+    }
+
+    // reads and bursts stored before the location arbitration existed are winners
+    private static boolean isWinner(Boolean locationWinner) {
+        return !Boolean.FALSE.equals(locationWinner);
+    }
+
+    private static Long locationId(Location location) {
+        return location == null ? null : location.getLocationId();
+    }
+
+    private static ReadBurst start(RfidTx read) {
+        ReadBurst burst = new ReadBurst();
+        burst.setTagId(read.getTagId());
+        burst.setEpc(read.getEpc());
+        burst.setLocation(read.getLocation());
+        burst.setFirstSeen(read.getScanDate());
+        burst.setLastSeen(read.getScanDate());
+        burst.setReadCount(1L);
+        burst.setMinRssi(read.getRssi());
+        burst.setMaxRssi(read.getRssi());
+        burst.setRssiSum(read.getRssi() == null ? BigDecimal.ZERO : read.getRssi());
+        burst.setLocationWinner(read.getLocationWinner());
+        return burst;
+    }
+
+    private static void extend(ReadBurst burst, RfidTx read) {
+        burst.setLastSeen(read.getScanDate());
+        burst.setReadCount(burst.getReadCount() + 1);
+        BigDecimal rssi = read.getRssi();
+        if (rssi != null) {
+            burst.setMinRssi(burst.getMinRssi() == null ? rssi : burst.getMinRssi().min(rssi));
+            burst.setMaxRssi(burst.getMaxRssi() == null ? rssi : burst.getMaxRssi().max(rssi));
+            burst.setRssiSum(burst.getRssiSum().add(rssi));
+        }
+    }
+
+    /**
+     * Retrieves the latest scan of every EPC from the bursts and the uncompacted reads.
+     * Same contract as RfidTxRepository.findLatestScans.
+     *
+     * @param startDateTime The start of the date range for the scans.
+     * @param endDateTime The end of the date range for the scans.
+     * @param epc The EPC to filter by, or null to include all EPCs.
+     * @param siteName The site name to filter by, or null to include all sites.
+     * @return A list of LatestEPC objects representing the latest scan details for each EPC.
+     */
+    public List<LatestEPC> findLatestScans(LocalDateTime startDateTime, LocalDateTime endDateTime, String epc, String siteName) {
+        List<LatestEPC> latestEpcList = new ArrayList<>();
+        for (Object[] row : readBurstRepository.findLatestScans(startDateTime, endDateTime,
+                RfidKeyCodec.encodeEpc(epc), siteName)) {
+            latestEpcList.add(new LatestEPC(RfidKeyCodec.decodeEpc((byte[]) row[0]),
+                    ((Number) row[1]).longValue(),
+                    row[2] == null ? null : ((Number) row[2]).doubleValue(),
+                    (String) row[3]));
+        }
+        return latestEpcList;
+    }
+
+    /**
+     * Retrieves the top EPCs by number of reads from the bursts and the uncompacted reads.
+     * Same contract as RfidTxRepository.findTopReads.
+     *
+     * @param limit The maximum number of top EPCs to return.
+     * @param startDateTime The start of the date range for the scans.
+     * @param endDateTime The end of the date range for the scans.
+     * @return A list of TopEPC objects representing the EPCs with the highest read counts.
+     */
+    public List<TopEPC> findTopReads(int limit, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        List<TopEPC> topReadsList = new ArrayList<>();
+        for (Object[] row : readBurstRepository.findTopReads(limit, startDateTime, endDateTime)) {
+            topReadsList.add(new TopEPC(RfidKeyCodec.decodeEpc((byte[]) row[0]), ((Number) row[1]).longValue()));
+        }
+        return topReadsList;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Model.RfidTx;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per (tagId, epc, refCode, site, location) suppression window applied by RfidTxService.addRfidTx before any
+ * database access. Disabled unless rfid.suppression.window-ms is set.
+ *
+ * Readers re-report a tag many times per second. The first read of a key is stored normally and opens a window
+ * of rfid.suppression.window-ms (measured on the scan dates); every later read of the same key whose scan date
+ * falls inside the window is suppressed: it only updates the suppression counter and RSSI distribution, and
+ * the stored read is returned to the caller. Windows are anchored on the stored read, so a tag staying in
+ * front of a reader is still stored once per window. The key holds every request field checked against the
+ * database, so a suppressed read carries the same tag, product, site and location as the validated stored read.
+ *
+ * Entries live in an expiring map swept every rfid.suppression.sweep-interval-ms. The windows of a tag are
+ * evicted when one of its reads is deleted, updated or changed by a bulk operation, so a read that is no longer
+ * stored never suppresses the next one. The window is per instance, reads of the same tag routed to different
+ * instances are not suppressed against each other.
+ *
+ * Metrics: rfid.ingest.suppressed (counter), rfid.ingest.suppressed.rssi (RSSI of the suppressed reads)
+ * and rfid.ingest.suppression.entries (open windows).
+ */
+@Service
+public class ReadSuppressionWindow {
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+    private final Counter suppressedCounter;
+    private final DistributionSummary suppressedRssi;
+
+    @Value("${rfid.suppression.window-ms:0}")
+    private long windowMs;
+
+    @Value("${rfid.suppression.max-entries:100000}")
+    private int maxEntries;
+
+    @Autowired
+    public ReadSuppressionWindow(ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        this.suppressedCounter = meterRegistry.counter("rfid.ingest.suppressed");
+        this.suppressedRssi = DistributionSummary.builder("rfid.ingest.suppressed.rssi").register(meterRegistry);
+        meterRegistry.gaugeMapSize("rfid.ingest.suppression.entries", Tags.empty(), windows);
+    }
+
+    private record Key(RfidKey tag, Long refCode, String siteName, String locationName) {
+    }
+
+    /**
+     * Open window of one key: the stored read it is anchored on.
+     */
+    private record Window(RfidTx stored, long openedAtNanos) {
+
+        private boolean covers(LocalDateTime scanDate, long windowMs) {
+            return !scanDate.isBefore(stored.getScanDate())
+                    && Duration.between(stored.getScanDate(), scanDate).toMillis() < windowMs;
+        }
+    }
+
+    /**
+     * Checks whether a read falls in the open window of its key and, if so, suppresses it.
+     *
+     * @param tagId The validated, upper case TagID of the read.
+     * @param epc The validated, upper case EPC of the read.
+     * @param refCode The refCode of the read.
+     * @param siteName The normalized site name of the read.
+     * @param locationName The normalized location name of the read.
+     * @param scanDate The scan date of the read.
+     * @param rssi The RSSI of the read.
+     * @return An Optional containing the stored read the window belongs to if the read was suppressed,
+     *         or an empty Optional if the read must be stored.
+     */
+    public Optional<RfidTx> trySuppress(String tagId, String epc, Long refCode, String siteName, String locationName,
+                                        LocalDateTime scanDate, BigDecimal rssi) {
+        if (windowMs <= 0) {
+            return Optional.empty();
+        }
+        Window window = windows.get(new Key(RfidKey.of(tagId, epc), refCode, siteName, locationName));
+        if (window == null || !window.covers(scanDate, windowMs)) {
+            return Optional.empty();
+        }
+        suppressedCounter.increment();
+        if (rssi != null) {
+            suppressedRssi.record(rssi.doubleValue());
+        }
+        return Optional.of(window.stored());
+    }
+
+    /**
+     * Opens a new window after a read has been stored, replacing the previous window of the key.
+     *
+     * @param siteName The normalized site name of the read.
+     * @param locationName The normalized location name of the read.
+     * @param stored The read as saved in the database.
+     */
+    public void record(String siteName, String locationName, RfidTx stored) {
+        if (windowMs <= 0 || windows.size() >= maxEntries) {
+            return;
+        }
+        windows.put(new Key(RfidKey.of(stored.getTagId(), stored.getEpc()), stored.getRefCode(), siteName, locationName),
+                new Window(stored, System.nanoTime()));
+    }
+
+    /**
+     * Closes the windows of a tag, after one of its reads was deleted or changed.
+     *
+     * @param tagId The TagID of the tag, any case.
+     * @param epc The EPC of the tag, any case.
+     */
+    public void evict(String tagId, String epc) {
+        if (windows.isEmpty()) {
+            return;
+        }
+        RfidKey tag = RfidKey.of(tagId, epc);
+        windows.keySet().removeIf(key -> key.tag().equals(tag));
+    }
+
+    /**
+     * Removes the windows opened more than window-ms ago.
+     */
+    @Scheduled(fixedDelayString = "${rfid.suppression.sweep-interval-ms:5000}")
+    public void sweep() {
+        long expiredBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMs);
+        windows.values().removeIf(window -> window.openedAtNanos() - expiredBefore < 0);
+    }
+}
@@ -0,0 +1,660 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Constants;
+import com.example.demoRFID.ErrorCode;
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.ProductSiteReads;
+import com.example.demoRFID.Model.ReportSnapshot;
+import com.example.demoRFID.Model.RssiTrend;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.ConversionUtils;
+import com.example.demoRFID.Utils.DuckDbUtils;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import com.example.demoRFID.Utils.ValidationUtils;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.duckdb.DuckDBConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * Month and year scale reports answered by an embedded DuckDB (vectorized, columnar) instead of Aurora.
+ *
+ * Every rfid.reporting.snapshot-interval-ms the snapshot job copies Site, Location, Product and Rfid, and the
+ * RFID_Tx reads of the last rfid.reporting.refresh-days days (every day on the first run), to Parquet files
+ * under rfid.reporting.location, the reads partitioned like the archive (scan_day=/site_id=). Each day is one
+ * streaming range read of the clustered index, outside any transaction, so the job never locks the reads being
+ * ingested; the reports themselves only read the files. The copies read rfid.reporting.reader-url (the reader
+ * endpoint of the cluster) when it is set, the writer otherwise. When the archive is enabled
+ * (RfidTxArchiveService), the days it holds are read from it and dropped from the snapshot.
+ *
+ * rfid.reporting.location is shared by the instances (e.g. an EFS mount). Only the instance holding the
+ * reporting-snapshot lease of the job_lock table, at most rfid.reporting.lock-at-most-ms, writes the snapshot;
+ * it then publishes it in snapshot.properties (its time, last copied day and archive horizon), which the other
+ * instances attach to every rfid.reporting.attach-interval-ms. The next run, on whichever instance gets the
+ * lease, refreshes from the published last day instead of copying every day again. A day is written to
+ * location/staging and then swapped in, so a report of another instance only fails if it opens the day during
+ * the swap.
+ *
+ * The reports therefore lag RFID_Tx by up to one snapshot interval, and changes to reads older than the refresh
+ * window are not picked up. rfid.reporting.memory-limit and rfid.reporting.threads bound what DuckDB takes
+ * from the instance.
+ *
+ * The DuckDB database is opened once and every report runs on its own duplicate of its connection
+ * (DuckDBConnection.duplicate), so reports run in parallel. The snapshot job replaces files and views under the
+ * write lock of filesLock, the reports hold its read lock, so a report never sees a day half replaced.
+ */
+@Service
+public class ReportingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportingService.class);
+    private static final Set<String> GRANULARITIES = Set.of("day", "week", "month", "year");
+    private static final String EMPTY_READS = "SELECT NULL::VARCHAR AS tag_id, NULL::VARCHAR AS epc, NULL::TIMESTAMP AS scan_date,"
+            + " NULL::BIGINT AS location_id, NULL::DECIMAL(38,2) AS rssi, NULL::BOOLEAN AS location_winner,"
+            + " NULL::BIGINT AS site_id, NULL::BIGINT AS ref_code, NULL::DATE AS scan_day WHERE false";
+    // site and product of a read, from the read or, if not backfilled, from its location and tag
+    private static final String READS_WITH_SITE = " FROM reads tx"
+            + " LEFT JOIN location l ON l.location_id = tx.location_id"
+            + " LEFT JOIN rfid r ON r.tag_id = tx.tag_id AND r.epc = tx.epc"
+            + " JOIN site s ON s.site_id = COALESCE(tx.site_id, l.site_id)"
+            + " WHERE tx.scan_day BETWEEN ? AND ? AND tx.scan_date BETWEEN ? AND ?";
+
+    private static final String LOCK_NAME = "reporting-snapshot";
+    private static final String MANIFEST = "snapshot.properties";
+    private static final String TAKEN_AT = "takenAt";
+    private static final String LAST_DAY = "lastDay";
+    private static final String ARCHIVED_BEFORE = "archivedBefore";
+
+    private final RfidTxRepository rfidTxRepository;
+    private final RfidTxArchiveService rfidTxArchiveService;
+    // the writer endpoint, for the job_lock lease
+    private final JdbcTemplate jdbcTemplate;
+    // the copies, switched to the reader endpoint on the first snapshot when one is configured
+    private RfidTxDayExporter rfidTxDayExporter;
+    private JdbcTemplate sourceJdbcTemplate;
+    private HikariDataSource readerDataSource;
+    private final String lockOwner = ManagementFactory.getRuntimeMXBean().getName();
+
+    @Value("${rfid.reporting.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rfid.reporting.location:reporting}")
+    private String location;
+
+    @Value("${rfid.reporting.refresh-days:2}")
+    private int refreshDays;
+
+    @Value("${rfid.reporting.memory-limit:}")
+    private String memoryLimit;
+
+    @Value("${rfid.reporting.threads:0}")
+    private int threads;
+
+    @Value("${rfid.archive.s3-region:}")
+    private String s3Region;
+
+    @Value("${rfid.reporting.reader-url:}")
+    private String readerUrl;
+
+    @Value("${spring.datasource.username:}")
+    private String username;
+
+    @Value("${spring.datasource.password:}")
+    private String password;
+
+    @Value("${rfid.reporting.lock-at-most-ms:21600000}")
+    private long lockAtMostMs;
+
+    // DuckDB connection, opened on first use under its own lock, duplicated for each report and snapshot step
+    private final Object duckDbLock = new Object();
+    private DuckDBConnection duckDb;
+    // the snapshot files and views: written by the snapshot job, read by the reports
+    private final StampedLock filesLock = new StampedLock();
+    private volatile LocalDateTime takenAt;
+
+    @Autowired
+    public ReportingService(RfidTxRepository rfidTxRepository, RfidTxDayExporter rfidTxDayExporter,
+                            RfidTxArchiveService rfidTxArchiveService, JdbcTemplate jdbcTemplate) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.rfidTxDayExporter = rfidTxDayExporter;
+        this.rfidTxArchiveService = rfidTxArchiveService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sourceJdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Scheduled snapshot run, on the instance holding the lease; the others attach to the published snapshot.
+     */
+    @Scheduled(fixedDelayString = "${rfid.reporting.snapshot-interval-ms:3600000}", initialDelayString = "${rfid.reporting.initial-delay-ms:60000}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+        if (!acquireLock()) {
+            logger.info("{}|{}", LocalDateTime.now(), "Reporting snapshot written by another instance");
+            attach();
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long reads = 0;
+        try {
+            Path root = Path.of(location);
+            Files.createDirectories(root.resolve("rfid_tx"));
+            Files.createDirectories(root.resolve("staging"));
+            openReader();
+            Properties manifest = readManifest();
+            LocalDate lastDay = manifest.getProperty(LAST_DAY) == null ? null : LocalDate.parse(manifest.getProperty(LAST_DAY));
+            copyTable("SELECT site_id, site_name FROM site", "{'site_id': 'BIGINT', 'site_name': 'VARCHAR'}", "site");
+            copyTable("SELECT location_id, location_name, site_id FROM location",
+                    "{'location_id': 'BIGINT', 'location_name': 'VARCHAR', 'site_id': 'BIGINT'}", "location");
+            copyTable("SELECT ref_code, name FROM product", "{'ref_code': 'BIGINT', 'name': 'VARCHAR'}", "product");
+            copyTable("SELECT tag_id, epc, ref_code FROM rfid", "{'tag_id': 'VARCHAR', 'epc': 'VARCHAR', 'ref_code': 'BIGINT'}", "rfid");
+
+            LocalDate archivedBefore = rfidTxArchiveService.archivedBefore();
+            if (archivedBefore != null) {
+                dropDaysBefore(archivedBefore);
+            }
+            LocalDateTime oldest = rfidTxRepository.findMinScanDate();
+            LocalDateTime newest = rfidTxRepository.findMaxScanDate();
+            if (oldest != null) {
+                LocalDate day = lastDay == null ? oldest.toLocalDate() : lastDay.minusDays(refreshDays - 1L);
+                if (day.isBefore(oldest.toLocalDate())) {
+                    day = oldest.toLocalDate();
+                }
+                if (archivedBefore != null && day.isBefore(archivedBefore)) {
+                    day = archivedBefore;
+                }
+                for (; !day.isAfter(newest.toLocalDate()); day = day.plusDays(1)) {
+                    reads += copyDay(day);
+                }
+                lastDay = newest.toLocalDate();
+            }
+            LocalDateTime snapshotTime = LocalDateTime.now();
+            writeManifest(snapshotTime, lastDay, archivedBefore);
+            attachTo(snapshotTime, archivedBefore);
+        } catch (RuntimeException | IOException | SQLException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Reporting snapshot stopped", e.getMessage());
+            return;
+        } finally {
+            releaseLock();
+        }
+        logger.info("{}|{}", LocalDateTime.now(), "Reporting snapshot of " + reads + " reads taken in "
+                + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    /**
+     * Scheduled attach to the snapshot published in the shared location, when it is newer than the one the reports
+     * are answered from.
+     */
+    @Scheduled(fixedDelayString = "${rfid.reporting.attach-interval-ms:60000}", initialDelayString = "${rfid.reporting.initial-delay-ms:60000}")
+    public void attach() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Properties manifest = readManifest();
+            if (manifest.getProperty(TAKEN_AT) == null) {
+                return;
+            }
+            LocalDateTime snapshotTime = LocalDateTime.parse(manifest.getProperty(TAKEN_AT));
+            if (snapshotTime.equals(takenAt)) {
+                return;
+            }
+            attachTo(snapshotTime, manifest.getProperty(ARCHIVED_BEFORE) == null ? null
+                    : LocalDate.parse(manifest.getProperty(ARCHIVED_BEFORE)));
+            logger.info("{}|{}", LocalDateTime.now(), "Attached to the reporting snapshot of " + snapshotTime);
+        } catch (RuntimeException | IOException | SQLException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Reporting snapshot not attached", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads per product per site within a scan date range.
+     *
+     * @param siteName The site to report on, or null for every site.
+     * @param startDate The start date of the range.
+     * @param endDate The end date of the range.
+     * @return One row per site and product, ordered by site and refCode.
+     * @throws InvalidInputException If the dates are invalid or out of order.
+     * @throws ResourceNotFoundException If no snapshot was taken yet or the range has no reads.
+     */
+    public List<ProductSiteReads> getReadsPerProductPerSite(String siteName, String startDate, String endDate) {
+        LocalDateTime[] range = validateRange(startDate, endDate);
+        String site = siteFilter(siteName);
+        String sql = "SELECT s.site_name, COALESCE(tx.ref_code, r.ref_code) AS ref_code, p.name, COUNT(*) AS reads,"
+                + " COUNT(DISTINCT (tx.tag_id, tx.epc)) AS tags, AVG(tx.rssi)::DOUBLE AS average_rssi"
+                + READS_WITH_SITE.replace(" WHERE ", " LEFT JOIN product p ON p.ref_code = COALESCE(tx.ref_code, r.ref_code) WHERE ")
+                + (site == null ? "" : " AND s.site_name = ?")
+                + " GROUP BY ALL ORDER BY s.site_name, ref_code";
+        List<ProductSiteReads> report = query(sql, range, site, null, row -> new ProductSiteReads(
+                row.getString(1), (Long) row.getObject(2), row.getString(3), row.getLong(4), row.getLong(5),
+                (Double) row.getObject(6)));
+        return found(report, startDate, endDate, "Successfully retrieved reads per product per site report");
+    }
+
+    /**
+     * RSSI of the reads per site and period within a scan date range.
+     *
+     * @param granularity The period: day, week, month or year.
+     * @param siteName The site to report on, or null for every site.
+     * @param refCode The product to report on, or null for every product.
+     * @param startDate The start date of the range.
+     * @param endDate The end date of the range.
+     * @return One row per period and site, ordered by period and site.
+     * @throws InvalidInputException If the granularity, refCode or dates are invalid.
+     * @throws ResourceNotFoundException If no snapshot was taken yet or the range has no reads.
+     */
+    public List<RssiTrend> getRssiTrend(String granularity, String siteName, String refCode, String startDate, String endDate) {
+        String unit = granularity == null ? "" : granularity.trim().toLowerCase();
+        if (!GRANULARITIES.contains(unit)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_INV_IN.getMessage(), ErrorMessage.REPORT_GRANULARITY.format(GRANULARITIES));
+            throw new InvalidInputException(ErrorMessage.REPORT_GRANULARITY.format(GRANULARITIES));
+        }
+        Long product = null;
+        if (!ValidationUtils.isNullOrEmpty(refCode)) {
+            if (!ValidationUtils.isValidRefCode(refCode)) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_INV_IN.getMessage(), ErrorMessage.INVALID_REFCODE.format(Constants.REFCODE_LENGTH));
+                throw new InvalidInputException(ErrorMessage.INVALID_REFCODE.format(Constants.REFCODE_LENGTH));
+            }
+            product = Long.valueOf(refCode);
+        }
+        LocalDateTime[] range = validateRange(startDate, endDate);
+        String site = siteFilter(siteName);
+        // the unit comes from GRANULARITIES, not from the request
+        String sql = "SELECT CAST(date_trunc('" + unit + "', tx.scan_date) AS DATE) AS period, s.site_name, COUNT(*) AS reads,"
+                + " AVG(tx.rssi)::DOUBLE, MIN(tx.rssi)::DOUBLE, MAX(tx.rssi)::DOUBLE"
+                + READS_WITH_SITE
+                + (site == null ? "" : " AND s.site_name = ?")
+                + (product == null ? "" : " AND COALESCE(tx.ref_code, r.ref_code) = ?")
+                + " GROUP BY ALL ORDER BY period, s.site_name";
+        List<RssiTrend> report = query(sql, range, site, product, row -> new RssiTrend(
+                row.getDate(1).toLocalDate(), row.getString(2), row.getLong(3),
+                (Double) row.getObject(4), (Double) row.getObject(5), (Double) row.getObject(6)));
+        return found(report, startDate, endDate, "Successfully retrieved RSSI trend report");
+    }
+
+    /**
+     * Describes the snapshot the reports are answered from.
+     *
+     * @return The snapshot time, its first and last scan days and its number of reads.
+     * @throws ResourceNotFoundException If no snapshot was taken yet.
+     */
+    public ReportSnapshot getSnapshot() {
+        LocalDateTime snapshotTime = checkSnapshot();
+        long stamp = filesLock.readLock();
+        try (Connection connection = connection();
+             Statement statement = connection.createStatement();
+             ResultSet row = statement.executeQuery("SELECT MIN(scan_day), MAX(scan_day), COUNT(*) FROM reads")) {
+            row.next();
+            Date first = row.getDate(1);
+            Date last = row.getDate(2);
+            return new ReportSnapshot(snapshotTime, first == null ? null : first.toLocalDate(),
+                    last == null ? null : last.toLocalDate(), row.getLong(3));
+        } catch (SQLException e) {
+            throw reportFailure(e);
+        } finally {
+            filesLock.unlockRead(stamp);
+        }
+    }
+
+    @PreDestroy
+    void close() throws SQLException {
+        synchronized (duckDbLock) {
+            if (duckDb != null) {
+                duckDb.close();
+                duckDb = null;
+            }
+        }
+        synchronized (this) {
+            if (readerDataSource != null) {
+                readerDataSource.close();
+                readerDataSource = null;
+            }
+        }
+    }
+
+    private interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    private <T> List<T> query(String sql, LocalDateTime[] range, String site, Long refCode, RowMapper<T> mapper) {
+        checkSnapshot();
+        List<T> rows = new ArrayList<>();
+        long stamp = filesLock.readLock();
+        try (Connection connection = connection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int parameter = 1;
+            statement.setDate(parameter++, Date.valueOf(range[0].toLocalDate()));
+            statement.setDate(parameter++, Date.valueOf(range[1].toLocalDate()));
+            statement.setTimestamp(parameter++, Timestamp.valueOf(range[0]));
+            statement.setTimestamp(parameter++, Timestamp.valueOf(range[1]));
+            if (site != null) {
+                statement.setString(parameter++, site);
+            }
+            if (refCode != null) {
+                statement.setLong(parameter, refCode);
+            }
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    rows.add(mapper.map(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw reportFailure(e);
+        } finally {
+            filesLock.unlockRead(stamp);
+        }
+        return rows;
+    }
+
+    private <T> List<T> found(List<T> report, String startDate, String endDate, String message) {
+        if (report.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_RES_NOT_FOUND.getMessage(), ErrorMessage.REPORT_NOT_FOUND.format(startDate, endDate));
+            throw new ResourceNotFoundException(ErrorMessage.REPORT_NOT_FOUND.format(startDate, endDate));
+        }
+        logger.info("{}|{}", LocalDateTime.now(), message);
+        return report;
+    }
+
+    private LocalDateTime checkSnapshot() {
+        LocalDateTime snapshotTime = takenAt;
+        if (snapshotTime == null) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_RES_NOT_FOUND.getMessage(), ErrorMessage.REPORT_SNAPSHOT_NOT_READY.getMessage());
+            throw new ResourceNotFoundException(ErrorMessage.REPORT_SNAPSHOT_NOT_READY.getMessage());
+        }
+        return snapshotTime;
+    }
+
+    private IllegalStateException reportFailure(SQLException e) {
+        logger.error("{}|{}|{}", LocalDateTime.now(), "Reporting query failed", e.getMessage());
+        return new IllegalStateException(e.getMessage(), e);
+    }
+
+    private LocalDateTime[] validateRange(String startDate, String endDate) {
+        if (!ValidationUtils.isValidDateFormat(startDate) || !ValidationUtils.isValidDateFormat(endDate)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_INV_IN.getMessage(), ErrorMessage.DATE_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_FORMAT.getMessage());
+        }
+        LocalDateTime start = ConversionUtils.convertStringToDate(startDate);
+        LocalDateTime end = ConversionUtils.convertStringToDate(endDate);
+        if (!ValidationUtils.areDatesInOrder(start, end)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.REPORT_INV_IN.getMessage(), ErrorMessage.DATE_ORDER_ERROR.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
+        }
+        return new LocalDateTime[]{start, end};
+    }
+
+    // site names are stored with ".." in place of spaces, see ConversionUtils
+    private static String siteFilter(String siteName) {
+        return ValidationUtils.isNullOrEmpty(siteName) ? null : ConversionUtils.convertStringCompositeNames(siteName, "..");
+    }
+
+    // the lease is taken when free or expired, its expiry bounds a snapshot left running by a stopped instance
+    private boolean acquireLock() {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update("UPDATE job_lock SET locked_until = ?, locked_by = ? WHERE name = ? AND locked_until <= ?",
+                Timestamp.valueOf(now.plusNanos(lockAtMostMs * 1_000_000)), lockOwner, LOCK_NAME, Timestamp.valueOf(now)) == 1;
+    }
+
+    private void releaseLock() {
+        try {
+            jdbcTemplate.update("UPDATE job_lock SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), LOCK_NAME, lockOwner);
+        } catch (RuntimeException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Reporting snapshot lock not released", e.getMessage());
+        }
+    }
+
+    // the reader endpoint, opened once by the first snapshot run of the instance
+    private synchronized void openReader() {
+        if (readerUrl.isEmpty() || readerDataSource != null) {
+            return;
+        }
+        readerDataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(readerUrl).username(username).password(password).build();
+        readerDataSource.setMaximumPoolSize(2);
+        readerDataSource.setMinimumIdle(0);
+        sourceJdbcTemplate = new JdbcTemplate(readerDataSource);
+        rfidTxDayExporter = new RfidTxDayExporter(readerDataSource);
+    }
+
+    private Properties readManifest() throws IOException {
+        Properties manifest = new Properties();
+        Path file = Path.of(location, MANIFEST);
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                manifest.load(reader);
+            }
+        }
+        return manifest;
+    }
+
+    // written next to the manifest and moved over it, so an attaching instance never reads it half written
+    private void writeManifest(LocalDateTime snapshotTime, LocalDate lastDay, LocalDate archivedBefore) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty(TAKEN_AT, snapshotTime.toString());
+        if (lastDay != null) {
+            manifest.setProperty(LAST_DAY, lastDay.toString());
+        }
+        if (archivedBefore != null) {
+            manifest.setProperty(ARCHIVED_BEFORE, archivedBefore.toString());
+        }
+        Path file = Path.of(location, MANIFEST);
+        Path written = Path.of(location, MANIFEST + "." + lockOwner.replaceAll("[^A-Za-z0-9.-]", "_"));
+        try (Writer writer = Files.newBufferedWriter(written, StandardCharsets.UTF_8)) {
+            manifest.store(writer, null);
+        }
+        Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void attachTo(LocalDateTime snapshotTime, LocalDate archivedBefore) throws SQLException {
+        long stamp = filesLock.writeLock();
+        try {
+            createViews(archivedBefore);
+        } finally {
+            filesLock.unlockWrite(stamp);
+        }
+        takenAt = snapshotTime;
+    }
+
+    /**
+     * Replaces the snapshot of one scan day.
+     *
+     * @return The number of reads of the day.
+     */
+    private long copyDay(LocalDate day) throws IOException, SQLException {
+        Path csv = Files.createTempFile("rfid_tx-" + day + "-", ".csv");
+        try {
+            long reads = rfidTxDayExporter.exportDay(day, csv).reads();
+            Path staging = Path.of(location, "staging", "scan_day=" + day);
+            Path target = Path.of(location, "rfid_tx", "scan_day=" + day);
+            FileSystemUtils.deleteRecursively(staging);
+            if (reads > 0) {
+                try (Connection connection = connection()) {
+                    RfidTxDayExporter.writeParquet(connection, csv, staging.toString(), "part_{i}");
+                }
+            }
+            long stamp = filesLock.writeLock();
+            try {
+                FileSystemUtils.deleteRecursively(target);
+                if (reads > 0) {
+                    Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } finally {
+                filesLock.unlockWrite(stamp);
+            }
+            return reads;
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // the archive holds these days
+    private void dropDaysBefore(LocalDate day) throws IOException {
+        List<Path> dropped = new ArrayList<>();
+        try (Stream<Path> days = Files.list(Path.of(location, "rfid_tx"))) {
+            days.filter(dir -> dir.getFileName().toString().startsWith("scan_day="))
+                    .filter(dir -> LocalDate.parse(dir.getFileName().toString().substring("scan_day=".length())).isBefore(day))
+                    .forEach(dropped::add);
+        }
+        long stamp = filesLock.writeLock();
+        try {
+            for (Path dir : dropped) {
+                FileSystemUtils.deleteRecursively(dir);
+            }
+        } finally {
+            filesLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Copies a reference table to location/name.parquet.
+     */
+    private void copyTable(String sql, String columns, String name) throws IOException, SQLException {
+        Path csv = Files.createTempFile(name + "-", ".csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                sourceJdbcTemplate.query(sql, row -> {
+                    ResultSetMetaData metaData = row.getMetaData();
+                    try {
+                        if (row.isFirst()) {
+                            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                                writer.write((i > 1 ? "," : "") + metaData.getColumnLabel(i));
+                            }
+                            writer.write('\n');
+                        }
+                        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                            if (i > 1) {
+                                writer.write(',');
+                            }
+                            writer.write(csvField(row, metaData.getColumnLabel(i), i));
+                        }
+                        writer.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Path staging = Path.of(location, "staging", name + ".parquet");
+            try (Connection connection = connection();
+                 Statement statement = connection.createStatement()) {
+                // an empty table leaves an empty file without header, read as no rows
+                statement.execute("COPY (SELECT * FROM read_csv(" + DuckDbUtils.literal(csv.toString())
+                        + ", header = true, nullstr = '', columns = " + columns + ")) TO "
+                        + DuckDbUtils.literal(staging.toString()) + " (FORMAT PARQUET, COMPRESSION ZSTD)");
+            }
+            long stamp = filesLock.writeLock();
+            try {
+                Files.move(staging, Path.of(location, name + ".parquet"), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                filesLock.unlockWrite(stamp);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    private static String csvField(ResultSet row, String column, int index) throws SQLException {
+        if (column.equalsIgnoreCase("tag_id")) {
+            return RfidKeyCodec.decodeTagId(row.getLong(index));
+        }
+        if (column.equalsIgnoreCase("epc")) {
+            return RfidKeyCodec.decodeEpc(row.getBytes(index));
+        }
+        Object value = row.getObject(index);
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof String text) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return value.toString();
+    }
+
+    // caller holds the write lock of filesLock
+    private void createViews(LocalDate archivedBefore) throws SQLException {
+        try (Connection connection = connection();
+             Statement statement = connection.createStatement()) {
+            for (String table : List.of("site", "location", "product", "rfid")) {
+                statement.execute("CREATE OR REPLACE VIEW " + table + " AS SELECT * FROM read_parquet("
+                        + DuckDbUtils.literal(Path.of(location, table + ".parquet").toString()) + ")");
+            }
+            String reads = hasFiles(statement, Path.of(location, "rfid_tx").toString() + "/*/*/*.parquet")
+                    ? "SELECT " + RfidTxDayExporter.COLUMNS + ", scan_day FROM read_parquet("
+                      + DuckDbUtils.literal(Path.of(location, "rfid_tx").toString() + "/*/*/*.parquet")
+                      + ", hive_partitioning = true, hive_types = " + RfidTxDayExporter.HIVE_TYPES + ")"
+                    : EMPTY_READS;
+            if (archivedBefore != null && hasFiles(statement, rfidTxArchiveService.archiveFiles())) {
+                reads += " UNION ALL SELECT " + RfidTxDayExporter.COLUMNS + ", scan_day FROM read_parquet("
+                        + DuckDbUtils.literal(rfidTxArchiveService.archiveFiles())
+                        + ", hive_partitioning = true, hive_types = " + RfidTxDayExporter.HIVE_TYPES + ")"
+                        + " WHERE scan_day < DATE " + DuckDbUtils.literal(archivedBefore.toString());
+            }
+            statement.execute("CREATE OR REPLACE VIEW reads AS " + reads);
+        }
+    }
+
+    private static boolean hasFiles(Statement statement, String glob) throws SQLException {
+        try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM glob(" + DuckDbUtils.literal(glob) + ")")) {
+            return count.next() && count.getLong(1) > 0;
+        }
+    }
+
+    // a connection of its own to the reporting database, closed by the caller
+    private Connection connection() throws SQLException {
+        synchronized (duckDbLock) {
+            if (duckDb == null) {
+                duckDb = (DuckDBConnection) DuckDbUtils.open("jdbc:duckdb:", rfidTxArchiveService.archiveFiles(), s3Region);
+                // global settings, shared by the duplicates
+                try (Statement statement = duckDb.createStatement()) {
+                    if (!memoryLimit.isEmpty()) {
+                        statement.execute("SET GLOBAL memory_limit = " + DuckDbUtils.literal(memoryLimit));
+                    }
+                    if (threads > 0) {
+                        statement.execute("SET GLOBAL threads = " + threads);
+                    }
+                }
+            }
+            return duckDb.duplicate();
+        }
+    }
+}
@@ -1,12 +1,39 @@
 package com.example.demoRFID.Service;
 
 
+import com.example.demoRFID.ErrorCode;
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.Request.RfidBatchRequest;
+import com.example.demoRFID.Model.Request.RfidRequest;
+import com.example.demoRFID.Model.Rfid;
+import com.example.demoRFID.Model.RfidBatchResult;
 import com.example.demoRFID.Model.RfidId;
 import com.example.demoRFID.Repository.RfidRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import com.example.demoRFID.Utils.SgtinDecoder;
+import com.example.demoRFID.Utils.ValidationUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.example.demoRFID.Constants.REFCODE_LENGTH;
 
 
 @Service
@@ -14,12 +41,29 @@ public class RfidService {
 
     private final RfidRepository rfidRepository;
     private final ProductService productService;
+    private final ProductGtinCache productGtinCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private static final Logger logger = LoggerFactory.getLogger(RfidService.class);
 
+    @Value("${rfid.registration.max-batch:100000}")
+    private int maxBatch;
+
+    @Value("${rfid.registration.chunk-size:1000}")
+    private int chunkSize;
+
+    // a tag of a batch that passed validation
+    private record Candidate(int index, String tagId, String epc, long refCode) {
+    }
+
     @Autowired
-    public RfidService(RfidRepository rfidRepository, ProductService productService) {
+    public RfidService(RfidRepository rfidRepository, ProductService productService, ProductGtinCache productGtinCache,
+                       JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
         this.rfidRepository = rfidRepository;
         this.productService = productService;
+        this.productGtinCache = productGtinCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
     /**
      * Method to check if a given TagID matches the specified EPC combination.
@@ -37,8 +81,9 @@ public class RfidService {
 
     /**
      * Method to check if the given RefCode is associated with the correct TagID and EPC combination.
-     * This method checks the repository to determine whether the specified RefCode matches
-     * the provided TagID and EPC combination.
+     * For an SGTIN-96 EPC whose GTIN belongs to a product, a RefCode of another product is rejected without a
+     * database query (ProductGtinCache). Otherwise, and always for a matching RefCode, this method checks the
+     * repository, since a tag may have been registered before its product got or changed its GTIN.
      *
      * @param tagId The unique identifier of the RFID tag.
      * @param epc The Electronic Product Code (EPC) associated with the RFID tag.
@@ -46,24 +91,231 @@ public class RfidService {
      * @return true if the RefCode matches the TagID and EPC combination, false otherwise.
      */
     public boolean isRefCodeValidForTagIdAndEpc(String tagId, String epc, String refCode) {
+        if (SgtinDecoder.isSgtin96(epc)) {
+            Optional<Long> productRefCode = productGtinCache.findRefCode(SgtinDecoder.gtin14(epc));
+            if (productRefCode.isPresent() && !productRefCode.get().toString().equals(refCode)) {
+                return false;
+            }
+        }
         return rfidRepository.existsByTagIdAndEpcAndRefCode(tagId, epc, refCode);
     }
-    //TODO:implement following methods if there is time
-    //    public Rfid createRfid(Rfid rfid) {
-    //        return rfidRepository.save(rfid);
-    //    }
-    //    public Optional<Rfid> getRfid(String epc, String tagId) {
-    //        return rfidRepository.findByEpcAndTagId(epc, tagId);
-    //    }
-    //    public List<Rfid> getAllRfids() {
-    //        return rfidRepository.findAll();
-    //    }
-    //    public Rfid updateRfid(Rfid rfid) {
-    //        return rfidRepository.save(rfid);
-    //    }
-    //    public void deleteRfid(RfidId id) {
-    //        rfidRepository.deleteById(id);
-    //    }
 
-}
+    /**
+     * Registers an RFID tag to a product.
+     *
+     * @param request The TagID, EPC and product refCode of the tag.
+     * @return The saved Rfid object.
+     * @throws InvalidInputException If a field is invalid or an SGTIN-96 EPC encodes another product.
+     * @throws ResourceNotFoundException If the product does not exist.
+     * @throws DuplicateKeyException If the tag is already registered.
+     */
+    public Rfid createRfid(RfidRequest request) {
+        String failure = validationFailure(request.getTagId(), request.getEpc(), request.getRefCode());
+        if (failure != null) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), failure);
+            throw new InvalidInputException(failure);
+        }
+        String tagId = request.getTagId().toUpperCase();
+        String epc = request.getEpc().toUpperCase();
+        Rfid rfid = new Rfid();
+        rfid.setTagId(tagId);
+        rfid.setEpc(epc);
+        rfid.setProduct(productService.getProductById(Long.valueOf(request.getRefCode())));
+        checkGtin(epc, rfid.getProduct().getRefCode());
+        if (rfidRepository.existsById(new RfidId(tagId, epc))) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_DATA_INT.getMessage(), ErrorMessage.RFID_ALREADY_EXISTS.format(tagId, epc));
+            throw new DuplicateKeyException(ErrorMessage.RFID_ALREADY_EXISTS.format(tagId, epc));
+        }
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.RFID_SUCCESS.format(tagId, epc));
+        return rfidRepository.save(rfid);
+    }
+
+    /**
+     * Retrieves a registered RFID tag.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return The Rfid object with its product.
+     * @throws InvalidInputException If the TagID or EPC is invalid.
+     * @throws ResourceNotFoundException If the tag is not registered.
+     */
+    public Rfid getRfid(String tagId, String epc) {
+        Rfid rfid = findRfid(tagId, epc);
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.RFID_FETCH_SUCCESS.format(rfid.getTagId(), rfid.getEpc()));
+        return rfid;
+    }
+
+    /**
+     * Moves a registered RFID tag to another product.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @param refCode The reference code of the new product.
+     * @return The saved Rfid object.
+     * @throws InvalidInputException If a field is invalid or an SGTIN-96 EPC encodes another product.
+     * @throws ResourceNotFoundException If the tag is not registered or the product does not exist.
+     */
+    public Rfid updateRfid(String tagId, String epc, String refCode) {
+        if (!ValidationUtils.isValidRefCode(refCode)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+            throw new InvalidInputException(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+        }
+        Rfid rfid = findRfid(tagId, epc);
+        rfid.setProduct(productService.getProductById(Long.valueOf(refCode)));
+        checkGtin(rfid.getEpc(), rfid.getProduct().getRefCode());
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.RFID_SUCCESS.format(rfid.getTagId(), rfid.getEpc()));
+        return rfidRepository.save(rfid);
+    }
+
+    /**
+     * Deletes a registered RFID tag. A tag with RFID transactions can not be deleted.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @throws InvalidInputException If the TagID or EPC is invalid.
+     * @throws ResourceNotFoundException If the tag is not registered.
+     * @throws org.springframework.dao.DataIntegrityViolationException If the tag has RFID transactions.
+     */
+    public void deleteRfid(String tagId, String epc) {
+        Rfid rfid = findRfid(tagId, epc);
+        rfidRepository.delete(rfid);
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.RFID_DEL_SUCCESS_TAG.format(rfid.getTagId(), rfid.getEpc()));
+    }
+
+    /**
+     * Registers a batch of RFID tags, e.g. a shipment, in a few statements whatever its size.
+     *
+     * Every tag is validated on its own (formats, listed once in the batch); the products and the tags already
+     * registered are then looked up for the whole batch at once, and the remaining tags are inserted with
+     * JDBC batches of rfid.registration.chunk-size rows, one transaction per chunk. A rejected tag does not
+     * stop the others.
+     *
+     * @param request The tags and the refCode of the tags without their own.
+     * @return The number of registered and rejected tags and the reason of every rejection.
+     * @throws InvalidInputException If the batch is empty or larger than rfid.registration.max-batch.
+     */
+    public RfidBatchResult registerRfids(RfidBatchRequest request) {
+        List<RfidRequest> tags = request.getTags();
+        if (tags == null || tags.isEmpty() || tags.size() > maxBatch) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), ErrorMessage.RFID_BATCH_SIZE.format(maxBatch));
+            throw new InvalidInputException(ErrorMessage.RFID_BATCH_SIZE.format(maxBatch));
+        }
+        List<RfidBatchResult.Rejection> rejections = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>(tags.size());
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < tags.size(); i++) {
+            RfidRequest tag = tags.get(i);
+            String refCode = ValidationUtils.isNullOrEmpty(tag.getRefCode()) ? request.getRefCode() : tag.getRefCode();
+            String failure = validationFailure(tag.getTagId(), tag.getEpc(), refCode);
+            if (failure == null && !keys.add(tag.getTagId().toUpperCase() + "|" + tag.getEpc().toUpperCase())) {
+                failure = ErrorMessage.RFID_BATCH_DUPLICATE.getMessage();
+            }
+            if (failure != null) {
+                rejections.add(new RfidBatchResult.Rejection(i, tag.getTagId(), tag.getEpc(), failure));
+            } else {
+                candidates.add(new Candidate(i, tag.getTagId().toUpperCase(), tag.getEpc().toUpperCase(), Long.parseLong(refCode)));
+            }
+        }
+
+        Set<Long> products = productService.findExistingRefCodes(candidates.stream().map(Candidate::refCode).distinct().toList());
+        Set<String> registered = new HashSet<>();
+        List<String> tagIds = candidates.stream().map(Candidate::tagId).distinct().toList();
+        for (int from = 0; from < tagIds.size(); from += chunkSize) {
+            for (Object[] key : rfidRepository.findKeysByTagIdIn(tagIds.subList(from, Math.min(from + chunkSize, tagIds.size())))) {
+                registered.add(key[0] + "|" + key[1]);
+            }
+        }
+        List<Candidate> accepted = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            String failure = null;
+            if (!products.contains(candidate.refCode())) {
+                failure = ErrorMessage.PRODUCT_NOT_FOUND.format(candidate.refCode());
+            } else if (registered.contains(candidate.tagId() + "|" + candidate.epc())) {
+                failure = ErrorMessage.RFID_ALREADY_EXISTS.format(candidate.tagId(), candidate.epc());
+            } else if (SgtinDecoder.isSgtin96(candidate.epc())) {
+                Optional<Long> gtinProduct = productGtinCache.findRefCode(SgtinDecoder.gtin14(candidate.epc()));
+                if (gtinProduct.isPresent() && gtinProduct.get() != candidate.refCode()) {
+                    failure = ErrorMessage.RFID_EPC_GTIN_MISMATCH.format(gtinProduct.get());
+                }
+            }
+            if (failure != null) {
+                rejections.add(new RfidBatchResult.Rejection(candidate.index(), candidate.tagId(), candidate.epc(), failure));
+            } else {
+                accepted.add(candidate);
+            }
+        }
+
+        int inserted = 0;
+        for (int from = 0; from < accepted.size(); from += chunkSize) {
+            List<Candidate> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            try {
+                insert(chunk);
+                inserted += chunk.size();
+            } catch (DataAccessException e) {
+                // e.g. a tag of the chunk registered concurrently, the whole chunk is rolled back
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_DATA_INT.getMessage(), ErrorMessage.RFID_BATCH_FAILURE.format(e.getMessage()));
+                for (Candidate candidate : chunk) {
+                    rejections.add(new RfidBatchResult.Rejection(candidate.index(), candidate.tagId(), candidate.epc(),
+                            ErrorMessage.RFID_BATCH_FAILURE.format(e.getMostSpecificCause().getMessage())));
+                }
+            }
+        }
+        rejections.sort(Comparator.comparingInt(RfidBatchResult.Rejection::getIndex));
+        logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.RFID_BATCH_SUCCESS.format(inserted, rejections.size()));
+        return new RfidBatchResult(inserted, rejections.size(), rejections);
+    }
+
+    private void insert(List<Candidate> chunk) {
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate("INSERT INTO rfid (tag_id, epc, ref_code) VALUES (?, ?, ?)", chunk, chunk.size(),
+                        (statement, candidate) -> {
+                            statement.setLong(1, RfidKeyCodec.encodeTagId(candidate.tagId()));
+                            statement.setBytes(2, RfidKeyCodec.encodeEpc(candidate.epc()));
+                            statement.setLong(3, candidate.refCode());
+                        }));
+    }
 
+    private Rfid findRfid(String tagId, String epc) {
+        if (ValidationUtils.isNullOrEmpty(tagId) || !ValidationUtils.isValidTagFormat(tagId)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), ErrorMessage.TAG_ID_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.TAG_ID_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), ErrorMessage.EPC_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.EPC_FORMAT.getMessage());
+        }
+        Optional<Rfid> rfid = rfidRepository.findById(new RfidId(tagId.toUpperCase(), epc.toUpperCase()));
+        if (rfid.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_RES_NOT_FOUND.getMessage(), ErrorMessage.RFID_NOT_FOUND.format(tagId, epc));
+            throw new ResourceNotFoundException(ErrorMessage.RFID_NOT_FOUND.format(tagId, epc));
+        }
+        return rfid.get();
+    }
+
+    // an SGTIN-96 EPC whose GTIN belongs to a product can only be registered to that product
+    private void checkGtin(String epc, Long refCode) {
+        if (SgtinDecoder.isSgtin96(epc)) {
+            Optional<Long> gtinProduct = productGtinCache.findRefCode(SgtinDecoder.gtin14(epc));
+            if (gtinProduct.isPresent() && !gtinProduct.get().equals(refCode)) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFID_INV_IN.getMessage(), ErrorMessage.RFID_EPC_GTIN_MISMATCH.format(gtinProduct.get()));
+                throw new InvalidInputException(ErrorMessage.RFID_EPC_GTIN_MISMATCH.format(gtinProduct.get()));
+            }
+        }
+    }
+
+    /**
+     * @return The reason a tag can not be registered because of its fields, null if they are valid.
+     */
+    private static String validationFailure(String tagId, String epc, String refCode) {
+        if (ValidationUtils.isNullOrEmpty(tagId) || !ValidationUtils.isValidTagFormat(tagId)) {
+            return ErrorMessage.TAG_ID_FORMAT.getMessage();
+        }
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            return ErrorMessage.EPC_FORMAT.getMessage();
+        }
+        if (!ValidationUtils.isValidRefCode(refCode)) {
+            return ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH);
+        }
+        return null;
+    }
+}
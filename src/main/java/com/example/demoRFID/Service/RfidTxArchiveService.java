@@ -0,0 +1,399 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Rfid;
+import com.example.demoRFID.Model.RfidId;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxId;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.RfidRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.DuckDbUtils;
+import jakarta.annotation.PreDestroy;
+import org.duckdb.DuckDBConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hot/cold tiering of RFID_Tx: reads older than rfid.archive.age-days are moved to zstd-compressed Parquet files
+ * and merged back into the scan date range queries of RfidTxService that reach that far.
+ *
+ * The archive job takes the oldest day of RFID_Tx at a time: it streams the day's reads to a temporary CSV file,
+ * has DuckDB write it as rfid.archive.location/scan_day=YYYY-MM-DD/site_id=N/part_*.parquet (a local directory
+ * or an s3:// prefix), then deletes the day from RFID_Tx one hour per transaction. An hour whose row count
+ * changed since the export (a late read) is kept and archived again by the next run. The file names are derived
+ * from the exported rows, so a day exported twice after a failure overwrites its files instead of duplicating
+ * them. The job waits for RfidTxBackfillService, the files being partitioned by siteId.
+ *
+ * Reads are stored with the tagId and EPC of the API, so the files can be queried by any Parquet reader. The
+ * merged results are deduplicated on the RfidTx key, the RFID_Tx row winning, so a day present in both tiers
+ * (between the export and the delete) is returned once. Only the scan date range, site and product queries are
+ * merged; the latest scans, top reads, criteria search and per tag queries read RFID_Tx alone.
+ *
+ * The DuckDB database is opened once; the archive job and every query work on their own duplicate of its
+ * connection (DuckDBConnection.duplicate), so a query does not wait for a day being written.
+ */
+@Service
+public class RfidTxArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxArchiveService.class);
+
+    private final RfidTxRepository rfidTxRepository;
+    private final RfidRepository rfidRepository;
+    private final LocationRepository locationRepository;
+    private final RfidTxBackfillService rfidTxBackfillService;
+    private final RfidTxDayExporter rfidTxDayExporter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${rfid.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rfid.archive.age-days:90}")
+    private int ageDays;
+
+    @Value("${rfid.archive.location:archive/rfid_tx}")
+    private String location;
+
+    @Value("${rfid.archive.s3-region:}")
+    private String s3Region;
+
+    // DuckDB connection, opened on first use under its own lock, duplicated for each export and query
+    private final Object duckDbLock = new Object();
+    private DuckDBConnection duckDb;
+    private volatile boolean hasFiles;
+
+    @Autowired
+    public RfidTxArchiveService(RfidTxRepository rfidTxRepository, RfidRepository rfidRepository,
+                                LocationRepository locationRepository, RfidTxBackfillService rfidTxBackfillService,
+                                RfidTxDayExporter rfidTxDayExporter, PlatformTransactionManager transactionManager) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.rfidRepository = rfidRepository;
+        this.locationRepository = locationRepository;
+        this.rfidTxBackfillService = rfidTxBackfillService;
+        this.rfidTxDayExporter = rfidTxDayExporter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Indicates whether a scan date range starting at a date may have archived reads.
+     *
+     * @param from The start of the range.
+     * @return true if archiving is enabled and the range starts before the archive age.
+     */
+    public boolean reachesArchive(LocalDateTime from) {
+        return enabled && from.isBefore(archiveHorizon().plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * @return The day before which reads are moved to the archive, or null if archiving is disabled.
+     */
+    public LocalDate archivedBefore() {
+        return enabled ? archiveHorizon() : null;
+    }
+
+    /**
+     * @return The glob of the archive Parquet files, hive partitioned by scan_day and site_id.
+     */
+    public String archiveFiles() {
+        return location + "/*/*/*.parquet";
+    }
+
+    /**
+     * Adds the archived reads of a scan date range to the reads found in RFID_Tx.
+     *
+     * @param hot The reads of the range found in RFID_Tx.
+     * @param from The start of the range, included.
+     * @param to The end of the range, included.
+     * @param siteId The site of the reads, or null for every site.
+     * @param refCode The product of the reads, or null for every product.
+     * @return The archived reads, oldest first, followed by the reads of RFID_Tx not found in the archive.
+     */
+    public List<RfidTx> mergeArchived(List<RfidTx> hot, LocalDateTime from, LocalDateTime to, Long siteId, Long refCode) {
+        List<RfidTx> archived = findArchived(from, to, siteId, refCode);
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Map<RfidTxId, RfidTx> merged = new LinkedHashMap<>();
+        for (RfidTx read : archived) {
+            merged.put(new RfidTxId(read.getTagId(), read.getEpc(), read.getScanDate()), read);
+        }
+        for (RfidTx read : hot) {
+            merged.put(new RfidTxId(read.getTagId(), read.getEpc(), read.getScanDate()), read);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Same as mergeArchived for the projected reads of RfidTxRepository.findProjection.
+     *
+     * @param hot The reads of the range found in RFID_Tx, projected on the fields and the RfidTx key.
+     * @param fields The requested fields.
+     * @param from The start of the range, included.
+     * @param to The end of the range, included.
+     * @param siteId The site of the reads, or null for every site.
+     * @param refCode The product of the reads, or null for every product.
+     * @return The archived reads, oldest first, followed by the reads of RFID_Tx not found in the archive, holding
+     *         only the requested fields.
+     */
+    public List<Map<String, Object>> mergeArchivedProjection(List<Map<String, Object>> hot, List<String> fields,
+                                                             LocalDateTime from, LocalDateTime to, Long siteId, Long refCode) {
+        Map<RfidTxId, Map<String, Object>> merged = new LinkedHashMap<>();
+        for (RfidTx read : findArchived(from, to, siteId, refCode)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, switch (field) {
+                    case "tagId" -> read.getTagId();
+                    case "epc" -> read.getEpc();
+                    case "scanDate" -> read.getScanDate();
+                    case "location" -> read.getLocation();
+                    case "rssi" -> read.getRssi();
+                    case "locationWinner" -> read.getLocationWinner();
+                    case "siteId" -> read.getSiteId();
+                    default -> read.getRefCode();
+                });
+            }
+            merged.put(new RfidTxId(read.getTagId(), read.getEpc(), read.getScanDate()), row);
+        }
+        for (Map<String, Object> read : hot) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields) {
+                row.put(field, read.get(field));
+            }
+            merged.put(new RfidTxId((String) read.get("tagId"), (String) read.get("epc"), (LocalDateTime) read.get("scanDate")), row);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * Scheduled archive run, moves every day older than rfid.archive.age-days, oldest first.
+     */
+    @Scheduled(cron = "${rfid.archive.cron:0 30 2 * * *}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        if (!rfidTxBackfillService.isComplete()) {
+            logger.info("{}|{}", LocalDateTime.now(), "RFID_Tx archive postponed, site and refCode backfill not complete");
+            return;
+        }
+        LocalDate horizon = archiveHorizon();
+        long reads = 0;
+        int days = 0;
+        long started = System.currentTimeMillis();
+        try {
+            LocalDateTime oldest = rfidTxRepository.findMinScanDate();
+            LocalDate previous = null;
+            while (oldest != null && oldest.toLocalDate().isBefore(horizon)) {
+                LocalDate day = oldest.toLocalDate();
+                if (day.equals(previous)) {
+                    // hours kept because of late reads, archived again by the next run
+                    break;
+                }
+                reads += archiveDay(day);
+                days++;
+                previous = day;
+                oldest = rfidTxRepository.findMinScanDate();
+            }
+        } catch (RuntimeException | IOException | SQLException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "RFID_Tx archive stopped", e.getMessage());
+        }
+        logger.info("{}|{}", LocalDateTime.now(), "Archived " + reads + " reads of " + days + " days in "
+                + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    @PreDestroy
+    void close() throws SQLException {
+        synchronized (duckDbLock) {
+            if (duckDb != null) {
+                duckDb.close();
+                duckDb = null;
+            }
+        }
+    }
+
+    // days before this one are archived
+    private LocalDate archiveHorizon() {
+        return LocalDate.now().minusDays(ageDays);
+    }
+
+    /**
+     * Moves one day of reads to the archive.
+     *
+     * @param day The scan day.
+     * @return The number of reads deleted from RFID_Tx.
+     */
+    long archiveDay(LocalDate day) throws IOException, SQLException {
+        LocalDateTime from = day.atStartOfDay();
+        Path csv = Files.createTempFile("rfid_tx-" + day + "-", ".csv");
+        try {
+            RfidTxDayExporter.DayExport export = rfidTxDayExporter.exportDay(day, csv);
+            long[] readsPerHour = export.readsPerHour();
+            long exported = export.reads();
+            if (exported == 0) {
+                return 0;
+            }
+            String dayLocation = location + "/scan_day=" + day;
+            if (!location.startsWith("s3://")) {
+                Files.createDirectories(Path.of(dayLocation));
+            }
+            try (Connection connection = connection()) {
+                RfidTxDayExporter.writeParquet(connection, csv, dayLocation, String.format("part_%016x_{i}", export.fingerprint()));
+            }
+            hasFiles = true;
+            long deleted = 0;
+            for (int hour = 0; hour < 24; hour++) {
+                if (readsPerHour[hour] > 0) {
+                    deleted += deleteHour(from.plusHours(hour), readsPerHour[hour]);
+                }
+            }
+            logger.info("{}|{}", LocalDateTime.now(), "Archived " + exported + " reads of " + day + " to " + dayLocation
+                    + ", " + deleted + " deleted from RFID_Tx");
+            return deleted;
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // deletes an exported hour unless reads were added to it since the export
+    private long deleteHour(LocalDateTime from, long exported) {
+        Integer deleted = transactionTemplate.execute(status -> {
+            int rows = rfidTxRepository.deleteByScanDateRange(from, from.plusHours(1));
+            if (rows > exported) {
+                status.setRollbackOnly();
+                return 0;
+            }
+            return rows;
+        });
+        if (deleted == null || deleted == 0) {
+            logger.info("{}|{}", LocalDateTime.now(), "Hour " + from + " kept in RFID_Tx, it received reads since the export");
+            return 0;
+        }
+        return deleted;
+    }
+
+    /**
+     * Reads the archived reads of a scan date range, with their Rfid and Location loaded in two queries.
+     */
+    private List<RfidTx> findArchived(LocalDateTime from, LocalDateTime to, Long siteId, Long refCode) {
+        List<RfidTx> reads = new ArrayList<>();
+        // location of every read, by index in reads
+        List<Long> locationIds = new ArrayList<>();
+        try (Connection connection = connection()) {
+            String files = archiveFiles();
+            if (!hasFiles) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM glob(" + DuckDbUtils.literal(files) + ")")) {
+                    hasFiles = count.next() && count.getLong(1) > 0;
+                }
+                if (!hasFiles) {
+                    return reads;
+                }
+            }
+            String sql = "SELECT " + RfidTxDayExporter.COLUMNS + " FROM read_parquet(" + DuckDbUtils.literal(files)
+                    + ", hive_partitioning = true, hive_types = " + RfidTxDayExporter.HIVE_TYPES + ")"
+                    + " WHERE scan_day BETWEEN ? AND ? AND scan_date BETWEEN ? AND ?"
+                    + (siteId == null ? "" : " AND site_id = ?")
+                    + (refCode == null ? "" : " AND ref_code = ?")
+                    + " ORDER BY scan_date";
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int parameter = 1;
+                statement.setDate(parameter++, Date.valueOf(from.toLocalDate()));
+                statement.setDate(parameter++, Date.valueOf(to.toLocalDate()));
+                statement.setTimestamp(parameter++, Timestamp.valueOf(from));
+                statement.setTimestamp(parameter++, Timestamp.valueOf(to));
+                if (siteId != null) {
+                    statement.setLong(parameter++, siteId);
+                }
+                if (refCode != null) {
+                    statement.setLong(parameter, refCode);
+                }
+                try (ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        RfidTx read = new RfidTx();
+                        read.setTagId(row.getString("tag_id"));
+                        read.setEpc(row.getString("epc"));
+                        read.setScanDate(row.getTimestamp("scan_date").toLocalDateTime());
+                        long locationId = row.getLong("location_id");
+                        locationIds.add(row.wasNull() ? null : locationId);
+                        read.setRssi(row.getBigDecimal("rssi"));
+                        boolean winner = row.getBoolean("location_winner");
+                        read.setLocationWinner(row.wasNull() ? null : winner);
+                        long site = row.getLong("site_id");
+                        read.setSiteId(row.wasNull() ? null : site);
+                        long product = row.getLong("ref_code");
+                        read.setRefCode(row.wasNull() ? null : product);
+                        reads.add(read);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            // the reads of RFID_Tx are still returned
+            logger.error("{}|{}|{}", LocalDateTime.now(), "RFID_Tx archive not readable", e.getMessage());
+            return List.of();
+        }
+        attachReferences(reads, locationIds);
+        return reads;
+    }
+
+    // sets the Rfid and Location of the archived reads, as the entities loaded from RFID_Tx have them
+    private void attachReferences(List<RfidTx> reads, List<Long> locationIds) {
+        Set<RfidId> rfidIds = new HashSet<>();
+        for (RfidTx read : reads) {
+            rfidIds.add(new RfidId(read.getTagId(), read.getEpc()));
+        }
+        Map<RfidId, Rfid> rfids = new HashMap<>();
+        for (Rfid rfid : rfidRepository.findAllById(rfidIds)) {
+            rfids.put(new RfidId(rfid.getTagId(), rfid.getEpc()), rfid);
+        }
+        Map<Long, Location> locations = new HashMap<>();
+        Set<Long> distinctLocationIds = new HashSet<>(locationIds);
+        distinctLocationIds.remove(null);
+        for (Location loc : locationRepository.findAllById(distinctLocationIds)) {
+            locations.put(loc.getLocationId(), loc);
+        }
+        for (int i = 0; i < reads.size(); i++) {
+            RfidTx read = reads.get(i);
+            read.setRfid(rfids.get(new RfidId(read.getTagId(), read.getEpc())));
+            Long locationId = locationIds.get(i);
+            if (locationId != null) {
+                read.setLocation(locations.get(locationId));
+            }
+        }
+    }
+
+    // a connection of its own to the archive database, closed by the caller
+    private Connection connection() throws SQLException {
+        synchronized (duckDbLock) {
+            if (duckDb == null) {
+                duckDb = (DuckDBConnection) DuckDbUtils.open("jdbc:duckdb:", location, s3Region);
+            }
+            return duckDb.duplicate();
+        }
+    }
+}
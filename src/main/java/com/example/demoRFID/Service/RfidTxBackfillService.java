@@ -0,0 +1,117 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Repository.RfidTxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills the denormalized siteId and refCode columns of the RFID_Tx rows stored before they existed (or by an
+ * instance that does not set them yet, during a rolling deployment).
+ *
+ * Each run walks the rows without siteId from the oldest one, rfid.backfill.chunk-minutes of scan dates per
+ * UPDATE (one transaction each), so a large table is never locked as a whole. The rows to fill are found
+ * through the (siteId, scanDate) index, their siteId being NULL.
+ *
+ * isComplete tells RfidTxService when the site scoped queries may rely on siteId alone. It is re-checked on
+ * every run, so rows written without siteId later switch the queries back to the joins until they are filled.
+ * Reads that can never be filled (a location without site, a tag not registered) do not hold it back: they are
+ * logged as errors on every run and counted by the gauge rfid.backfill.unfillable until their data is fixed.
+ */
+@Service
+public class RfidTxBackfillService {
+
+    private final RfidTxRepository rfidTxRepository;
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxBackfillService.class);
+
+    @Value("${rfid.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rfid.backfill.chunk-minutes:60}")
+    private long chunkMinutes;
+
+    private volatile boolean complete;
+    private final AtomicLong unfillable = new AtomicLong();
+
+    // oldest DATETIME MySQL accepts
+    private static final LocalDateTime START_OF_TIME = LocalDateTime.of(1000, 1, 1, 0, 0);
+
+    @Autowired
+    public RfidTxBackfillService(RfidTxRepository rfidTxRepository, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.rfidTxRepository = rfidTxRepository;
+        meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry)
+                .gauge("rfid.backfill.unfillable", unfillable);
+    }
+
+    /**
+     * @return true if the last run found every read with its siteId, except the reads that can not be filled.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return The number of reads the last run found without siteId and that can not be filled.
+     */
+    public long getUnfillable() {
+        return unfillable.get();
+    }
+
+    /**
+     * Scheduled backfill run, a no-op query once every read is filled.
+     */
+    @Scheduled(fixedDelayString = "${rfid.backfill.interval-ms:60000}", initialDelayString = "${rfid.backfill.initial-delay-ms:10000}")
+    public void backfill() {
+        if (!enabled) {
+            return;
+        }
+        long rows = 0;
+        long started = System.currentTimeMillis();
+        try {
+            LocalDateTime from = rfidTxRepository.findMinScanDateToBackfill(START_OF_TIME);
+            if (from == null) {
+                unfillable.set(0);
+                complete = true;
+                return;
+            }
+            complete = false;
+            boolean unfilled = false;
+            while (from != null) {
+                LocalDateTime to = from.plusMinutes(chunkMinutes);
+                rows += rfidTxRepository.backfillSiteAndRefCode(from, to);
+                // rows of the chunk left without siteId (e.g. a location without site) are not retried in this run
+                LocalDateTime left = rfidTxRepository.findMinScanDateToBackfill(from);
+                unfilled |= left != null && left.isBefore(to);
+                // jump over the scan dates without rows to fill
+                from = rfidTxRepository.findMinScanDateToBackfill(to);
+            }
+            if (unfilled) {
+                Object[] counts = rfidTxRepository.countLeftToBackfill().get(0);
+                long leftReads = ((Number) counts[0]).longValue();
+                unfillable.set(((Number) counts[1]).longValue());
+                if (unfillable.get() > 0) {
+                    logger.error("{}|{}|{}", LocalDateTime.now(), "RFID_Tx site and refCode backfill",
+                            unfillable.get() + " reads can not be filled, their location has no site or their tag is not registered");
+                }
+                // reads written without siteId during the run are filled by the next one
+                complete = leftReads == unfillable.get();
+            } else {
+                unfillable.set(0);
+                complete = true;
+            }
+        } catch (RuntimeException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "RFID_Tx site and refCode backfill stopped", e.getMessage());
+        }
+        logger.info("{}|{}", LocalDateTime.now(), "Backfilled site and refCode of " + rows + " reads in "
+                + (System.currentTimeMillis() - started) + " ms");
+    }
+}
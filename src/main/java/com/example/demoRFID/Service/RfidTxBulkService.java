@@ -0,0 +1,281 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorCode;
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Request.RfidTxBulkRequest;
+import com.example.demoRFID.Model.RfidTxBulkResult;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.ConversionUtils;
+import com.example.demoRFID.Utils.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk delete and bulk location reassignment of the reads matching a filter: a scan date range and a site,
+ * location and/or EPC, e.g. every read of a misconfigured reader.
+ *
+ * The range is walked in chunks of at most rfid.bulk.chunk-rows matching rows, one set-based DELETE or UPDATE
+ * per chunk, each its own transaction, so the locks cover one bounded range of the clustered index at a time and
+ * the ingest of current reads is not blocked, however dense the range. A chunk ends at the scan date of the first
+ * row past it; rows sharing the scan date of a chunk start all go in that chunk. Per chunk, the tags read are
+ * listed first so their current location (CurrentLocationIndex) is reloaded when its read was deleted or moved,
+ * and their read count and RSSI sum uncounted on delete. Once every chunk ran, the location arbitration
+ * (LocationArbiter) of the reads left around the changed range of each tag is elected again on whole windows, on
+ * delete as on reassignment. Read bursts (ReadBurstService) lying entirely within the range follow the reads,
+ * chunked the same way on firstSeen; bursts crossing a bound of the range are kept as they are.
+ *
+ * Only RFID_Tx and READ_BURST are changed: reads already archived (RfidTxArchiveService) or copied to a
+ * reporting snapshot older than its refresh window (ReportingService) keep their former location.
+ */
+@Service
+public class RfidTxBulkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxBulkService.class);
+
+    private final RfidTxRepository rfidTxRepository;
+    private final ReadBurstRepository readBurstRepository;
+    private final SiteService siteService;
+    private final LocationService locationService;
+    private final CurrentLocationIndex currentLocationIndex;
+    private final ReadSuppressionWindow readSuppressionWindow;
+    private final LocationArbiter locationArbiter;
+
+    @Value("${rfid.bulk.chunk-rows:5000}")
+    private int chunkRows;
+
+    private interface ChunkQuery<T> {
+        T run(LocalDateTime from, LocalDateTime to);
+    }
+
+    private interface TagChange {
+        void apply(String tagId, String epc, Object[] tag, LocalDateTime from, LocalDateTime to);
+    }
+
+    private record TagKey(String tagId, String epc) {
+    }
+
+    // validated filter, the range end excluded
+    private record Filter(LocalDateTime from, LocalDateTime to, Long siteId, Long locationId, String epc) {
+    }
+
+    @Autowired
+    public RfidTxBulkService(RfidTxRepository rfidTxRepository, ReadBurstRepository readBurstRepository,
+                             SiteService siteService, LocationService locationService,
+                             CurrentLocationIndex currentLocationIndex, ReadSuppressionWindow readSuppressionWindow,
+                             LocationArbiter locationArbiter) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.readBurstRepository = readBurstRepository;
+        this.siteService = siteService;
+        this.locationService = locationService;
+        this.currentLocationIndex = currentLocationIndex;
+        this.readSuppressionWindow = readSuppressionWindow;
+        this.locationArbiter = locationArbiter;
+    }
+
+    /**
+     * Deletes the reads matching a filter.
+     *
+     * @param request The filter, the endDate second included.
+     * @return The number of deleted reads and bursts and of tags affected.
+     * @throws InvalidInputException If the filter is incomplete or names an unknown site or location.
+     */
+    public RfidTxBulkResult deleteRfidTx(RfidTxBulkRequest request) {
+        Filter filter = validateFilter(request);
+        Set<String> tags = new HashSet<>();
+        Map<TagKey, LocalDateTime[]> changed = new HashMap<>();
+        // tag rows are [tagId, epc, read count, RSSI sum] for both tables
+        TagChange uncount = (tagId, epc, tag, from, to) ->
+                currentLocationIndex.onReadsDeleted(tagId, epc, ((Number) tag[2]).longValue(), (BigDecimal) tag[3]);
+        long reads = runInChunks(filter, tags,
+                (from, to) -> rfidTxRepository.findScanDatesMatching(from, to, filter.siteId(), filter.locationId(),
+                        filter.epc(), PageRequest.of(chunkRows, 1)),
+                (from, to) -> rfidTxRepository.findTagsMatching(from, to, filter.siteId(), filter.locationId(), filter.epc()),
+                (from, to) -> rfidTxRepository.deleteMatching(from, to, filter.siteId(), filter.locationId(), filter.epc()),
+                false, (tagId, epc, tag, from, to) -> {
+                    uncount.apply(tagId, epc, tag, from, to);
+                    track(changed, tagId, epc, from, to);
+                });
+        arbitrateAgain(changed);
+        long bursts = runInChunks(filter, tags,
+                (from, to) -> readBurstRepository.findFirstSeenMatching(from, to, filter.siteId(), filter.locationId(),
+                        filter.epc(), PageRequest.of(chunkRows, 1)),
+                (from, to) -> readBurstRepository.findTagsMatching(from, to, filter.to(), filter.siteId(),
+                        filter.locationId(), filter.epc()),
+                (from, to) -> readBurstRepository.deleteMatching(from, to, filter.to(), filter.siteId(),
+                        filter.locationId(), filter.epc()),
+                true, uncount);
+        RfidTxBulkResult result = new RfidTxBulkResult(reads, bursts, tags.size());
+        logger.info("{}|{}", LocalDateTime.now(), "Bulk deleted " + result.getReads() + " RfidTx and "
+                + result.getBursts() + " bursts");
+        return result;
+    }
+
+    /**
+     * Moves the reads matching a filter to another location.
+     *
+     * @param request The filter, the endDate second included, and the new location.
+     * @return The number of moved reads and bursts and of tags affected.
+     * @throws InvalidInputException If the filter or the new location is incomplete or unknown.
+     */
+    public RfidTxBulkResult reassignLocation(RfidTxBulkRequest request) {
+        Filter filter = validateFilter(request);
+        String newSiteName = ValidationUtils.isNullOrEmpty(request.getNewSiteName()) ? request.getSiteName() : request.getNewSiteName();
+        if (ValidationUtils.isNullOrEmpty(newSiteName) || ValidationUtils.isNullOrEmpty(request.getNewLocationName())) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.BULK_NEW_LOCATION_REQUIRED.getMessage());
+            throw new InvalidInputException(ErrorMessage.BULK_NEW_LOCATION_REQUIRED.getMessage());
+        }
+        Site newSite = findSite(newSiteName);
+        Location newLocation = findLocation(request.getNewLocationName(), newSite);
+        Set<String> tags = new HashSet<>();
+        Map<TagKey, LocalDateTime[]> changed = new HashMap<>();
+        long reads = runInChunks(filter, tags,
+                (from, to) -> rfidTxRepository.findScanDatesMatching(from, to, filter.siteId(), filter.locationId(),
+                        filter.epc(), PageRequest.of(chunkRows, 1)),
+                (from, to) -> rfidTxRepository.findTagsMatching(from, to, filter.siteId(), filter.locationId(), filter.epc()),
+                (from, to) -> rfidTxRepository.reassignMatching(newLocation, newSite.getSiteId(), from, to,
+                        filter.siteId(), filter.locationId(), filter.epc()),
+                false, (tagId, epc, tag, from, to) -> track(changed, tagId, epc, from, to));
+        arbitrateAgain(changed);
+        long bursts = runInChunks(filter, tags,
+                (from, to) -> readBurstRepository.findFirstSeenMatching(from, to, filter.siteId(), filter.locationId(),
+                        filter.epc(), PageRequest.of(chunkRows, 1)),
+                (from, to) -> readBurstRepository.findTagsMatching(from, to, filter.to(), filter.siteId(),
+                        filter.locationId(), filter.epc()),
+                (from, to) -> readBurstRepository.reassignMatching(newLocation, from, to, filter.to(), filter.siteId(),
+                        filter.locationId(), filter.epc()),
+                true, (tagId, epc, tag, from, to) -> { });
+        RfidTxBulkResult result = new RfidTxBulkResult(reads, bursts, tags.size());
+        logger.info("{}|{}", LocalDateTime.now(), "Bulk moved " + result.getReads() + " RfidTx and "
+                + result.getBursts() + " bursts to location " + newLocation.getLocationName());
+        return result;
+    }
+
+    /**
+     * Runs a statement over the range of a filter, one chunk of at most chunkRows rows at a time.
+     *
+     * @param chunkEnd Returns the sort date of the row following the chunk starting at from, page chunkRows of size 1
+     *                 of the matching rows up to the given range end, or an empty list if the chunk reaches that end.
+     * @param chunkTags Returns the tags of the rows of a chunk, [tagId, epc, read count, RSSI sum].
+     * @param bursts true for READ_BURST, whose chunks are bounded on firstSeen but may hold rows seen up to the end of
+     *               the range.
+     * @param change Applied to each tag of a chunk once its statement ran.
+     * @return The number of rows changed.
+     */
+    private long runInChunks(Filter filter, Set<String> tags, ChunkQuery<List<LocalDateTime>> chunkEnd,
+                             ChunkQuery<List<Object[]>> chunkTags, ChunkQuery<Integer> statement, boolean bursts,
+                             TagChange change) {
+        long rows = 0;
+        LocalDateTime from = filter.from();
+        while (from.isBefore(filter.to())) {
+            List<LocalDateTime> next = chunkEnd.run(from, filter.to());
+            LocalDateTime to = next.isEmpty() ? filter.to()
+                    : next.get(0).isAfter(from) ? next.get(0) : from.plusNanos(1_000);
+            List<Object[]> chunk = chunkTags.run(from, to);
+            if (!chunk.isEmpty()) {
+                rows += statement.run(from, to);
+                LocalDateTime changedTo = bursts ? filter.to() : to;
+                for (Object[] tag : chunk) {
+                    String tagId = (String) tag[0];
+                    String epc = (String) tag[1];
+                    tags.add(tagId + "|" + epc);
+                    readSuppressionWindow.evict(tagId, epc);
+                    change.apply(tagId, epc, tag, from, changedTo);
+                    currentLocationIndex.onRangeChanged(tagId, epc, from, changedTo);
+                }
+            }
+            from = to;
+        }
+        return rows;
+    }
+
+    // the chunks are walked in scan date order, the range of a tag runs from its first chunk to its last
+    private static void track(Map<TagKey, LocalDateTime[]> changed, String tagId, String epc, LocalDateTime from,
+                              LocalDateTime to) {
+        changed.merge(new TagKey(tagId, epc), new LocalDateTime[]{from, to}, (range, chunk) -> new LocalDateTime[]{range[0], chunk[1]});
+    }
+
+    // the deleted reads no longer compete and the moved reads now compete with the reads of their new location. Once
+    // every chunk ran, the windows of the changed range of each tag are elected again on whole windows (a window may
+    // cross a chunk bound), only the windows whose stored flags differ from the election are updated
+    private void arbitrateAgain(Map<TagKey, LocalDateTime[]> changed) {
+        changed.forEach((tag, range) -> {
+            List<LocationArbiter.Decision> decisions = locationArbiter.electAgain(range[0], range[1].minusNanos(1_000),
+                    (from, to) -> rfidTxRepository.findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc(tag.tagId(), tag.epc(), from, to));
+            for (LocationArbiter.Decision decision : decisions) {
+                rfidTxRepository.updateLocationWinner(tag.tagId(), tag.epc(), decision.windowStart(), decision.windowEnd(),
+                        decision.locationIds(), decision.winnerLocationId());
+            }
+            if (!decisions.isEmpty()) {
+                currentLocationIndex.refresh(tag.tagId(), tag.epc());
+            }
+        });
+    }
+
+    private Filter validateFilter(RfidTxBulkRequest request) {
+        if (!ValidationUtils.isValidDateFormat(request.getStartDate()) || !ValidationUtils.isValidDateFormat(request.getEndDate())
+                || (ValidationUtils.isNullOrEmpty(request.getSiteName()) && ValidationUtils.isNullOrEmpty(request.getEpc()))) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.BULK_FILTER_REQUIRED.getMessage());
+            throw new InvalidInputException(ErrorMessage.BULK_FILTER_REQUIRED.getMessage());
+        }
+        LocalDateTime start = ConversionUtils.convertStringToDate(request.getStartDate());
+        LocalDateTime end = ConversionUtils.convertStringToDate(request.getEndDate());
+        if (!ValidationUtils.areDatesInOrder(start, end)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_ORDER_ERROR.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
+        }
+        String epc = null;
+        if (!ValidationUtils.isNullOrEmpty(request.getEpc())) {
+            if (!ValidationUtils.isValidEPCFormat(request.getEpc())) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EPC_FORMAT.getMessage());
+                throw new InvalidInputException(ErrorMessage.EPC_FORMAT.getMessage());
+            }
+            epc = request.getEpc().toUpperCase();
+        }
+        Long siteId = null;
+        Long locationId = null;
+        if (!ValidationUtils.isNullOrEmpty(request.getSiteName())) {
+            Site site = findSite(request.getSiteName());
+            siteId = site.getSiteId();
+            if (!ValidationUtils.isNullOrEmpty(request.getLocationName())) {
+                locationId = findLocation(request.getLocationName(), site).getLocationId();
+            }
+        } else if (!ValidationUtils.isNullOrEmpty(request.getLocationName())) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.BULK_LOCATION_REQUIRED.getMessage());
+            throw new InvalidInputException(ErrorMessage.BULK_LOCATION_REQUIRED.getMessage());
+        }
+        // the whole endDate second, scan dates are stored with microseconds
+        return new Filter(start, end.plusSeconds(1), siteId, locationId, epc);
+    }
+
+    private Site findSite(String siteName) {
+        return siteService.findBySiteName(ConversionUtils.convertStringCompositeNames(siteName, ".."))
+                .orElseThrow(() -> {
+                    logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+                    return new InvalidInputException(ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+                });
+    }
+
+    private Location findLocation(String locationName, Site site) {
+        return locationService.locationNameMatchesSite(ConversionUtils.convertStringCompositeNames(locationName, ".."), site.getSiteName())
+                .orElseThrow(() -> {
+                    logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.LOCATION_NOT_IN_SITE.getMessage());
+                    return new InvalidInputException(ErrorMessage.LOCATION_NOT_IN_SITE.getMessage());
+                });
+    }
+}
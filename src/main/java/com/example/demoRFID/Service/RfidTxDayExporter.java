@@ -0,0 +1,147 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Utils.DuckDbUtils;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Copies the RFID_Tx reads of one scan day to Parquet through DuckDB, for the archive (RfidTxArchiveService) and
+ * the reporting snapshot (ReportingService).
+ *
+ * The day is streamed from MySQL (a range of the clustered index) to a CSV file with the tagId and EPC of the
+ * API, which DuckDB then writes as zstd-compressed Parquet partitioned by siteId. The Parquet files of both
+ * tiers share the columns below, with scan_day and site_id as hive partitions.
+ */
+@Service
+public class RfidTxDayExporter {
+
+    public static final String COLUMNS = "tag_id, epc, scan_date, location_id, rssi, location_winner, site_id, ref_code";
+    // hive partition columns of the Parquet files, for read_parquet
+    public static final String HIVE_TYPES = "{'scan_day': DATE, 'site_id': BIGINT}";
+    private static final String CSV_COLUMNS = "{'tag_id': 'VARCHAR', 'epc': 'VARCHAR', 'scan_date': 'TIMESTAMP',"
+            + " 'location_id': 'BIGINT', 'rssi': 'DECIMAL(38,2)', 'location_winner': 'BOOLEAN', 'site_id': 'BIGINT',"
+            + " 'ref_code': 'BIGINT'}";
+    static final DateTimeFormatter CSV_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    // streams the rows of a day instead of buffering them (MySQL Connector/J streaming result set)
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    /**
+     * Reads exported from one day.
+     *
+     * @param readsPerHour The number of reads of every hour of the day.
+     * @param fingerprint An order independent fingerprint of the reads.
+     */
+    public record DayExport(long[] readsPerHour, long fingerprint) {
+        public long reads() {
+            return Arrays.stream(readsPerHour).sum();
+        }
+    }
+
+    @Autowired
+    public RfidTxDayExporter(DataSource dataSource) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Writes the reads of a scan day to a CSV file, decoding the stored keys.
+     *
+     * @param day The scan day.
+     * @param csv The file to write.
+     * @return The reads per hour and fingerprint of the export.
+     * @throws IOException If the file cannot be written.
+     */
+    public DayExport exportDay(LocalDate day, Path csv) throws IOException {
+        long[] readsPerHour = new long[24];
+        long[] fingerprint = new long[1];
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(COLUMNS.replace(" ", ""));
+            writer.write('\n');
+            streamingJdbcTemplate.query("SELECT " + COLUMNS + " FROM rfid_tx WHERE scan_date >= ? AND scan_date < ?",
+                    row -> {
+                        long tagKey = row.getLong("tag_id");
+                        byte[] epc = row.getBytes("epc");
+                        LocalDateTime scanDate = row.getTimestamp("scan_date").toLocalDateTime();
+                        readsPerHour[scanDate.getHour()]++;
+                        fingerprint[0] += mix(tagKey * 31 + Arrays.hashCode(epc), scanDate.toLocalTime().toNanoOfDay());
+                        try {
+                            writer.write(RfidKeyCodec.decodeTagId(tagKey));
+                            writer.write(',');
+                            writer.write(RfidKeyCodec.decodeEpc(epc));
+                            writer.write(',');
+                            writer.write(scanDate.format(CSV_DATE_TIME));
+                            writer.write(',');
+                            writer.write(nullable(row, row.getLong("location_id")));
+                            writer.write(',');
+                            BigDecimal rssi = row.getBigDecimal("rssi");
+                            writer.write(rssi == null ? "" : rssi.toPlainString());
+                            writer.write(',');
+                            boolean winner = row.getBoolean("location_winner");
+                            writer.write(row.wasNull() ? "" : String.valueOf(winner));
+                            writer.write(',');
+                            writer.write(nullable(row, row.getLong("site_id")));
+                            writer.write(',');
+                            writer.write(nullable(row, row.getLong("ref_code")));
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, Timestamp.valueOf(day.atStartOfDay()), Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new DayExport(readsPerHour, fingerprint[0]);
+    }
+
+    /**
+     * Writes an exported day as Parquet files under target/site_id=N/.
+     *
+     * @param duckDb The DuckDB connection, able to write to the target.
+     * @param csv The file written by exportDay.
+     * @param target The directory of the day, local or s3://.
+     * @param fileName The name of the files, {i} being replaced by their index. Existing files with the same
+     *                 names are overwritten, the others are kept.
+     * @throws SQLException If DuckDB fails to read the CSV or write the files.
+     */
+    public static void writeParquet(Connection duckDb, Path csv, String target, String fileName) throws SQLException {
+        try (Statement statement = duckDb.createStatement()) {
+            statement.execute("COPY (SELECT * FROM read_csv(" + DuckDbUtils.literal(csv.toString())
+                    + ", header = true, nullstr = '', columns = " + CSV_COLUMNS + ")) TO "
+                    + DuckDbUtils.literal(target) + " (FORMAT PARQUET, COMPRESSION ZSTD, PARTITION_BY (site_id),"
+                    + " FILENAME_PATTERN " + DuckDbUtils.literal(fileName) + ", OVERWRITE_OR_IGNORE true)");
+        }
+    }
+
+    private static String nullable(ResultSet row, long value) throws SQLException {
+        return row.wasNull() ? "" : String.valueOf(value);
+    }
+
+    // 64-bit finalizer of SplitMix64 over the combined key
+    private static long mix(long key, long time) {
+        long z = key * 0x9E3779B97F4A7C15L + time;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorCode;
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Utils.ConversionUtils;
+import com.example.demoRFID.Utils.DuckDbUtils;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import com.example.demoRFID.Utils.ValidationUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Columnar export of RFID_Tx for the data team: the reads of a scan date range, optionally of one site, as a
+ * zstd-compressed Parquet file holding only the requested columns.
+ *
+ * Only the requested columns (plus the key) are selected from MySQL and streamed from the cursor to a CSV spool
+ * file with the tagId and EPC of the API, which DuckDB then writes as Parquet (see RfidTxDayExporter). When the
+ * range reaches the archive (RfidTxArchiveService), the archived reads of the range are added, the RFID_Tx row
+ * winning for a read present in both tiers.
+ *
+ * The export is spooled twice, to CSV then to Parquet, before the first byte is sent: the DuckDB JDBC driver only
+ * writes Parquet and Arrow to files, and Parquet has its footer last. The temporary disk used and the time to first
+ * byte grow with the range, which is therefore capped at rfid.export.max-days.
+ */
+@Service
+public class RfidTxExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxExportService.class);
+
+    // exported columns by API name: RFID_Tx column and DuckDB type
+    static final Map<String, String[]> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("tagId", new String[]{"tag_id", "VARCHAR"});
+        COLUMNS.put("epc", new String[]{"epc", "VARCHAR"});
+        COLUMNS.put("scanDate", new String[]{"scan_date", "TIMESTAMP"});
+        COLUMNS.put("locationId", new String[]{"location_id", "BIGINT"});
+        COLUMNS.put("rssi", new String[]{"rssi", "DECIMAL(38,2)"});
+        COLUMNS.put("locationWinner", new String[]{"location_winner", "BOOLEAN"});
+        COLUMNS.put("siteId", new String[]{"site_id", "BIGINT"});
+        COLUMNS.put("refCode", new String[]{"ref_code", "BIGINT"});
+    }
+
+    private static final List<String> KEY = List.of("tagId", "epc", "scanDate");
+
+    private final SiteService siteService;
+    private final RfidTxArchiveService rfidTxArchiveService;
+    // streams the rows instead of buffering them (MySQL Connector/J streaming result set)
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @Value("${rfid.archive.s3-region:}")
+    private String s3Region;
+
+    @Value("${rfid.export.max-days:31}")
+    private long maxDays;
+
+    @Autowired
+    public RfidTxExportService(SiteService siteService, RfidTxArchiveService rfidTxArchiveService, DataSource dataSource) {
+        this.siteService = siteService;
+        this.rfidTxArchiveService = rfidTxArchiveService;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Writes the reads of a scan date range to a Parquet file.
+     *
+     * @param startDate The start of the range, 'yyyy-MM-dd HH:mm:ss'.
+     * @param endDate The end of the range, 'yyyy-MM-dd HH:mm:ss', the whole second included.
+     * @param siteName The site of the reads, or null for every site.
+     * @param columns The comma separated API names of the columns to export, or null for every column.
+     * @return A temporary file the caller deletes once sent.
+     * @throws InvalidInputException If a date, the site or a column is invalid, or the range exceeds rfid.export.max-days.
+     * @throws IOException If the spool file cannot be written.
+     * @throws SQLException If DuckDB fails to write the Parquet file.
+     */
+    public Path exportRfidTx(String startDate, String endDate, String siteName, String columns) throws IOException, SQLException {
+        if (!ValidationUtils.isValidDateFormat(startDate) || !ValidationUtils.isValidDateFormat(endDate)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_FORMAT.getMessage());
+        }
+        LocalDateTime from = ConversionUtils.convertStringToDate(startDate);
+        LocalDateTime end = ConversionUtils.convertStringToDate(endDate);
+        if (!ValidationUtils.areDatesInOrder(from, end)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_ORDER_ERROR.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
+        }
+        // the whole endDate second, scan dates are stored with microseconds
+        LocalDateTime to = end.plusSeconds(1);
+        if (to.isAfter(from.plusDays(maxDays))) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EXPORT_RANGE.format(maxDays));
+            throw new InvalidInputException(ErrorMessage.EXPORT_RANGE.format(maxDays));
+        }
+        List<String> projection = projection(columns);
+        Long siteId = null;
+        if (!ValidationUtils.isNullOrEmpty(siteName)) {
+            siteId = siteService.findBySiteName(ConversionUtils.convertStringCompositeNames(siteName, ".."))
+                    .orElseThrow(() -> {
+                        logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+                        return new InvalidInputException(ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+                    }).getSiteId();
+        }
+        // the key is always spooled, the archived reads are matched on it
+        Set<String> spooled = new LinkedHashSet<>(KEY);
+        spooled.addAll(projection);
+
+        long started = System.currentTimeMillis();
+        Path csv = Files.createTempFile("rfid_tx-export-", ".csv");
+        Path parquet = csv.resolveSibling(csv.getFileName().toString().replace(".csv", ".parquet"));
+        try {
+            long reads = spool(csv, spooled, from, to, siteId);
+            try (Connection duckDb = DuckDbUtils.open("jdbc:duckdb:", rfidTxArchiveService.archiveFiles(), s3Region);
+                 Statement statement = duckDb.createStatement()) {
+                String hot = "SELECT * FROM read_csv(" + DuckDbUtils.literal(csv.toString()) + ", header = true, nullstr = '',"
+                        + " columns = {" + spooled.stream().map(c -> "'" + COLUMNS.get(c)[0] + "': '" + COLUMNS.get(c)[1] + "'")
+                        .collect(Collectors.joining(", ")) + "})";
+                String source = "hot";
+                if (rfidTxArchiveService.reachesArchive(from) && hasArchive(statement)) {
+                    String cols = spooled.stream().map(c -> "a." + COLUMNS.get(c)[0]).collect(Collectors.joining(", "));
+                    source = "(SELECT * FROM hot UNION ALL SELECT " + cols + " FROM read_parquet("
+                            + DuckDbUtils.literal(rfidTxArchiveService.archiveFiles()) + ", hive_partitioning = true,"
+                            + " hive_types = " + RfidTxDayExporter.HIVE_TYPES + ") a"
+                            + " ANTI JOIN hot h ON a.tag_id = h.tag_id AND a.epc = h.epc AND a.scan_date = h.scan_date"
+                            + " WHERE a.scan_day BETWEEN DATE '" + from.toLocalDate() + "' AND DATE '" + to.toLocalDate() + "'"
+                            + " AND a.scan_date >= TIMESTAMP '" + from.format(RfidTxDayExporter.CSV_DATE_TIME) + "'"
+                            + " AND a.scan_date < TIMESTAMP '" + to.format(RfidTxDayExporter.CSV_DATE_TIME) + "'"
+                            + (siteId == null ? "" : " AND a.site_id = " + siteId) + ")";
+                }
+                String select = projection.stream().map(c -> COLUMNS.get(c)[0] + " AS \"" + c + "\"").collect(Collectors.joining(", "));
+                statement.execute("COPY (WITH hot AS (" + hot + ") SELECT " + select + " FROM " + source + ") TO "
+                        + DuckDbUtils.literal(parquet.toString()) + " (FORMAT PARQUET, COMPRESSION ZSTD)");
+            }
+            logger.info("{}|{}", LocalDateTime.now(), "Exported " + reads + " RFID_Tx reads from " + from + " to " + end
+                    + " in " + (System.currentTimeMillis() - started) + " ms, " + Files.size(parquet) + " bytes");
+            return parquet;
+        } catch (IOException | SQLException | RuntimeException e) {
+            Files.deleteIfExists(parquet);
+            throw e;
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    // the requested columns in request order, every column by default
+    private List<String> projection(String columns) {
+        if (ValidationUtils.isNullOrEmpty(columns)) {
+            return new ArrayList<>(COLUMNS.keySet());
+        }
+        Set<String> projection = new LinkedHashSet<>();
+        for (String column : columns.split(",")) {
+            String name = COLUMNS.keySet().stream().filter(c -> c.equalsIgnoreCase(column.trim())).findFirst().orElse(null);
+            if (name == null) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EXPORT_COLUMNS.format(COLUMNS.keySet()));
+                throw new InvalidInputException(ErrorMessage.EXPORT_COLUMNS.format(COLUMNS.keySet()));
+            }
+            projection.add(name);
+        }
+        return new ArrayList<>(projection);
+    }
+
+    // streams the range, clustered index order, to the spool file
+    private long spool(Path csv, Set<String> spooled, LocalDateTime from, LocalDateTime to, Long siteId) throws IOException {
+        long[] reads = new long[1];
+        String select = spooled.stream().map(c -> COLUMNS.get(c)[0]).collect(Collectors.joining(", "));
+        List<Object> parameters = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        if (siteId != null) {
+            parameters.add(siteId);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            writer.write(spooled.stream().map(c -> COLUMNS.get(c)[0]).collect(Collectors.joining(",")));
+            writer.write('\n');
+            // by location, which also covers the reads whose site_id is not backfilled yet
+            streamingJdbcTemplate.query("SELECT " + select + " FROM rfid_tx WHERE scan_date >= ? AND scan_date < ?"
+                            + (siteId == null ? "" : " AND location_id IN (SELECT location_id FROM location WHERE site_id = ?)"),
+                    row -> {
+                        reads[0]++;
+                        try {
+                            int i = 0;
+                            for (String column : spooled) {
+                                if (i++ > 0) {
+                                    writer.write(',');
+                                }
+                                writer.write(csvValue(row, column));
+                            }
+                            writer.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, parameters.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return reads[0];
+    }
+
+    private static String csvValue(ResultSet row, String column) throws SQLException {
+        String name = COLUMNS.get(column)[0];
+        switch (column) {
+            case "tagId":
+                return RfidKeyCodec.decodeTagId(row.getLong(name));
+            case "epc":
+                return RfidKeyCodec.decodeEpc(row.getBytes(name));
+            case "scanDate":
+                return row.getTimestamp(name).toLocalDateTime().format(RfidTxDayExporter.CSV_DATE_TIME);
+            case "rssi":
+                BigDecimal rssi = row.getBigDecimal(name);
+                return rssi == null ? "" : rssi.toPlainString();
+            case "locationWinner":
+                boolean winner = row.getBoolean(name);
+                return row.wasNull() ? "" : String.valueOf(winner);
+            default:
+                long value = row.getLong(name);
+                return row.wasNull() ? "" : String.valueOf(value);
+        }
+    }
+
+    private boolean hasArchive(Statement statement) throws SQLException {
+        try (ResultSet count = statement.executeQuery("SELECT COUNT(*) FROM glob("
+                + DuckDbUtils.literal(rfidTxArchiveService.archiveFiles()) + ")")) {
+            return count.next() && count.getLong(1) > 0;
+        }
+    }
+}
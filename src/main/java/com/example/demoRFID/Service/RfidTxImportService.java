@@ -0,0 +1,615 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorCode;
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxImportStatus;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Utils.ConversionUtils;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import com.example.demoRFID.Utils.ValidationUtils;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import static com.example.demoRFID.Constants.REFCODE_LENGTH;
+
+/**
+ * Bulk import of historical reads from CSV files, e.g. the back-filled reader logs of a site coming online.
+ *
+ * The uploaded file is streamed to rfid.import.work-dir and imports run one at a time, in upload order. Blocks of
+ * rfid.import.block-size lines are parsed and validated in parallel on rfid.import.threads threads with the
+ * ValidationUtils rules of RfidTxService.addRfidTx, the sites, locations and tags being resolved against in-memory
+ * snapshots taken when the import starts instead of one lookup per line. The blocks are then written in file
+ * order, each with one batched multi-row INSERT in its own transaction, after which its rejected lines are
+ * appended to the reject file and the checkpoint records the line reached.
+ *
+ * A failed or interrupted import is resumed from its checkpoint. A block written again after a crash between its
+ * commit and its checkpoint, like a read already stored, is absorbed by ON DUPLICATE KEY UPDATE.
+ *
+ * Imported reads skip the repeated read suppression, the location arbitration (locationWinner stays null) and the
+ * burst compaction, like reads stored before those existed. They are applied to the CurrentLocationIndex, except
+ * the reads of the block already stored (found in the transaction of the INSERT) and the lines repeating a read of
+ * the block, so each stored read is counted once.
+ */
+@Service
+public class RfidTxImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxImportService.class);
+
+    static final List<String> COLUMNS = List.of("siteName", "locationName", "tagId", "epc", "refCode", "rssi", "scanDate");
+    private static final String INSERT = "INSERT INTO rfid_tx (tag_id, epc, scan_date, location_id, rssi, site_id, ref_code)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE tag_id = tag_id";
+    private static final String FIND_STORED = "SELECT tag_id, epc, scan_date FROM rfid_tx WHERE (tag_id, epc, scan_date) IN (%s) FOR UPDATE";
+    // primary keys per FIND_STORED statement
+    private static final int FIND_STORED_BATCH = 500;
+    private static final Pattern IMPORT_ID = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+
+    private final LocationRepository locationRepository;
+    private final CurrentLocationIndex currentLocationIndex;
+    private final JdbcTemplate jdbcTemplate;
+    // streams the tag snapshot instead of buffering it (MySQL Connector/J streaming result set)
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // imports run one at a time, in upload order
+    private final ExecutorService runner = Executors.newSingleThreadExecutor();
+    // status of the imports queued or run by this instance, the others are read from their checkpoint
+    private final Map<String, RfidTxImportStatus> statuses = new ConcurrentHashMap<>();
+
+    @Value("${rfid.import.work-dir:import}")
+    private String workDir;
+
+    @Value("${rfid.import.block-size:10000}")
+    private int blockSize;
+
+    @Value("${rfid.import.threads:4}")
+    private int threads;
+
+    // a line accepted by the validation, with its resolved references
+    record Read(String tagId, String epc, LocalDateTime scanDate, Location location, BigDecimal rssi, long refCode) {
+    }
+
+    // primary key of a read of a block
+    private record StoredRead(RfidKey tag, LocalDateTime scanDate) {
+    }
+
+    // outcome of a block of lines: its number of lines, the accepted reads and the reject file lines
+    record Block(int lines, List<Read> reads, List<String> rejects) {
+    }
+
+    // in-memory references of an import: the locations by "siteName|locationName", the site names and the
+    // refCode of every tag
+    record Snapshot(Map<String, Location> locations, Set<String> siteNames, Map<RfidKey, Long> tags) {
+    }
+
+    @Autowired
+    public RfidTxImportService(LocationRepository locationRepository, CurrentLocationIndex currentLocationIndex,
+                               JdbcTemplate jdbcTemplate, DataSource dataSource,
+                               PlatformTransactionManager transactionManager) {
+        this.locationRepository = locationRepository;
+        this.currentLocationIndex = currentLocationIndex;
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stores an uploaded CSV file and queues its import.
+     *
+     * @param csv The file: a header naming the columns siteName, locationName, tagId, epc, refCode, rssi and
+     *            scanDate in any order, then one read per line.
+     * @return The status of the queued import.
+     * @throws InvalidInputException If the header does not name every column.
+     * @throws IOException If the file cannot be stored.
+     */
+    public RfidTxImportStatus startImport(InputStream csv) throws IOException {
+        String importId = UUID.randomUUID().toString();
+        Files.createDirectories(Path.of(workDir));
+        Path file = csvFile(importId);
+        Files.copy(csv, file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            columns(reader.readLine());
+        } catch (InvalidInputException e) {
+            Files.delete(file);
+            throw e;
+        }
+        try (Writer rejects = Files.newBufferedWriter(rejectsFile(importId), StandardCharsets.UTF_8)) {
+            rejects.write("line,reason,record\n");
+        }
+        RfidTxImportStatus status = new RfidTxImportStatus(importId, RfidTxImportStatus.State.QUEUED, 0, 0, 0,
+                LocalDateTime.now(), null, null);
+        writeCheckpoint(status, Files.size(rejectsFile(importId)));
+        statuses.put(importId, status);
+        runner.submit(() -> run(importId));
+        logger.info("{}|{}", LocalDateTime.now(), "RFID_Tx import " + importId + " queued, " + Files.size(file) + " bytes");
+        return status;
+    }
+
+    /**
+     * Queues a failed import again, from its checkpoint.
+     *
+     * @param importId The id of the import.
+     * @return The status of the queued import.
+     * @throws ResourceNotFoundException If there is no such import.
+     * @throws InvalidInputException If the import did not fail.
+     */
+    public synchronized RfidTxImportStatus resumeImport(String importId) {
+        RfidTxImportStatus status = getStatus(importId);
+        if (status.getState() != RfidTxImportStatus.State.FAILED) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.IMPORT_NOT_RESUMABLE.format(importId, status.getState()));
+            throw new InvalidInputException(ErrorMessage.IMPORT_NOT_RESUMABLE.format(importId, status.getState()));
+        }
+        RfidTxImportStatus queued = new RfidTxImportStatus(importId, RfidTxImportStatus.State.QUEUED, status.getLines(),
+                status.getImported(), status.getRejected(), status.getStartedAt(), null, null);
+        statuses.put(importId, queued);
+        runner.submit(() -> run(importId));
+        logger.info("{}|{}", LocalDateTime.now(), "RFID_Tx import " + importId + " queued again from line " + status.getLines());
+        return queued;
+    }
+
+    /**
+     * Returns the progress of an import.
+     *
+     * @param importId The id of the import.
+     * @return The status of the import.
+     * @throws ResourceNotFoundException If there is no such import.
+     */
+    public RfidTxImportStatus getStatus(String importId) {
+        RfidTxImportStatus status = importId == null ? null : statuses.get(importId);
+        if (status != null) {
+            return status;
+        }
+        if (importId == null || !IMPORT_ID.matcher(importId).matches() || !Files.exists(checkpointFile(importId))) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.IMPORT_NOT_FOUND.format(importId));
+            throw new ResourceNotFoundException(ErrorMessage.IMPORT_NOT_FOUND.format(importId));
+        }
+        status = toStatus(importId, readCheckpoint(importId));
+        if (status.getState() == RfidTxImportStatus.State.QUEUED || status.getState() == RfidTxImportStatus.State.RUNNING) {
+            // queued or running on an instance that stopped
+            status.setState(RfidTxImportStatus.State.FAILED);
+            status.setMessage(ErrorMessage.IMPORT_INTERRUPTED.getMessage());
+        }
+        return status;
+    }
+
+    /**
+     * Returns the reject file of an import: the line number, the reason and the line of every rejected line.
+     *
+     * @param importId The id of the import.
+     * @return The path of the file.
+     * @throws ResourceNotFoundException If there is no such import.
+     */
+    public Path getRejects(String importId) {
+        getStatus(importId);
+        return rejectsFile(importId);
+    }
+
+    @PreDestroy
+    void close() {
+        // the running import fails at its next block and is resumed from its checkpoint
+        runner.shutdownNow();
+    }
+
+    private void run(String importId) {
+        RfidTxImportStatus status = statuses.get(importId);
+        long lines = status.getLines();
+        long imported = status.getImported();
+        long rejected = status.getRejected();
+        long started = System.currentTimeMillis();
+        statuses.put(importId, new RfidTxImportStatus(importId, RfidTxImportStatus.State.RUNNING, lines, imported,
+                rejected, status.getStartedAt(), null, null));
+        ExecutorService parsers = Executors.newFixedThreadPool(Math.max(1, threads));
+        Path rejectsFile = rejectsFile(importId);
+        try {
+            // drops the rejects of the blocks written after the checkpoint
+            long rejectsBytes = Long.parseLong(readCheckpoint(importId).getProperty("rejectsBytes"));
+            try (FileChannel channel = FileChannel.open(rejectsFile, StandardOpenOption.WRITE)) {
+                channel.truncate(rejectsBytes);
+            }
+            Snapshot snapshot = takeSnapshot();
+            try (BufferedReader reader = Files.newBufferedReader(csvFile(importId), StandardCharsets.UTF_8);
+                 BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND)) {
+                int[] columns = columns(reader.readLine());
+                for (long skipped = 0; skipped < lines && reader.readLine() != null; skipped++) {
+                    // already committed
+                }
+                Deque<Future<Block>> pending = new ArrayDeque<>();
+                long read = lines;
+                boolean end = false;
+                while (true) {
+                    // keeps the parsers busy while the oldest block is written
+                    while (!end && pending.size() < 2 * Math.max(1, threads)) {
+                        List<String> block = readBlock(reader);
+                        end = block.size() < blockSize;
+                        if (!block.isEmpty()) {
+                            long firstLine = read + 1;
+                            read += block.size();
+                            pending.add(parsers.submit(() -> parse(block, firstLine, columns, snapshot)));
+                        }
+                    }
+                    if (pending.isEmpty()) {
+                        break;
+                    }
+                    Block block = pending.poll().get();
+                    write(block.reads());
+                    for (String reject : block.rejects()) {
+                        rejects.write(reject);
+                    }
+                    rejects.flush();
+                    lines += block.lines();
+                    imported += block.reads().size();
+                    rejected += block.rejects().size();
+                    RfidTxImportStatus progress = new RfidTxImportStatus(importId, RfidTxImportStatus.State.RUNNING,
+                            lines, imported, rejected, status.getStartedAt(), null, null);
+                    writeCheckpoint(progress, Files.size(rejectsFile));
+                    statuses.put(importId, progress);
+                }
+            }
+            RfidTxImportStatus completed = new RfidTxImportStatus(importId, RfidTxImportStatus.State.COMPLETED, lines,
+                    imported, rejected, status.getStartedAt(), LocalDateTime.now(), null);
+            writeCheckpoint(completed, Files.size(rejectsFile));
+            statuses.put(importId, completed);
+            Files.delete(csvFile(importId));
+            logger.info("{}|{}", LocalDateTime.now(), ErrorMessage.IMPORT_SUCCESS.format(importId, imported, rejected,
+                    System.currentTimeMillis() - started));
+        } catch (IOException | RuntimeException | ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            String message = ErrorMessage.IMPORT_FAILURE.format(importId, lines, e.getMessage());
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_DATA_INT.getMessage(), message);
+            RfidTxImportStatus failed = new RfidTxImportStatus(importId, RfidTxImportStatus.State.FAILED, lines,
+                    imported, rejected, status.getStartedAt(), LocalDateTime.now(), message);
+            statuses.put(importId, failed);
+            try {
+                // the rejects file is truncated back to the last checkpoint by the resume
+                writeCheckpoint(failed, Long.parseLong(readCheckpoint(importId).getProperty("rejectsBytes")));
+            } catch (IOException | RuntimeException checkpointError) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_DATA_INT.getMessage(), checkpointError.getMessage());
+            }
+        } finally {
+            parsers.shutdownNow();
+        }
+    }
+
+    private List<String> readBlock(BufferedReader reader) throws IOException {
+        List<String> block = new ArrayList<>(blockSize);
+        String line;
+        while (block.size() < blockSize && (line = reader.readLine()) != null) {
+            block.add(line);
+        }
+        return block;
+    }
+
+    /**
+     * Validates a block of lines. Runs on the parser threads, the snapshot is only read.
+     *
+     * @param lines The lines of the block.
+     * @param firstLine The number of the first line of the block in the file, the header excluded.
+     * @param columns The position of every column of COLUMNS in a line.
+     * @param snapshot The references to resolve the lines against.
+     * @return The accepted reads and the reject file lines.
+     */
+    Block parse(List<String> lines, long firstLine, int[] columns, Snapshot snapshot) {
+        List<Read> reads = new ArrayList<>(lines.size());
+        List<String> rejects = new ArrayList<>();
+        StringBuilder message = new StringBuilder();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank()) {
+                continue;
+            }
+            message.setLength(0);
+            Read read = parseLine(split(line), columns, snapshot, message);
+            if (read != null) {
+                reads.add(read);
+            } else {
+                rejects.add((firstLine + i) + "," + quote(message.toString().replace("\n", " ").trim()) + "," + line + "\n");
+            }
+        }
+        return new Block(lines.size(), reads, rejects);
+    }
+
+    // the checks of RfidTxService.addRfidTx, in the same order and with the same messages
+    private Read parseLine(List<String> fields, int[] columns, Snapshot snapshot, StringBuilder message) {
+        int required = Arrays.stream(columns).max().orElse(0) + 1;
+        if (fields.size() < required) {
+            message.append(ErrorMessage.IMPORT_COLUMN_COUNT.format(required, fields.size()));
+            return null;
+        }
+        String[] values = new String[COLUMNS.size()];
+        List<String> emptyFieldNames = new ArrayList<>();
+        for (int column = 0; column < values.length; column++) {
+            values[column] = fields.get(columns[column]).trim();
+            if (ValidationUtils.isNullOrEmpty(values[column])) {
+                emptyFieldNames.add(COLUMNS.get(column));
+            }
+        }
+        if (!emptyFieldNames.isEmpty()) {
+            message.append(ErrorMessage.EMPTY_FIELDS.format(emptyFieldNames));
+            return null;
+        }
+        String siteName = values[0];
+        String locationName = values[1];
+        String tagId = values[2];
+        String epc = values[3];
+        String refCode = values[4];
+        String scanDate = values[6];
+        if (!ValidationUtils.isValidDateFormat(scanDate)) {
+            message.append(ErrorMessage.DATE_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            message.append(ErrorMessage.EPC_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidRefCode(refCode)) {
+            message.append(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+        }
+        if (!ValidationUtils.isValidTagFormat(tagId)) {
+            message.append(ErrorMessage.TAG_ID_FORMAT.getMessage());
+        }
+        BigDecimal rssi = null;
+        try {
+            rssi = new BigDecimal(values[5]);
+        } catch (NumberFormatException e) {
+            message.append(ErrorMessage.IMPORT_RSSI_FORMAT.getMessage());
+        }
+        if (!message.isEmpty()) {
+            return null;
+        }
+        siteName = ConversionUtils.convertStringCompositeNames(siteName, "..");
+        locationName = ConversionUtils.convertStringCompositeNames(locationName, "..");
+        if (!snapshot.siteNames().contains(siteName)) {
+            message.append(ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+            return null;
+        }
+        Location location = snapshot.locations().get(siteName + "|" + locationName);
+        if (location == null) {
+            message.append(ErrorMessage.LOCATION_NOT_IN_SITE.getMessage());
+            return null;
+        }
+        Long tagRefCode = snapshot.tags().get(RfidKey.of(tagId, epc));
+        if (tagRefCode == null) {
+            message.append(ErrorMessage.TAG_ID_EPC_NO_MATCH.getMessage());
+            return null;
+        }
+        if (tagRefCode != ConversionUtils.convertStringToInt(refCode, -1)) {
+            message.append(ErrorMessage.REF_CODE_TAG_ID_EPC_NO_MATCH.getMessage());
+            return null;
+        }
+        return new Read(tagId.toUpperCase(), epc.toUpperCase(), ConversionUtils.convertStringToDate(scanDate),
+                location, rssi, tagRefCode);
+    }
+
+    /**
+     * Writes the reads of a block in one transaction and applies the reads it added to the CurrentLocationIndex.
+     *
+     * @param reads The accepted reads of the block, in file order.
+     */
+    void write(List<Read> reads) {
+        if (reads.isEmpty()) {
+            return;
+        }
+        List<Read> inserted = transactionTemplate.execute(status -> {
+            Set<StoredRead> stored = findStored(reads);
+            jdbcTemplate.batchUpdate(INSERT, reads, reads.size(),
+                    (statement, read) -> {
+                        statement.setLong(1, RfidKeyCodec.encodeTagId(read.tagId()));
+                        statement.setBytes(2, RfidKeyCodec.encodeEpc(read.epc()));
+                        statement.setTimestamp(3, Timestamp.valueOf(read.scanDate()));
+                        statement.setLong(4, read.location().getLocationId());
+                        statement.setBigDecimal(5, read.rssi());
+                        statement.setLong(6, read.location().getSite().getSiteId());
+                        statement.setLong(7, read.refCode());
+                    });
+            // reads already stored and repeated lines are absorbed by ON DUPLICATE KEY UPDATE
+            List<Read> added = new ArrayList<>();
+            for (Read read : reads) {
+                if (stored.add(new StoredRead(RfidKey.of(read.tagId(), read.epc()), read.scanDate()))) {
+                    added.add(read);
+                }
+            }
+            return added;
+        });
+        for (Read read : inserted == null ? List.<Read>of() : inserted) {
+            RfidTx rfidTx = new RfidTx();
+            rfidTx.setTagId(read.tagId());
+            rfidTx.setEpc(read.epc());
+            rfidTx.setScanDate(read.scanDate());
+            rfidTx.setLocation(read.location());
+            rfidTx.setRssi(read.rssi());
+            currentLocationIndex.onAdded(rfidTx, read.location().getSite().getSiteName(), read.location().getLocationName());
+        }
+    }
+
+    // the reads of a block already in RFID_Tx, locked until the INSERT commits
+    private Set<StoredRead> findStored(List<Read> reads) {
+        Set<StoredRead> stored = new HashSet<>();
+        for (int from = 0; from < reads.size(); from += FIND_STORED_BATCH) {
+            List<Read> batch = reads.subList(from, Math.min(reads.size(), from + FIND_STORED_BATCH));
+            Object[] keys = new Object[batch.size() * 3];
+            for (int i = 0; i < batch.size(); i++) {
+                keys[i * 3] = RfidKeyCodec.encodeTagId(batch.get(i).tagId());
+                keys[i * 3 + 1] = RfidKeyCodec.encodeEpc(batch.get(i).epc());
+                keys[i * 3 + 2] = Timestamp.valueOf(batch.get(i).scanDate());
+            }
+            jdbcTemplate.query(String.format(FIND_STORED, String.join(", ", Collections.nCopies(batch.size(), "(?, ?, ?)"))),
+                    (RowCallbackHandler) row -> stored.add(new StoredRead(RfidKey.ofStored(row.getLong(1), row.getBytes(2)),
+                            row.getTimestamp(3).toLocalDateTime())), keys);
+        }
+        return stored;
+    }
+
+    private Snapshot takeSnapshot() {
+        Map<String, Location> locations = new HashMap<>();
+        Set<String> siteNames = new HashSet<>();
+        for (Location location : locationRepository.findAll()) {
+            siteNames.add(location.getSite().getSiteName());
+            locations.put(location.getSite().getSiteName() + "|" + location.getLocationName(), location);
+        }
+        Map<RfidKey, Long> tags = new HashMap<>();
+        streamingJdbcTemplate.query("SELECT tag_id, epc, ref_code FROM rfid",
+                row -> {
+                    tags.put(RfidKey.ofStored(row.getLong("tag_id"), row.getBytes("epc")), row.getLong("ref_code"));
+                });
+        return new Snapshot(locations, siteNames, tags);
+    }
+
+    /**
+     * Maps the header of a file to the position of every column of COLUMNS.
+     *
+     * @param header The first line of the file.
+     * @return The positions, in the order of COLUMNS.
+     * @throws InvalidInputException If a column is missing.
+     */
+    static int[] columns(String header) {
+        int[] columns = new int[COLUMNS.size()];
+        List<String> names = header == null ? List.of() : split(header.replace("\uFEFF", ""));
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = -1;
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(COLUMNS.get(column))) {
+                    columns[column] = i;
+                }
+            }
+            if (columns[column] < 0) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.IMPORT_HEADER.format(COLUMNS));
+                throw new InvalidInputException(ErrorMessage.IMPORT_HEADER.format(COLUMNS));
+            }
+        }
+        return columns;
+    }
+
+    // splits a CSV line, fields may be double-quoted with "" for a quote
+    static List<String> split(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private Path csvFile(String importId) {
+        return Path.of(workDir, importId + ".csv");
+    }
+
+    private Path rejectsFile(String importId) {
+        return Path.of(workDir, importId + ".rejects.csv");
+    }
+
+    private Path checkpointFile(String importId) {
+        return Path.of(workDir, importId + ".checkpoint");
+    }
+
+    // written to a temporary file first, so a crash leaves the previous checkpoint
+    private void writeCheckpoint(RfidTxImportStatus status, long rejectsBytes) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("state", status.getState().name());
+        checkpoint.setProperty("lines", String.valueOf(status.getLines()));
+        checkpoint.setProperty("imported", String.valueOf(status.getImported()));
+        checkpoint.setProperty("rejected", String.valueOf(status.getRejected()));
+        checkpoint.setProperty("rejectsBytes", String.valueOf(rejectsBytes));
+        checkpoint.setProperty("startedAt", status.getStartedAt().toString());
+        if (status.getFinishedAt() != null) {
+            checkpoint.setProperty("finishedAt", status.getFinishedAt().toString());
+        }
+        if (status.getMessage() != null) {
+            checkpoint.setProperty("message", status.getMessage());
+        }
+        Path temporary = Path.of(workDir, status.getImportId() + ".checkpoint.tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            checkpoint.store(writer, null);
+        }
+        Files.move(temporary, checkpointFile(status.getImportId()), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Properties readCheckpoint(String importId) {
+        Properties checkpoint = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile(importId), StandardCharsets.UTF_8)) {
+            checkpoint.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return checkpoint;
+    }
+
+    private static RfidTxImportStatus toStatus(String importId, Properties checkpoint) {
+        String finishedAt = checkpoint.getProperty("finishedAt");
+        return new RfidTxImportStatus(importId, RfidTxImportStatus.State.valueOf(checkpoint.getProperty("state")),
+                Long.parseLong(checkpoint.getProperty("lines")), Long.parseLong(checkpoint.getProperty("imported")),
+                Long.parseLong(checkpoint.getProperty("rejected")), LocalDateTime.parse(checkpoint.getProperty("startedAt")),
+                finishedAt == null ? null : LocalDateTime.parse(finishedAt), checkpoint.getProperty("message"));
+    }
+}
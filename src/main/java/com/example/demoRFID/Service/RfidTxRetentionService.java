@@ -0,0 +1,308 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.ReadBurst;
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deletes the RFID_Tx reads and the READ_BURST bursts older than their retention: rfid.retention.days, or the days
+ * set for their site in rfid.retention.site-days ("siteId=days,siteId=days"). A burst is past retention when its
+ * lastSeen is, its site is the one of its location.
+ *
+ * Every night (rfid.retention.cron) the reads past retention are deleted rfid.retention.chunk-size rows per
+ * DELETE, oldest first in primary key order, each chunk its own transaction: the locks are held for one short
+ * chunk and the binlog receives small events. The rows of a chunk are locked and read first in the same transaction,
+ * their reads are then uncounted from their tag (CurrentLocationIndex.onReadsDeleted) and a tag whose current
+ * location was deleted is reloaded. Between two chunks the job sleeps, from rfid.retention.min-sleep-ms
+ * doubling up to rfid.retention.max-sleep-ms while the replica lag (rfid.retention.replica-lag-query) is above
+ * rfid.retention.max-replica-lag-ms or the connection pool is busier than rfid.retention.max-pool-utilization,
+ * and halving back once both are below, so the ingest keeps its connections and replicas keep up. A run stops
+ * after rfid.retention.max-run-minutes; the next one carries on.
+ *
+ * With per site retention, reads without siteId would be deleted with the default retention, so the job waits
+ * for the site backfill to complete (RfidTxBackfillService).
+ *
+ * Metrics: rfid.retention.deleted and rfid.retention.deleted-bursts (counters per site, "default" for the default
+ * retention), rfid.retention.sleep
+ * (current sleep in ms), rfid.retention.replica-lag (ms), rfid.retention.pool-utilization (last measures) and
+ * rfid.retention.oldest-read-age (days, at the end of the last run).
+ */
+@Service
+public class RfidTxRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxRetentionService.class);
+
+    private final RfidTxRepository rfidTxRepository;
+    private final ReadBurstRepository readBurstRepository;
+    private final RfidTxBackfillService rfidTxBackfillService;
+    private final CurrentLocationIndex currentLocationIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong sleepMs = new AtomicLong();
+    private final AtomicLong replicaLagMs = new AtomicLong();
+    private final AtomicLong poolUtilizationPercent = new AtomicLong();
+    private final AtomicLong oldestReadAgeDays = new AtomicLong();
+    private boolean replicaLagUnavailable;
+
+    // reads deleted by one chunk, summed per tag
+    private static final class Reads {
+        private long count;
+        private BigDecimal rssiSum = BigDecimal.ZERO;
+
+        private void add(long readCount, BigDecimal rssi) {
+            count += readCount;
+            rssiSum = rssiSum.add(rssi == null ? BigDecimal.ZERO : rssi);
+        }
+    }
+
+    // rows deleted by one chunk and the reads they held per tag
+    private record Chunk(int rows, Map<RfidKey, Reads> tags) {
+    }
+
+    @Value("${rfid.retention.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rfid.retention.days:365}")
+    private int days;
+
+    @Value("${rfid.retention.site-days:}")
+    private String siteDays;
+
+    @Value("${rfid.retention.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${rfid.retention.min-sleep-ms:50}")
+    private long minSleepMs;
+
+    @Value("${rfid.retention.max-sleep-ms:5000}")
+    private long maxSleepMs;
+
+    @Value("${rfid.retention.max-replica-lag-ms:1000}")
+    private long maxReplicaLagMs;
+
+    @Value("${rfid.retention.replica-lag-query:SELECT MAX(replica_lag_in_msec) FROM information_schema.replica_host_status WHERE session_id <> 'MASTER_SESSION_ID'}")
+    private String replicaLagQuery;
+
+    @Value("${rfid.retention.max-pool-utilization:0.5}")
+    private double maxPoolUtilization;
+
+    @Value("${rfid.retention.max-run-minutes:60}")
+    private long maxRunMinutes;
+
+    @Autowired
+    public RfidTxRetentionService(RfidTxRepository rfidTxRepository, ReadBurstRepository readBurstRepository,
+                                  RfidTxBackfillService rfidTxBackfillService, CurrentLocationIndex currentLocationIndex,
+                                  PlatformTransactionManager transactionManager, JdbcTemplate jdbcTemplate,
+                                  DataSource dataSource, ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.readBurstRepository = readBurstRepository;
+        this.rfidTxBackfillService = rfidTxBackfillService;
+        this.currentLocationIndex = currentLocationIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+        meterRegistry.gauge("rfid.retention.sleep", sleepMs);
+        meterRegistry.gauge("rfid.retention.replica-lag", replicaLagMs);
+        meterRegistry.gauge("rfid.retention.pool-utilization", poolUtilizationPercent, percent -> percent.get() / 100.0);
+        meterRegistry.gauge("rfid.retention.oldest-read-age", oldestReadAgeDays);
+    }
+
+    /**
+     * Scheduled retention run.
+     */
+    @Scheduled(cron = "${rfid.retention.cron:0 0 3 * * *}")
+    public void purge() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long deadline = started + Duration.ofMinutes(maxRunMinutes).toMillis();
+        long deleted = 0;
+        long deletedBursts = 0;
+        try {
+            Map<Long, Integer> retentionPerSite = parseSiteDays(siteDays);
+            if (!retentionPerSite.isEmpty() && !rfidTxBackfillService.isComplete()) {
+                logger.info("{}|{}", LocalDateTime.now(), "RFID_Tx retention postponed, site and refCode backfill not complete");
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            sleepMs.set(minSleepMs);
+            LocalDateTime before = now.minusDays(days);
+            PageRequest chunk = PageRequest.of(0, chunkSize);
+            deleted += deleteInChunks("rfid.retention.deleted", "default", before, deadline, retentionPerSite.isEmpty()
+                    ? () -> readsChunk(() -> rfidTxRepository.findOldest(before, chunkSize),
+                            () -> rfidTxRepository.deleteOldest(before, chunkSize))
+                    : () -> readsChunk(() -> rfidTxRepository.findOldestExceptSites(before, retentionPerSite.keySet(), chunkSize),
+                            () -> rfidTxRepository.deleteOldestExceptSites(before, retentionPerSite.keySet(), chunkSize)));
+            deletedBursts += deleteInChunks("rfid.retention.deleted-bursts", "default", before, deadline, retentionPerSite.isEmpty()
+                    ? () -> burstsChunk(() -> readBurstRepository.findOldest(before, chunk))
+                    : () -> burstsChunk(() -> readBurstRepository.findOldestExceptSites(before, retentionPerSite.keySet(), chunk)));
+            for (Map.Entry<Long, Integer> site : retentionPerSite.entrySet()) {
+                LocalDateTime siteBefore = now.minusDays(site.getValue());
+                deleted += deleteInChunks("rfid.retention.deleted", String.valueOf(site.getKey()), siteBefore, deadline,
+                        () -> readsChunk(() -> rfidTxRepository.findOldestOfSite(site.getKey(), siteBefore, chunkSize),
+                                () -> rfidTxRepository.deleteOldestOfSite(site.getKey(), siteBefore, chunkSize)));
+                deletedBursts += deleteInChunks("rfid.retention.deleted-bursts", String.valueOf(site.getKey()), siteBefore, deadline,
+                        () -> burstsChunk(() -> readBurstRepository.findOldestOfSite(site.getKey(), siteBefore, chunk)));
+            }
+            LocalDateTime oldest = rfidTxRepository.findMinScanDate();
+            oldestReadAgeDays.set(oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toDays());
+        } catch (RuntimeException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("{}|{}|{}", LocalDateTime.now(), "RFID_Tx retention stopped", e.getMessage());
+        }
+        logger.info("{}|{}", LocalDateTime.now(), "Retention deleted " + deleted + " reads and " + deletedBursts
+                + " bursts in " + (System.currentTimeMillis() - started) + " ms");
+    }
+
+    /**
+     * Runs a chunked delete until it deletes less than a chunk or the run reaches its deadline. The reads of each
+     * chunk are uncounted from their tags and the tags whose current location was older than before are reloaded.
+     *
+     * @param counter The counter of the deleted rows.
+     * @param before The date the deleted rows are older than.
+     * @return The number of deleted rows.
+     */
+    private long deleteInChunks(String counter, String site, LocalDateTime before, long deadline, Supplier<Chunk> chunk)
+            throws InterruptedException {
+        long deleted = 0;
+        int rows;
+        do {
+            if (System.currentTimeMillis() > deadline) {
+                logger.info("{}|{}", LocalDateTime.now(), "RFID_Tx retention reached rfid.retention.max-run-minutes, resumed by the next run");
+                return deleted;
+            }
+            Chunk deletedChunk = chunk.get();
+            rows = deletedChunk.rows();
+            deleted += rows;
+            for (Map.Entry<RfidKey, Reads> tag : deletedChunk.tags().entrySet()) {
+                String tagId = tag.getKey().tagId();
+                String epc = tag.getKey().epc();
+                currentLocationIndex.onReadsDeleted(tagId, epc, tag.getValue().count, tag.getValue().rssiSum);
+                currentLocationIndex.onRangeChanged(tagId, epc, LocalDateTime.MIN, before);
+            }
+            meterRegistry.counter(counter, "site", site).increment(rows);
+            Thread.sleep(adaptSleep());
+        } while (rows >= chunkSize);
+        return deleted;
+    }
+
+    // locks the [tagId, epc, rssi] rows of a chunk of reads and deletes them in one transaction
+    private Chunk readsChunk(Supplier<List<Object[]>> locked, Supplier<Integer> delete) {
+        return transactionTemplate.execute(status -> {
+            Map<RfidKey, Reads> tags = new LinkedHashMap<>();
+            for (Object[] row : locked.get()) {
+                tags.computeIfAbsent(RfidKey.ofStored(((Number) row[0]).longValue(), (byte[]) row[1]), key -> new Reads())
+                        .add(1, (BigDecimal) row[2]);
+            }
+            return new Chunk(delete.get(), tags);
+        });
+    }
+
+    // locks a chunk of bursts and deletes them in one transaction
+    private Chunk burstsChunk(Supplier<List<ReadBurst>> locked) {
+        return transactionTemplate.execute(status -> {
+            List<ReadBurst> bursts = locked.get();
+            Map<RfidKey, Reads> tags = new LinkedHashMap<>();
+            for (ReadBurst burst : bursts) {
+                tags.computeIfAbsent(RfidKey.of(burst.getTagId(), burst.getEpc()), key -> new Reads())
+                        .add(burst.getReadCount() == null ? 0 : burst.getReadCount(), burst.getRssiSum());
+            }
+            if (!bursts.isEmpty()) {
+                readBurstRepository.deleteAllByIdInBatch(bursts.stream().map(ReadBurst::getBurstId).toList());
+            }
+            return new Chunk(bursts.size(), tags);
+        });
+    }
+
+    // doubles the sleep under pressure, halves it otherwise
+    private long adaptSleep() {
+        long lag = replicaLag();
+        double utilization = poolUtilization();
+        replicaLagMs.set(lag);
+        poolUtilizationPercent.set(Math.round(utilization * 100));
+        long sleep = sleepMs.get();
+        sleep = lag > maxReplicaLagMs || utilization > maxPoolUtilization
+                ? Math.min(sleep * 2, maxSleepMs)
+                : Math.max(sleep / 2, minSleepMs);
+        sleepMs.set(sleep);
+        return sleep;
+    }
+
+    // 0 when the lag cannot be read (no replica, not Aurora), logged once
+    private long replicaLag() {
+        if (replicaLagQuery.isEmpty() || replicaLagUnavailable) {
+            return 0;
+        }
+        try {
+            Number lag = jdbcTemplate.queryForObject(replicaLagQuery, Number.class);
+            return lag == null ? 0 : lag.longValue();
+        } catch (RuntimeException e) {
+            replicaLagUnavailable = true;
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Replica lag not available, retention paced on the pool only", e.getMessage());
+            return 0;
+        }
+    }
+
+    // active connections over the maximum pool size, 0 if the pool is not Hikari
+    private double poolUtilization() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+                if (hikari.getHikariPoolMXBean() != null) {
+                    return (double) hikari.getHikariPoolMXBean().getActiveConnections() / hikari.getMaximumPoolSize();
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Connection pool not available", e.getMessage());
+        }
+        return 0;
+    }
+
+    private static Map<Long, Integer> parseSiteDays(String siteDays) {
+        Map<Long, Integer> retentionPerSite = new LinkedHashMap<>();
+        for (String entry : siteDays.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] siteAndDays = entry.split("=");
+            if (siteAndDays.length != 2) {
+                throw new IllegalArgumentException("rfid.retention.site-days entries should look like siteId=days: " + entry);
+            }
+            retentionPerSite.put(Long.valueOf(siteAndDays[0].trim()), Integer.valueOf(siteAndDays[1].trim()));
+        }
+        return retentionPerSite;
+    }
+}
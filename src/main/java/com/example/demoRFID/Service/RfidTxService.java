@@ -18,7 +18,9 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static com.example.demoRFID.Constants.REFCODE_LENGTH;
@@ -30,13 +32,28 @@ public class RfidTxService {
     private final LocationService locationService;
     private final RfidService rfidService;
     private final SiteService siteService;
+    private final ReadBurstService readBurstService;
+    private final ReadSuppressionWindow readSuppressionWindow;
+    private final LocationArbiter locationArbiter;
+    private final CurrentLocationIndex currentLocationIndex;
+    private final RfidTxBackfillService rfidTxBackfillService;
+    private final RfidTxArchiveService rfidTxArchiveService;
     private static final Logger logger = LoggerFactory.getLogger(RfidTxService.class);
 
     @Autowired
-    public RfidTxService(RfidTxRepository rfidTxRepository,LocationService locationService, RfidService rfidService, SiteService siteService) {
+    public RfidTxService(RfidTxRepository rfidTxRepository,LocationService locationService, RfidService rfidService, SiteService siteService,
+                         ReadBurstService readBurstService, ReadSuppressionWindow readSuppressionWindow,
+                         LocationArbiter locationArbiter, CurrentLocationIndex currentLocationIndex,
+                         RfidTxBackfillService rfidTxBackfillService, RfidTxArchiveService rfidTxArchiveService) {
         this.locationService = locationService;
         this.rfidService = rfidService;
         this.siteService = siteService;
+        this.readBurstService = readBurstService;
+        this.readSuppressionWindow = readSuppressionWindow;
+        this.locationArbiter = locationArbiter;
+        this.currentLocationIndex = currentLocationIndex;
+        this.rfidTxBackfillService = rfidTxBackfillService;
+        this.rfidTxArchiveService = rfidTxArchiveService;
         this.rfidTxRepository=rfidTxRepository;
     }
 
@@ -85,7 +102,7 @@ public class RfidTxService {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
         }
-        List<LatestEPC> latestEpcList = rfidTxRepository.findLatestScans(startDate, endDate, epc, siteName);
+        List<LatestEPC> latestEpcList = findLatestScans(startDate, endDate, epc, siteName);
         if (latestEpcList.isEmpty()) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.NO_TRANSACTIONS.getMessage());
             throw new ResourceNotFoundException(ErrorMessage.NO_TRANSACTIONS.getMessage());
@@ -98,6 +115,26 @@ public class RfidTxService {
         return latestEpcList;
     }
 
+    private List<LatestEPC> findLatestScans(LocalDateTime startDate, LocalDateTime endDate, String epc, String siteName) {
+        //once reads are compacted the aggregates come from the read bursts plus the uncompacted reads
+        if (readBurstService.isEnabled()) {
+            return readBurstService.findLatestScans(startDate, endDate, epc, siteName);
+        }
+        //the joins are only needed until every read has its denormalized siteId
+        if (!rfidTxBackfillService.isComplete()) {
+            return rfidTxRepository.findLatestScans(startDate, endDate, epc, siteName);
+        }
+        Long siteId = null;
+        if (!ValidationUtils.isNullOrEmpty(siteName)) {
+            Optional<Site> site = siteService.findBySiteName(siteName);
+            if (site.isEmpty()) {
+                return List.of();
+            }
+            siteId = site.get().getSiteId();
+        }
+        return rfidTxRepository.findLatestScansBySiteId(startDate, endDate, epc, siteId);
+    }
+
     /**
      * Retrieves the top N EPCs based on the number of reads within the specified date range.
      * Validates the input parameters, including date formats and the value of N.
@@ -135,7 +172,9 @@ public class RfidTxService {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
         }
-        List<TopEPC> topReadsList = rfidTxRepository.findTopReads(N, startDate, endDate);
+        List<TopEPC> topReadsList = readBurstService.isEnabled()
+                ? readBurstService.findTopReads(N, startDate, endDate)
+                : rfidTxRepository.findTopReads(N, startDate, endDate);
         if (topReadsList.isEmpty()) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.NO_TRANSACTIONS.getMessage());
             throw new ResourceNotFoundException(ErrorMessage.NO_TRANSACTIONS.getMessage());
@@ -150,7 +189,7 @@ public class RfidTxService {
      * Checks for the existence of the location, site, and RFID tag before saving the transaction.
      *
      * @param rfidTxRequest The request object containing the RFID transaction details.
-     * @return The saved RfidTx object.
+     * @return The saved RfidTx object, or the already stored one if the read was suppressed as a repeat (see ReadSuppressionWindow).
      * @throws InvalidInputException If the input data is invalid or required fields are missing.
      * @throws DataIntegrityViolationException If the transaction already exists.
      */
@@ -160,6 +199,7 @@ public class RfidTxService {
         String siteName;
         String locationName;
         Long locationId;
+        Long siteId;
         String refCode = "";
         String tagId = "";
         BigDecimal rssi;
@@ -201,6 +241,12 @@ public class RfidTxService {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
         }
+        //repeated read of the same tag, product and location inside the suppression window, no database access
+        Optional<RfidTx> suppressedBy = readSuppressionWindow.trySuppress(tagId, epc, Long.valueOf(refCode), siteName, locationName, scanDate, rssi);
+        if (suppressedBy.isPresent()) {
+            logger.debug("{}|{}", LocalDateTime.now(), "RFID transaction was suppressed as a repeated read");
+            return suppressedBy.get();
+        }
         //check if location exists
         if (!locationService.locationNameExists(locationName)) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.LOCATION_NAME_DOESNT_EXIST.getMessage());
@@ -238,6 +284,8 @@ public class RfidTxService {
         }
 
 
+        //read once every check passed, the site of the matched location
+        siteId = existingLocation.get().getSite().getSiteId();
         Location location = new Location();
         location.setLocationId(locationId);
 
@@ -247,8 +295,29 @@ public class RfidTxService {
         rfidTx.setScanDate(scanDate);
         rfidTx.setLocation(location);
         rfidTx.setRssi(rssi);
+        //copied from the validated references for the site and product scoped queries
+        rfidTx.setSiteId(siteId);
+        rfidTx.setRefCode(Long.valueOf(refCode));
+        //arbitrate between the locations of the site that see the tag at the same moment
+        Optional<LocationArbiter.Decision> decision = locationArbiter.admit(tagId, epc, siteName, locationId, scanDate, rssi);
+        decision.ifPresent(d -> rfidTx.setLocationWinner(locationId.equals(d.winnerLocationId())));
+        RfidTx saved = rfidTxRepository.save(rfidTx);
+        currentLocationIndex.onAdded(saved, siteName, locationName);
+        if (decision.isPresent() && decision.get().winnerChanged()) {
+            LocationArbiter.Decision d = decision.get();
+            rfidTxRepository.updateLocationWinner(tagId, epc, d.windowStart(), d.windowEnd(), d.locationIds(), d.winnerLocationId());
+            currentLocationIndex.refresh(tagId, epc);
+        } else if (decision.isEmpty()) {
+            //read older than the window of its tag, elected against the stored reads of its window
+            List<LocationArbiter.Decision> decisions = arbitrateAgain(tagId, epc, scanDate);
+            flagWinner(saved, decisions);
+            if (!decisions.isEmpty()) {
+                currentLocationIndex.refresh(tagId, epc);
+            }
+        }
+        readSuppressionWindow.record(siteName, locationName, saved);
         logger.info("{}|{}",LocalDateTime.now(),"RFID transaction was added successfully");
-        return rfidTxRepository.save(rfidTx);
+        return saved;
     }
 
     /**
@@ -318,28 +387,39 @@ public class RfidTxService {
      * @throws ResourceNotFoundException If no transactions are found for the given EPC and TagID.
      */
     public List<RfidTx> getRfidTxByEpcAndTagId(String epc, String tagId) {
-        if (ValidationUtils.isValidTagFormat(tagId) && ValidationUtils.isValidEPCFormat(epc)) {
-            tagId = tagId.toUpperCase();
-            epc = epc.toUpperCase();
-            Optional<List<RfidTx>> optionalRfidTxList = rfidTxRepository.findByEpcAndTagId(epc, tagId);
-            if (optionalRfidTxList.isPresent() && !optionalRfidTxList.get().isEmpty()) {
-                logger.info("{}|{}",LocalDateTime.now(),"Successfully retrieved RfidTx By Epc and TagId");
-                return optionalRfidTxList.get();
-            } else {
-                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_TAG_ID_EPC_NOT_FOUND.format(tagId, epc));
-                throw new ResourceNotFoundException(ErrorMessage.RFIDTX_TAG_ID_EPC_NOT_FOUND.format(tagId, epc));
-            }
-
+        validateTagIdAndEpc(tagId, epc);
+        tagId = tagId.toUpperCase();
+        epc = epc.toUpperCase();
+        Optional<List<RfidTx>> optionalRfidTxList = rfidTxRepository.findByEpcAndTagId(epc, tagId);
+        if (optionalRfidTxList.isPresent() && !optionalRfidTxList.get().isEmpty()) {
+            logger.info("{}|{}",LocalDateTime.now(),"Successfully retrieved RfidTx By Epc and TagId");
+            return optionalRfidTxList.get();
         } else {
-            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.TAG_ID_FORMAT.getMessage());
-            throw new InvalidInputException(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT);
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_TAG_ID_EPC_NOT_FOUND.format(tagId, epc));
+            throw new ResourceNotFoundException(ErrorMessage.RFIDTX_TAG_ID_EPC_NOT_FOUND.format(tagId, epc));
+        }
+    }
+
+    /**
+     * Validates the TagID and EPC of the per tag queries.
+     *
+     * @param tagId The TagID.
+     * @param epc The EPC.
+     * @throws InvalidInputException If the TagID or EPC format is invalid.
+     */
+    private void validateTagIdAndEpc(String tagId, String epc) {
+        if (!ValidationUtils.isValidTagFormat(tagId) || !ValidationUtils.isValidEPCFormat(epc)) {
+            String message = ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT.getMessage();
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
+            throw new InvalidInputException(message);
         }
     }
 
     /**
      * Retrieves RFID transactions within a specified date range.
      * Validates the date formats and ensures that the dates are in chronological order.
-     * If valid, returns the list of transactions within the date range.
+     * If valid, returns the list of transactions within the date range, with the archived ones when the range
+     * reaches the archive (see RfidTxArchiveService).
      *
      * @param startDate The start date for the search.
      * @param endDate The end date for the search.
@@ -356,9 +436,13 @@ public class RfidTxService {
                 throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
             }
             Optional<List<RfidTx>> optionalRfidTxList = rfidTxRepository.findByScanDateBetween(startDateDateTime, endDateDateTime);
-            if (optionalRfidTxList.isPresent() && !optionalRfidTxList.get().isEmpty()) {
+            List<RfidTx> rfidTxList = optionalRfidTxList.orElse(List.of());
+            if (rfidTxArchiveService.reachesArchive(startDateDateTime)) {
+                rfidTxList = rfidTxArchiveService.mergeArchived(rfidTxList, startDateDateTime, endDateDateTime, null, null);
+            }
+            if (!rfidTxList.isEmpty()) {
                 logger.info("{}|{}",LocalDateTime.now(),"Successfully retrieved RfidTx By Date Range");
-                return optionalRfidTxList.get();
+                return rfidTxList;
             } else {
                 logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_DATE_NOT_FOUND.format(startDate, endDate));
                 throw new ResourceNotFoundException(ErrorMessage.RFIDTX_DATE_NOT_FOUND.format(startDate, endDate));
@@ -370,6 +454,90 @@ public class RfidTxService {
         }
     }
 
+    /**
+     * Retrieves the RFID transactions of a site within a scan date range.
+     * Reads the denormalized siteId of RFID_Tx, a single-table range scan; reads not backfilled yet
+     * (see RfidTxBackfillService) are not returned. Archived reads are merged when the range reaches the archive.
+     *
+     * @param siteName The site name.
+     * @param startDate The start date for the search.
+     * @param endDate The end date for the search.
+     * @return A list of RfidTx objects of the site within the specified date range.
+     * @throws InvalidInputException If the date formats are invalid, the dates are out of order or the site does not exist.
+     * @throws ResourceNotFoundException If no transactions are found.
+     */
+    public List<RfidTx> getRfidTxBySiteAndScanDateRange(String siteName, String startDate, String endDate) {
+        LocalDateTime[] range = validateScanDateRange(startDate, endDate);
+        String site = ValidationUtils.isNullOrEmpty(siteName) ? "" : ConversionUtils.convertStringCompositeNames(siteName, "..");
+        Optional<Site> existingSite = siteService.findBySiteName(site);
+        if (existingSite.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+            throw new InvalidInputException(ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+        }
+        List<RfidTx> rfidTxList = rfidTxRepository.findBySiteIdAndScanDateBetween(existingSite.get().getSiteId(), range[0], range[1]);
+        if (rfidTxArchiveService.reachesArchive(range[0])) {
+            rfidTxList = rfidTxArchiveService.mergeArchived(rfidTxList, range[0], range[1], existingSite.get().getSiteId(), null);
+        }
+        if (rfidTxList.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_SITE_NOT_FOUND.format(siteName, startDate, endDate));
+            throw new ResourceNotFoundException(ErrorMessage.RFIDTX_SITE_NOT_FOUND.format(siteName, startDate, endDate));
+        }
+        logger.info("{}|{}",LocalDateTime.now(),"Successfully retrieved RfidTx By Site and Date Range");
+        return rfidTxList;
+    }
+
+    /**
+     * Retrieves the RFID transactions of a product within a scan date range.
+     * Reads the denormalized refCode of RFID_Tx, a single-table range scan; reads not backfilled yet
+     * (see RfidTxBackfillService) are not returned. Archived reads are merged when the range reaches the archive.
+     *
+     * @param refCode The reference code of the product.
+     * @param startDate The start date for the search.
+     * @param endDate The end date for the search.
+     * @return A list of RfidTx objects of the product within the specified date range.
+     * @throws InvalidInputException If the reference code or date formats are invalid or the dates are out of order.
+     * @throws ResourceNotFoundException If no transactions are found.
+     */
+    public List<RfidTx> getRfidTxByRefCodeAndScanDateRange(String refCode, String startDate, String endDate) {
+        if (!ValidationUtils.isValidRefCode(refCode)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+            throw new InvalidInputException(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+        }
+        LocalDateTime[] range = validateScanDateRange(startDate, endDate);
+        List<RfidTx> rfidTxList = rfidTxRepository.findByRefCodeAndScanDateBetween(Long.valueOf(refCode), range[0], range[1]);
+        if (rfidTxArchiveService.reachesArchive(range[0])) {
+            rfidTxList = rfidTxArchiveService.mergeArchived(rfidTxList, range[0], range[1], null, Long.valueOf(refCode));
+        }
+        if (rfidTxList.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_REFCODE_NOT_FOUND.format(refCode, startDate, endDate));
+            throw new ResourceNotFoundException(ErrorMessage.RFIDTX_REFCODE_NOT_FOUND.format(refCode, startDate, endDate));
+        }
+        logger.info("{}|{}",LocalDateTime.now(),"Successfully retrieved RfidTx By RefCode and Date Range");
+        return rfidTxList;
+    }
+
+    /**
+     * Validates and converts a scan date range.
+     *
+     * @param startDate The start date.
+     * @param endDate The end date.
+     * @return The start and end dates.
+     * @throws InvalidInputException If the date formats are invalid or the dates are out of order.
+     */
+    private LocalDateTime[] validateScanDateRange(String startDate, String endDate) {
+        if (!ValidationUtils.isValidDateFormat(startDate) || !ValidationUtils.isValidDateFormat(endDate)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_FORMAT.getMessage());
+        }
+        LocalDateTime startDateDateTime = ConversionUtils.convertStringToDate(startDate);
+        LocalDateTime endDateDateTime = ConversionUtils.convertStringToDate(endDate);
+        if (!ValidationUtils.areDatesInOrder(startDateDateTime, endDateDateTime)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_ORDER_ERROR.getMessage());
+            throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
+        }
+        return new LocalDateTime[]{startDateDateTime, endDateDateTime};
+    }
+
     /**
      * Retrieves RFID transactions based on various criteria, including EPC, TagID, and date range.
      * Validates all input parameters, ensuring correct formats and logical order of dates.
@@ -384,10 +552,36 @@ public class RfidTxService {
      * @throws ResourceNotFoundException If no transactions are found matching the criteria.
      */
     public List<RfidTx> getRfidTxByCriteria(String epc, String tagId, String startDate, String endDate) {
-        StringBuilder message = new StringBuilder();
-        LocalDateTime startDateDateTime = null;
-        LocalDateTime endDateDateTime = null;
+        LocalDateTime[] range = validateCriteria(epc, tagId, startDate, endDate);
 
+        List<RfidTx> rfidTxList = rfidTxRepository.findByCriteria(epc, tagId, range[0], range[1]);
+        if (rfidTxList.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.NO_TRANSACTIONS.getMessage());
+            throw new ResourceNotFoundException(ErrorMessage.NO_TRANSACTIONS.getMessage());
+        } else {
+            rfidTxList.forEach(item -> {
+                String convertedLocation = ConversionUtils.convertStringCompositeNamesToShow(item.getLocation().getLocationName());
+                item.getLocation().setLocationName(convertedLocation);
+            });
+            logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.RFIDTX_SUCCESS.getMessage());
+            return rfidTxList;
+        }
+
+    }
+
+
+    /**
+     * Validates and converts the optional criteria of getRfidTxByCriteria.
+     *
+     * @param epc The EPC, if any.
+     * @param tagId The TagID, if any.
+     * @param startDate The start date, if any.
+     * @param endDate The end date, if any.
+     * @return The start and end dates, null when not given.
+     * @throws InvalidInputException If any of the criteria is invalid or the dates are out of order.
+     */
+    private LocalDateTime[] validateCriteria(String epc, String tagId, String startDate, String endDate) {
+        StringBuilder message = new StringBuilder();
         if (!ValidationUtils.isNullOrEmpty(epc) && !ValidationUtils.isValidEPCFormat(epc)) {
             message.append(ErrorMessage.EPC_FORMAT.getMessage());
         }
@@ -396,37 +590,236 @@ public class RfidTxService {
         }
         if ((!ValidationUtils.isNullOrEmpty(startDate) && !ValidationUtils.isValidDateFormat(startDate))
                 || (!ValidationUtils.isNullOrEmpty(endDate) && !ValidationUtils.isValidDateFormat(endDate))) {
-            message.append(ErrorMessage.DATE_FORMAT);
+            message.append(ErrorMessage.DATE_FORMAT.getMessage());
         }
-
         if (!message.isEmpty()) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
             throw new InvalidInputException(message.toString());
         }
-        if (!ValidationUtils.isNullOrEmpty(startDate)) {
-            startDateDateTime = ConversionUtils.convertStringToDate(startDate);
-        }
-        if (!ValidationUtils.isNullOrEmpty(endDate)) {
-            endDateDateTime = ConversionUtils.convertStringToDate(endDate);
-        }
+        LocalDateTime startDateDateTime = ValidationUtils.isNullOrEmpty(startDate) ? null : ConversionUtils.convertStringToDate(startDate);
+        LocalDateTime endDateDateTime = ValidationUtils.isNullOrEmpty(endDate) ? null : ConversionUtils.convertStringToDate(endDate);
         if (startDateDateTime != null && endDateDateTime != null && !ValidationUtils.areDatesInOrder(startDateDateTime, endDateDateTime)) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.DATE_ORDER_ERROR.getMessage());
             throw new InvalidInputException(ErrorMessage.DATE_ORDER_ERROR.getMessage());
         }
+        return new LocalDateTime[]{startDateDateTime, endDateDateTime};
+    }
+    /**
+     * Same as getRfidTxByEpc, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param epc The EPC to search for.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the EPC format or a field is invalid.
+     * @throws ResourceNotFoundException If no transactions are found for the given EPC.
+     */
+    public List<Map<String, Object>> getRfidTxByEpc(String epc, String fields) {
+        List<String> projection = projection(fields);
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EPC_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.EPC_FORMAT.getMessage());
+        }
+        List<Map<String, Object>> rows = rfidTxRepository.findProjection(projection, null, epc.toUpperCase(), null, null, null, null);
+        return found(rows, ErrorMessage.RFIDTX_EPC_NOT_FOUND.format(epc), "Successfully retrieved RfidTx By Epc");
+    }
 
-        List<RfidTx> rfidTxList = rfidTxRepository.findByCriteria(epc, tagId, startDateDateTime, endDateDateTime);
-        if (rfidTxList.isEmpty()) {
-            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.NO_TRANSACTIONS.getMessage());
-            throw new ResourceNotFoundException(ErrorMessage.NO_TRANSACTIONS.getMessage());
-        } else {
-            rfidTxList.forEach(item -> {
-                String convertedLocation = ConversionUtils.convertStringCompositeNamesToShow(item.getLocation().getLocationName());
-                item.getLocation().setLocationName(convertedLocation);
-            });
-            logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.RFIDTX_SUCCESS.getMessage());
-            return rfidTxList;
+    /**
+     * Same as getRfidTxByTagId, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param tagId The TagID to search for.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the TagID format or a field is invalid.
+     * @throws ResourceNotFoundException If no transactions are found for the given TagID.
+     */
+    public List<Map<String, Object>> getRfidTxByTagId(String tagId, String fields) {
+        List<String> projection = projection(fields);
+        if (!ValidationUtils.isValidTagFormat(tagId)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.TAG_ID_FORMAT.getMessage());
+            throw new InvalidInputException(ErrorMessage.TAG_ID_FORMAT.getMessage());
         }
+        List<Map<String, Object>> rows = rfidTxRepository.findProjection(projection, tagId.toUpperCase(), null, null, null, null, null);
+        return found(rows, ErrorMessage.RFIDTX_TAG_ID_NOT_FOUND.format(tagId), "Successfully retrieved RfidTx By TagId");
+    }
 
+    /**
+     * Same as getRfidTxByEpcAndTagId, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param epc The EPC to search for.
+     * @param tagId The TagID to search for.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the EPC or TagID format or a field is invalid.
+     * @throws ResourceNotFoundException If no transactions are found for the given EPC and TagID.
+     */
+    public List<Map<String, Object>> getRfidTxByEpcAndTagId(String epc, String tagId, String fields) {
+        List<String> projection = projection(fields);
+        validateTagIdAndEpc(tagId, epc);
+        List<Map<String, Object>> rows = rfidTxRepository.findProjection(projection, tagId.toUpperCase(), epc.toUpperCase(), null, null, null, null);
+        return found(rows, ErrorMessage.RFIDTX_TAG_ID_EPC_NOT_FOUND.format(tagId, epc), "Successfully retrieved RfidTx By Epc and TagId");
+    }
+
+    /**
+     * Same as getRfidTxByScanDateRange, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param startDate The start date for the search.
+     * @param endDate The end date for the search.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the date formats or a field are invalid or the dates are out of order.
+     * @throws ResourceNotFoundException If no transactions are found within the date range.
+     */
+    public List<Map<String, Object>> getRfidTxByScanDateRange(String startDate, String endDate, String fields) {
+        List<String> projection = projection(fields);
+        LocalDateTime[] range = validateScanDateRange(startDate, endDate);
+        List<Map<String, Object>> rows = findProjectionWithArchive(projection, range, null, null);
+        return found(rows, ErrorMessage.RFIDTX_DATE_NOT_FOUND.format(startDate, endDate), "Successfully retrieved RfidTx By Date Range");
+    }
+
+    /**
+     * Same as getRfidTxBySiteAndScanDateRange, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param siteName The site name.
+     * @param startDate The start date for the search.
+     * @param endDate The end date for the search.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the date formats or a field are invalid, the dates are out of order or the site does not exist.
+     * @throws ResourceNotFoundException If no transactions are found.
+     */
+    public List<Map<String, Object>> getRfidTxBySiteAndScanDateRange(String siteName, String startDate, String endDate, String fields) {
+        List<String> projection = projection(fields);
+        LocalDateTime[] range = validateScanDateRange(startDate, endDate);
+        String site = ValidationUtils.isNullOrEmpty(siteName) ? "" : ConversionUtils.convertStringCompositeNames(siteName, "..");
+        Optional<Site> existingSite = siteService.findBySiteName(site);
+        if (existingSite.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+            throw new InvalidInputException(ErrorMessage.SITE_NAME_DOESNT_EXIST.getMessage());
+        }
+        List<Map<String, Object>> rows = findProjectionWithArchive(projection, range, existingSite.get().getSiteId(), null);
+        return found(rows, ErrorMessage.RFIDTX_SITE_NOT_FOUND.format(siteName, startDate, endDate), "Successfully retrieved RfidTx By Site and Date Range");
+    }
+
+    /**
+     * Same as getRfidTxByRefCodeAndScanDateRange, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param refCode The reference code of the product.
+     * @param startDate The start date for the search.
+     * @param endDate The end date for the search.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If the reference code, date formats or a field are invalid or the dates are out of order.
+     * @throws ResourceNotFoundException If no transactions are found.
+     */
+    public List<Map<String, Object>> getRfidTxByRefCodeAndScanDateRange(String refCode, String startDate, String endDate, String fields) {
+        List<String> projection = projection(fields);
+        if (!ValidationUtils.isValidRefCode(refCode)) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+            throw new InvalidInputException(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH));
+        }
+        LocalDateTime[] range = validateScanDateRange(startDate, endDate);
+        List<Map<String, Object>> rows = findProjectionWithArchive(projection, range, null, Long.valueOf(refCode));
+        return found(rows, ErrorMessage.RFIDTX_REFCODE_NOT_FOUND.format(refCode, startDate, endDate), "Successfully retrieved RfidTx By RefCode and Date Range");
+    }
+
+    /**
+     * Same as getRfidTxByCriteria, selecting only the given fields (see RfidTxRepository.findProjection).
+     *
+     * @param epc The EPC to search for, if any.
+     * @param tagId The TagID to search for, if any.
+     * @param startDate The start date for the search, if any.
+     * @param endDate The end date for the search, if any.
+     * @param fields The comma separated fields to return.
+     * @return One map of the requested fields per transaction.
+     * @throws InvalidInputException If any of the input data is invalid.
+     * @throws ResourceNotFoundException If no transactions are found matching the criteria.
+     */
+    public List<Map<String, Object>> getRfidTxByCriteria(String epc, String tagId, String startDate, String endDate, String fields) {
+        List<String> projection = projection(fields);
+        LocalDateTime[] range = validateCriteria(epc, tagId, startDate, endDate);
+        List<Map<String, Object>> rows = rfidTxRepository.findProjection(projection,
+                ValidationUtils.isNullOrEmpty(tagId) ? null : tagId, ValidationUtils.isNullOrEmpty(epc) ? null : epc,
+                range[0], range[1], null, null);
+        // location names shown like getRfidTxByCriteria does
+        rows.forEach(row -> {
+            if (row.get("location") instanceof Location location) {
+                location.setLocationName(ConversionUtils.convertStringCompositeNamesToShow(location.getLocationName()));
+            }
+        });
+        return found(rows, ErrorMessage.NO_TRANSACTIONS.getMessage(), ErrorMessage.RFIDTX_SUCCESS.getMessage());
+    }
+
+    /**
+     * Parses the fields= parameter of the list endpoints.
+     *
+     * @param fields The comma separated fields, case insensitive.
+     * @return The fields in request order, without duplicates.
+     * @throws InvalidInputException If a field is not one of RfidTxRepository.FIELDS.
+     */
+    private List<String> projection(String fields) {
+        List<String> projection = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = RfidTxRepository.FIELDS.stream().filter(f -> f.equalsIgnoreCase(field.trim())).findFirst().orElse(null);
+            if (name == null) {
+                logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.RFIDTX_FIELDS.format(RfidTxRepository.FIELDS));
+                throw new InvalidInputException(ErrorMessage.RFIDTX_FIELDS.format(RfidTxRepository.FIELDS));
+            }
+            if (!projection.contains(name)) {
+                projection.add(name);
+            }
+        }
+        return projection;
+    }
+
+    // projected reads of a scan date range, merged with the archived ones when the range reaches the archive
+    private List<Map<String, Object>> findProjectionWithArchive(List<String> projection, LocalDateTime[] range, Long siteId, Long refCode) {
+        if (!rfidTxArchiveService.reachesArchive(range[0])) {
+            return rfidTxRepository.findProjection(projection, null, null, range[0], range[1], siteId, refCode);
+        }
+        // the key deduplicates the reads present in both tiers
+        List<String> selected = new ArrayList<>(projection);
+        RfidTxRepository.KEY.stream().filter(field -> !selected.contains(field)).forEach(selected::add);
+        List<Map<String, Object>> hot = rfidTxRepository.findProjection(selected, null, null, range[0], range[1], siteId, refCode);
+        return rfidTxArchiveService.mergeArchivedProjection(hot, projection, range[0], range[1], siteId, refCode);
+    }
+
+    private List<Map<String, Object>> found(List<Map<String, Object>> rows, String notFound, String success) {
+        if (rows.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), notFound);
+            throw new ResourceNotFoundException(notFound);
+        }
+        logger.info("{}|{}", LocalDateTime.now(), success);
+        return rows;
+    }
+
+    /**
+     * Retrieves the current location of a tag from the in-memory CurrentLocationIndex, without database access.
+     *
+     * @param tagId The TagID of the tag.
+     * @param epc The EPC of the tag.
+     * @return The CurrentLocation of the tag.
+     * @throws InvalidInputException If the TagID or EPC format is invalid.
+     * @throws ResourceNotFoundException If the tag has never been read.
+     */
+    public CurrentLocation getCurrentLocation(String tagId, String epc) {
+        StringBuilder message = new StringBuilder();
+        if (!ValidationUtils.isValidTagFormat(tagId)) {
+            message.append(ErrorMessage.TAG_ID_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            message.append(ErrorMessage.EPC_FORMAT.getMessage());
+        }
+        if (!message.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
+            throw new InvalidInputException(message.toString());
+        }
+        Optional<CurrentLocation> currentLocation = currentLocationIndex.find(tagId.toUpperCase(), epc.toUpperCase());
+        if (currentLocation.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(),
+                    ErrorMessage.CURRENT_LOCATION_NOT_FOUND.format(tagId, epc));
+            throw new ResourceNotFoundException(ErrorMessage.CURRENT_LOCATION_NOT_FOUND.format(tagId, epc));
+        }
+        return currentLocation.get();
     }
 
     /**
@@ -436,23 +829,28 @@ public class RfidTxService {
      * @param tagId The TagID of the RFID transaction.
      * @param epc The EPC of the RFID transaction.
      * @param scanDate The scan date of the RFID transaction.
-     * @throws InvalidInputException If any of the input fields are null or empty.
+     * @throws InvalidInputException If any of the input fields are null, empty or not in their format.
      * @throws ResourceNotFoundException If the transaction does not exist.
      */
     public void deleteRfidTx(String tagId,String epc,String scanDate) {
-        //if one of ID keys is null throw exception
-        if(ValidationUtils.isNullOrEmpty(tagId) || ValidationUtils.isNullOrEmpty(epc) || ValidationUtils.isNullOrEmpty(scanDate)){
-            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
-            throw new InvalidInputException(ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
-        }
-        LocalDateTime scanD=ConversionUtils.convertStringToDate(scanDate);
-        RfidTxId id=new RfidTxId(tagId,epc,scanD);
-        if (!rfidTxRepository.existsById(id)) {
+        RfidTxId id=toRfidTxId(tagId,epc,scanDate);
+        tagId=id.getTagId();
+        epc=id.getEpc();
+        LocalDateTime scanD=id.getScanDate();
+        // loaded rather than checked for existence, its RSSI is uncounted from the tag
+        Optional<RfidTx> existingRfidTx = rfidTxRepository.findById(id);
+        if (existingRfidTx.isEmpty()) {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFID_TX_DELETE_FAILURE.getMessage());
             throw new ResourceNotFoundException(ErrorMessage.RFID_TX_DELETE_FAILURE.getMessage());
         }
         logger.info("{}|{}",LocalDateTime.now(),ErrorMessage.RFID_DEL_SUCCESS.getMessage());
         rfidTxRepository.deleteById(id);
+        readSuppressionWindow.evict(tagId, epc);
+        boolean winnerChanged = !arbitrateAgain(tagId, epc, scanD).isEmpty();
+        currentLocationIndex.onDeleted(tagId, epc, scanD, existingRfidTx.get().getRssi());
+        if (winnerChanged) {
+            currentLocationIndex.refresh(tagId, epc);
+        }
     }
 
     /**
@@ -464,7 +862,7 @@ public class RfidTxService {
      * @param scanDate The scan date of the RFID transaction.
      * @param updatedRfidTx The request object containing the updated RFID transaction details.
      * @return The updated RfidTx object.
-     * @throws InvalidInputException If any of the input fields are null or empty, or if validation fails.
+     * @throws InvalidInputException If any of the input fields are null, empty or not in their format, or if validation fails.
      * @throws ResourceNotFoundException If the transaction does not exist.
      */
     public RfidTx updateRfidTx(String tagId,String epc,String scanDate, RfidTxUpdateRequest updatedRfidTx) {
@@ -473,17 +871,14 @@ public class RfidTxService {
         String refCode;
         Long locationId;
 
-        //if one of ID keys is null throw exception
-        if(ValidationUtils.isNullOrEmpty(tagId) || ValidationUtils.isNullOrEmpty(epc) || ValidationUtils.isNullOrEmpty(scanDate)){
-            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
-            throw new InvalidInputException(ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
-        }
-        LocalDateTime scanD=ConversionUtils.convertStringToDate(scanDate);
-        RfidTxId id=new RfidTxId(tagId,epc,scanD);
+        RfidTxId id=toRfidTxId(tagId,epc,scanDate);
+        tagId=id.getTagId();
+        epc=id.getEpc();
 
         Optional<RfidTx> existingRfidTx = rfidTxRepository.findById(id);
         if (existingRfidTx.isPresent()) {
             RfidTx rfidTx = existingRfidTx.get();
+            BigDecimal previousRssi = rfidTx.getRssi();
             if(!ValidationUtils.isNullOrZero(updatedRfidTx.getRssi()))
             {
                 rfidTx.setRssi(updatedRfidTx.getRssi());
@@ -516,13 +911,83 @@ public class RfidTxService {
                 throw new InvalidInputException(ErrorMessage.LOCATION_NOT_IN_SITE.getMessage());
             } else {
                 rfidTx.setLocation(existingLocation.get());
+                rfidTx.setSiteId(existingSite.get().getSiteId());
             }
             logger.info("{}|{}",LocalDateTime.now(),"Successfully updated RfidTx");
-            return rfidTxRepository.save(rfidTx);
+            RfidTx saved = rfidTxRepository.save(rfidTx);
+            readSuppressionWindow.evict(tagId, epc);
+            List<LocationArbiter.Decision> decisions = arbitrateAgain(tagId, epc, saved.getScanDate());
+            flagWinner(saved, decisions);
+            currentLocationIndex.onUpdated(saved, previousRssi, site, location);
+            if (!decisions.isEmpty()) {
+                currentLocationIndex.refresh(tagId, epc);
+            }
+            return saved;
         } else {
             logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_RES_NOT_FOUND.getMessage(), ErrorMessage.RFIDTX_NOT_FOUND.getMessage());
             throw new ResourceNotFoundException(ErrorMessage.RFIDTX_NOT_FOUND.getMessage());
         }
     }
 
+    /**
+     * Elects again the location arbitration (LocationArbiter) of the windows around a read that was deleted, whose
+     * location or RSSI changed or that arrived after its window, so the reads it competed with are flagged as if it
+     * had been stored that way.
+     *
+     * @param tagId The TagID of the read.
+     * @param epc The EPC of the read.
+     * @param scanDate The scan date of the read.
+     * @return The decisions of the windows whose stored locationWinner flags were updated.
+     */
+    private List<LocationArbiter.Decision> arbitrateAgain(String tagId, String epc, LocalDateTime scanDate) {
+        List<LocationArbiter.Decision> decisions = locationArbiter.electAgain(scanDate, scanDate,
+                (from, to) -> rfidTxRepository.findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc(tagId, epc, from, to));
+        for (LocationArbiter.Decision decision : decisions) {
+            rfidTxRepository.updateLocationWinner(tagId, epc, decision.windowStart(), decision.windowEnd(),
+                    decision.locationIds(), decision.winnerLocationId());
+        }
+        return decisions;
+    }
+
+    // the stored read was re-flagged by updateLocationWinner, the returned entity follows
+    private static void flagWinner(RfidTx saved, List<LocationArbiter.Decision> decisions) {
+        for (LocationArbiter.Decision d : decisions) {
+            if (!saved.getScanDate().isBefore(d.windowStart()) && !saved.getScanDate().isAfter(d.windowEnd())) {
+                saved.setLocationWinner(saved.getLocation().getLocationId().equals(d.winnerLocationId()));
+            }
+        }
+    }
+
+    /**
+     * Validates the composite key of an RFID transaction given as path variables and converts it to the form the
+     * transaction is stored with, so a malformed key is reported instead of failing in the key converters.
+     *
+     * @param tagId The TagID of the RFID transaction.
+     * @param epc The EPC of the RFID transaction.
+     * @param scanDate The scan date of the RFID transaction.
+     * @return The id, TagID and EPC upper-case.
+     * @throws InvalidInputException If any of the fields is null, empty or not in its format.
+     */
+    private RfidTxId toRfidTxId(String tagId, String epc, String scanDate) {
+        //if one of ID keys is null throw exception
+        if(ValidationUtils.isNullOrEmpty(tagId) || ValidationUtils.isNullOrEmpty(epc) || ValidationUtils.isNullOrEmpty(scanDate)){
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
+            throw new InvalidInputException(ErrorMessage.EMPTY_RFIDTX_FIELDS.getMessage());
+        }
+        StringBuilder message = new StringBuilder();
+        if (!ValidationUtils.isValidTagFormat(tagId)) {
+            message.append(ErrorMessage.TAG_ID_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidEPCFormat(epc)) {
+            message.append(ErrorMessage.EPC_FORMAT.getMessage());
+        }
+        if (!ValidationUtils.isValidDateFormat(scanDate)) {
+            message.append(ErrorMessage.DATE_FORMAT.getMessage()).append(scanDate);
+        }
+        if (!message.isEmpty()) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), ErrorCode.RFIDTX_INV_IN.getMessage(), message);
+            throw new InvalidInputException(message.toString());
+        }
+        return new RfidTxId(tagId.toUpperCase(), epc.toUpperCase(), ConversionUtils.convertStringToDate(scanDate));
+    }
 }
@@ -0,0 +1,477 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Off-heap per-tag state: an open-addressing hash table (linear probing) in a memory-mapped file.
+ *
+ * A tag is keyed by the RfidKeyCodec encoding of its tagId and epc (tagKey, epcHigh, epcLow), so no String is
+ * kept per tag. Every slot is a fixed-width record of 64 bytes: key, last locationId, last scan (epoch ms, UTC),
+ * last RSSI, read count and RSSI sum (RSSI in hundredths, the precision of the rssi column). Millions of tags then cost file pages instead of heap objects the garbage
+ * collector has to trace.
+ *
+ * The file header keeps the capacity, the number of tags, the newest scan date applied and a clean-shutdown
+ * flag. A file closed cleanly is reopened as is, so a restart does not need a full reload from RFID_Tx; a file
+ * left dirty by a crash is discarded because a record may have been half written.
+ *
+ * Writes are serialized by a StampedLock, reads are optimistic. The table holds at most
+ * rfid.tag-state.capacity * 0.9 tags, further tags are not stored (and logged).
+ */
+@Service
+public class TagStateStore {
+
+    private static final long MAGIC = 0x5246494454414753L; // "RFIDTAGS"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final double MAX_LOAD = 0.9;
+
+    // header offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 8;
+    private static final int H_RECORD_SIZE = 12;
+    private static final int H_CAPACITY = 16;
+    private static final int H_SIZE = 24;
+    private static final int H_HIGH_WATER_MARK = 32;
+    private static final int H_CLEAN = 40;
+
+    // record offsets
+    private static final int R_TAG_KEY = 0;
+    private static final int R_EPC_HIGH = 8;
+    private static final int R_EPC_LOW = 16;
+    private static final int R_LOCATION_ID = 24;
+    private static final int R_LAST_SCAN = 32;
+    private static final int R_LAST_RSSI = 40;
+    private static final int R_READ_COUNT = 48;
+    private static final int R_RSSI_SUM = 56;
+
+    private static final Logger logger = LoggerFactory.getLogger(TagStateStore.class);
+
+    private final boolean enabled;
+    private final Path file;
+    private final StampedLock lock = new StampedLock();
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int mask;
+    private boolean restored;
+    private boolean fullLogged;
+
+    /**
+     * State of one tag as read from the store.
+     *
+     * @param locationId The location of the last read.
+     * @param lastScanDate The scan date of the last read.
+     * @param lastRssi The RSSI of the last read.
+     * @param readCount The number of reads counted for the tag.
+     * @param rssiSum The sum of the RSSI of the counted reads.
+     */
+    public record TagState(long locationId, LocalDateTime lastScanDate, BigDecimal lastRssi, long readCount,
+                           BigDecimal rssiSum) {
+
+        public BigDecimal averageRssi() {
+            return readCount == 0 ? null : rssiSum.divide(BigDecimal.valueOf(readCount), 2, RoundingMode.HALF_UP);
+        }
+    }
+
+    @Autowired
+    public TagStateStore(@Value("${rfid.tag-state.enabled:false}") boolean enabled,
+                         @Value("${rfid.tag-state.file:tag-state.dat}") String file,
+                         @Value("${rfid.tag-state.capacity:4194304}") int capacity) {
+        this.enabled = enabled;
+        this.file = Path.of(file);
+        if (enabled) {
+            open(Integer.highestOneBit(Math.max(2, capacity - 1)) << 1);
+        }
+    }
+
+    private void open(int requestedCapacity) {
+        long length = HEADER_SIZE + (long) requestedCapacity * RECORD_SIZE;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("rfid.tag-state.capacity " + requestedCapacity + " does not fit in one mapped file");
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                boolean reusable = raf.length() == length && isCleanHeader(raf, requestedCapacity);
+                if (!reusable) {
+                    // drop the old content, the file is extended with zeros (empty slots)
+                    raf.setLength(0);
+                    raf.setLength(length);
+                }
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+                restored = reusable;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can not open tag state file " + file, e);
+        }
+        capacity = requestedCapacity;
+        mask = capacity - 1;
+        if (!restored) {
+            buffer.putLong(H_MAGIC, MAGIC);
+            buffer.putInt(H_VERSION, VERSION);
+            buffer.putInt(H_RECORD_SIZE, RECORD_SIZE);
+            buffer.putLong(H_CAPACITY, capacity);
+        }
+        // dirty until close() flushes the records
+        buffer.putInt(H_CLEAN, 0);
+        buffer.force();
+        logger.info("{}|{}", LocalDateTime.now(), (restored ? "Reopened tag state file " : "Created tag state file ")
+                + file + " with " + size() + " tags, capacity " + capacity);
+    }
+
+    private static boolean isCleanHeader(RandomAccessFile raf, int capacity) throws IOException {
+        raf.seek(H_MAGIC);
+        long magic = raf.readLong();
+        int version = raf.readInt();
+        int recordSize = raf.readInt();
+        long storedCapacity = raf.readLong();
+        raf.seek(H_CLEAN);
+        int clean = raf.readInt();
+        return magic == MAGIC && version == VERSION && recordSize == RECORD_SIZE && storedCapacity == capacity && clean == 1;
+    }
+
+    /**
+     * Flushes the table and marks the file clean so the next start reopens it.
+     */
+    @PreDestroy
+    public void close() {
+        if (buffer == null) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            buffer.force();
+            buffer.putInt(H_CLEAN, 1);
+            buffer.force();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return true if the table was reopened from a cleanly closed file instead of being created empty.
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public long size() {
+        return buffer.getLong(H_SIZE);
+    }
+
+    /**
+     * @return The newest scan date the table is known to be up to date with, or null if none was recorded.
+     */
+    public LocalDateTime getHighWaterMark() {
+        long epochMs = buffer.getLong(H_HIGH_WATER_MARK);
+        return epochMs == 0 ? null : toDate(epochMs);
+    }
+
+    public void setHighWaterMark(LocalDateTime scanDate) {
+        long stamp = lock.writeLock();
+        try {
+            buffer.putLong(H_HIGH_WATER_MARK, toEpochMs(scanDate));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // the tagKey of an encodable tagId is never 0 (it holds the digit count), 0 marks an empty slot
+    private static boolean isKey(long tagKey, long epcHigh) {
+        return tagKey > 0 && epcHigh >= 0;
+    }
+
+    private int home(long tagKey, long epcHigh, long epcLow) {
+        // murmur3 finalizer over the combined key, the low bits of the tagKey alone are the tag digits
+        long h = tagKey * 31 + epcHigh;
+        h = h * 31 + epcLow;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private int home(int base) {
+        return home(buffer.getLong(base + R_TAG_KEY), buffer.getLong(base + R_EPC_HIGH), buffer.getLong(base + R_EPC_LOW));
+    }
+
+    private boolean holds(int base, long tagKey, long epcHigh, long epcLow) {
+        return buffer.getLong(base + R_TAG_KEY) == tagKey && buffer.getLong(base + R_EPC_HIGH) == epcHigh
+                && buffer.getLong(base + R_EPC_LOW) == epcLow;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    // slot holding the key, or the empty slot where it would go
+    private int find(long tagKey, long epcHigh, long epcLow) {
+        int slot = home(tagKey, epcHigh, epcLow);
+        while (true) {
+            int base = offset(slot);
+            if (buffer.getLong(base + R_TAG_KEY) == 0 || holds(base, tagKey, epcHigh, epcLow)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the state of a tag.
+     *
+     * @param tagId The upper-case TagID.
+     * @param epc The upper-case EPC.
+     * @return The state, or an empty Optional if the tag is not in the table.
+     */
+    public Optional<TagState> get(String tagId, String epc) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (!isKey(tagKey, epcHigh)) {
+            return Optional.empty();
+        }
+        int epcLow = RfidKeyCodec.encodeEpcLow(epc);
+        long stamp = lock.tryOptimisticRead();
+        TagState state = read(tagKey, epcHigh, epcLow);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                state = read(tagKey, epcHigh, epcLow);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return Optional.ofNullable(state);
+    }
+
+    private TagState read(long tagKey, long epcHigh, long epcLow) {
+        int base = offset(find(tagKey, epcHigh, epcLow));
+        if (!holds(base, tagKey, epcHigh, epcLow)) {
+            return null;
+        }
+        return new TagState(buffer.getLong(base + R_LOCATION_ID), toDate(buffer.getLong(base + R_LAST_SCAN)),
+                BigDecimal.valueOf(buffer.getLong(base + R_LAST_RSSI), 2), buffer.getLong(base + R_READ_COUNT),
+                BigDecimal.valueOf(buffer.getLong(base + R_RSSI_SUM), 2));
+    }
+
+    /**
+     * Counts reads of a tag and moves its last read forward.
+     *
+     * @param tagId The upper-case TagID.
+     * @param epc The upper-case EPC.
+     * @param locationId The location of the newest of the reads.
+     * @param scanDate The scan date of the newest of the reads.
+     * @param rssi The RSSI of the newest of the reads.
+     * @param readCount The number of reads to add.
+     * @param rssiSum The RSSI sum of the reads to add.
+     * @param updateLast false to only count the reads (e.g. a read that lost the location arbitration).
+     * @return false if the tag could not be stored (key not encodable or table full).
+     */
+    public boolean add(String tagId, String epc, long locationId, LocalDateTime scanDate, BigDecimal rssi,
+                       long readCount, BigDecimal rssiSum, boolean updateLast) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (!isKey(tagKey, epcHigh)) {
+            return false;
+        }
+        int epcLow = RfidKeyCodec.encodeEpcLow(epc);
+        long stamp = lock.writeLock();
+        try {
+            int base = slotFor(tagKey, epcHigh, epcLow);
+            if (base < 0) {
+                return false;
+            }
+            buffer.putLong(base + R_READ_COUNT, buffer.getLong(base + R_READ_COUNT) + readCount);
+            buffer.putLong(base + R_RSSI_SUM, buffer.getLong(base + R_RSSI_SUM) + toCenti(rssiSum));
+            if (updateLast && toEpochMs(scanDate) >= buffer.getLong(base + R_LAST_SCAN)) {
+                writeLast(base, locationId, scanDate, rssi);
+            }
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Uncounts deleted reads of a tag, its last read is left as is.
+     *
+     * @param tagId The upper-case TagID.
+     * @param epc The upper-case EPC.
+     * @param readCount The number of deleted reads.
+     * @param rssiSum The RSSI sum of the deleted reads.
+     */
+    public void subtract(String tagId, String epc, long readCount, BigDecimal rssiSum) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (!isKey(tagKey, epcHigh)) {
+            return;
+        }
+        int epcLow = RfidKeyCodec.encodeEpcLow(epc);
+        long stamp = lock.writeLock();
+        try {
+            int base = offset(find(tagKey, epcHigh, epcLow));
+            if (!holds(base, tagKey, epcHigh, epcLow)) {
+                return;
+            }
+            // never below zero: reads counted before a reload may be uncounted twice
+            long count = buffer.getLong(base + R_READ_COUNT) - readCount;
+            buffer.putLong(base + R_READ_COUNT, Math.max(0, count));
+            buffer.putLong(base + R_RSSI_SUM, count <= 0 ? 0 : buffer.getLong(base + R_RSSI_SUM) - toCenti(rssiSum));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the last read of a tag without counting it.
+     *
+     * @param tagId The upper-case TagID.
+     * @param epc The upper-case EPC.
+     * @param locationId The location of the read.
+     * @param scanDate The scan date of the read.
+     * @param rssi The RSSI of the read.
+     * @param onlyIfNewer true to keep the current last read when it is newer.
+     */
+    public void setLast(String tagId, String epc, long locationId, LocalDateTime scanDate, BigDecimal rssi,
+                        boolean onlyIfNewer) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (!isKey(tagKey, epcHigh)) {
+            return;
+        }
+        int epcLow = RfidKeyCodec.encodeEpcLow(epc);
+        long stamp = lock.writeLock();
+        try {
+            int base = slotFor(tagKey, epcHigh, epcLow);
+            if (base >= 0 && (!onlyIfNewer || toEpochMs(scanDate) >= buffer.getLong(base + R_LAST_SCAN))) {
+                writeLast(base, locationId, scanDate, rssi);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a tag.
+     *
+     * @param tagId The upper-case TagID.
+     * @param epc The upper-case EPC.
+     */
+    public void remove(String tagId, String epc) {
+        long tagKey = RfidKeyCodec.encodeTagId(tagId);
+        long epcHigh = RfidKeyCodec.encodeEpcHigh(epc);
+        if (!isKey(tagKey, epcHigh)) {
+            return;
+        }
+        int epcLow = RfidKeyCodec.encodeEpcLow(epc);
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(tagKey, epcHigh, epcLow);
+            if (!holds(offset(slot), tagKey, epcHigh, epcLow)) {
+                return;
+            }
+            // backward shift: move up the following records whose probe sequence passes through the freed slot
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (buffer.getLong(offset(next) + R_TAG_KEY) == 0) {
+                    break;
+                }
+                int nextHome = home(offset(next));
+                boolean movable = slot <= next ? (nextHome <= slot || nextHome > next) : (nextHome <= slot && nextHome > next);
+                if (movable) {
+                    copy(next, slot);
+                    slot = next;
+                }
+            }
+            clear(slot);
+            buffer.putLong(H_SIZE, buffer.getLong(H_SIZE) - 1);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // offset of the record of the key, claiming an empty slot if needed; -1 when the table is full
+    private int slotFor(long tagKey, long epcHigh, long epcLow) {
+        int slot = find(tagKey, epcHigh, epcLow);
+        int base = offset(slot);
+        if (holds(base, tagKey, epcHigh, epcLow)) {
+            return base;
+        }
+        long size = buffer.getLong(H_SIZE);
+        if (size >= (long) (capacity * MAX_LOAD)) {
+            if (!fullLogged) {
+                fullLogged = true;
+                logger.error("{}|{}", LocalDateTime.now(), "Tag state table is full (" + size
+                        + " tags), increase rfid.tag-state.capacity");
+            }
+            return -1;
+        }
+        buffer.putLong(base + R_TAG_KEY, tagKey);
+        buffer.putLong(base + R_EPC_HIGH, epcHigh);
+        buffer.putLong(base + R_EPC_LOW, epcLow);
+        buffer.putLong(H_SIZE, size + 1);
+        return base;
+    }
+
+    private void writeLast(int base, long locationId, LocalDateTime scanDate, BigDecimal rssi) {
+        buffer.putLong(base + R_LOCATION_ID, locationId);
+        buffer.putLong(base + R_LAST_SCAN, toEpochMs(scanDate));
+        buffer.putLong(base + R_LAST_RSSI, toCenti(rssi));
+    }
+
+    private void copy(int from, int to) {
+        int source = offset(from);
+        int target = offset(to);
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            buffer.putLong(target + i, buffer.getLong(source + i));
+        }
+    }
+
+    private void clear(int slot) {
+        int base = offset(slot);
+        for (int i = 0; i < RECORD_SIZE; i += Long.BYTES) {
+            buffer.putLong(base + i, 0);
+        }
+    }
+
+    private static long toCenti(BigDecimal value) {
+        return value == null ? 0 : value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static long toEpochMs(LocalDateTime date) {
+        return date.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDate(long epochMs) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMs, 1000), (int) Math.floorMod(epochMs, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Request.RfidTxRequest;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Repository.SiteRepository;
+import com.example.demoRFID.Utils.ConversionUtils;
+import com.example.demoRFID.Utils.ValidationUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static com.example.demoRFID.Constants.DATETIME_PATTERN;
+
+/**
+ * Warms up a new instance before it takes traffic.
+ *
+ * Spring Boot only switches the readiness state to ACCEPTING_TRAFFIC once every ApplicationRunner has
+ * returned, so while this runner executes /actuator/health/readiness reports OUT_OF_SERVICE and the
+ * load balancer keeps routing to the instances that are already warm.
+ *
+ * Steps, each reported as the timer rfid.warmup.step{step=...}:
+ * - validation: the ValidationUtils/ConversionUtils checks done on every request
+ * - serialization: Jackson round trips of the request and response types
+ * - pool: opens the Hikari pool up to minimum-idle connections
+ * - reference-data: loads every Site and Location and resolves every location/site pair once
+ * - queries: rfid.warmup.query-rounds rounds of representative RfidTx reads over the last hour, the scan date
+ *   range one bounded by rfid.warmup.query-limit rows and projected so no entity is loaded. The first and the
+ *   last round are recorded as rfid.warmup.query{query=...,round=first|last} so the effect of the warm-up can
+ *   be compared
+ *
+ * A failing step is logged and skipped, the warm-up never prevents the instance from starting.
+ */
+@Service
+public class WarmUpService implements ApplicationRunner {
+
+    private final RfidTxRepository rfidTxRepository;
+    private final SiteRepository siteRepository;
+    private final LocationRepository locationRepository;
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpService.class);
+
+    @Value("${rfid.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rfid.warmup.iterations:1000}")
+    private int iterations;
+
+    @Value("${rfid.warmup.query-rounds:5}")
+    private int queryRounds;
+
+    @Value("${rfid.warmup.query-limit:100}")
+    private int queryLimit;
+
+    @Value("${rfid.warmup.max-duration-ms:10000}")
+    private long maxDurationMs;
+
+    @Autowired
+    public WarmUpService(RfidTxRepository rfidTxRepository, SiteRepository siteRepository, LocationRepository locationRepository,
+                         DataSource dataSource, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.rfidTxRepository = rfidTxRepository;
+        this.siteRepository = siteRepository;
+        this.locationRepository = locationRepository;
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxDurationMs);
+
+        runStep("validation", this::warmUpValidation);
+        runStep("serialization", this::warmUpSerialization);
+        runStep("pool", this::warmUpPool);
+        runStep("reference-data", this::warmUpReferenceData);
+        runStep("queries", () -> warmUpQueries(deadline));
+
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("rfid.warmup.duration").record(elapsed, TimeUnit.NANOSECONDS);
+        logger.info("{}|{}", LocalDateTime.now(), "Warm-up finished in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+    }
+
+    private void runStep(String step, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.error("{}|{}|{}", LocalDateTime.now(), "Warm-up step " + step + " failed", e.getMessage());
+        } finally {
+            meterRegistry.timer("rfid.warmup.step", "step", step).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private RfidTxRequest syntheticRequest(int i) {
+        RfidTxRequest request = new RfidTxRequest();
+        request.setTagId("TAG" + i);
+        request.setEpc("EPC" + String.format("%03d", i % 1000));
+        request.setRefCode(String.valueOf(10000 + i % 90000));
+        request.setSiteName("Site " + i % 10);
+        request.setLocationName("Dock " + i % 5);
+        request.setRssi(new BigDecimal("55.25"));
+        request.setScanDate(LocalDateTime.of(2024, 8, 1, 0, 0).plusSeconds(i).format(DateTimeFormatter.ofPattern(DATETIME_PATTERN)));
+        return request;
+    }
+
+    private void warmUpValidation() {
+        for (int i = 0; i < iterations; i++) {
+            RfidTxRequest request = syntheticRequest(i);
+            ValidationUtils.getEmptyFieldNames(request);
+            if (ValidationUtils.isValidDateFormat(request.getScanDate())) {
+                ValidationUtils.areDatesInOrder(ConversionUtils.convertStringToDate(request.getScanDate()), LocalDateTime.now());
+            }
+            ValidationUtils.isValidEPCFormat(request.getEpc());
+            ValidationUtils.isValidTagFormat(request.getTagId());
+            ValidationUtils.isValidRefCode(request.getRefCode());
+            ValidationUtils.isPositiveInteger(i);
+            ValidationUtils.isNullOrZero(request.getRssi());
+            ConversionUtils.convertStringCompositeNames(request.getSiteName(), "..");
+            ConversionUtils.convertStringCompositeNamesToShow(ConversionUtils.convertStringCompositeNames(request.getLocationName(), ".."));
+            ConversionUtils.convertStringToInt(request.getRefCode(), -1);
+        }
+    }
+
+    private void warmUpSerialization() {
+        try {
+            for (int i = 0; i < iterations; i++) {
+                RfidTxRequest request = syntheticRequest(i);
+                objectMapper.readValue(objectMapper.writeValueAsString(request), RfidTxRequest.class);
+
+                RfidTx rfidTx = new RfidTx();
+                rfidTx.setTagId(request.getTagId());
+                rfidTx.setEpc(request.getEpc());
+                rfidTx.setScanDate(ConversionUtils.convertStringToDate(request.getScanDate()));
+                rfidTx.setRssi(request.getRssi());
+                objectMapper.writeValueAsString(List.of(rfidTx));
+                objectMapper.writeValueAsString(List.of(new LatestEPC(request.getEpc(), (long) i, 55.25, request.getLocationName())));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void warmUpPool() {
+        if (!(dataSource instanceof HikariDataSource hikariDataSource)) {
+            return;
+        }
+        int minimumIdle = hikariDataSource.getMinimumIdle();
+        List<Connection> connections = new ArrayList<>(minimumIdle);
+        try {
+            for (int i = 0; i < minimumIdle; i++) {
+                Connection connection = dataSource.getConnection();
+                connections.add(connection);
+                connection.isValid(1);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    logger.error("{}|{}|{}", LocalDateTime.now(), "Warm-up could not return a connection", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void warmUpReferenceData() {
+        List<Site> sites = siteRepository.findAll();
+        List<Location> locations = locationRepository.findAll();
+        for (Location location : locations) {
+            if (location.getSite() != null) {
+                locationRepository.existsByLocationNameAndSiteName(location.getLocationName(), location.getSite().getSiteName());
+            }
+        }
+        logger.info("{}|{}", LocalDateTime.now(), "Warm-up loaded " + sites.size() + " sites and " + locations.size() + " locations");
+    }
+
+    private void warmUpQueries(long deadline) {
+        LocalDateTime end = LocalDateTime.now();
+        LocalDateTime lastHour = end.minusHours(1);
+        Map<String, Supplier<?>> queries = new LinkedHashMap<>();
+        queries.put("latest-scans", () -> rfidTxRepository.findLatestScans(lastHour, end, null, null));
+        queries.put("top-reads", () -> rfidTxRepository.findTopReads(10, lastHour, end));
+        queries.put("scan-date-range", () -> rfidTxRepository.findLatestReadsBetween(lastHour, end, queryLimit));
+
+        for (int round = 0; round < queryRounds; round++) {
+            boolean lastRound = round == queryRounds - 1 || System.nanoTime() > deadline;
+            for (Map.Entry<String, Supplier<?>> query : queries.entrySet()) {
+                long start = System.nanoTime();
+                query.getValue().get();
+                long elapsed = System.nanoTime() - start;
+                if (round == 0 || lastRound) {
+                    Timer.builder("rfid.warmup.query")
+                            .tag("query", query.getKey())
+                            .tag("round", round == 0 ? "first" : "last")
+                            .register(meterRegistry)
+                            .record(elapsed, TimeUnit.NANOSECONDS);
+                }
+            }
+            if (lastRound) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demoRFID.Utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Helpers for the embedded DuckDB engine, used through plain JDBC (jdbc:duckdb: URLs).
+ *
+ * DuckDB reads and writes local paths and s3:// URLs alike (httpfs extension, loaded on first use). For S3 the
+ * credentials come from the AWS default chain (environment, profile, instance or task role), like the other AWS
+ * clients of the service.
+ */
+public final class DuckDbUtils {
+
+    // Prevent instantiation
+    private DuckDbUtils() {
+        throw new AssertionError("Cannot instantiate DuckDbUtils class");
+    }
+
+    /**
+     * Opens a DuckDB connection able to read and write the given storage location.
+     *
+     * @param url The DuckDB JDBC URL, "jdbc:duckdb:" for an in-memory database.
+     * @param storage The local directory or s3:// prefix the connection works on.
+     * @param s3Region The AWS region of the bucket, empty to let the credential chain decide.
+     * @return The connection.
+     * @throws SQLException If DuckDB cannot be opened or the S3 secret cannot be created.
+     */
+    public static Connection open(String url, String storage, String s3Region) throws SQLException {
+        Connection connection = DriverManager.getConnection(url);
+        if (storage.startsWith("s3://")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE OR REPLACE SECRET rfid_s3 (TYPE S3, PROVIDER CREDENTIAL_CHAIN"
+                        + (s3Region.isEmpty() ? "" : ", REGION " + literal(s3Region)) + ")");
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Quotes a value as a DuckDB string literal, for the places that do not take parameters (file paths of
+     * read_parquet and COPY).
+     *
+     * @param value The value.
+     * @return The quoted literal.
+     */
+    public static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demoRFID.Utils;
+
+import static com.example.demoRFID.Constants.EPC_LENGTH;
+import static com.example.demoRFID.Constants.TAG_MAX_LENGTH;
+import static com.example.demoRFID.Constants.TAG_MIN_LENGTH;
+
+/**
+ * Compact encoding of the tagId and EPC keys, used for storage (TagIdConverter, EpcConverter) and for the
+ * in-memory keys (RfidKey, TagStateStore) while the REST API keeps the string formats.
+ *
+ * - tagId "TAG" + 1 to 10 digits: a long holding the digit count (4 bits) and the digits value (34 bits),
+ *   the digit count keeps "TAG01" and "TAG1" apart. Stored as BIGINT.
+ * - EPC "EPC" + 3 digits: the digits value (0..999), stored big-endian in 2 bytes of a VARBINARY(12) column.
+ * - EPC SGTIN-96, 24 hex characters: the 96 bits, stored as the 12 bytes of the same column.
+ *
+ * In memory an EPC is a long and an int: 0 and the digits value for an "EPC" + digits EPC, the first 64 and
+ * the last 32 bits for an SGTIN-96 (whose first 64 bits are never 0, the header is 0x30).
+ *
+ * The encode methods read CharSequences without allocating, the prefixes are case-insensitive like
+ * ValidationUtils. Decoding returns the upper-case form the service stores.
+ */
+public final class RfidKeyCodec {
+
+    private static final int TAG_VALUE_BITS = 34;
+
+    // Prevent instantiation
+    private RfidKeyCodec() {
+        throw new AssertionError("Cannot instantiate RfidKeyCodec class");
+    }
+
+    /**
+     * Encodes a tagId.
+     *
+     * @param tagId The tagId, "TAG" (any case) followed by TAG_MIN_LENGTH to TAG_MAX_LENGTH digits.
+     * @return The encoded tagId, or -1 if the tagId is not in that format.
+     */
+    public static long encodeTagId(CharSequence tagId) {
+        if (tagId == null || !hasPrefix(tagId, 'T', 'A', 'G')) {
+            return -1;
+        }
+        int digits = tagId.length() - 3;
+        if (digits < TAG_MIN_LENGTH || digits > TAG_MAX_LENGTH) {
+            return -1;
+        }
+        long value = digitsValue(tagId);
+        return value < 0 ? -1 : ((long) digits << TAG_VALUE_BITS) | value;
+    }
+
+    /**
+     * Decodes a tagId encoded by encodeTagId.
+     *
+     * @param tagKey The encoded tagId.
+     * @return The tagId, upper-case.
+     */
+    public static String decodeTagId(long tagKey) {
+        int digits = (int) (tagKey >>> TAG_VALUE_BITS);
+        String value = Long.toString(tagKey & ((1L << TAG_VALUE_BITS) - 1));
+        return "TAG" + "0".repeat(Math.max(0, digits - value.length())) + value;
+    }
+
+    /**
+     * Encodes the first part of an EPC.
+     *
+     * @param epc The EPC, "EPC" (any case) followed by EPC_LENGTH digits, or a hex-encoded SGTIN-96.
+     * @return 0 for an "EPC" + digits EPC, the first 64 bits of an SGTIN-96, or -1 if the EPC is in neither format.
+     */
+    public static long encodeEpcHigh(CharSequence epc) {
+        if (SgtinDecoder.isSgtin96(epc)) {
+            return SgtinDecoder.bits(epc, 0, 32) << 32 | SgtinDecoder.bits(epc, 32, 32);
+        }
+        return encodeEpcValue(epc) < 0 ? -1 : 0;
+    }
+
+    /**
+     * Encodes the second part of an EPC for which encodeEpcHigh did not return -1.
+     *
+     * @param epc The EPC.
+     * @return The digits value of an "EPC" + digits EPC, the last 32 bits of an SGTIN-96.
+     */
+    public static int encodeEpcLow(CharSequence epc) {
+        return epc.length() == SgtinDecoder.HEX_LENGTH ? (int) SgtinDecoder.bits(epc, 64, 32) : encodeEpcValue(epc);
+    }
+
+    /**
+     * Encodes an EPC for storage.
+     *
+     * @param epc The EPC, "EPC" (any case) followed by EPC_LENGTH digits, or a hex-encoded SGTIN-96.
+     * @return The 2 big-endian bytes of the digits value or the 12 bytes of the SGTIN-96, or null if the EPC is
+     * in neither format.
+     */
+    public static byte[] encodeEpc(CharSequence epc) {
+        long high = encodeEpcHigh(epc);
+        if (high < 0) {
+            return null;
+        }
+        int low = encodeEpcLow(epc);
+        if (high == 0) {
+            return new byte[]{(byte) (low >>> 8), (byte) low};
+        }
+        byte[] bytes = new byte[12];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+        }
+        for (int i = 0; i < 4; i++) {
+            bytes[8 + i] = (byte) (low >>> (24 - 8 * i));
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes an EPC encoded by encodeEpcHigh and encodeEpcLow.
+     *
+     * @param epcHigh The first part.
+     * @param epcLow The second part.
+     * @return The EPC, upper-case.
+     */
+    public static String decodeEpc(long epcHigh, int epcLow) {
+        if (epcHigh != 0) {
+            return String.format("%016X%08X", epcHigh, epcLow);
+        }
+        String value = Integer.toString(epcLow);
+        return "EPC" + "0".repeat(Math.max(0, EPC_LENGTH - value.length())) + value;
+    }
+
+    /**
+     * Decodes a stored EPC.
+     *
+     * @param bytes The stored EPC.
+     * @return The EPC, upper-case, or null if bytes is null.
+     * @throws IllegalArgumentException if bytes is not an encoded EPC.
+     */
+    public static String decodeEpc(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 2) {
+            return decodeEpc(0, ((bytes[0] & 0xff) << 8) | (bytes[1] & 0xff));
+        }
+        if (bytes.length != 12) {
+            throw new IllegalArgumentException("Not an encoded EPC, length " + bytes.length);
+        }
+        long high = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (bytes[i] & 0xff);
+        }
+        int low = 0;
+        for (int i = 8; i < 12; i++) {
+            low = (low << 8) | (bytes[i] & 0xff);
+        }
+        return decodeEpc(high, low);
+    }
+
+    // value of the digits of an "EPC" + digits EPC, -1 if the EPC is not in that format
+    private static int encodeEpcValue(CharSequence epc) {
+        if (epc == null || epc.length() != 3 + EPC_LENGTH || !hasPrefix(epc, 'E', 'P', 'C')) {
+            return -1;
+        }
+        return (int) digitsValue(epc);
+    }
+
+    private static boolean hasPrefix(CharSequence s, char a, char b, char c) {
+        return s.length() > 3 && Character.toUpperCase(s.charAt(0)) == a && Character.toUpperCase(s.charAt(1)) == b
+                && Character.toUpperCase(s.charAt(2)) == c;
+    }
+
+    // value of the digits after the 3 letters prefix, -1 if one is not a digit
+    private static long digitsValue(CharSequence s) {
+        long value = 0;
+        for (int i = 3; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
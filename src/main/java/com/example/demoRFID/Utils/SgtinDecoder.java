@@ -0,0 +1,131 @@
+package com.example.demoRFID.Utils;
+
+/**
+ * Allocation-free decoder of SGTIN-96 EPCs given as 24 hex characters (GS1 EPC Tag Data Standard).
+ *
+ * Layout (96 bits): header 0x30 (8), filter (3), partition (3), company prefix and item reference (44 bits
+ * split by the partition), serial (38). Every method reads the bits straight from the CharSequence, nothing
+ * is allocated, so they can run on the ingest path for every read.
+ *
+ * The methods other than isSgtin96 expect an EPC for which isSgtin96 returned true.
+ */
+public final class SgtinDecoder {
+
+    public static final int HEX_LENGTH = 24;
+    private static final int SGTIN_96_HEADER = 0x30;
+    private static final int SERIAL_BITS = 38;
+    // indexed by partition
+    private static final int[] COMPANY_PREFIX_BITS = {40, 37, 34, 30, 27, 24, 20};
+    private static final int[] COMPANY_PREFIX_DIGITS = {12, 11, 10, 9, 8, 7, 6};
+    private static final long[] POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+            100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L};
+
+    // Prevent instantiation
+    private SgtinDecoder() {
+        throw new AssertionError("Cannot instantiate SgtinDecoder class");
+    }
+
+    /**
+     * Checks that a string is a hex-encoded SGTIN-96: 24 hex characters (any case), header 0x30, a valid
+     * partition and a company prefix and item reference that fit their digit counts.
+     *
+     * @param hex The string to check.
+     * @return true if the string is a hex-encoded SGTIN-96.
+     */
+    public static boolean isSgtin96(CharSequence hex) {
+        if (hex == null || hex.length() != HEX_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < HEX_LENGTH; i++) {
+            char c = hex.charAt(i);
+            // ASCII only, Character.digit also accepts fullwidth and other Unicode digits
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        if (bits(hex, 0, 8) != SGTIN_96_HEADER) {
+            return false;
+        }
+        int partition = partition(hex);
+        if (partition >= COMPANY_PREFIX_BITS.length) {
+            return false;
+        }
+        return companyPrefix(hex) < POWERS_OF_TEN[COMPANY_PREFIX_DIGITS[partition]]
+                && itemReference(hex) < POWERS_OF_TEN[13 - COMPANY_PREFIX_DIGITS[partition]];
+    }
+
+    public static int filter(CharSequence hex) {
+        return (int) bits(hex, 8, 3);
+    }
+
+    public static int partition(CharSequence hex) {
+        return (int) bits(hex, 11, 3);
+    }
+
+    /**
+     * @return The number of digits of the company prefix (leading zeros included).
+     */
+    public static int companyPrefixDigits(CharSequence hex) {
+        return COMPANY_PREFIX_DIGITS[partition(hex)];
+    }
+
+    public static long companyPrefix(CharSequence hex) {
+        return bits(hex, 14, COMPANY_PREFIX_BITS[partition(hex)]);
+    }
+
+    /**
+     * @return The item reference, its first digit (of 13 - companyPrefixDigits digits) is the GTIN indicator.
+     */
+    public static long itemReference(CharSequence hex) {
+        int companyPrefixBits = COMPANY_PREFIX_BITS[partition(hex)];
+        return bits(hex, 14 + companyPrefixBits, 44 - companyPrefixBits);
+    }
+
+    public static long serial(CharSequence hex) {
+        return bits(hex, 96 - SERIAL_BITS, SERIAL_BITS);
+    }
+
+    /**
+     * Computes the GTIN-14 of the trade item: indicator, company prefix, rest of the item reference and check digit.
+     *
+     * @param hex A hex-encoded SGTIN-96.
+     * @return The GTIN-14 as a number (leading zeros dropped).
+     */
+    public static long gtin14(CharSequence hex) {
+        int itemReferenceDigits = 13 - companyPrefixDigits(hex);
+        long itemReference = itemReference(hex);
+        long restDigits = POWERS_OF_TEN[itemReferenceDigits - 1];
+        long indicator = itemReference / restDigits;
+        long withoutCheck = indicator * POWERS_OF_TEN[12] + companyPrefix(hex) * restDigits + itemReference % restDigits;
+        return withoutCheck * 10 + checkDigit(withoutCheck);
+    }
+
+    /**
+     * GS1 check digit of the 13 leading digits of a GTIN-14: weights 3 and 1 alternating from the rightmost digit.
+     *
+     * @param digits The 13 leading digits as a number.
+     * @return The check digit.
+     */
+    public static int checkDigit(long digits) {
+        int sum = 0;
+        boolean triple = true;
+        for (long rest = digits; rest > 0; rest /= 10) {
+            sum += (int) (rest % 10) * (triple ? 3 : 1);
+            triple = !triple;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Reads count (at most 63) bits starting at bit from, bit 0 being the most significant bit of the first
+     * hex character.
+     */
+    static long bits(CharSequence hex, int from, int count) {
+        long value = 0;
+        for (int bit = from; bit < from + count; bit++) {
+            int nibble = Character.digit(hex.charAt(bit >> 2), 16);
+            value = (value << 1) | ((nibble >> (3 - (bit & 3))) & 1);
+        }
+        return value;
+    }
+}
@@ -104,7 +104,8 @@ public class ValidationUtils {
     }
 
     /**
-     * Validates if the input string follows the format "EPC" or "epc" followed by exactly EPC_LENGTH digits.
+     * Validates if the input string follows the format "EPC" or "epc" followed by exactly EPC_LENGTH digits,
+     * or is a hex-encoded SGTIN-96 (see SgtinDecoder).
      *
      * @param input the string to validate
      * @return true if the input matches the format, false otherwise
@@ -116,7 +117,20 @@ public class ValidationUtils {
 
         // Regular expression to match "EPC" or "epc" followed by exactly 3 digits
         String regex = "^(EPC|epc)\\d{"+EPC_LENGTH+"}$";
-        return input.matches(regex);
+        return input.matches(regex) || SgtinDecoder.isSgtin96(input);
+    }
+
+    /**
+     * Validates if a GTIN is a GTIN-14 (leading zeros dropped) with a valid check digit.
+     *
+     * @param gtin the GTIN to validate
+     * @return true if the GTIN has at most 14 digits and its last digit is the check digit of the others
+     */
+    public static boolean isValidGtin(Long gtin) {
+        if (gtin == null || gtin <= 0 || gtin > 99_999_999_999_999L) {
+            return false;
+        }
+        return gtin % 10 == SgtinDecoder.checkDigit(gtin / 10);
     }
 
     /**
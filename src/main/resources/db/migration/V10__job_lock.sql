@@ -0,0 +1,8 @@
+-- Leases of the scheduled jobs that only one instance may run at a time: the job runs on the instance that moves
+-- locked_until from the past to the future (ReportingService).
+CREATE TABLE job_lock (
+    name VARCHAR(64) NOT NULL PRIMARY KEY,
+    locked_until DATETIME(6) NOT NULL,
+    locked_by VARCHAR(255) NULL
+);
+INSERT INTO job_lock (name, locked_until) VALUES ('reporting-snapshot', '1970-01-01 00:00:00');
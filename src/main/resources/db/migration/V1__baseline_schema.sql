@@ -0,0 +1,42 @@
+-- Baseline of the schema previously created by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at version 1 (spring.flyway.baseline-on-migrate) and skip this script,
+-- empty databases get the exact tables Hibernate validates against.
+
+CREATE TABLE IF NOT EXISTS site (
+    site_id   BIGINT       NOT NULL,
+    site_name VARCHAR(255),
+    PRIMARY KEY (site_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS location (
+    location_id   BIGINT       NOT NULL,
+    location_name VARCHAR(255),
+    site_id       BIGINT,
+    PRIMARY KEY (location_id),
+    CONSTRAINT fk_location_site FOREIGN KEY (site_id) REFERENCES site (site_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS product (
+    ref_code BIGINT       NOT NULL,
+    name     VARCHAR(255),
+    PRIMARY KEY (ref_code)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS rfid (
+    tag_id   VARCHAR(255) NOT NULL,
+    epc      VARCHAR(255) NOT NULL,
+    ref_code BIGINT,
+    PRIMARY KEY (tag_id, epc),
+    CONSTRAINT fk_rfid_product FOREIGN KEY (ref_code) REFERENCES product (ref_code)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS rfid_tx (
+    tag_id      VARCHAR(255)   NOT NULL,
+    epc         VARCHAR(255)   NOT NULL,
+    scan_date   DATETIME(6)    NOT NULL,
+    location_id BIGINT,
+    rssi        DECIMAL(38, 2),
+    PRIMARY KEY (tag_id, epc, scan_date),
+    CONSTRAINT fk_rfid_tx_rfid FOREIGN KEY (tag_id, epc) REFERENCES rfid (tag_id, epc),
+    CONSTRAINT fk_rfid_tx_location FOREIGN KEY (location_id) REFERENCES location (location_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,21 @@
+-- Read bursts written by the compaction job (ReadBurstService), see rfid.compaction.* properties.
+
+CREATE TABLE IF NOT EXISTS read_burst (
+    burst_id    BIGINT         NOT NULL AUTO_INCREMENT,
+    tag_id      VARCHAR(255),
+    epc         VARCHAR(255),
+    location_id BIGINT,
+    first_seen  DATETIME(6),
+    last_seen   DATETIME(6),
+    read_count  BIGINT,
+    min_rssi    DECIMAL(38, 2),
+    max_rssi    DECIMAL(38, 2),
+    rssi_sum    DECIMAL(38, 2),
+    PRIMARY KEY (burst_id),
+    CONSTRAINT fk_read_burst_location FOREIGN KEY (location_id) REFERENCES location (location_id)
+) ENGINE = InnoDB;
+
+-- latest burst of a tag, extended by the next compaction run
+CREATE INDEX idx_read_burst_tag_last_seen ON read_burst (tag_id, epc, last_seen);
+-- range filter of the latest scans / top reads queries
+CREATE INDEX idx_read_burst_last_seen ON read_burst (last_seen, first_seen);
@@ -0,0 +1,2 @@
+-- Result of the location arbitration (LocationArbiter), NULL for reads stored before it existed.
+ALTER TABLE rfid_tx ADD COLUMN location_winner BIT(1) NULL;
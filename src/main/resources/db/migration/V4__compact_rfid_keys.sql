@@ -0,0 +1,42 @@
+-- Compact keys (RfidKeyCodec, TagIdConverter, EpcConverter) in rfid, rfid_tx and read_burst:
+--   tag_id VARCHAR -> BIGINT         (digit count << 34) | digits value, 'TAG01' and 'TAG1' stay distinct
+--   epc    VARCHAR -> VARBINARY(12)  value of the 3 digits, big-endian on 2 bytes
+-- The primary key of rfid_tx drops from two VARCHAR(255) plus DATETIME(6) to 8 + 3 + 8 bytes.
+-- Every statement rewrites its table, see the ReadMe before running it on a large rfid_tx.
+
+-- the foreign key from rfid_tx to rfid is named by Hibernate on databases created with ddl-auto=update
+SET @fk = (SELECT CONSTRAINT_NAME FROM information_schema.REFERENTIAL_CONSTRAINTS
+           WHERE CONSTRAINT_SCHEMA = DATABASE() AND TABLE_NAME = 'rfid_tx' AND REFERENCED_TABLE_NAME = 'rfid' LIMIT 1);
+SET @sql = IF(@fk IS NULL, 'DO 0', CONCAT('ALTER TABLE rfid_tx DROP FOREIGN KEY `', @fk, '`'));
+PREPARE stmt FROM @sql;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- rfid
+ALTER TABLE rfid ADD COLUMN tag_key BIGINT NULL, ADD COLUMN epc_key VARBINARY(12) NULL;
+UPDATE rfid SET tag_key = ((CHAR_LENGTH(tag_id) - 3) << 34) | CAST(SUBSTRING(tag_id, 4) AS UNSIGNED),
+                epc_key = UNHEX(LPAD(HEX(CAST(SUBSTRING(epc, 4) AS UNSIGNED)), 4, '0'));
+ALTER TABLE rfid DROP PRIMARY KEY, DROP COLUMN tag_id, DROP COLUMN epc;
+ALTER TABLE rfid CHANGE COLUMN tag_key tag_id BIGINT NOT NULL,
+                 CHANGE COLUMN epc_key epc VARBINARY(12) NOT NULL,
+                 ADD PRIMARY KEY (tag_id, epc);
+
+-- rfid_tx
+ALTER TABLE rfid_tx ADD COLUMN tag_key BIGINT NULL, ADD COLUMN epc_key VARBINARY(12) NULL;
+UPDATE rfid_tx SET tag_key = ((CHAR_LENGTH(tag_id) - 3) << 34) | CAST(SUBSTRING(tag_id, 4) AS UNSIGNED),
+                   epc_key = UNHEX(LPAD(HEX(CAST(SUBSTRING(epc, 4) AS UNSIGNED)), 4, '0'));
+ALTER TABLE rfid_tx DROP PRIMARY KEY, DROP COLUMN tag_id, DROP COLUMN epc;
+ALTER TABLE rfid_tx CHANGE COLUMN tag_key tag_id BIGINT NOT NULL,
+                    CHANGE COLUMN epc_key epc VARBINARY(12) NOT NULL,
+                    ADD PRIMARY KEY (tag_id, epc, scan_date),
+                    ADD CONSTRAINT fk_rfid_tx_rfid FOREIGN KEY (tag_id, epc) REFERENCES rfid (tag_id, epc);
+
+-- read_burst
+DROP INDEX idx_read_burst_tag_last_seen ON read_burst;
+ALTER TABLE read_burst ADD COLUMN tag_key BIGINT NULL, ADD COLUMN epc_key VARBINARY(12) NULL;
+UPDATE read_burst SET tag_key = ((CHAR_LENGTH(tag_id) - 3) << 34) | CAST(SUBSTRING(tag_id, 4) AS UNSIGNED),
+                      epc_key = UNHEX(LPAD(HEX(CAST(SUBSTRING(epc, 4) AS UNSIGNED)), 4, '0'));
+ALTER TABLE read_burst DROP COLUMN tag_id, DROP COLUMN epc;
+ALTER TABLE read_burst CHANGE COLUMN tag_key tag_id BIGINT NULL,
+                       CHANGE COLUMN epc_key epc VARBINARY(12) NULL;
+CREATE INDEX idx_read_burst_tag_last_seen ON read_burst (tag_id, epc, last_seen);
@@ -0,0 +1,3 @@
+-- GTIN-14 of the product, matched against the GTIN decoded from SGTIN-96 EPCs (ProductGtinCache).
+ALTER TABLE product ADD COLUMN gtin BIGINT NULL;
+CREATE UNIQUE INDEX uk_product_gtin ON product (gtin);
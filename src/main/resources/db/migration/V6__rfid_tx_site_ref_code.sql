@@ -0,0 +1,8 @@
+-- Site and product of a read copied onto RFID_Tx, so site and product scoped queries are single-table range
+-- scans. Filled by RfidTxService for new reads and by RfidTxBackfillService for the existing ones.
+ALTER TABLE rfid_tx
+    ADD COLUMN site_id  BIGINT NULL,
+    ADD COLUMN ref_code BIGINT NULL;
+
+CREATE INDEX idx_rfid_tx_site_scan_date ON rfid_tx (site_id, scan_date);
+CREATE INDEX idx_rfid_tx_ref_code_scan_date ON rfid_tx (ref_code, scan_date);
@@ -0,0 +1,9 @@
+-- Secondary indexes for the RfidTxRepository query shapes that do not filter on a left prefix of the
+-- (tag_id, epc, scan_date) primary key. InnoDB appends the primary key to every secondary index, so tag_id
+-- is available from them too. QueryPlanGuard checks at startup that none of the queries scans the table.
+
+-- findByEpc, findByCriteria(epc, ...) and the epc filter of findLatestScans
+CREATE INDEX idx_rfid_tx_epc_scan_date ON rfid_tx (epc, scan_date);
+
+-- scan date ranges (findByScanDateBetween, MIN/MAX(scan_date), findCompactionCandidates, findTopReads,
+-- findLatestScans, findLatestReadPerTag) get no secondary index: V8 clusters rfid_tx by scan_date.
@@ -0,0 +1,10 @@
+-- Time-clustered layout of rfid_tx: InnoDB stores the rows in primary key order, so with (tag_id, epc, scan_date)
+-- every read was inserted next to the previous reads of its tag, all over the B-tree, and a scan date range
+-- jumped from tag to tag. With (scan_date, tag_id, epc) reads, which arrive in scan date order, append at the
+-- right edge of the table and a scan date range is one sequential walk of the clustered index.
+-- The natural key keeps its order in a unique index, which also serves the per-tag queries and the foreign key
+-- to rfid. The clustered index also serves the scan date ranges, which have no secondary index.
+-- Every statement rewrites the table, see the ReadMe before running it on a large rfid_tx.
+
+ALTER TABLE rfid_tx ADD UNIQUE INDEX uk_rfid_tx_tag_epc_scan_date (tag_id, epc, scan_date);
+ALTER TABLE rfid_tx DROP PRIMARY KEY, ADD PRIMARY KEY (scan_date, tag_id, epc);
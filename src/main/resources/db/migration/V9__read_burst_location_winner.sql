@@ -0,0 +1,3 @@
+-- Result of the location arbitration of the reads merged into a burst (ReadBurstService only merges reads with
+-- the same result), NULL for bursts compacted before it was kept.
+ALTER TABLE read_burst ADD COLUMN location_winner BIT(1) NULL;
@@ -0,0 +1,215 @@
+package com.example.demoRFID.Config;
+
+import com.example.demoRFID.Controller.RfidTxController;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.TopEPC;
+import com.example.demoRFID.Service.RfidTxBulkService;
+import com.example.demoRFID.Service.RfidTxExportService;
+import com.example.demoRFID.Service.RfidTxImportService;
+import com.example.demoRFID.Service.RfidTxService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Negotiates the response formats of ContentNegotiationConfig against a real server, with the
+ * server.compression settings of application.properties, in front of RfidTxController and mocked services.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, classes = ContentNegotiationConfigTest.Web.class)
+public class ContentNegotiationConfigTest {
+
+    private static final String EPC = "3034257BF7194E4000001A85";
+
+    @Configuration
+    @ImportAutoConfiguration({JacksonAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class,
+            ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class})
+    @Import({RfidTxController.class, ContentNegotiationConfig.class, RfidProtobufResponseAdvice.class})
+    static class Web {
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private RfidTxService rfidTxService;
+
+    @MockBean
+    private RfidTxBulkService rfidTxBulkService;
+
+    @MockBean
+    private RfidTxImportService rfidTxImportService;
+
+    @MockBean
+    private RfidTxExportService rfidTxExportService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    public void testNoAccept_Json() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(2));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, null, null);
+
+        assertEquals(200, response.statusCode());
+        assertTrue(contentType(response).startsWith("application/json"));
+        JsonNode reads = new ObjectMapper().readTree(response.body());
+        assertEquals(2, reads.size());
+        assertEquals(EPC, reads.get(0).get("epc").asText());
+    }
+
+    @Test
+    public void testCbor_SameFieldsAsJson() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(2));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, "application/cbor", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/cbor", contentType(response));
+        JsonNode reads = new ObjectMapper(new CBORFactory()).readTree(response.body());
+        assertEquals(2, reads.size());
+        assertEquals(EPC, reads.get(0).get("epc").asText());
+        assertEquals("Backroom", reads.get(0).get("location").get("locationName").asText());
+    }
+
+    @Test
+    public void testSmile_SameFieldsAsJson() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(2));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, "application/x-jackson-smile", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-jackson-smile", contentType(response));
+        JsonNode reads = new ObjectMapper(new SmileFactory()).readTree(response.body());
+        assertEquals(2, reads.size());
+        assertEquals("Backroom", reads.get(1).get("location").get("locationName").asText());
+    }
+
+    @Test
+    public void testProtobuf_Reads() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(2));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, "application/x-protobuf", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-protobuf", contentType(response));
+        assertTrue(response.body().length > 0);
+    }
+
+    @Test
+    public void testProtobuf_Projection() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC, "epc,rssi")).thenReturn(List.of(Map.of("epc", EPC, "rssi", new BigDecimal("-60"))));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC + "&fields=epc,rssi", "application/x-protobuf", null);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-protobuf", contentType(response));
+    }
+
+    @Test
+    public void testProtobuf_UnsupportedList_NotAcceptable() throws Exception {
+        when(rfidTxService.getTopReads(5, "2023-08-01 00:00:00", "2023-08-01 23:59:59"))
+                .thenReturn(List.of(new TopEPC(EPC, 3)));
+
+        HttpResponse<byte[]> response = get("/api/rfid/top-reads?N=5&startdatetime=2023-08-01%2000:00:00&enddatetime=2023-08-01%2023:59:59",
+                "application/x-protobuf", null);
+
+        assertEquals(406, response.statusCode());
+        assertEquals(0, response.body().length);
+    }
+
+    @Test
+    public void testProtobuf_ProjectionWithUnknownField_NotAcceptable() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC, "epc")).thenReturn(List.of(Map.of("epc", EPC, "count", 3L)));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC + "&fields=epc", "application/x-protobuf", null);
+
+        assertEquals(406, response.statusCode());
+    }
+
+    @Test
+    public void testGzip_LargeResponseCompressed() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(100));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, "application/json", "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        try (InputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertEquals(100, new ObjectMapper().readTree(body).size());
+        }
+    }
+
+    @Test
+    public void testGzip_SmallResponseNotCompressed() throws Exception {
+        when(rfidTxService.getRfidTxByEpc(EPC)).thenReturn(reads(1));
+
+        HttpResponse<byte[]> response = get("/api/rfid/by-epc?epc=" + EPC, "application/json", "gzip");
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+    }
+
+    private HttpResponse<byte[]> get(String path, String accept, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET();
+        if (accept != null) {
+            request.header("Accept", accept);
+        }
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String contentType(HttpResponse<?> response) {
+        return response.headers().firstValue("Content-Type").orElse("");
+    }
+
+    private static List<RfidTx> reads(int count) {
+        Location location = new Location();
+        location.setLocationId(7L);
+        location.setLocationName("Backroom");
+        List<RfidTx> reads = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RfidTx read = new RfidTx();
+            read.setTagId(String.format("%016X", i + 1));
+            read.setEpc(EPC);
+            read.setScanDate(LocalDateTime.of(2023, 8, 1, 10, 0).plusSeconds(i));
+            read.setLocation(location);
+            read.setRssi(new BigDecimal("-61.5"));
+            reads.add(read);
+        }
+        return reads;
+    }
+}
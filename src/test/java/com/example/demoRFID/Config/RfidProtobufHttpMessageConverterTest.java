@@ -0,0 +1,180 @@
+package com.example.demoRFID.Config;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.Rfid;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Model.TopEPC;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RfidProtobufHttpMessageConverterTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 15, 30, 123_456_000);
+
+    private final RfidProtobufHttpMessageConverter converter = new RfidProtobufHttpMessageConverter();
+
+    @Test
+    public void testWrite_Reads_DecodesAsRfidTxList() throws IOException {
+        Site site = new Site();
+        site.setSiteId(3L);
+        site.setSiteName("Store 3");
+        Location location = new Location();
+        location.setLocationId(7L);
+        location.setLocationName("Backroom");
+        location.setSite(site);
+        Product product = new Product();
+        product.setRefCode(12345L);
+        product.setName("T-shirt");
+        product.setGtin(4006381333931L);
+        Rfid rfid = new Rfid();
+        rfid.setProduct(product);
+
+        List<RfidTx> reads = new ArrayList<>();
+        for (String tagId : List.of("0000000000000001", "0000000000000002")) {
+            RfidTx read = new RfidTx();
+            read.setTagId(tagId);
+            read.setEpc("3034257BF7194E4000001A85");
+            read.setScanDate(SCAN_DATE);
+            read.setLocation(location);
+            read.setRfid(rfid);
+            read.setRssi(new BigDecimal("-61.5"));
+            read.setLocationWinner(false);
+            reads.add(read);
+        }
+
+        Map<Integer, List<Map<Integer, Object>>> list = decode(write(reads));
+
+        assertEquals(2, list.get(1).size());
+        Map<Integer, Object> read = list.get(1).get(0);
+        assertEquals("0000000000000001", read.get(1));
+        assertEquals("3034257BF7194E4000001A85", read.get(2));
+        assertEquals(SCAN_DATE.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + 123_456, read.get(3));
+        assertEquals(7L, read.get(4));
+        assertEquals(-61.5, read.get(5));
+        // optional bool, present even when false
+        assertEquals(0L, read.get(6));
+        // site and refCode derived from the location and the product when not denormalized yet
+        assertEquals(3L, read.get(7));
+        assertEquals(12345L, read.get(8));
+        // the location and the product once for both reads
+        assertEquals(List.of(Map.of(1, 7L, 2, "Backroom", 3, 3L, 4, "Store 3")), list.get(2));
+        assertEquals(List.of(Map.of(1, 12345L, 2, "T-shirt", 3, 4006381333931L)), list.get(3));
+    }
+
+    @Test
+    public void testWrite_Projection_OnlySelectedFields() throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("epc", "3034257BF7194E4000001A85");
+        row.put("rssi", new BigDecimal("-70"));
+
+        Map<Integer, List<Map<Integer, Object>>> list = decode(write(List.of(row)));
+
+        assertEquals(List.of(Map.of(2, "3034257BF7194E4000001A85", 5, -70.0)), list.get(1));
+        assertNull(list.get(2));
+        assertNull(list.get(3));
+    }
+
+    @Test
+    public void testWrite_LatestScans_DecodesAsLatestEpcList() throws IOException {
+        LatestEPC scan = new LatestEPC();
+        scan.setEpc("3034257BF7194E4000001A85");
+        scan.setNumberOfTransactions(4L);
+        scan.setAverageRssi(-55.25);
+        scan.setMostRecentLocation("Sales floor");
+
+        Map<Integer, List<Map<Integer, Object>>> list = decode(write(List.of(scan)));
+
+        assertEquals(List.of(Map.of(1, "3034257BF7194E4000001A85", 2, 4L, 3, -55.25, 4, "Sales floor")), list.get(1));
+    }
+
+    @Test
+    public void testCanWrite_DeclaredElementType() {
+        assertTrue(converter.canWrite(listOf(RfidTx.class), ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertTrue(converter.canWrite(listOf(LatestEPC.class), ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(listOf(TopEPC.class), ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(listOf(String.class), ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertTrue(converter.canWrite(RfidTx.class, RfidTx.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(TopEPC.class, TopEPC.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(String.class, String.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(listOf(RfidTx.class), ArrayList.class, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testCanWrite_UnknownElementType_LeftToTheValue() {
+        // ResponseEntity<?> declares no element type
+        assertTrue(converter.canWrite(Object.class, ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertTrue(converter.canWrite(null, ArrayList.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canWrite(Object.class, String.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+        assertFalse(converter.canRead(RfidTx.class, RfidProtobufHttpMessageConverter.PROTOBUF));
+    }
+
+    @Test
+    public void testCanEncode() {
+        assertTrue(RfidProtobufHttpMessageConverter.canEncode(new RfidTx()));
+        assertTrue(RfidProtobufHttpMessageConverter.canEncode(List.of(new RfidTx(), new RfidTx())));
+        assertTrue(RfidProtobufHttpMessageConverter.canEncode(List.of(new LatestEPC())));
+        assertTrue(RfidProtobufHttpMessageConverter.canEncode(List.of(Map.of("epc", "3034257BF7194E4000001A85"))));
+        assertTrue(RfidProtobufHttpMessageConverter.canEncode(List.of()));
+        assertFalse(RfidProtobufHttpMessageConverter.canEncode(List.of(new TopEPC("3034257BF7194E4000001A85", 3))));
+        assertFalse(RfidProtobufHttpMessageConverter.canEncode(List.of(Map.of("siteName", "Store 3", "reads", 10L))));
+        assertFalse(RfidProtobufHttpMessageConverter.canEncode(List.of(new RfidTx(), new LatestEPC())));
+    }
+
+    private static Type listOf(Class<?> element) {
+        return ResolvableType.forClassWithGenerics(List.class, element).getType();
+    }
+
+    private byte[] write(Object value) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(value, RfidProtobufHttpMessageConverter.PROTOBUF, output);
+        assertEquals(RfidProtobufHttpMessageConverter.PROTOBUF, output.getHeaders().getContentType());
+        return output.getBodyAsBytes();
+    }
+
+    // the list messages of rfid.proto: each embedded message by field number, with its scalar fields by number
+    private static Map<Integer, List<Map<Integer, Object>>> decode(byte[] bytes) throws IOException {
+        Map<Integer, List<Map<Integer, Object>>> list = new HashMap<>();
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            assertEquals(WireFormat.WIRETYPE_LENGTH_DELIMITED, WireFormat.getTagWireType(tag));
+            list.computeIfAbsent(WireFormat.getTagFieldNumber(tag), field -> new ArrayList<>())
+                    .add(fields(input.readByteArray()));
+        }
+        return list;
+    }
+
+    private static Map<Integer, Object> fields(byte[] bytes) throws IOException {
+        Map<Integer, Object> fields = new HashMap<>();
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            switch (WireFormat.getTagWireType(tag)) {
+                case WireFormat.WIRETYPE_LENGTH_DELIMITED -> fields.put(field, input.readString());
+                case WireFormat.WIRETYPE_FIXED64 -> fields.put(field, input.readDouble());
+                case WireFormat.WIRETYPE_VARINT -> fields.put(field, input.readInt64());
+                default -> fail("Unexpected wire type in tag " + tag);
+            }
+        }
+        return fields;
+    }
+}
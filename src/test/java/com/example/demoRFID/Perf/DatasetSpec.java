@@ -0,0 +1,90 @@
+package com.example.demoRFID.Perf;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Describes the shape of a synthetic RFID dataset built by SyntheticDatasetBuilder.
+ * Every value can be overridden with a system property prefixed by "rfid.bench." so the same
+ * benchmark can be run at laptop scale or at production scale without code changes.
+ *
+ * Fields:
+ * - sites: Number of SITE rows.
+ * - locationsPerSite: Number of LOCATION rows created for every site.
+ * - products: Number of PRODUCT rows (refCodes start at 10000, so at most 90000).
+ * - tags: Number of RFID rows (tagId/epc pairs).
+ * - reads: Number of RFID_Tx rows to generate.
+ * - skew: Zipf exponent used to pick the tag of every read, 0 gives a uniform distribution.
+ * - spanDays: Number of days, ending at spanEnd, over which scan dates are spread.
+ * - spanEnd: The most recent scan date that can be generated.
+ * - homeSiteRatio: Probability that a read happens at the tag's home site rather than a random site.
+ * - batchSize: Number of rows written per multi-row INSERT statement.
+ * - writerThreads: Number of threads generating and writing RFID_Tx rows in parallel.
+ * - seed: Seed of the random generators so a dataset can be rebuilt identically.
+ * - chronological: Whether every writer thread writes its reads in scan date order, as the live ingest does,
+ *   instead of in random scan date order.
+ */
+@Data
+public class DatasetSpec {
+
+    private int sites = 10;
+    private int locationsPerSite = 5;
+    private int products = 100;
+    private int tags = 1_000;
+    private long reads = 100_000;
+    private double skew = 1.1;
+    private int spanDays = 30;
+    private LocalDateTime spanEnd = LocalDateTime.of(2024, 8, 1, 0, 0, 0);
+    private double homeSiteRatio = 0.95;
+    private int batchSize = 1_000;
+    private int writerThreads = 4;
+    private long seed = 42L;
+    private boolean chronological = false;
+
+    /**
+     * Builds a spec from the "rfid.bench.*" system properties, falling back to the defaults above.
+     *
+     * @return a DatasetSpec reflecting the current system properties.
+     */
+    public static DatasetSpec fromSystemProperties() {
+        DatasetSpec spec = new DatasetSpec();
+        spec.setSites(Integer.getInteger("rfid.bench.sites", spec.getSites()));
+        spec.setLocationsPerSite(Integer.getInteger("rfid.bench.locationsPerSite", spec.getLocationsPerSite()));
+        spec.setProducts(Integer.getInteger("rfid.bench.products", spec.getProducts()));
+        spec.setTags(Integer.getInteger("rfid.bench.tags", spec.getTags()));
+        spec.setReads(Long.getLong("rfid.bench.reads", spec.getReads()));
+        spec.setSkew(Double.parseDouble(System.getProperty("rfid.bench.skew", String.valueOf(spec.getSkew()))));
+        spec.setSpanDays(Integer.getInteger("rfid.bench.spanDays", spec.getSpanDays()));
+        spec.setBatchSize(Integer.getInteger("rfid.bench.batchSize", spec.getBatchSize()));
+        spec.setWriterThreads(Integer.getInteger("rfid.bench.writerThreads", spec.getWriterThreads()));
+        spec.setSeed(Long.getLong("rfid.bench.seed", spec.getSeed()));
+        spec.setChronological(Boolean.parseBoolean(System.getProperty("rfid.bench.chronological", String.valueOf(spec.isChronological()))));
+        return spec;
+    }
+
+    /**
+     * Returns a copy of this spec with the number of reads replaced, used to run the same
+     * reference data at several RFID_Tx scales.
+     *
+     * @param reads the number of RFID_Tx rows for the copy.
+     * @return a new DatasetSpec with every other field unchanged.
+     */
+    public DatasetSpec withReads(long reads) {
+        DatasetSpec copy = new DatasetSpec();
+        copy.setSites(sites);
+        copy.setLocationsPerSite(locationsPerSite);
+        copy.setProducts(products);
+        copy.setTags(tags);
+        copy.setReads(reads);
+        copy.setSkew(skew);
+        copy.setSpanDays(spanDays);
+        copy.setSpanEnd(spanEnd);
+        copy.setHomeSiteRatio(homeSiteRatio);
+        copy.setBatchSize(batchSize);
+        copy.setWriterThreads(writerThreads);
+        copy.setSeed(seed);
+        copy.setChronological(chronological);
+        return copy;
+    }
+}
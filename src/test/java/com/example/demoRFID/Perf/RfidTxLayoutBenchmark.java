@@ -0,0 +1,181 @@
+package com.example.demoRFID.Perf;
+
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compares the two physical layouts of RFID_Tx: clustered by (tag_id, epc, scan_date), as up to V7, and
+ * clustered by (scan_date, tag_id, epc) with the natural key as a unique index, as from V8.
+ *
+ * For every scale and layout the table is recreated with the indexes of the layout, the reads are inserted in
+ * scan date order (chronological DatasetSpec, like the live ingest) and the insert rate, the latency of the
+ * scan date range queries, the InnoDB handler reads of one run of each query and the table size are printed.
+ * The layouts only differ once rfid_tx outgrows the buffer pool, so compare at a scale above
+ * innodb_buffer_pool_size. Same requirements and properties as RfidTxQueryBenchmark:
+ *
+ *   mvn test -Dtest=RfidTxLayoutBenchmark -Drfid.bench.url=jdbc:mysql://localhost:3306/rfid_bench
+ *            -Drfid.bench.username=root -Drfid.bench.password=secret -Drfid.bench.scales=1000000,20000000
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "rfid.bench.url", matches = ".+")
+public class RfidTxLayoutBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxLayoutBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    private static final String COLUMNS = "tag_id BIGINT NOT NULL, epc VARBINARY(12) NOT NULL, scan_date DATETIME(6) NOT NULL,"
+            + " location_id BIGINT, rssi DECIMAL(38, 2), location_winner BIT(1), site_id BIGINT, ref_code BIGINT,"
+            + " CONSTRAINT fk_rfid_tx_rfid FOREIGN KEY (tag_id, epc) REFERENCES rfid (tag_id, epc),"
+            + " CONSTRAINT fk_rfid_tx_location FOREIGN KEY (location_id) REFERENCES location (location_id),"
+            + " INDEX idx_rfid_tx_site_scan_date (site_id, scan_date),"
+            + " INDEX idx_rfid_tx_ref_code_scan_date (ref_code, scan_date),"
+            + " INDEX idx_rfid_tx_epc_scan_date (epc, scan_date), ";
+
+    private enum Layout {
+        TAG_CLUSTERED("PRIMARY KEY (tag_id, epc, scan_date),"
+                + " INDEX idx_rfid_tx_scan_date_cover (scan_date, epc, location_id, rssi, location_winner)"),
+        TIME_CLUSTERED("PRIMARY KEY (scan_date, tag_id, epc),"
+                + " UNIQUE INDEX uk_rfid_tx_tag_epc_scan_date (tag_id, epc, scan_date)");
+
+        private final String keys;
+
+        Layout(String keys) {
+            this.keys = keys;
+        }
+    }
+
+    @Autowired
+    private RfidTxRepository rfidTxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void benchmarkDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("rfid.bench.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("rfid.bench.username", "root"));
+        registry.add("spring.datasource.password", () -> System.getProperty("rfid.bench.password", ""));
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("logging.level.org.hibernate.SQL", () -> "INFO");
+        registry.add("logging.level.org.springframework", () -> "INFO");
+    }
+
+    @Test
+    public void compareLayoutsAtSeveralScales() {
+        DatasetSpec spec = DatasetSpec.fromSystemProperties();
+        spec.setChronological(true);
+        long[] scales = Arrays.stream(System.getProperty("rfid.bench.scales", "100000,1000000").split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .toArray();
+        SyntheticDatasetBuilder builder = new SyntheticDatasetBuilder(jdbcTemplate);
+
+        for (long scale : scales) {
+            DatasetSpec scaled = spec.withReads(scale);
+            for (Layout layout : Layout.values()) {
+                builder.reset();
+                recreateTable(layout);
+                builder.buildReferenceData(scaled);
+                long elapsed = builder.buildReads(scaled);
+                jdbcTemplate.execute("ANALYZE TABLE rfid_tx");
+                logger.info("{}|{}", LocalDateTime.now(), report(scaled, layout, elapsed));
+            }
+        }
+    }
+
+    private void recreateTable(Layout layout) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS rfid_tx");
+        jdbcTemplate.execute("CREATE TABLE rfid_tx (" + COLUMNS + layout.keys + ") ENGINE = InnoDB");
+    }
+
+    private String report(DatasetSpec spec, Layout layout, long insertNanos) {
+        LocalDateTime end = spec.getSpanEnd();
+        LocalDateTime lastDay = end.minusDays(1);
+        LocalDateTime lastWeek = end.minusDays(7);
+        LocalDateTime lastHour = end.minusHours(1);
+
+        Map<String, Supplier<Object>> queries = new LinkedHashMap<>();
+        queries.put("findByScanDateBetween(last hour)", () -> rfidTxRepository.findByScanDateBetween(lastHour, end));
+        queries.put("findByScanDateBetween(last day)", () -> rfidTxRepository.findByScanDateBetween(lastDay, end));
+        queries.put("findLatestScans(last day)", () -> rfidTxRepository.findLatestScans(lastDay, end, null, null));
+        queries.put("findTopReads(10, last week)", () -> rfidTxRepository.findTopReads(10, lastWeek, end));
+        // reads every column of every row of the range, the worst case of the tag-clustered layout
+        queries.put("SUM(rssi) last week", () -> jdbcTemplate.queryForObject(
+                "SELECT SUM(rssi) FROM rfid_tx WHERE scan_date BETWEEN ? AND ?", Object.class, lastWeek, end));
+
+        Map<String, Object> size = jdbcTemplate.queryForMap("SELECT data_length, index_length FROM information_schema.TABLES"
+                + " WHERE table_schema = DATABASE() AND table_name = 'rfid_tx'");
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n=== %s, %,d reads, %,d tags ===%n", layout, spec.getReads(), spec.getTags()));
+        report.append(String.format("insert: %,.0f reads/s, data %,d MB, indexes %,d MB%n",
+                spec.getReads() / (insertNanos / 1e9),
+                ((Number) size.get("data_length")).longValue() >> 20, ((Number) size.get("index_length")).longValue() >> 20));
+        report.append(String.format("%-36s %10s %10s %10s %14s %14s%n",
+                "query", "p50 ms", "p95 ms", "max ms", "read_next", "read_key+rnd"));
+        queries.forEach((name, query) -> {
+            List<Double> timings = new ArrayList<>();
+            for (int i = 0; i < WARMUP_ITERATIONS + MEASURED_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                query.get();
+                double elapsed = (System.nanoTime() - start) / 1_000_000.0;
+                if (i >= WARMUP_ITERATIONS) {
+                    timings.add(elapsed);
+                }
+            }
+            timings.sort(Double::compare);
+            long[] handlerReads = handlerReads(query);
+            report.append(String.format("%-36s %10.1f %10.1f %10.1f %,14d %,14d%n", name,
+                    percentile(timings, 0.50), percentile(timings, 0.95), timings.get(timings.size() - 1),
+                    handlerReads[0], handlerReads[1]));
+        });
+        return report.toString();
+    }
+
+    // Handler_read_next (sequential index reads) and Handler_read_key + Handler_read_rnd (positioned reads) of one
+    // run; global counters, the benchmark schema is expected to be the only activity of the server
+    private long[] handlerReads(Supplier<Object> query) {
+        long[] before = handlerCounters();
+        query.get();
+        long[] after = handlerCounters();
+        return new long[]{after[0] - before[0], after[1] - before[1]};
+    }
+
+    private long[] handlerCounters() {
+        long[] counters = new long[2];
+        jdbcTemplate.query("SHOW GLOBAL STATUS LIKE 'Handler_read%'", row -> {
+            String name = row.getString(1);
+            long value = row.getLong(2);
+            if (name.equals("Handler_read_next")) {
+                counters[0] += value;
+            } else if (name.equals("Handler_read_key") || name.equals("Handler_read_rnd")) {
+                counters[1] += value;
+            }
+        });
+        return counters;
+    }
+
+    private static double percentile(List<Double> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.demoRFID.Perf;
+
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Runs every RfidTxRepository query against synthetic datasets of increasing size and prints the
+ * latency percentiles together with the MySQL EXPLAIN output of the equivalent SQL.
+ *
+ * The benchmark never runs as part of the normal build. It needs a MySQL 8 schema it is allowed to wipe:
+ *
+ *   mvn test -Dtest=RfidTxQueryBenchmark -Drfid.bench.url=jdbc:mysql://localhost:3306/rfid_bench
+ *            -Drfid.bench.username=root -Drfid.bench.password=secret -Drfid.bench.scales=100000,10000000
+ *
+ * Every DatasetSpec field can be overridden the same way (for example -Drfid.bench.sites=1000
+ * -Drfid.bench.tags=100000 -Drfid.bench.skew=1.2). Setting -Drfid.bench.loadDataDir=/tmp/rfid only
+ * writes LOAD DATA files for the largest scale instead of running the queries.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "rfid.bench.url", matches = ".+")
+public class RfidTxQueryBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(RfidTxQueryBenchmark.class);
+
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    @Autowired
+    private RfidTxRepository rfidTxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void benchmarkDatasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getProperty("rfid.bench.url"));
+        registry.add("spring.datasource.username", () -> System.getProperty("rfid.bench.username", "root"));
+        registry.add("spring.datasource.password", () -> System.getProperty("rfid.bench.password", ""));
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        registry.add("spring.jpa.show-sql", () -> "false");
+        registry.add("logging.level.org.hibernate.SQL", () -> "INFO");
+        registry.add("logging.level.org.springframework", () -> "INFO");
+    }
+
+    @Test
+    public void benchmarkQueriesAtSeveralScales() {
+        DatasetSpec spec = DatasetSpec.fromSystemProperties();
+        long[] scales = Arrays.stream(System.getProperty("rfid.bench.scales", "10000,100000,1000000").split(","))
+                .map(String::trim)
+                .mapToLong(Long::parseLong)
+                .toArray();
+        SyntheticDatasetBuilder builder = new SyntheticDatasetBuilder(jdbcTemplate);
+
+        String loadDataDir = System.getProperty("rfid.bench.loadDataDir");
+        if (loadDataDir != null) {
+            Path script = builder.writeLoadDataFiles(spec.withReads(scales[scales.length - 1]), Path.of(loadDataDir));
+            logger.info("{}|LOAD DATA script written to {}", LocalDateTime.now(), script);
+            return;
+        }
+
+        for (long scale : scales) {
+            DatasetSpec scaled = spec.withReads(scale);
+            builder.reset();
+            builder.build(scaled);
+            jdbcTemplate.execute("ANALYZE TABLE rfid_tx");
+            logger.info("{}|{}", LocalDateTime.now(), report(scaled));
+        }
+    }
+
+    private String report(DatasetSpec spec) {
+        LocalDateTime end = spec.getSpanEnd();
+        LocalDateTime lastDay = end.minusDays(1);
+        LocalDateTime lastWeek = end.minusDays(7);
+        LocalDateTime lastHour = end.minusHours(1);
+        // tag 0 is the most frequent one under the Zipf distribution and lives in site 0
+        String hotTag = SyntheticDatasetBuilder.tagId(0);
+        String hotEpc = SyntheticDatasetBuilder.epc(0);
+        String hotSite = SyntheticDatasetBuilder.siteName(0);
+
+        Map<String, Supplier<Object>> queries = new LinkedHashMap<>();
+        queries.put("findLatestScans(last day)", () -> rfidTxRepository.findLatestScans(lastDay, end, null, null));
+        queries.put("findLatestScans(last day, epc, site)", () -> rfidTxRepository.findLatestScans(lastDay, end, hotEpc, hotSite));
+        queries.put("findLatestScansBySiteId(last day, site)", () -> rfidTxRepository.findLatestScansBySiteId(lastDay, end, null, 1L));
+        queries.put("findBySiteIdAndScanDateBetween(last hour)", () -> rfidTxRepository.findBySiteIdAndScanDateBetween(1L, lastHour, end));
+        queries.put("findByRefCodeAndScanDateBetween(last day)",
+                () -> rfidTxRepository.findByRefCodeAndScanDateBetween(SyntheticDatasetBuilder.refCode(0), lastDay, end));
+        queries.put("findTopReads(10, last week)", () -> rfidTxRepository.findTopReads(10, lastWeek, end));
+        queries.put("findByEpc", () -> rfidTxRepository.findByEpc(hotEpc));
+        queries.put("findByTagId", () -> rfidTxRepository.findByTagId(hotTag));
+        queries.put("findByEpcAndTagId", () -> rfidTxRepository.findByEpcAndTagId(hotEpc, hotTag));
+        queries.put("findByScanDateBetween(last hour)", () -> rfidTxRepository.findByScanDateBetween(lastHour, end));
+        queries.put("findByCriteria(epc, last day)", () -> rfidTxRepository.findByCriteria(hotEpc, null, lastDay, end));
+
+        Map<String, String> explains = new LinkedHashMap<>();
+        explains.put("findLatestScans(last day)",
+                "SELECT tx.epc FROM rfid_tx tx JOIN location l ON tx.location_id = l.location_id JOIN site s ON l.site_id = s.site_id "
+                        + "WHERE tx.scan_date BETWEEN '" + lastDay + "' AND '" + end + "'");
+        explains.put("findLatestScansBySiteId(last day, site)",
+                "SELECT tx.epc FROM rfid_tx tx WHERE tx.site_id = 1 AND tx.scan_date BETWEEN '" + lastDay + "' AND '" + end + "'");
+        explains.put("findByRefCodeAndScanDateBetween(last day)",
+                "SELECT * FROM rfid_tx WHERE ref_code = " + SyntheticDatasetBuilder.refCode(0)
+                        + " AND scan_date BETWEEN '" + lastDay + "' AND '" + end + "'");
+        explains.put("findTopReads(10, last week)",
+                "SELECT tx.epc, COUNT(*) FROM rfid_tx tx WHERE tx.scan_date BETWEEN '" + lastWeek + "' AND '" + end + "' "
+                        + "GROUP BY tx.epc ORDER BY COUNT(*) DESC LIMIT 10");
+        explains.put("findByEpc", "SELECT * FROM rfid_tx WHERE epc = UNHEX('" + HexFormat.of().formatHex(RfidKeyCodec.encodeEpc(hotEpc)) + "')");
+        explains.put("findByTagId", "SELECT * FROM rfid_tx WHERE tag_id = " + RfidKeyCodec.encodeTagId(hotTag));
+        explains.put("findByScanDateBetween(last hour)",
+                "SELECT * FROM rfid_tx WHERE scan_date BETWEEN '" + lastHour + "' AND '" + end + "'");
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%n=== %,d reads, %,d tags, %,d sites, skew %.2f ===%n",
+                spec.getReads(), spec.getTags(), spec.getSites(), spec.getSkew()));
+        report.append(String.format("%-40s %10s %10s %10s %10s%n", "query", "rows", "p50 ms", "p95 ms", "max ms"));
+        queries.forEach((name, query) -> {
+            List<Double> timings = new ArrayList<>();
+            int rows = 0;
+            for (int i = 0; i < WARMUP_ITERATIONS + MEASURED_ITERATIONS; i++) {
+                long start = System.nanoTime();
+                Object result = query.get();
+                double elapsed = (System.nanoTime() - start) / 1_000_000.0;
+                rows = size(result);
+                if (i >= WARMUP_ITERATIONS) {
+                    timings.add(elapsed);
+                }
+            }
+            timings.sort(Double::compare);
+            report.append(String.format("%-40s %10d %10.1f %10.1f %10.1f%n", name, rows,
+                    percentile(timings, 0.50), percentile(timings, 0.95), timings.get(timings.size() - 1)));
+        });
+        explains.forEach((name, sql) -> {
+            report.append(String.format("%nEXPLAIN %s%n", name));
+            jdbcTemplate.queryForList("EXPLAIN " + sql).forEach(row -> report.append("  ").append(row).append('\n'));
+        });
+        return report.toString();
+    }
+
+    private static int size(Object result) {
+        if (result instanceof Optional<?> optional) {
+            return optional.map(RfidTxQueryBenchmark::size).orElse(0);
+        }
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        return result == null ? 0 : 1;
+    }
+
+    private static double percentile(List<Double> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.demoRFID.Perf;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.Request.RfidTxRequest;
+import com.example.demoRFID.Model.Request.RfidTxUpdateRequest;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxId;
+import com.example.demoRFID.Model.TopEPC;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Service.CurrentLocationIndex;
+import com.example.demoRFID.Service.LocationArbiter;
+import com.example.demoRFID.Service.LocationService;
+import com.example.demoRFID.Service.ProductService;
+import com.example.demoRFID.Service.ProductGtinCache;
+import com.example.demoRFID.Service.ReadBurstService;
+import com.example.demoRFID.Service.ReadSuppressionWindow;
+import com.example.demoRFID.Service.RfidService;
+import com.example.demoRFID.Service.RfidTxArchiveService;
+import com.example.demoRFID.Service.RfidTxBackfillService;
+import com.example.demoRFID.Service.RfidTxDayExporter;
+import com.example.demoRFID.Service.RfidTxService;
+import com.example.demoRFID.Service.SiteService;
+import com.example.demoRFID.Service.TagStateStore;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.example.demoRFID.Constants.DATETIME_PATTERN;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the services against the real repositories on an embedded H2 database in MySQL mode and
+ * fails the build when a service method issues more SQL statements, or takes longer, than its budget.
+ *
+ * Statements are counted with Hibernate statistics (JDBC statements prepared during the call), so an
+ * accidental N+1 or an extra existence check shows up as a failing assertion. Budgets are upper bounds
+ * of the current implementation: lowering one after an optimisation is expected, raising one needs a reason.
+ *
+ * The test is not transactional on purpose, every repository call runs in its own transaction and
+ * persistence context exactly like it does behind the controllers.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rfid_budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.stat=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({RfidTxService.class, LocationService.class, RfidService.class, SiteService.class, ProductService.class,
+        ReadBurstService.class, ReadSuppressionWindow.class, LocationArbiter.class,
+        CurrentLocationIndex.class, TagStateStore.class, ProductGtinCache.class,
+        RfidTxBackfillService.class, RfidTxArchiveService.class, RfidTxDayExporter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ServiceStatementBudgetTest {
+
+    // upper bound of the median call duration at the seeded dataset size
+    private static final long LATENCY_BUDGET_MS = 250;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final DatasetSpec SPEC = seededSpec();
+
+    @Autowired
+    private RfidTxService rfidTxService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private RfidTxRepository rfidTxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private static DatasetSpec seededSpec() {
+        DatasetSpec spec = new DatasetSpec();
+        spec.setSites(2);
+        spec.setLocationsPerSite(2);
+        spec.setProducts(4);
+        spec.setTags(10);
+        spec.setReads(2_000);
+        spec.setWriterThreads(1);
+        return spec;
+    }
+
+    @BeforeAll
+    public void seed() {
+        new SyntheticDatasetBuilder(jdbcTemplate).build(SPEC);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    private int locationCount() {
+        return SPEC.getSites() * SPEC.getLocationsPerSite();
+    }
+
+    /**
+     * Runs the call once to warm up, then MEASURED_RUNS times while counting statements.
+     * Asserts the per call statement count and the median duration against the budgets.
+     */
+    private <T> T assertWithinBudget(String name, long statementBudget, Supplier<T> call) {
+        call.get();
+        List<Long> durations = new ArrayList<>();
+        T result = null;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            statistics.clear();
+            long start = System.nanoTime();
+            result = call.get();
+            durations.add((System.nanoTime() - start) / 1_000_000);
+            long statements = statistics.getPrepareStatementCount();
+            assertTrue(statements <= statementBudget,
+                    name + " issued " + statements + " statements, budget is " + statementBudget);
+        }
+        durations.sort(Long::compare);
+        long median = durations.get(durations.size() / 2);
+        assertTrue(median <= LATENCY_BUDGET_MS, name + " took " + median + " ms, budget is " + LATENCY_BUDGET_MS + " ms");
+        return result;
+    }
+
+    /**
+     * Same as assertWithinBudget for calls that change data and therefore can only run once.
+     */
+    private <T> T assertSingleCallWithinBudget(String name, long statementBudget, Supplier<T> call) {
+        statistics.clear();
+        long start = System.nanoTime();
+        T result = call.get();
+        long duration = (System.nanoTime() - start) / 1_000_000;
+        long statements = statistics.getPrepareStatementCount();
+        assertTrue(statements <= statementBudget,
+                name + " issued " + statements + " statements, budget is " + statementBudget);
+        assertTrue(duration <= LATENCY_BUDGET_MS * 4, name + " took " + duration + " ms");
+        return result;
+    }
+
+    private static RfidTxRequest request(int tag, String scanDate) {
+        int site = tag % SPEC.getSites();
+        RfidTxRequest request = new RfidTxRequest();
+        request.setTagId(SyntheticDatasetBuilder.tagId(tag));
+        request.setEpc(SyntheticDatasetBuilder.epc(tag));
+        request.setRefCode(String.valueOf(SyntheticDatasetBuilder.refCode(tag % SPEC.getProducts())));
+        request.setSiteName(SyntheticDatasetBuilder.siteName(site));
+        request.setLocationName(SyntheticDatasetBuilder.locationName(site, 0).replace("..", " "));
+        request.setRssi(new BigDecimal("55.25"));
+        request.setScanDate(scanDate);
+        return request;
+    }
+
+    @Test
+    public void addRfidTx_staysWithinBudget() {
+        // 6 validation lookups, the existence check, the merge snapshot, the location check and the insert
+        RfidTx saved = assertSingleCallWithinBudget("addRfidTx", 12,
+                () -> rfidTxService.addRfidTx(request(3, "2030-01-01 00:00:00")));
+        assertNotNull(saved);
+        rfidTxRepository.deleteById(new RfidTxId(saved.getTagId(), saved.getEpc(), saved.getScanDate()));
+    }
+
+    @Test
+    public void getLatestScans_isASingleStatement() {
+        List<LatestEPC> latest = assertWithinBudget("getLatestScans", 1,
+                () -> rfidTxService.getLatestScans("2024-07-01 00:00:00", "2024-08-01 00:00:00", null, null));
+        assertEquals(SPEC.getTags(), latest.size());
+    }
+
+    @Test
+    public void getTopReads_isASingleStatement() {
+        List<TopEPC> top = assertWithinBudget("getTopReads", 1,
+                () -> rfidTxService.getTopReads(5, "2024-07-01 00:00:00", "2024-08-01 00:00:00"));
+        assertEquals(5, top.size());
+    }
+
+    @Test
+    public void getRfidTxByCriteria_loadsEachAssociationOnce() {
+        // one query, then one load per distinct Rfid and per distinct Location, never one per row
+        assertWithinBudget("getRfidTxByCriteria", 1 + 1 + locationCount() + 2,
+                () -> rfidTxService.getRfidTxByCriteria(SyntheticDatasetBuilder.epc(1), null, null, null));
+    }
+
+    @Test
+    public void getRfidTxByEpc_loadsEachAssociationOnce() {
+        assertWithinBudget("getRfidTxByEpc", 1 + 1 + locationCount() + 2,
+                () -> rfidTxService.getRfidTxByEpc(SyntheticDatasetBuilder.epc(2)));
+    }
+
+    @Test
+    public void getRfidTxByEpc_withFields_isASingleStatement() {
+        // the fields are selected with Location and Site joined, no association is loaded
+        List<Map<String, Object>> reads = assertWithinBudget("getRfidTxByEpc with fields", 1,
+                () -> rfidTxService.getRfidTxByEpc(SyntheticDatasetBuilder.epc(2), "epc,scanDate,location"));
+        assertFalse(reads.isEmpty());
+        assertEquals(List.of("epc", "scanDate", "location"), List.copyOf(reads.get(0).keySet()));
+    }
+
+    @Test
+    public void getRfidTxByScanDateRange_loadsEachAssociationOnce() {
+        List<RfidTx> lastDay = assertWithinBudget("getRfidTxByScanDateRange", 1 + SPEC.getTags() + locationCount() + 2,
+                () -> rfidTxService.getRfidTxByScanDateRange("2024-07-31 00:00:00", "2024-08-01 00:00:00"));
+        assertFalse(lastDay.isEmpty());
+    }
+
+    @Test
+    public void updateRfidTx_staysWithinBudget() {
+        RfidTx existing = rfidTxRepository.findByTagId(SyntheticDatasetBuilder.tagId(1)).orElseThrow().get(0);
+        RfidTxUpdateRequest update = new RfidTxUpdateRequest();
+        update.setSiteName(SyntheticDatasetBuilder.siteName(1));
+        update.setLocationName(SyntheticDatasetBuilder.locationName(1, 1).replace("..", " "));
+        update.setRssi(new BigDecimal("61.50"));
+        String scanDate = existing.getScanDate().format(DateTimeFormatter.ofPattern(DATETIME_PATTERN));
+
+        RfidTx updated = assertSingleCallWithinBudget("updateRfidTx", 9,
+                () -> rfidTxService.updateRfidTx(existing.getTagId(), existing.getEpc(), scanDate, update));
+        assertEquals(0, new BigDecimal("61.50").compareTo(updated.getRssi()));
+    }
+
+    @Test
+    public void deleteRfidTx_staysWithinBudget() {
+        RfidTx existing = rfidTxRepository.findByTagId(SyntheticDatasetBuilder.tagId(9)).orElseThrow().get(0);
+        String scanDate = existing.getScanDate().format(DateTimeFormatter.ofPattern(DATETIME_PATTERN));
+
+        assertSingleCallWithinBudget("deleteRfidTx", 5, () -> {
+            rfidTxService.deleteRfidTx(existing.getTagId(), existing.getEpc(), scanDate);
+            return null;
+        });
+        assertFalse(rfidTxRepository.existsById(new RfidTxId(existing.getTagId(), existing.getEpc(), existing.getScanDate())));
+    }
+
+    @Test
+    public void productCrud_staysWithinBudget() {
+        assertWithinBudget("getAllProducts", 1, () -> productService.getAllProducts());
+
+        Product product = new Product();
+        product.setRefCode(99_001L);
+        product.setName("Budget product");
+        assertSingleCallWithinBudget("createProduct", 4, () -> productService.createProduct(product));
+
+        product.setName("Budget product renamed");
+        assertSingleCallWithinBudget("updateProduct", 4, () -> productService.updateProduct(product));
+
+        assertSingleCallWithinBudget("deleteProduct", 4, () -> {
+            productService.deleteProduct(product.getRefCode());
+            return null;
+        });
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.demoRFID.Perf;
+
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.example.demoRFID.Constants.DATETIME_PATTERN;
+
+/**
+ * Fills SITE, LOCATION, PRODUCT, RFID and RFID_Tx with a synthetic dataset described by a DatasetSpec.
+ * The generated names follow the formats accepted by ValidationUtils and the ".." convention used by
+ * ConversionUtils so that every service method can be exercised against the data.
+ *
+ * Rows are written either straight to the database through multi-row INSERT statements, or to
+ * tab separated files together with a load.sql script of LOAD DATA LOCAL INFILE statements for
+ * datasets too large to push through JDBC.
+ *
+ * The RFID_Tx generator is deterministic for a given seed: each writer thread owns a slice of the reads
+ * and its own Random, tags are picked with a Zipf distribution and scan dates are spread uniformly over
+ * the configured time span, in random order or, for a chronological spec, in increasing order per thread.
+ */
+public class SyntheticDatasetBuilder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDatasetBuilder.class);
+    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern(DATETIME_PATTERN);
+
+    private static final String[] TABLES_IN_DELETE_ORDER = {"rfid_tx", "rfid", "location", "site", "product"};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyntheticDatasetBuilder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static String siteName(int site) {
+        return String.format("SITE%04d", site + 1);
+    }
+
+    public static String locationName(int site, int location) {
+        return String.format("SITE%04d..DOCK..%02d", site + 1, location + 1);
+    }
+
+    public static long locationId(DatasetSpec spec, int site, int location) {
+        return (long) site * spec.getLocationsPerSite() + location + 1;
+    }
+
+    public static String tagId(int tag) {
+        return "TAG" + (tag + 1);
+    }
+
+    public static String epc(int tag) {
+        return String.format("EPC%03d", tag % 1000);
+    }
+
+    // tagId and epc as stored in the key columns, see RfidKeyCodec
+    static long storedTagId(int tag) {
+        return RfidKeyCodec.encodeTagId(tagId(tag));
+    }
+
+    static byte[] storedEpc(int tag) {
+        return RfidKeyCodec.encodeEpc(epc(tag));
+    }
+
+    public static long refCode(int product) {
+        return 10_000L + product;
+    }
+
+    /**
+     * Removes every row from the RFID tables, children first, on a single connection so the
+     * foreign key checks can be switched off for the TRUNCATE statements.
+     */
+    public void reset() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                for (String table : TABLES_IN_DELETE_ORDER) {
+                    statement.execute("TRUNCATE TABLE " + table);
+                }
+                statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Writes the reference data and then the reads through multi-row INSERT statements.
+     *
+     * @param spec the shape of the dataset.
+     */
+    public void build(DatasetSpec spec) {
+        buildReferenceData(spec);
+        buildReads(spec);
+    }
+
+    /**
+     * Writes SITE, LOCATION, PRODUCT and RFID through multi-row INSERT statements.
+     *
+     * @param spec the shape of the dataset.
+     */
+    public void buildReferenceData(DatasetSpec spec) {
+        long start = System.nanoTime();
+        writeReferenceData(spec, table -> new JdbcRowSink(table, spec.getBatchSize()));
+        logger.info("Reference data written in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the RFID_Tx reads through multi-row INSERT statements, the reference data must exist.
+     *
+     * @param spec the shape of the dataset.
+     * @return the time taken in nanoseconds.
+     */
+    public long buildReads(DatasetSpec spec) {
+        long start = System.nanoTime();
+        writeReads(spec, thread -> new JdbcRowSink(RFID_TX, spec.getBatchSize()));
+        long elapsed = System.nanoTime() - start;
+        logger.info("{} reads written in {} ms", spec.getReads(), elapsed / 1_000_000);
+        return elapsed;
+    }
+
+    /**
+     * Writes the dataset as tab separated files in the given directory, one per table and one per
+     * RFID_Tx writer thread, plus a load.sql script that loads them with LOAD DATA LOCAL INFILE.
+     * The client must connect with allowLoadLocalInfile=true for the script to run.
+     *
+     * @param spec the shape of the dataset.
+     * @param directory the directory that receives the files, created if missing.
+     * @return the path of the generated load.sql script.
+     */
+    public Path writeLoadDataFiles(DatasetSpec spec, Path directory) {
+        try {
+            Files.createDirectories(directory);
+            List<String> statements = new ArrayList<>();
+            writeReferenceData(spec, table -> new TsvRowSink(table, directory.resolve(table.name + ".tsv"), statements));
+            writeReads(spec, thread -> new TsvRowSink(RFID_TX, directory.resolve("rfid_tx-" + thread + ".tsv"), statements));
+            Path script = directory.resolve("load.sql");
+            Files.write(script, statements, StandardCharsets.UTF_8);
+            return script;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeReferenceData(DatasetSpec spec, SinkFactory<Table> sinks) {
+        try (RowSink sink = sinks.open(SITE)) {
+            for (int s = 0; s < spec.getSites(); s++) {
+                sink.accept(new Object[]{(long) s + 1, siteName(s)});
+            }
+        }
+        try (RowSink sink = sinks.open(LOCATION)) {
+            for (int s = 0; s < spec.getSites(); s++) {
+                for (int l = 0; l < spec.getLocationsPerSite(); l++) {
+                    sink.accept(new Object[]{locationId(spec, s, l), locationName(s, l), (long) s + 1});
+                }
+            }
+        }
+        try (RowSink sink = sinks.open(PRODUCT)) {
+            for (int p = 0; p < spec.getProducts(); p++) {
+                sink.accept(new Object[]{refCode(p), "Product " + refCode(p)});
+            }
+        }
+        try (RowSink sink = sinks.open(RFID)) {
+            for (int t = 0; t < spec.getTags(); t++) {
+                sink.accept(new Object[]{storedTagId(t), storedEpc(t), refCode(t % spec.getProducts())});
+            }
+        }
+    }
+
+    private void writeReads(DatasetSpec spec, SinkFactory<Integer> sinks) {
+        double[] tagCdf = zipfCdf(spec.getTags(), spec.getSkew());
+        int threads = Math.max(1, spec.getWriterThreads());
+        long spanSeconds = spec.getSpanDays() * 86_400L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                final long slice = spec.getReads() / threads + (t < spec.getReads() % threads ? 1 : 0);
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(spec.getSeed() + thread);
+                    try (RowSink sink = sinks.open(thread)) {
+                        for (long i = 0; i < slice; i++) {
+                            int tag = sample(tagCdf, random.nextDouble());
+                            int site = random.nextDouble() < spec.getHomeSiteRatio()
+                                    ? tag % spec.getSites()
+                                    : random.nextInt(spec.getSites());
+                            int location = random.nextInt(spec.getLocationsPerSite());
+                            double age = spec.isChronological()
+                                    ? 1 - (i + random.nextDouble()) / slice
+                                    : random.nextDouble();
+                            LocalDateTime scanDate = spec.getSpanEnd().minusSeconds((long) (age * spanSeconds));
+                            BigDecimal rssi = BigDecimal.valueOf(20 + random.nextDouble() * 80).setScale(2, RoundingMode.HALF_UP);
+                            sink.accept(new Object[]{storedTagId(tag), storedEpc(tag), scanDate, locationId(spec, site, location), rssi,
+                                    (long) site + 1, refCode(tag % spec.getProducts())});
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to generate RFID_Tx rows", e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Builds the cumulative distribution of a Zipf law over n items, item 0 being the most frequent.
+     */
+    static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    static int sample(double[] cdf, double value) {
+        int index = Arrays.binarySearch(cdf, value);
+        int item = index >= 0 ? index : -index - 1;
+        return Math.min(item, cdf.length - 1);
+    }
+
+    private static final class Table {
+        private final String name;
+        private final String columns;
+        private final boolean ignoreDuplicates;
+        // VARBINARY column, written as hex in the TSV files
+        private final String binaryColumn;
+
+        private Table(String name, String columns, boolean ignoreDuplicates) {
+            this(name, columns, ignoreDuplicates, null);
+        }
+
+        private Table(String name, String columns, boolean ignoreDuplicates, String binaryColumn) {
+            this.name = name;
+            this.columns = columns;
+            this.ignoreDuplicates = ignoreDuplicates;
+            this.binaryColumn = binaryColumn;
+        }
+
+        private int columnCount() {
+            return columns.split(",").length;
+        }
+
+        // column list and SET clause of LOAD DATA, the hex of the binary column goes through a variable
+        private String loadDataColumns() {
+            if (binaryColumn == null) {
+                return "(" + columns + ")";
+            }
+            return "(" + columns.replace(binaryColumn, "@" + binaryColumn) + ") SET " + binaryColumn + " = UNHEX(@" + binaryColumn + ")";
+        }
+    }
+
+    private static final Table SITE = new Table("site", "site_id, site_name", false);
+    private static final Table LOCATION = new Table("location", "location_id, location_name, site_id", false);
+    private static final Table PRODUCT = new Table("product", "ref_code, name", false);
+    private static final Table RFID = new Table("rfid", "tag_id, epc, ref_code", false, "epc");
+    // two reads of the same tag in the same second collide on the (tagId, epc, scanDate) key
+    private static final Table RFID_TX = new Table("rfid_tx", "tag_id, epc, scan_date, location_id, rssi, site_id, ref_code", true, "epc");
+
+    private interface SinkFactory<K> {
+        RowSink open(K key);
+    }
+
+    private interface RowSink extends AutoCloseable {
+        void accept(Object[] row);
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Accumulates rows and writes them with one multi-row INSERT per batch.
+     */
+    private final class JdbcRowSink implements RowSink {
+        private final Table table;
+        private final int batchSize;
+        private final List<Object> arguments = new ArrayList<>();
+        private final String fullBatchSql;
+        private int rows;
+
+        private JdbcRowSink(Table table, int batchSize) {
+            this.table = table;
+            this.batchSize = batchSize;
+            this.fullBatchSql = insertSql(batchSize);
+        }
+
+        private String insertSql(int rowCount) {
+            String placeholders = "(" + String.join(",", Collections.nCopies(table.columnCount(), "?")) + ")";
+            return "INSERT " + (table.ignoreDuplicates ? "IGNORE " : "") + "INTO " + table.name
+                    + " (" + table.columns + ") VALUES "
+                    + String.join(",", Collections.nCopies(rowCount, placeholders));
+        }
+
+        @Override
+        public void accept(Object[] row) {
+            for (Object value : row) {
+                arguments.add(value instanceof LocalDateTime ? Timestamp.valueOf((LocalDateTime) value) : value);
+            }
+            if (++rows == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (rows == 0) {
+                return;
+            }
+            String sql = rows == batchSize ? fullBatchSql : insertSql(rows);
+            jdbcTemplate.update(sql, arguments.toArray());
+            arguments.clear();
+            rows = 0;
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    /**
+     * Writes rows to a tab separated file and registers the matching LOAD DATA statement.
+     */
+    private static final class TsvRowSink implements RowSink {
+        private final BufferedWriter writer;
+
+        private TsvRowSink(Table table, Path file, List<String> statements) {
+            try {
+                this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synchronized (statements) {
+                statements.add("LOAD DATA LOCAL INFILE '" + file.toAbsolutePath() + "' "
+                        + (table.ignoreDuplicates ? "IGNORE " : "") + "INTO TABLE " + table.name
+                        + " FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' " + table.loadDataColumns() + ";");
+            }
+        }
+
+        @Override
+        public void accept(Object[] row) {
+            try {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        writer.write('\t');
+                    }
+                    Object value = row[i];
+                    if (value instanceof LocalDateTime) {
+                        writer.write(((LocalDateTime) value).format(formatter));
+                    } else if (value instanceof byte[]) {
+                        writer.write(HexFormat.of().formatHex((byte[]) value));
+                    } else {
+                        writer.write(String.valueOf(value));
+                    }
+                }
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
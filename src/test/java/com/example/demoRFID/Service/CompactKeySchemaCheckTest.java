@@ -0,0 +1,53 @@
+package com.example.demoRFID.Service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactKeySchemaCheckTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CompactKeySchemaCheck compactKeySchemaCheck;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:rfid_keys;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        compactKeySchemaCheck = new CompactKeySchemaCheck(jdbcTemplate);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void testCheck_CompactKeys_Passes() {
+        jdbcTemplate.execute("CREATE TABLE rfid_tx (tag_id BIGINT NOT NULL, epc VARBINARY(12) NOT NULL, scan_date DATETIME(6) NOT NULL)");
+
+        assertTrue(compactKeySchemaCheck.check().isEmpty());
+        compactKeySchemaCheck.afterPropertiesSet();
+    }
+
+    @Test
+    public void testCheck_VarcharKeysLeftByDdlAutoUpdate_StopsTheStartup() {
+        jdbcTemplate.execute("CREATE TABLE rfid_tx (tag_id VARCHAR(255) NOT NULL, epc VARCHAR(255) NOT NULL, scan_date DATETIME(6) NOT NULL)");
+
+        List<String> mismatches = compactKeySchemaCheck.check();
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> compactKeySchemaCheck.afterPropertiesSet());
+
+        assertEquals(2, mismatches.size());
+        assertTrue(mismatches.stream().anyMatch(mismatch -> mismatch.startsWith("rfid_tx.tag_id")));
+        assertTrue(exception.getMessage().contains("V4__compact_rfid_keys.sql"));
+    }
+
+    @Test
+    public void testCheck_TablesNotCreatedYet_Passes() {
+        assertTrue(compactKeySchemaCheck.check().isEmpty());
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.CurrentLocation;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CurrentLocationIndexTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 0);
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private ReadBurstRepository readBurstRepository;
+
+    @Mock
+    private ReadBurstService readBurstService;
+
+    @Mock
+    private LocationRepository locationRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private final Location dock = location(10L, "DOCK");
+    private final Location gate = location(20L, "GATE");
+
+    @Test
+    public void testOnAdded_OlderReadAppliedAfterANewerOne_KeepsTheNewer() {
+        for (CurrentLocationIndex index : List.of(heapIndex(), storeIndex())) {
+            index.onAdded(read(SCAN_DATE, gate, null), "SITE1", "GATE");
+            index.onAdded(read(SCAN_DATE.minusSeconds(5), dock, null), "SITE1", "DOCK");
+
+            CurrentLocation current = index.find("TAG001", "EPC001").orElseThrow();
+            assertEquals("GATE", current.getLocationName());
+            assertEquals(SCAN_DATE, current.getScanDate());
+        }
+    }
+
+    @Test
+    public void testOnUpdated_ReadThatLostTheArbitration_IsIgnored() {
+        for (CurrentLocationIndex index : List.of(heapIndex(), storeIndex())) {
+            index.onAdded(read(SCAN_DATE, dock, null), "SITE1", "DOCK");
+
+            index.onUpdated(read(SCAN_DATE.plusSeconds(1), gate, false), new BigDecimal("-50.00"), "SITE1", "GATE");
+
+            assertEquals("DOCK", index.find("TAG001", "EPC001").orElseThrow().getLocationName());
+        }
+    }
+
+    @Test
+    public void testOnDeleted_CurrentRead_ThePreviousWinningReadTakesItsPlace() {
+        when(rfidTxRepository.findLatestWinningRead("TAG001", "EPC001"))
+                .thenReturn(Optional.of(read(SCAN_DATE.minusSeconds(5), dock, true)));
+        for (CurrentLocationIndex index : List.of(heapIndex(), storeIndex())) {
+            index.onAdded(read(SCAN_DATE.minusSeconds(5), dock, null), "SITE1", "DOCK");
+            index.onAdded(read(SCAN_DATE, gate, null), "SITE1", "GATE");
+
+            index.onDeleted("TAG001", "EPC001", SCAN_DATE, new BigDecimal("-50.00"));
+
+            CurrentLocation current = index.find("TAG001", "EPC001").orElseThrow();
+            assertEquals("DOCK", current.getLocationName());
+            assertEquals(SCAN_DATE.minusSeconds(5), current.getScanDate());
+        }
+    }
+
+    @Test
+    public void testOnDeleted_OlderRead_KeepsTheCurrentLocationWithoutReloading() {
+        CurrentLocationIndex index = heapIndex();
+        index.onAdded(read(SCAN_DATE, gate, null), "SITE1", "GATE");
+
+        index.onDeleted("TAG001", "EPC001", SCAN_DATE.minusSeconds(5), new BigDecimal("-50.00"));
+
+        assertEquals("GATE", index.find("TAG001", "EPC001").orElseThrow().getLocationName());
+        verify(rfidTxRepository, never()).findLatestWinningRead(any(), any());
+    }
+
+    @Test
+    public void testOnDeleted_LastRead_ForgetsTheTag() {
+        when(rfidTxRepository.findLatestWinningRead("TAG001", "EPC001")).thenReturn(Optional.empty());
+        for (CurrentLocationIndex index : List.of(heapIndex(), storeIndex())) {
+            index.onAdded(read(SCAN_DATE, gate, null), "SITE1", "GATE");
+
+            index.onDeleted("TAG001", "EPC001", SCAN_DATE, new BigDecimal("-50.00"));
+
+            assertTrue(index.find("TAG001", "EPC001").isEmpty());
+        }
+    }
+
+    @Test
+    public void testOnRangeChanged_ReloadsOnlyWhenTheCurrentReadIsInTheRange() {
+        when(rfidTxRepository.findLatestWinningRead("TAG001", "EPC001"))
+                .thenReturn(Optional.of(read(SCAN_DATE, dock, true)));
+        CurrentLocationIndex index = heapIndex();
+        index.onAdded(read(SCAN_DATE, gate, null), "SITE1", "GATE");
+
+        // the range end is excluded
+        index.onRangeChanged("TAG001", "EPC001", SCAN_DATE.minusHours(1), SCAN_DATE);
+        assertEquals("GATE", index.find("TAG001", "EPC001").orElseThrow().getLocationName());
+
+        index.onRangeChanged("TAG001", "EPC001", SCAN_DATE, SCAN_DATE.plusNanos(1_000));
+        assertEquals("DOCK", index.find("TAG001", "EPC001").orElseThrow().getLocationName());
+        verify(rfidTxRepository, times(1)).findLatestWinningRead("TAG001", "EPC001");
+    }
+
+    @Test
+    public void testRun_ChunksLoadedInAnyOrder_KeepTheLatestReadOfEachTag() {
+        CurrentLocationIndex index = heapIndex();
+        ReflectionTestUtils.setField(index, "loadChunks", 2);
+        ReflectionTestUtils.setField(index, "loadThreads", 2);
+        LocalDateTime min = SCAN_DATE.minusHours(2);
+        when(rfidTxRepository.findMinScanDate()).thenReturn(min);
+        when(rfidTxRepository.findMaxScanDate()).thenReturn(SCAN_DATE);
+        when(rfidTxRepository.findLatestReadPerTag(any(), any())).thenAnswer(invocation ->
+                invocation.getArgument(0).equals(min)
+                        ? List.<Object[]>of(row(min, "SITE1", "DOCK", 10L))
+                        : List.<Object[]>of(row(SCAN_DATE, "SITE1", "GATE", 20L)));
+
+        index.run(null);
+
+        CurrentLocation current = index.find("TAG001", "EPC001").orElseThrow();
+        assertEquals("GATE", current.getLocationName());
+        assertEquals(SCAN_DATE, current.getScanDate());
+        verify(rfidTxRepository, times(2)).findLatestReadPerTag(any(), any());
+    }
+
+    @Test
+    public void testReadCount_EveryStoredReadCountedOnceAcrossLoadAddUpdateAndDelete() {
+        CurrentLocationIndex index = storeIndex();
+        // 3 reads in the range, the latest one lost the location arbitration
+        when(rfidTxRepository.findMinScanDate()).thenReturn(SCAN_DATE.minusHours(1));
+        when(rfidTxRepository.findMaxScanDate()).thenReturn(SCAN_DATE);
+        when(rfidTxRepository.findLatestReadPerTag(any(), any())).thenReturn(
+                List.<Object[]>of(row(SCAN_DATE.minusSeconds(5), "SITE1", "DOCK", 10L, 3L, "-150.00", true)));
+        when(locationRepository.findById(10L)).thenReturn(Optional.of(dock));
+        index.run(null);
+
+        RfidTx added = read(SCAN_DATE.plusSeconds(1), gate, false);
+        index.onAdded(added, "SITE1", "GATE");
+        added.setRssi(new BigDecimal("-70.00"));
+        index.onUpdated(added, new BigDecimal("-50.00"), "SITE1", "GATE");
+        index.onDeleted("TAG001", "EPC001", SCAN_DATE.minusHours(1), new BigDecimal("-30.00"));
+
+        CurrentLocation current = index.find("TAG001", "EPC001").orElseThrow();
+        assertEquals("DOCK", current.getLocationName());
+        // (-150 - 70 + 30) / (3 + 1 - 1)
+        assertEquals(3L, current.getReadCount());
+        assertEquals(new BigDecimal("-63.33"), current.getAverageRssi());
+    }
+
+    @Test
+    public void testRun_ReopenedStore_KeepsTheCountsItWasClosedWith() {
+        Path file = tempDir.resolve("tag-state.dat");
+        TagStateStore store = new TagStateStore(true, file.toString(), 16);
+        CurrentLocationIndex index = newIndex(store);
+        when(rfidTxRepository.findMinScanDate()).thenReturn(SCAN_DATE.minusHours(1));
+        when(rfidTxRepository.findMaxScanDate()).thenReturn(SCAN_DATE);
+        when(rfidTxRepository.findLatestReadPerTag(any(), any())).thenReturn(
+                List.<Object[]>of(row(SCAN_DATE, "SITE1", "DOCK", 10L, 2L, "-100.00", true)));
+        index.run(null);
+        index.onAdded(read(SCAN_DATE.plusSeconds(1), dock, null), "SITE1", "DOCK");
+        store.close();
+
+        TagStateStore reopened = new TagStateStore(true, file.toString(), 16);
+        CurrentLocationIndex restarted = newIndex(reopened);
+        when(locationRepository.findById(10L)).thenReturn(Optional.of(dock));
+        restarted.run(null);
+
+        // the restart neither reloads nor counts again
+        verify(rfidTxRepository, times(1)).findLatestReadPerTag(any(), any());
+        CurrentLocation current = restarted.find("TAG001", "EPC001").orElseThrow();
+        assertEquals(3L, current.getReadCount());
+        assertEquals(new BigDecimal("-50.00"), current.getAverageRssi());
+        assertEquals(SCAN_DATE.plusSeconds(1), current.getScanDate());
+        reopened.close();
+    }
+
+    private CurrentLocationIndex heapIndex() {
+        return newIndex(new TagStateStore(false, tempDir.resolve("unused.dat").toString(), 16));
+    }
+
+    // a fresh TagStateStore file per index
+    private CurrentLocationIndex storeIndex() {
+        return newIndex(new TagStateStore(true, tempDir.resolve("tag-state-" + System.nanoTime() + ".dat").toString(), 16));
+    }
+
+    private CurrentLocationIndex newIndex(TagStateStore tagStateStore) {
+        CurrentLocationIndex index = new CurrentLocationIndex(rfidTxRepository, readBurstRepository, readBurstService,
+                tagStateStore, locationRepository);
+        ReflectionTestUtils.setField(index, "refreshOverlapMs", 60000L);
+        return index;
+    }
+
+    private RfidTx read(LocalDateTime scanDate, Location location, Boolean locationWinner) {
+        RfidTx read = new RfidTx();
+        read.setTagId("TAG001");
+        read.setEpc("EPC001");
+        read.setScanDate(scanDate);
+        read.setLocation(location);
+        read.setRssi(new BigDecimal("-50.00"));
+        read.setLocationWinner(locationWinner);
+        return read;
+    }
+
+    private Object[] row(LocalDateTime scanDate, String siteName, String locationName, Long locationId) {
+        return row(scanDate, siteName, locationName, locationId, 1L, "-50.00", null);
+    }
+
+    // a findLatestReadPerTag row: tagId, epc, scanDate, rssi, siteName, locationName, locationId, readCount, rssiSum,
+    // locationWinner
+    private Object[] row(LocalDateTime scanDate, String siteName, String locationName, Long locationId, Long readCount,
+                         String rssiSum, Boolean locationWinner) {
+        return new Object[]{"TAG001", "EPC001", scanDate, new BigDecimal("-50.00"), siteName, locationName, locationId,
+                readCount, new BigDecimal(rssiSum), locationWinner};
+    }
+
+    private static Location location(Long locationId, String locationName) {
+        Site site = new Site();
+        site.setSiteName("SITE1");
+        Location location = new Location();
+        location.setLocationId(locationId);
+        location.setLocationName(locationName);
+        location.setSite(site);
+        return location;
+    }
+}
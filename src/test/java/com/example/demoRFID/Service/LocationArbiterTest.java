@@ -0,0 +1,189 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidTx;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocationArbiterTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 0);
+
+    private LocationArbiter locationArbiter;
+
+    @BeforeEach
+    public void setUp() {
+        locationArbiter = new LocationArbiter();
+        ReflectionTestUtils.setField(locationArbiter, "windowMs", 2000L);
+    }
+
+    @Test
+    public void testAdmit_StrongerAverageRssiWinsAndReportsTheChange() {
+        LocationArbiter.Decision first = locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-60")).orElseThrow();
+        LocationArbiter.Decision second = locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L,
+                SCAN_DATE.plusNanos(500_000_000), new BigDecimal("-45")).orElseThrow();
+
+        assertEquals(10L, first.winnerLocationId());
+        assertFalse(first.winnerChanged());
+        assertEquals(11L, second.winnerLocationId());
+        assertTrue(second.winnerChanged());
+        assertEquals(SCAN_DATE, second.windowStart());
+        assertEquals(SCAN_DATE.plusSeconds(2).minusNanos(1_000), second.windowEnd());
+        assertEquals(Set.of(10L, 11L), second.locationIds());
+    }
+
+    @Test
+    public void testAdmit_EqualAverageRssi_LocationWithMoreReadsWins() {
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-50"));
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L, SCAN_DATE.plusNanos(100_000_000), new BigDecimal("-50"));
+        LocationArbiter.Decision decision = locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L,
+                SCAN_DATE.plusNanos(200_000_000), new BigDecimal("-50")).orElseThrow();
+
+        assertEquals(11L, decision.winnerLocationId());
+    }
+
+    @Test
+    public void testAdmit_ReadAfterTheWindowOrAtAnotherSite_OpensANewWindow() {
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-40"));
+
+        LocationArbiter.Decision later = locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L,
+                SCAN_DATE.plusSeconds(2), new BigDecimal("-70")).orElseThrow();
+        LocationArbiter.Decision otherSite = locationArbiter.admit("TAG001", "EPC001", "SITE2", 20L,
+                SCAN_DATE, new BigDecimal("-70")).orElseThrow();
+
+        assertEquals(11L, later.winnerLocationId());
+        assertFalse(later.winnerChanged());
+        assertEquals(SCAN_DATE.plusSeconds(2), later.windowStart());
+        assertEquals(Set.of(20L), otherSite.locationIds());
+    }
+
+    @Test
+    public void testAdmit_ReadOlderThanTheWindow_LeavesTheWindowToTheStoredReads() {
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-60"));
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L, SCAN_DATE.plusSeconds(1), new BigDecimal("-40"));
+
+        Optional<LocationArbiter.Decision> late = locationArbiter.admit("TAG001", "EPC001", "SITE1", 12L,
+                SCAN_DATE.minusSeconds(1), new BigDecimal("-10"));
+        LocationArbiter.Decision next = locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L,
+                SCAN_DATE.plusNanos(1_500_000_000), new BigDecimal("-60")).orElseThrow();
+
+        assertTrue(late.isEmpty());
+        assertEquals(SCAN_DATE, next.windowStart());
+        assertEquals(11L, next.winnerLocationId());
+        assertEquals(Set.of(10L, 11L), next.locationIds());
+    }
+
+    @Test
+    public void testSweep_ExpiredWindowsAreForgotten() {
+        locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-40"));
+        ReflectionTestUtils.setField(locationArbiter, "windowMs", 0L);
+        locationArbiter.sweep();
+        ReflectionTestUtils.setField(locationArbiter, "windowMs", 2000L);
+
+        LocationArbiter.Decision decision = locationArbiter.admit("TAG001", "EPC001", "SITE1", 11L,
+                SCAN_DATE.plusNanos(500_000_000), new BigDecimal("-70")).orElseThrow();
+
+        assertEquals(11L, decision.winnerLocationId());
+        assertEquals(Set.of(11L), decision.locationIds());
+    }
+
+    @Test
+    public void testAdmit_Disabled_ReturnsNoDecision() {
+        ReflectionTestUtils.setField(locationArbiter, "windowMs", 0L);
+
+        assertTrue(locationArbiter.admit("TAG001", "EPC001", "SITE1", 10L, SCAN_DATE, new BigDecimal("-40")).isEmpty());
+    }
+
+    @Test
+    public void testArbitrate_GroupsStoredReadsInWindowsAndElectsEachWinner() {
+        List<RfidTx> reads = List.of(
+                read(SCAN_DATE, 10L, "-60"),
+                read(SCAN_DATE.plusNanos(500_000_000), 11L, "-40"),
+                read(SCAN_DATE.plusSeconds(1), null, "-10"),
+                read(SCAN_DATE.plusSeconds(5), 10L, "-70"));
+
+        List<LocationArbiter.Decision> decisions = locationArbiter.arbitrate(reads);
+
+        assertEquals(2, decisions.size());
+        assertEquals(11L, decisions.get(0).winnerLocationId());
+        assertEquals(SCAN_DATE, decisions.get(0).windowStart());
+        assertEquals(SCAN_DATE.plusSeconds(2).minusNanos(1_000), decisions.get(0).windowEnd());
+        assertEquals(Set.of(10L, 11L), decisions.get(0).locationIds());
+        assertEquals(10L, decisions.get(1).winnerLocationId());
+        assertEquals(SCAN_DATE.plusSeconds(5), decisions.get(1).windowStart());
+    }
+
+    @Test
+    public void testArbitrate_Disabled_ReturnsNoDecision() {
+        ReflectionTestUtils.setField(locationArbiter, "windowMs", 0L);
+
+        assertTrue(locationArbiter.arbitrate(List.of(read(SCAN_DATE, 10L, "-60"))).isEmpty());
+    }
+
+    @Test
+    public void testElectAgain_ReturnsOnlyTheWindowsFlaggedDifferently() {
+        RfidTx stale = read(SCAN_DATE, 11L, "-40");
+        stale.setLocationWinner(false);
+        RfidTx upToDate = read(SCAN_DATE.plusSeconds(10), 11L, "-40");
+        upToDate.setLocationWinner(true);
+        RfidTx otherSite = read(SCAN_DATE, 20L, "-50");
+        otherSite.setSiteId(2L);
+        otherSite.setLocationWinner(true);
+
+        List<LocationArbiter.Decision> decisions = locationArbiter.electAgain(List.of(stale, otherSite, upToDate));
+
+        assertEquals(1, decisions.size());
+        assertEquals(11L, decisions.get(0).winnerLocationId());
+        assertEquals(SCAN_DATE, decisions.get(0).windowStart());
+    }
+
+    @Test
+    public void testElectAgainAround_AnchorsOnTheReadThatOpenedTheWindow_BoundsOnTheReadsElected() {
+        // the window holding the changed scan date was opened 2.5 s before it, out of the first window-ms fetched
+        RfidTx anchor = read(SCAN_DATE.minusNanos(2_500_000_000L), 10L, "-60");
+        anchor.setLocationWinner(true);
+        RfidTx stronger = read(SCAN_DATE.minusSeconds(1), 11L, "-40");
+        stronger.setLocationWinner(false);
+        RfidTx next = read(SCAN_DATE.plusNanos(200_000_000), 10L, "-60");
+        next.setLocationWinner(true);
+        // opened more than window-ms after the changed scan date, not touched
+        RfidTx later = read(SCAN_DATE.plusSeconds(3), 11L, "-40");
+        later.setLocationWinner(false);
+        List<RfidTx> stored = List.of(anchor, stronger, next, later);
+
+        List<LocationArbiter.Decision> decisions = locationArbiter.electAgain(SCAN_DATE, SCAN_DATE,
+                (from, to) -> stored.stream()
+                        .filter(read -> !read.getScanDate().isBefore(from) && !read.getScanDate().isAfter(to))
+                        .toList());
+
+        assertEquals(1, decisions.size());
+        assertEquals(11L, decisions.get(0).winnerLocationId());
+        assertEquals(anchor.getScanDate(), decisions.get(0).windowStart());
+        assertEquals(stronger.getScanDate(), decisions.get(0).windowEnd());
+        assertEquals(Set.of(10L, 11L), decisions.get(0).locationIds());
+    }
+
+    private RfidTx read(LocalDateTime scanDate, Long locationId, String rssi) {
+        RfidTx read = new RfidTx();
+        read.setTagId("TAG001");
+        read.setEpc("EPC001");
+        read.setScanDate(scanDate);
+        read.setSiteId(1L);
+        read.setRssi(new BigDecimal(rssi));
+        if (locationId != null) {
+            Location location = new Location();
+            location.setLocationId(locationId);
+            read.setLocation(location);
+        }
+        return read;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demoRFID.Service;
 
 import com.example.demoRFID.ErrorMessage;
 import com.example.demoRFID.Model.Product;
+import com.example.demoRFID.Model.ProductUpsertResult;
 import com.example.demoRFID.Model.Exceptions.InvalidInputException;
 import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
 import com.example.demoRFID.Repository.ProductRepository;
@@ -12,12 +13,18 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static com.example.demoRFID.Constants.REFCODE_LENGTH;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +33,14 @@ public class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductGtinCache productGtinCache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private ProductService productService;
@@ -35,6 +50,8 @@ public class ProductServiceTest {
 
     @BeforeEach
     public void setUp() {
+        ReflectionTestUtils.setField(productService, "maxBatch", 100);
+        ReflectionTestUtils.setField(productService, "chunkSize", 2);
         validProduct = new Product();
         validProduct.setRefCode(12345L);
         validProduct.setName("Valid Product");
@@ -76,6 +93,46 @@ public class ProductServiceTest {
         assertTrue(exception.getMessage().contains(ErrorMessage.PRODUCT_ALREADY_EXISTS.format(validProduct.getRefCode())));
     }
 
+    @Test
+    public void testCreateProduct_InvalidGtin_ThrowsInvalidInputException() {
+        validProduct.setGtin(80614141123459L);
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            productService.createProduct(validProduct);
+        });
+
+        assertTrue(exception.getMessage().contains(ErrorMessage.INVALID_GTIN.getMessage()));
+    }
+
+    @Test
+    public void testCreateProduct_GtinOfAnotherProduct_ThrowsDuplicateKeyException() {
+        Product other = new Product();
+        other.setRefCode(54321L);
+        other.setGtin(80614141123458L);
+        validProduct.setGtin(80614141123458L);
+        when(productRepository.findById(validProduct.getRefCode())).thenReturn(Optional.empty());
+        when(productRepository.findByGtin(80614141123458L)).thenReturn(Optional.of(other));
+
+        DuplicateKeyException exception = assertThrows(DuplicateKeyException.class, () -> {
+            productService.createProduct(validProduct);
+        });
+
+        assertTrue(exception.getMessage().contains(ErrorMessage.PRODUCT_GTIN_ALREADY_EXISTS.format(80614141123458L, 54321L)));
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    public void testUpdateProduct_WithGtin_InvalidatesGtinCache() {
+        validProduct.setGtin(80614141123458L);
+        when(productRepository.findById(validProduct.getRefCode())).thenReturn(Optional.of(validProduct));
+        when(productRepository.findByGtin(80614141123458L)).thenReturn(Optional.of(validProduct));
+        when(productRepository.save(validProduct)).thenReturn(validProduct);
+
+        productService.updateProduct(validProduct);
+
+        verify(productGtinCache, times(1)).invalidate();
+    }
+
     @Test
     public void testGetProductById_ValidId() {
         when(productRepository.findById(validProduct.getRefCode())).thenReturn(Optional.of(validProduct));
@@ -185,4 +242,74 @@ public class ProductServiceTest {
 
         assertTrue(exception.getMessage().contains(ErrorMessage.PRODUCT_NOT_FOUND.format(validProduct.getRefCode())));
     }
+
+    private static Product product(Long refCode, String name) {
+        Product product = new Product();
+        product.setRefCode(refCode);
+        product.setName(name);
+        return product;
+    }
+
+    @Test
+    public void testUpsertProducts_EmptyBatch_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> productService.upsertProducts(List.of()));
+
+        assertEquals(ErrorMessage.PRODUCT_BATCH_SIZE.format(100), exception.getMessage());
+    }
+
+    @Test
+    public void testUpsertProducts_WritesNewAndChangedProducts_SkipsUnchangedAndInvalid() {
+        List<Product> products = List.of(
+                product(12345L, "New Product"),
+                product(22222L, "Same Product"),
+                product(33333L, "Renamed Product"),
+                product(123L, "Short RefCode"),
+                product(12345L, "New Product again"));
+        when(productRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(product(22222L, "Same Product"), product(33333L, "Old Product")))
+                .thenReturn(List.of());
+        List<List<?>> written = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    written.add(invocation.getArgument(1));
+                    return new int[0][];
+                });
+
+        ProductUpsertResult result = productService.upsertProducts(products);
+
+        assertEquals(1, result.getCreated());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(2, result.getRejected());
+        assertEquals(List.of(ProductUpsertResult.Status.CREATED, ProductUpsertResult.Status.UNCHANGED,
+                        ProductUpsertResult.Status.UPDATED, ProductUpsertResult.Status.REJECTED, ProductUpsertResult.Status.REJECTED),
+                result.getRows().stream().map(ProductUpsertResult.Row::getStatus).toList());
+        assertEquals(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH), result.getRows().get(3).getReason());
+        assertEquals(ErrorMessage.PRODUCT_BATCH_DUPLICATE.format(12345L), result.getRows().get(4).getReason());
+        assertEquals(List.of(List.of(0, 2)), written);
+        verify(productGtinCache).invalidate();
+    }
+
+    @Test
+    public void testUpsertProducts_RowWithoutGtin_KeepsTheStoredGtin() {
+        Product stored = product(22222L, "Same Product");
+        stored.setGtin(10614141000415L);
+        Product renamed = product(33333L, "Old Product");
+        renamed.setGtin(10614141000422L);
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(stored, renamed));
+        List<String> statements = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    statements.add(invocation.getArgument(0));
+                    return new int[0][];
+                });
+
+        ProductUpsertResult result = productService.upsertProducts(List.of(product(22222L, "Same Product"),
+                product(33333L, "Renamed Product")));
+
+        assertEquals(List.of(ProductUpsertResult.Status.UNCHANGED, ProductUpsertResult.Status.UPDATED),
+                result.getRows().stream().map(ProductUpsertResult.Row::getStatus).toList());
+        assertEquals(1, statements.size());
+        assertTrue(statements.get(0).endsWith("AS new ON DUPLICATE KEY UPDATE name = new.name, gtin = COALESCE(new.gtin, gtin)"));
+    }
 }
@@ -0,0 +1,231 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Perf.DatasetSpec;
+import com.example.demoRFID.Perf.SyntheticDatasetBuilder;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the QueryPlanGuard shapes of the JPQL and derived queries against the SQL Hibernate generates for them.
+ *
+ * Every such repository query runs once on an embedded H2 database in MySQL mode while a StatementInspector
+ * records the SQL sent to JDBC. The WHERE clauses of the first recorded statement, aliases, casts, whitespace
+ * and parentheses aside, must be the ones of the shape: a renamed column or a changed query fails here instead of
+ * being explained as stale SQL. Select lists, paging and locking clauses depend on the dialect and are not compared.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rfid_shapes;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.example.demoRFID.Service.QueryPlanGuardShapesTest$RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanGuardShapesTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2024, 7, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2024, 8, 1, 0, 0);
+
+    private static final Pattern WHERE = Pattern.compile("\\bwhere\\b");
+    private static final Pattern CLAUSE_END = Pattern.compile("\\s(group by|order by|limit|offset|fetch|for update)\\b");
+    private static final Pattern ALIAS = Pattern.compile("\\b(from|join|update)\\s+(\\w+)\\s+"
+            + "(?!(?:where|join|left|right|inner|cross|on|set|order|group|limit|offset|fetch|for)\\b)\\w+");
+
+    /**
+     * Records every statement Hibernate prepares, registered through hibernate.session_factory.statement_inspector.
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+
+    @Autowired
+    private RfidTxRepository rfidTxRepository;
+
+    @Autowired
+    private ReadBurstRepository readBurstRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final DatasetSpec spec = new DatasetSpec();
+
+    @BeforeAll
+    public void seed() {
+        spec.setSites(1);
+        spec.setLocationsPerSite(1);
+        spec.setProducts(1);
+        spec.setTags(1);
+        new SyntheticDatasetBuilder(jdbcTemplate).buildReferenceData(spec);
+    }
+
+    @Test
+    public void testShapes_WhereClausesOfTheGeneratedSql() {
+        String tagId = SyntheticDatasetBuilder.tagId(0);
+        String epc = SyntheticDatasetBuilder.epc(0);
+        long refCode = SyntheticDatasetBuilder.refCode(0);
+        Location location = locationRepository.findById(SyntheticDatasetBuilder.locationId(spec, 0, 0)).orElseThrow();
+        Long locationId = location.getLocationId();
+        Long siteId = location.getSite().getSiteId();
+
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+        calls.put("findLatestScans", () -> rfidTxRepository.findLatestScans(FROM, TO, null, null));
+        calls.put("findLatestScans(epc)", () -> rfidTxRepository.findLatestScans(FROM, TO, epc, null));
+        calls.put("findLatestScansBySiteId", () -> rfidTxRepository.findLatestScansBySiteId(FROM, TO, null, null));
+        calls.put("findLatestScansBySiteId(siteId)", () -> rfidTxRepository.findLatestScansBySiteId(FROM, TO, null, siteId));
+        calls.put("findTopReads", () -> rfidTxRepository.findTopReads(10, FROM, TO));
+        calls.put("findByEpc", () -> rfidTxRepository.findByEpc(epc));
+        calls.put("findByTagId", () -> rfidTxRepository.findByTagId(tagId));
+        calls.put("findByEpcAndTagId", () -> rfidTxRepository.findByEpcAndTagId(epc, tagId));
+        calls.put("findByScanDateBetween", () -> rfidTxRepository.findByScanDateBetween(FROM, TO));
+        calls.put("findBySiteIdAndScanDateBetween", () -> rfidTxRepository.findBySiteIdAndScanDateBetween(siteId, FROM, TO));
+        calls.put("findByRefCodeAndScanDateBetween", () -> rfidTxRepository.findByRefCodeAndScanDateBetween(refCode, FROM, TO));
+        calls.put("findByCriteria(epc, dates)", () -> rfidTxRepository.findByCriteria(epc, null, FROM, TO));
+        calls.put("findByCriteria(dates)", () -> rfidTxRepository.findByCriteria(null, null, FROM, TO));
+        calls.put("findLatestReadPerTag", () -> rfidTxRepository.findLatestReadPerTag(FROM, TO));
+        calls.put("findLatestWinningRead", () -> rfidTxRepository.findLatestWinningRead(tagId, epc));
+        calls.put("findMinScanDate", () -> rfidTxRepository.findMinScanDate());
+        calls.put("findMaxScanDate", () -> rfidTxRepository.findMaxScanDate());
+        calls.put("updateLocationWinner", () -> rfidTxRepository.updateLocationWinner(tagId, epc, FROM, TO, List.of(locationId), locationId));
+        calls.put("findCompactionCandidates", () -> rfidTxRepository.findCompactionCandidates(TO, PageRequest.of(0, 500)));
+        calls.put("findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc", () -> rfidTxRepository
+                .findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc(tagId, epc, TO, PageRequest.of(0, 1000)));
+        calls.put("deleteCompacted", () -> rfidTxRepository.deleteCompacted(tagId, epc, TO));
+        calls.put("findMinScanDateToBackfill", () -> rfidTxRepository.findMinScanDateToBackfill(FROM));
+        calls.put("findTagsMatching", () -> rfidTxRepository.findTagsMatching(FROM, TO, siteId, null, null));
+        calls.put("findScanDatesMatching", () -> rfidTxRepository.findScanDatesMatching(FROM, TO, siteId, null, null,
+                PageRequest.of(5000, 1)));
+        calls.put("findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc", () -> rfidTxRepository
+                .findByTagIdAndEpcAndScanDateBetweenOrderByScanDateAsc(tagId, epc, FROM, TO));
+        calls.put("deleteMatching", () -> rfidTxRepository.deleteMatching(FROM, TO, siteId, null, null));
+        calls.put("reassignMatching", () -> rfidTxRepository.reassignMatching(location, siteId, FROM, TO, siteId, null, null));
+        calls.put("findProjection(epc)", () -> rfidTxRepository.findProjection(List.of("epc", "scanDate", "rssi"),
+                null, epc, null, null, null, null));
+        calls.put("findProjection(tagId, epc)", () -> rfidTxRepository.findProjection(List.of("tagId", "scanDate", "location"),
+                tagId, epc, null, null, null, null));
+        calls.put("findProjection(dates)", () -> rfidTxRepository.findProjection(List.of("tagId", "scanDate", "location"),
+                null, null, FROM, TO, null, null));
+        calls.put("findProjection(dates, siteId)", () -> rfidTxRepository.findProjection(List.of("tagId", "scanDate", "location"),
+                null, null, FROM, TO, siteId, null));
+        calls.put("findProjection(dates, refCode)", () -> rfidTxRepository.findProjection(List.of("tagId", "scanDate", "location"),
+                null, null, FROM, TO, null, refCode));
+        calls.put("ReadBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc", () -> readBurstRepository
+                .findFirstByTagIdAndEpcOrderByLastSeenDesc(tagId, epc));
+        calls.put("ReadBurstRepository.findLatestBurstPerTag", () -> readBurstRepository.findLatestBurstPerTag(FROM, TO));
+        calls.put("ReadBurstRepository.findMinLastSeen", () -> readBurstRepository.findMinLastSeen());
+        calls.put("ReadBurstRepository.findMaxLastSeen", () -> readBurstRepository.findMaxLastSeen());
+        calls.put("ReadBurstRepository.findFirstSeenMatching", () -> readBurstRepository.findFirstSeenMatching(FROM, TO,
+                siteId, null, null, PageRequest.of(5000, 1)));
+        calls.put("ReadBurstRepository.findTagsMatching", () -> readBurstRepository.findTagsMatching(FROM, TO, TO, siteId, null, null));
+        calls.put("ReadBurstRepository.deleteMatching", () -> readBurstRepository.deleteMatching(FROM, TO, TO, siteId, null, null));
+        calls.put("ReadBurstRepository.reassignMatching", () -> readBurstRepository.reassignMatching(location, FROM, TO, TO,
+                siteId, null, null));
+        calls.put("ReadBurstRepository.findOldest", () -> readBurstRepository.findOldest(FROM, PageRequest.of(0, 1000)));
+        calls.put("ReadBurstRepository.findOldestExceptSites", () -> readBurstRepository.findOldestExceptSites(FROM,
+                List.of(siteId), PageRequest.of(0, 1000)));
+        calls.put("ReadBurstRepository.findOldestOfSite", () -> readBurstRepository.findOldestOfSite(siteId, FROM,
+                PageRequest.of(0, 1000)));
+
+        Map<String, Object[]> shapes = QueryPlanGuard.shapes(tagId, epc, siteId, refCode, locationId,
+                Timestamp.valueOf(FROM), Timestamp.valueOf(TO));
+        for (String shape : shapes.keySet()) {
+            if (!isNative(shape)) {
+                assertTrue(calls.containsKey(shape), "No generated SQL check for " + shape);
+            }
+        }
+        for (Map.Entry<String, Runnable> call : calls.entrySet()) {
+            RecordingStatementInspector.STATEMENTS.clear();
+            call.getValue().run();
+            assertFalse(RecordingStatementInspector.STATEMENTS.isEmpty(), call.getKey());
+            assertEquals(whereClauses((String) shapes.get(call.getKey())[0]),
+                    whereClauses(RecordingStatementInspector.STATEMENTS.get(0)), call.getKey());
+        }
+    }
+
+    @Test
+    public void testWhereClauses_IgnoresAliasesAndCasts() {
+        assertEquals(List.of("scan_date>=?andscan_date<?and?isnullorlocation_idinselectlocation_idfromlocationwheresite_id=?",
+                        "site_id=?"),
+                whereClauses("select r1_0.tag_id from rfid_tx r1_0 where r1_0.scan_date>=? and r1_0.scan_date<?"
+                        + " and (cast(? as bigint) is null or r1_0.location_id in (select l1_0.location_id from location l1_0"
+                        + " where l1_0.site_id=?)) order by r1_0.scan_date asc fetch first ? rows only"));
+        assertEquals(whereClauses("SELECT * FROM rfid_tx rt WHERE (? IS NULL OR rt.epc = ?) LIMIT ? FOR UPDATE"),
+                whereClauses("select r1_0.epc from rfid_tx r1_0 where (? is null or r1_0.epc=?) for update"));
+    }
+
+    // shapes of native queries are read from their @Query annotation, see QueryPlanGuard.nativeSql
+    private static boolean isNative(String shape) {
+        Class<?> repository = shape.startsWith("ReadBurstRepository.") ? ReadBurstRepository.class : RfidTxRepository.class;
+        String method = shape.replaceFirst("^ReadBurstRepository\\.", "").replaceAll("\\(.*\\)$", "");
+        return Arrays.stream(repository.getDeclaredMethods())
+                .filter(candidate -> candidate.getName().equals(method))
+                .anyMatch(candidate -> candidate.isAnnotationPresent(Query.class) && candidate.getAnnotation(Query.class).nativeQuery());
+    }
+
+    // the WHERE clauses of a statement in order, without aliases, casts of parameters, whitespace and parentheses
+    private static List<String> whereClauses(String sql) {
+        String normalized = sql.toLowerCase(Locale.ROOT)
+                .replaceAll("cast\\(\\?\\s+as\\s+\\w+(\\(\\d+(,\\s*\\d+)?\\))?\\)", "?")
+                .replaceAll("\\b\\w+\\.(?=[a-z_])", "")
+                .replaceAll("\\s+", " ");
+        normalized = ALIAS.matcher(normalized).replaceAll("$1 $2");
+        List<String> clauses = new ArrayList<>();
+        Matcher where = WHERE.matcher(normalized);
+        while (where.find()) {
+            int end = where.end();
+            int depth = 0;
+            while (end < normalized.length()) {
+                char c = normalized.charAt(end);
+                if (c == '(') {
+                    depth++;
+                } else if (c == ')') {
+                    if (depth == 0) {
+                        break;
+                    }
+                    depth--;
+                } else if (depth == 0 && CLAUSE_END.matcher(normalized).region(end, normalized.length()).lookingAt()) {
+                    break;
+                }
+                end++;
+            }
+            clauses.add(normalized.substring(where.end(), end).replaceAll("[\\s()]", ""));
+        }
+        return clauses;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxProjectionRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryPlanGuardTest {
+
+    private static final String SAMPLE = "SELECT tag_id, epc, site_id, ref_code, location_id FROM rfid_tx LIMIT 1";
+    private static final Timestamp TO = Timestamp.valueOf(LocalDateTime.of(2023, 8, 1, 12, 0));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QueryPlanGuard queryPlanGuard;
+
+    @BeforeEach
+    public void setUp() {
+        when(meterRegistryProvider.getIfAvailable(any())).thenReturn(meterRegistry);
+        queryPlanGuard = new QueryPlanGuard(jdbcTemplate, meterRegistryProvider);
+        ReflectionTestUtils.setField(queryPlanGuard, "enabled", true);
+        ReflectionTestUtils.setField(queryPlanGuard, "minRows", 10000L);
+    }
+
+    @Test
+    public void testCheck_CatchAllFilterScansTheTable_Flagged() {
+        givenStoredRead();
+        // what MySQL answers when (? IS NULL OR rt.epc = ?) keeps the optimizer off the indexes
+        givenPlans(250_000L);
+
+        List<QueryPlanGuard.QueryPlan> plans = queryPlanGuard.check();
+
+        Set<String> flagged = plans.stream().filter(plan -> !plan.fullScans().isEmpty())
+                .map(QueryPlanGuard.QueryPlan::query).collect(Collectors.toSet());
+        assertTrue(flagged.contains("findByCriteria(epc, dates)"));
+        assertTrue(flagged.contains("findByCriteria(dates)"));
+        assertTrue(flagged.contains("findTagsMatching"));
+        assertTrue(flagged.contains("ReadBurstRepository.deleteMatching"));
+        assertFalse(flagged.contains("findByEpc"));
+        assertFalse(flagged.contains("findProjection(epc)"));
+        assertEquals(List.of("rfid_tx ALL ~250000 rows"), plans.stream()
+                .filter(plan -> plan.query().equals("findByCriteria(dates)")).findFirst().orElseThrow().fullScans());
+        assertEquals(flagged.size(), meterRegistry.get("rfid.query.plan.full-scans").gauge().value());
+    }
+
+    @Test
+    public void testRun_FullScanAndFailOnFullScan_StopsTheStartup() {
+        ReflectionTestUtils.setField(queryPlanGuard, "failOnFullScan", true);
+        givenStoredRead();
+        givenPlans(250_000L);
+
+        assertThrows(IllegalStateException.class, () -> queryPlanGuard.run(null));
+    }
+
+    @Test
+    public void testRun_FullScanOfSmallTable_NotFlagged() {
+        ReflectionTestUtils.setField(queryPlanGuard, "failOnFullScan", true);
+        givenStoredRead();
+        givenPlans(500L);
+
+        queryPlanGuard.run(null);
+
+        assertEquals(0, meterRegistry.get("rfid.query.plan.full-scans").gauge().value());
+    }
+
+    @Test
+    public void testCheck_EmptyTable_Skipped() {
+        when(jdbcTemplate.queryForList(SAMPLE)).thenReturn(List.of());
+
+        assertTrue(queryPlanGuard.check().isEmpty());
+        verify(jdbcTemplate, never()).queryForList(startsWith("EXPLAIN "), any(Object[].class));
+    }
+
+    @Test
+    public void testShapes_EveryRepositoryQueryHasOne() {
+        Set<String> shapes = QueryPlanGuard.shapes("tag", "epc", 1L, 2L, 3L, TO, TO).keySet().stream()
+                .map(query -> query.replaceAll("\\(.*\\)$", "")).collect(Collectors.toSet());
+
+        for (Class<?> repository : List.of(RfidTxRepository.class, RfidTxProjectionRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                if (!method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+                    assertTrue(shapes.contains(method.getName()), "No query plan shape for " + method.getName());
+                }
+            }
+        }
+        for (Method method : ReadBurstRepository.class.getDeclaredMethods()) {
+            if (!method.isDefault() && !Modifier.isStatic(method.getModifiers())) {
+                assertTrue(shapes.contains("ReadBurstRepository." + method.getName()), "No query plan shape for " + method.getName());
+            }
+        }
+    }
+
+    @Test
+    public void testShapes_OneParameterPerPlaceholder() {
+        for (Map.Entry<String, Object[]> shape : QueryPlanGuard.shapes("tag", "epc", 1L, 2L, 3L, TO, TO).entrySet()) {
+            String sql = (String) shape.getValue()[0];
+            assertEquals(sql.chars().filter(c -> c == '?').count(), shape.getValue().length - 1, shape.getKey());
+            assertFalse(sql.matches(".*:\\w+.*"), shape.getKey());
+        }
+    }
+
+    @Test
+    public void testShapes_QueriesAsTheyRun() {
+        Map<String, Object[]> shapes = QueryPlanGuard.shapes("tag", "epc", 1L, 2L, 3L, TO, TO);
+
+        // the JPQL catch-all filters are explained as such, bound with null when the service passes no value
+        assertArrayEquals(new Object[]{"SELECT * FROM rfid_tx rt WHERE (? IS NULL OR rt.epc = ?) AND (? IS NULL OR rt.tag_id = ?)"
+                + " AND (? IS NULL OR rt.scan_date >= ?) AND (? IS NULL OR rt.scan_date <= ?)",
+                "epc", "epc", null, null, TO, TO, TO, TO}, shapes.get("findByCriteria(epc, dates)"));
+        // native queries as annotated
+        assertArrayEquals(new Object[]{"DELETE FROM rfid_tx WHERE scan_date < ? ORDER BY scan_date, tag_id, epc LIMIT ?", TO, 1000},
+                shapes.get("deleteOldest"));
+        assertTrue(((String) shapes.get("ReadBurstRepository.findLatestScans")[0]).contains("FROM read_burst b"));
+    }
+
+    private void givenStoredRead() {
+        when(jdbcTemplate.queryForList(SAMPLE)).thenReturn(List.of(
+                Map.of("tag_id", new byte[8], "epc", new byte[12], "site_id", 1L, "ref_code", 12345L, "location_id", 7L)));
+        when(jdbcTemplate.queryForObject("SELECT MAX(scan_date) FROM rfid_tx", Timestamp.class)).thenReturn(TO);
+    }
+
+    // the plan of a catch-all filter reads the whole table, the other queries use an index range
+    private void givenPlans(long tableRows) {
+        when(jdbcTemplate.queryForList(startsWith("EXPLAIN "), any(Object[].class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            boolean catchAll = sql.contains("(? IS NULL OR");
+            return List.of(Map.of("table", sql.contains("read_burst") && !sql.contains("rfid_tx") ? "read_burst" : "rfid_tx",
+                    "type", catchAll ? "ALL" : "range", "rows", catchAll ? tableRows : 40L));
+        });
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.LatestEPC;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Perf.DatasetSpec;
+import com.example.demoRFID.Perf.SyntheticDatasetBuilder;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compacts reads with ReadBurstService on an embedded H2 database in MySQL mode and reads the latest location back
+ * through the burst queries, so the location arbitration survives the compaction of its window.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:rfid_compaction;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ReadBurstService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReadBurstCompactionTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2024, 7, 1, 10, 0);
+
+    @Autowired
+    private ReadBurstService readBurstService;
+
+    @Autowired
+    private ReadBurstRepository readBurstRepository;
+
+    @Autowired
+    private RfidTxRepository rfidTxRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final DatasetSpec spec = new DatasetSpec();
+
+    @BeforeAll
+    public void seed() {
+        spec.setSites(1);
+        spec.setLocationsPerSite(2);
+        spec.setProducts(1);
+        spec.setTags(1);
+        new SyntheticDatasetBuilder(jdbcTemplate).buildReferenceData(spec);
+    }
+
+    @Test
+    public void testCompactTag_WindowWithALoserRead_LatestLocationStaysTheWinner() {
+        String tagId = SyntheticDatasetBuilder.tagId(0);
+        String epc = SyntheticDatasetBuilder.epc(0);
+        Location dock = locationRepository.findById(SyntheticDatasetBuilder.locationId(spec, 0, 0)).orElseThrow();
+        Location neighbour = locationRepository.findById(SyntheticDatasetBuilder.locationId(spec, 0, 1)).orElseThrow();
+        // the adjacent antenna saw the tag last, but weaker, and lost the arbitration of the window
+        save(tagId, epc, SCAN_DATE, dock, "-45", true);
+        save(tagId, epc, SCAN_DATE.plusNanos(200_000_000), neighbour, "-70", false);
+
+        assertEquals(2, readBurstService.compactTag(tagId, epc, SCAN_DATE.plusHours(1)));
+
+        assertTrue(rfidTxRepository.findByEpcAndTagId(epc, tagId).orElse(List.of()).isEmpty());
+        List<Object[]> latestBursts = readBurstRepository.findLatestBurstPerTag(SCAN_DATE.minusDays(1), SCAN_DATE.plusDays(1));
+        assertEquals(1, latestBursts.size());
+        assertEquals(dock.getLocationId(), ((Number) latestBursts.get(0)[6]).longValue());
+        assertEquals(2L, ((Number) latestBursts.get(0)[7]).longValue());
+        List<LatestEPC> latestScans = readBurstService.findLatestScans(SCAN_DATE.minusDays(1), SCAN_DATE.plusDays(1), epc, null);
+        assertEquals(1, latestScans.size());
+        assertEquals(SyntheticDatasetBuilder.siteName(0) + " - " + SyntheticDatasetBuilder.locationName(0, 0),
+                latestScans.get(0).getMostRecentLocation());
+        assertEquals(2L, latestScans.get(0).getNumberOfTransactions());
+    }
+
+    private void save(String tagId, String epc, LocalDateTime scanDate, Location location, String rssi, boolean winner) {
+        RfidTx read = new RfidTx();
+        read.setTagId(tagId);
+        read.setEpc(epc);
+        read.setScanDate(scanDate);
+        read.setLocation(location);
+        read.setRssi(new BigDecimal(rssi));
+        read.setLocationWinner(winner);
+        rfidTxRepository.save(read);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.ReadBurst;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadBurstServiceTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 0);
+    private static final LocalDateTime HORIZON = SCAN_DATE.plusHours(1);
+
+    @Mock
+    private ReadBurstRepository readBurstRepository;
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Captor
+    private ArgumentCaptor<List<ReadBurst>> bursts;
+
+    private ReadBurstService readBurstService;
+    private Location dock;
+    private Location gate;
+
+    @BeforeEach
+    public void setUp() {
+        readBurstService = new ReadBurstService(readBurstRepository, rfidTxRepository, transactionManager);
+        ReflectionTestUtils.setField(readBurstService, "gapSeconds", 30L);
+        ReflectionTestUtils.setField(readBurstService, "readsPerTransaction", 100);
+        dock = location(10L);
+        gate = location(20L);
+    }
+
+    @Test
+    public void testCompactTag_ConsecutiveReadsAtOneLocationWithinTheGap_FormOneBurst() {
+        givenReads(List.of(
+                read(SCAN_DATE, dock, "-50"),
+                read(SCAN_DATE.plusSeconds(20), dock, "-40"),
+                read(SCAN_DATE.plusSeconds(50), dock, null)));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.empty());
+
+        assertEquals(3, readBurstService.compactTag("TAG001", "EPC001", HORIZON));
+
+        verify(readBurstRepository).saveAll(bursts.capture());
+        assertEquals(1, bursts.getValue().size());
+        ReadBurst burst = bursts.getValue().get(0);
+        assertSame(dock, burst.getLocation());
+        assertEquals(SCAN_DATE, burst.getFirstSeen());
+        assertEquals(SCAN_DATE.plusSeconds(50), burst.getLastSeen());
+        assertEquals(3L, burst.getReadCount());
+        assertEquals(new BigDecimal("-50"), burst.getMinRssi());
+        assertEquals(new BigDecimal("-40"), burst.getMaxRssi());
+        assertEquals(new BigDecimal("-90"), burst.getRssiSum());
+        verify(rfidTxRepository).deleteCompacted("TAG001", "EPC001", SCAN_DATE.plusSeconds(50));
+    }
+
+    @Test
+    public void testCompactTag_GapExceededOrLocationChanged_StartsANewBurst() {
+        givenReads(List.of(
+                read(SCAN_DATE, dock, "-50"),
+                read(SCAN_DATE.plusSeconds(31), dock, "-50"),
+                read(SCAN_DATE.plusSeconds(32), gate, "-60"),
+                read(SCAN_DATE.plusSeconds(33), dock, "-70")));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.empty());
+
+        readBurstService.compactTag("TAG001", "EPC001", HORIZON);
+
+        verify(readBurstRepository).saveAll(bursts.capture());
+        List<ReadBurst> saved = bursts.getValue();
+        assertEquals(4, saved.size());
+        assertEquals(List.of(SCAN_DATE, SCAN_DATE.plusSeconds(31), SCAN_DATE.plusSeconds(32), SCAN_DATE.plusSeconds(33)),
+                saved.stream().map(ReadBurst::getFirstSeen).toList());
+        assertSame(gate, saved.get(2).getLocation());
+        assertTrue(saved.stream().allMatch(burst -> burst.getReadCount() == 1L));
+    }
+
+    @Test
+    public void testCompactTag_ReadThatLostTheArbitration_MergedIntoALoserBurst() {
+        RfidTx loser = read(SCAN_DATE.plusSeconds(5), gate, "-70");
+        loser.setLocationWinner(false);
+        givenReads(List.of(
+                read(SCAN_DATE, dock, "-50"),
+                loser,
+                read(SCAN_DATE.plusSeconds(10), dock, "-40")));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.empty());
+
+        assertEquals(3, readBurstService.compactTag("TAG001", "EPC001", HORIZON));
+
+        verify(readBurstRepository).saveAll(bursts.capture());
+        List<ReadBurst> saved = bursts.getValue();
+        assertEquals(2, saved.size());
+        // the losing read neither interrupts the burst at the dock nor joins it
+        assertSame(dock, saved.get(0).getLocation());
+        assertEquals(2L, saved.get(0).getReadCount());
+        assertEquals(SCAN_DATE.plusSeconds(10), saved.get(0).getLastSeen());
+        assertNotEquals(Boolean.FALSE, saved.get(0).getLocationWinner());
+        assertSame(gate, saved.get(1).getLocation());
+        assertEquals(1L, saved.get(1).getReadCount());
+        assertEquals(Boolean.FALSE, saved.get(1).getLocationWinner());
+    }
+
+    @Test
+    public void testCompactTag_ReadContinuingTheLatestBurst_ExtendsIt() {
+        ReadBurst latest = new ReadBurst();
+        latest.setBurstId(7L);
+        latest.setTagId("TAG001");
+        latest.setEpc("EPC001");
+        latest.setLocation(dock);
+        latest.setFirstSeen(SCAN_DATE.minusMinutes(5));
+        latest.setLastSeen(SCAN_DATE.minusSeconds(10));
+        latest.setReadCount(40L);
+        latest.setMinRssi(new BigDecimal("-55"));
+        latest.setMaxRssi(new BigDecimal("-45"));
+        latest.setRssiSum(new BigDecimal("-2000"));
+        givenReads(List.of(read(SCAN_DATE, dock, "-65")));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.of(latest));
+
+        readBurstService.compactTag("TAG001", "EPC001", HORIZON);
+
+        verify(readBurstRepository).saveAll(bursts.capture());
+        assertEquals(List.of(latest), bursts.getValue());
+        assertEquals(SCAN_DATE.minusMinutes(5), latest.getFirstSeen());
+        assertEquals(SCAN_DATE, latest.getLastSeen());
+        assertEquals(41L, latest.getReadCount());
+        assertEquals(new BigDecimal("-65"), latest.getMinRssi());
+        assertEquals(new BigDecimal("-2065"), latest.getRssiSum());
+    }
+
+    @Test
+    public void testCompactTag_ReadOlderThanTheLatestBurst_IsNotMergedIntoIt() {
+        ReadBurst latest = new ReadBurst();
+        latest.setLocation(dock);
+        latest.setFirstSeen(SCAN_DATE);
+        latest.setLastSeen(SCAN_DATE.plusSeconds(10));
+        latest.setReadCount(2L);
+        latest.setRssiSum(new BigDecimal("-100"));
+        givenReads(List.of(read(SCAN_DATE.plusSeconds(5), dock, "-50")));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.of(latest));
+
+        readBurstService.compactTag("TAG001", "EPC001", HORIZON);
+
+        verify(readBurstRepository).saveAll(bursts.capture());
+        assertEquals(2, bursts.getValue().size());
+        assertEquals(2L, latest.getReadCount());
+        assertEquals(SCAN_DATE.plusSeconds(5), bursts.getValue().get(1).getFirstSeen());
+    }
+
+    @Test
+    public void testCompactTag_FullChunk_CompactsTheNextOneInItsOwnTransaction() {
+        ReflectionTestUtils.setField(readBurstService, "readsPerTransaction", 2);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc("TAG001", "EPC001", HORIZON, PageRequest.of(0, 2)))
+                .thenReturn(List.of(read(SCAN_DATE, dock, "-50"), read(SCAN_DATE.plusSeconds(1), dock, "-50")),
+                        List.of(read(SCAN_DATE.plusSeconds(2), dock, "-50")));
+        when(readBurstRepository.findFirstByTagIdAndEpcOrderByLastSeenDesc("TAG001", "EPC001")).thenReturn(Optional.empty());
+
+        assertEquals(3, readBurstService.compactTag("TAG001", "EPC001", HORIZON));
+
+        verify(transactionManager, times(2)).commit(any());
+        verify(rfidTxRepository).deleteCompacted("TAG001", "EPC001", SCAN_DATE.plusSeconds(1));
+        verify(rfidTxRepository).deleteCompacted("TAG001", "EPC001", SCAN_DATE.plusSeconds(2));
+    }
+
+    @Test
+    public void testCompactTag_NoReadBeforeTheHorizon_WritesNothing() {
+        givenReads(List.of());
+
+        assertEquals(0, readBurstService.compactTag("TAG001", "EPC001", HORIZON));
+
+        verifyNoInteractions(readBurstRepository);
+        verify(rfidTxRepository, never()).deleteCompacted(any(), any(), any());
+    }
+
+    private void givenReads(List<RfidTx> reads) {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.findByTagIdAndEpcAndScanDateBeforeOrderByScanDateAsc("TAG001", "EPC001", HORIZON, PageRequest.of(0, 100)))
+                .thenReturn(reads);
+    }
+
+    private RfidTx read(LocalDateTime scanDate, Location location, String rssi) {
+        RfidTx read = new RfidTx();
+        read.setTagId("TAG001");
+        read.setEpc("EPC001");
+        read.setScanDate(scanDate);
+        read.setLocation(location);
+        read.setRssi(rssi == null ? null : new BigDecimal(rssi));
+        return read;
+    }
+
+    private Location location(Long locationId) {
+        Location location = new Location();
+        location.setLocationId(locationId);
+        return location;
+    }
+}
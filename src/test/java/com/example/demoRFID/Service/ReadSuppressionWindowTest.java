@@ -0,0 +1,78 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.RfidTx;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReadSuppressionWindowTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 0);
+
+    private ReadSuppressionWindow readSuppressionWindow;
+    private RfidTx stored;
+
+    @BeforeEach
+    public void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()));
+        readSuppressionWindow = new ReadSuppressionWindow(beanFactory.getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(readSuppressionWindow, "windowMs", 1000L);
+        ReflectionTestUtils.setField(readSuppressionWindow, "maxEntries", 100);
+
+        stored = new RfidTx();
+        stored.setTagId("TAG123");
+        stored.setEpc("EPC123");
+        stored.setScanDate(SCAN_DATE);
+        stored.setRefCode(12345L);
+        readSuppressionWindow.record("SITENAME", "DOCK", stored);
+    }
+
+    @Test
+    public void testTrySuppress_SameKeyInsideTheWindow_ReturnsTheStoredRead() {
+        Optional<RfidTx> suppressedBy = readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "DOCK",
+                SCAN_DATE.plusNanos(500_000_000), new BigDecimal("-51.5"));
+
+        assertEquals(Optional.of(stored), suppressedBy);
+    }
+
+    @Test
+    public void testTrySuppress_RepeatWithAnotherRefCodeOrLocation_IsNotSuppressed() {
+        LocalDateTime repeat = SCAN_DATE.plusNanos(500_000_000);
+
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 99999L, "SITENAME", "DOCK", repeat, null).isEmpty());
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "YARD", repeat, null).isEmpty());
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "OTHERSITE", "DOCK", repeat, null).isEmpty());
+    }
+
+    @Test
+    public void testTrySuppress_AfterTheWindow_IsNotSuppressed() {
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "DOCK",
+                SCAN_DATE.plusSeconds(1), null).isEmpty());
+    }
+
+    @Test
+    public void testEvict_DeletedRead_NoLongerSuppressesTheNextRead() {
+        readSuppressionWindow.evict("tag123", "epc123");
+
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "DOCK",
+                SCAN_DATE.plusNanos(500_000_000), null).isEmpty());
+    }
+
+    @Test
+    public void testTrySuppress_Disabled_IsNeverSuppressed() {
+        ReflectionTestUtils.setField(readSuppressionWindow, "windowMs", 0L);
+
+        assertTrue(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "DOCK",
+                SCAN_DATE.plusNanos(500_000_000), null).isEmpty());
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.ProductSiteReads;
+import com.example.demoRFID.Model.ReportSnapshot;
+import com.example.demoRFID.Model.RssiTrend;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReportingServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 8, 1);
+    // CSV of RfidTxDayExporter per scan day, not backfilled reads have no site_id and ref_code
+    private static final Map<LocalDate, List<String>> READS = Map.of(
+            DAY, List.of(
+                    "TAG001,EPC001,2023-08-01 10:00:00.000000,10,-50.00,true,1,12345",
+                    "TAG001,EPC001,2023-08-01 10:01:00.000000,10,-60.00,true,1,12345",
+                    "TAG002,EPC002,2023-08-01 11:00:00.000000,20,-40.00,true,2,67890"),
+            DAY.plusDays(1), List.of(
+                    "TAG002,EPC002,2023-08-02 09:00:00.000000,20,-70.00,,,"));
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private RfidTxDayExporter rfidTxDayExporter;
+
+    @Mock
+    private RfidTxArchiveService rfidTxArchiveService;
+
+    @TempDir
+    Path tempDir;
+
+    private JdbcTemplate jdbcTemplate;
+    private ReportingService reportingService;
+    private ReportingService otherInstance;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:rfid_reporting;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE site (site_id BIGINT PRIMARY KEY, site_name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE location (location_id BIGINT PRIMARY KEY, location_name VARCHAR(255), site_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE product (ref_code BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE rfid (tag_id BIGINT, epc VARBINARY(12), ref_code BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE job_lock (name VARCHAR(64) PRIMARY KEY, locked_until TIMESTAMP(6), locked_by VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO job_lock VALUES ('reporting-snapshot', '1970-01-01 00:00:00', NULL)");
+        jdbcTemplate.update("INSERT INTO site VALUES (1, 'SITE1'), (2, 'SITE..TWO')");
+        jdbcTemplate.update("INSERT INTO location VALUES (10, 'DOCK', 1), (20, 'GATE', 2)");
+        jdbcTemplate.update("INSERT INTO product VALUES (12345, 'SHIRT'), (67890, 'SHOE')");
+        jdbcTemplate.update("INSERT INTO rfid VALUES (?, ?, 12345), (?, ?, 67890)",
+                RfidKeyCodec.encodeTagId("TAG001"), RfidKeyCodec.encodeEpc("EPC001"),
+                RfidKeyCodec.encodeTagId("TAG002"), RfidKeyCodec.encodeEpc("EPC002"));
+
+        reportingService = newInstance();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reportingService.close();
+        if (otherInstance != null) {
+            otherInstance.close();
+        }
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    // an instance sharing the database and the snapshot location
+    private ReportingService newInstance() {
+        ReportingService instance = new ReportingService(rfidTxRepository, rfidTxDayExporter, rfidTxArchiveService, jdbcTemplate);
+        ReflectionTestUtils.setField(instance, "enabled", true);
+        ReflectionTestUtils.setField(instance, "location", tempDir.resolve("reporting").toString());
+        ReflectionTestUtils.setField(instance, "refreshDays", 2);
+        ReflectionTestUtils.setField(instance, "memoryLimit", "");
+        ReflectionTestUtils.setField(instance, "threads", 0);
+        ReflectionTestUtils.setField(instance, "s3Region", "");
+        ReflectionTestUtils.setField(instance, "readerUrl", "");
+        ReflectionTestUtils.setField(instance, "lockAtMostMs", 60_000L);
+        return instance;
+    }
+
+    @Test
+    public void testGetReadsPerProductPerSite_NoSnapshotYet_ThrowsResourceNotFoundException() {
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> reportingService.getReadsPerProductPerSite(null, "2023-08-01 00:00:00", "2023-08-02 23:59:59"));
+
+        assertEquals(ErrorMessage.REPORT_SNAPSHOT_NOT_READY.getMessage(), exception.getMessage());
+    }
+
+    @Test
+    public void testGetReadsPerProductPerSite_CountsReadsAndTagsPerSiteAndProduct() throws Exception {
+        takeSnapshot();
+
+        List<ProductSiteReads> report = reportingService.getReadsPerProductPerSite(null, "2023-08-01 00:00:00", "2023-08-02 23:59:59");
+
+        assertEquals(2, report.size());
+        // not backfilled reads take the site of their location and the product of their tag
+        assertEquals(new ProductSiteReads("SITE..TWO", 67890L, "SHOE", 2, 1, -55.0), report.get(0));
+        assertEquals(new ProductSiteReads("SITE1", 12345L, "SHIRT", 2, 1, -55.0), report.get(1));
+    }
+
+    @Test
+    public void testGetRssiTrend_GroupsThePeriodsOfOneSite() throws Exception {
+        takeSnapshot();
+
+        List<RssiTrend> trend = reportingService.getRssiTrend("Day", "site two", null, "2023-08-01 00:00:00", "2023-08-02 23:59:59");
+
+        assertEquals(List.of(
+                new RssiTrend(DAY, "SITE..TWO", 1, -40.0, -40.0, -40.0),
+                new RssiTrend(DAY.plusDays(1), "SITE..TWO", 1, -70.0, -70.0, -70.0)), trend);
+    }
+
+    @Test
+    public void testGetRssiTrend_ProductAndRangeWithoutReads_ThrowsResourceNotFoundException() throws Exception {
+        takeSnapshot();
+
+        ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class,
+                () -> reportingService.getRssiTrend("month", null, "12345", "2023-08-02 00:00:00", "2023-08-02 23:59:59"));
+
+        assertEquals(ErrorMessage.REPORT_NOT_FOUND.format("2023-08-02 00:00:00", "2023-08-02 23:59:59"), exception.getMessage());
+    }
+
+    @Test
+    public void testGetRssiTrend_UnknownGranularity_ThrowsInvalidInputException() {
+        assertThrows(InvalidInputException.class,
+                () -> reportingService.getRssiTrend("hour", null, null, "2023-08-01 00:00:00", "2023-08-02 23:59:59"));
+    }
+
+    @Test
+    public void testGetSnapshot_DescribesTheCopiedDays() throws Exception {
+        takeSnapshot();
+
+        ReportSnapshot snapshot = reportingService.getSnapshot();
+
+        assertEquals(DAY, snapshot.getFirstDay());
+        assertEquals(DAY.plusDays(1), snapshot.getLastDay());
+        assertEquals(4, snapshot.getReads());
+    }
+
+    @Test
+    public void testReports_RunInParallelOnTheirOwnConnections() throws Exception {
+        takeSnapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Integer>> reports = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                reports.add(() -> reportingService.getReadsPerProductPerSite(null, "2023-08-01 00:00:00", "2023-08-02 23:59:59").size());
+                reports.add(() -> reportingService.getRssiTrend("week", null, null, "2023-08-01 00:00:00", "2023-08-02 23:59:59").size());
+            }
+            for (Future<Integer> report : executor.invokeAll(reports)) {
+                assertEquals(2, report.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testAttach_OtherInstance_ReportsFromThePublishedSnapshotWithoutCopying() throws Exception {
+        takeSnapshot();
+        otherInstance = newInstance();
+
+        otherInstance.attach();
+
+        assertEquals(reportingService.getSnapshot(), otherInstance.getSnapshot());
+        assertEquals(2, otherInstance.getReadsPerProductPerSite(null, "2023-08-01 00:00:00", "2023-08-02 23:59:59").size());
+        // both days copied once, by the first instance
+        verify(rfidTxDayExporter, times(2)).exportDay(any(), any());
+    }
+
+    @Test
+    public void testSnapshot_LeaseHeldByAnotherInstance_NothingCopied() throws Exception {
+        jdbcTemplate.update("UPDATE job_lock SET locked_until = ?, locked_by = 'other' WHERE name = 'reporting-snapshot'",
+                Timestamp.valueOf(LocalDateTime.now().plusMinutes(5)));
+
+        reportingService.snapshot();
+
+        verifyNoInteractions(rfidTxDayExporter, rfidTxRepository);
+        assertThrows(ResourceNotFoundException.class, () -> reportingService.getSnapshot());
+    }
+
+    @Test
+    public void testSnapshot_NextRunOnAnotherInstance_RefreshesFromThePublishedLastDay() throws Exception {
+        takeSnapshot();
+        otherInstance = newInstance();
+        ReflectionTestUtils.setField(otherInstance, "refreshDays", 1);
+        clearInvocations(rfidTxDayExporter);
+
+        otherInstance.snapshot();
+
+        verify(rfidTxDayExporter).exportDay(eq(DAY.plusDays(1)), any());
+        verify(rfidTxDayExporter, never()).exportDay(eq(DAY), any());
+        assertEquals(4, otherInstance.getSnapshot().getReads());
+    }
+
+    // snapshot of READS, both days copied by the first run
+    private void takeSnapshot() throws Exception {
+        when(rfidTxArchiveService.archivedBefore()).thenReturn(null);
+        when(rfidTxArchiveService.archiveFiles()).thenReturn(tempDir.resolve("archive") + "/*/*/*.parquet");
+        when(rfidTxRepository.findMinScanDate()).thenReturn(DAY.atTime(10, 0));
+        when(rfidTxRepository.findMaxScanDate()).thenReturn(DAY.plusDays(1).atTime(9, 0));
+        when(rfidTxDayExporter.exportDay(any(), any())).thenAnswer(invocation -> {
+            List<String> rows = READS.getOrDefault(invocation.<LocalDate>getArgument(0), List.of());
+            Files.writeString(invocation.getArgument(1), RfidTxDayExporter.COLUMNS.replace(" ", "") + "\n"
+                    + String.join("\n", rows) + "\n");
+            long[] readsPerHour = new long[24];
+            readsPerHour[0] = rows.size();
+            return new RfidTxDayExporter.DayExport(readsPerHour, 0L);
+        });
+        reportingService.snapshot();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Request.RfidBatchRequest;
+import com.example.demoRFID.Model.Request.RfidRequest;
+import com.example.demoRFID.Model.RfidBatchResult;
+import com.example.demoRFID.Repository.RfidRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.example.demoRFID.Constants.REFCODE_LENGTH;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidServiceTest {
+
+    @Mock
+    private RfidRepository rfidRepository;
+
+    @Mock
+    private ProductService productService;
+
+    @Mock
+    private ProductGtinCache productGtinCache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RfidService rfidService;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rfidService, "maxBatch", 100);
+        ReflectionTestUtils.setField(rfidService, "chunkSize", 2);
+    }
+
+    private static RfidRequest tag(String tagId, String epc, String refCode) {
+        RfidRequest request = new RfidRequest();
+        request.setTagId(tagId);
+        request.setEpc(epc);
+        request.setRefCode(refCode);
+        return request;
+    }
+
+    @Test
+    public void testIsRefCodeValidForTagIdAndEpc_GtinOfAnotherProduct_RejectedWithoutQuery() {
+        when(productGtinCache.findRefCode(anyLong())).thenReturn(Optional.of(22222L));
+
+        assertFalse(rfidService.isRefCodeValidForTagIdAndEpc("TAG001", "3074257BF7194E4000001A85", "11111"));
+        verifyNoInteractions(rfidRepository);
+    }
+
+    @Test
+    public void testIsRefCodeValidForTagIdAndEpc_GtinOfTheProduct_StillCheckedAgainstTheRegistration() {
+        // the tag was registered to another product before this one got the GTIN
+        when(productGtinCache.findRefCode(anyLong())).thenReturn(Optional.of(22222L));
+        when(rfidRepository.existsByTagIdAndEpcAndRefCode("TAG001", "3074257BF7194E4000001A85", "22222")).thenReturn(false);
+
+        assertFalse(rfidService.isRefCodeValidForTagIdAndEpc("TAG001", "3074257BF7194E4000001A85", "22222"));
+    }
+
+    @Test
+    public void testRegisterRfids_EmptyBatch_ThrowsInvalidInputException() {
+        RfidBatchRequest request = new RfidBatchRequest();
+        request.setTags(List.of());
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidService.registerRfids(request));
+
+        assertEquals(ErrorMessage.RFID_BATCH_SIZE.format(100), exception.getMessage());
+    }
+
+    @Test
+    public void testRegisterRfids_RejectsInvalidDuplicateAndUnknownTags_InsertsTheOthers() {
+        RfidBatchRequest request = new RfidBatchRequest();
+        request.setRefCode("12345");
+        request.setTags(List.of(
+                tag("tag001", "epc001", null),
+                tag("BAD", "EPC002", null),
+                tag("TAG001", "EPC001", null),
+                tag("TAG003", "EPC003", "54321"),
+                tag("TAG004", "EPC004", null),
+                tag("TAG005", "EPC005", "123")));
+        when(productService.findExistingRefCodes(anyCollection())).thenReturn(Set.of(12345L));
+        when(rfidRepository.findKeysByTagIdIn(anyCollection())).thenAnswer(invocation ->
+                invocation.<List<String>>getArgument(0).contains("TAG004")
+                        ? List.<Object[]>of(new Object[]{"TAG004", "EPC004"})
+                        : List.of());
+        List<List<?>> inserted = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    inserted.add(invocation.getArgument(1));
+                    return new int[0][];
+                });
+
+        RfidBatchResult result = rfidService.registerRfids(request);
+
+        assertEquals(1, result.getRegistered());
+        assertEquals(5, result.getRejected());
+        assertEquals(List.of(1, 2, 3, 4, 5), result.getRejections().stream().map(RfidBatchResult.Rejection::getIndex).toList());
+        assertEquals(ErrorMessage.TAG_ID_FORMAT.getMessage(), result.getRejections().get(0).getReason());
+        assertEquals(ErrorMessage.RFID_BATCH_DUPLICATE.getMessage(), result.getRejections().get(1).getReason());
+        assertEquals(ErrorMessage.PRODUCT_NOT_FOUND.format(54321L), result.getRejections().get(2).getReason());
+        assertEquals(ErrorMessage.RFID_ALREADY_EXISTS.format("TAG004", "EPC004"), result.getRejections().get(3).getReason());
+        assertEquals(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH), result.getRejections().get(4).getReason());
+        assertEquals(1, inserted.size());
+        assertEquals(1, inserted.get(0).size());
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Repository.RfidRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxArchiveServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2023, 8, 1);
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private RfidRepository rfidRepository;
+
+    @Mock
+    private LocationRepository locationRepository;
+
+    @Mock
+    private RfidTxBackfillService rfidTxBackfillService;
+
+    @Mock
+    private RfidTxDayExporter rfidTxDayExporter;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private RfidTxArchiveService rfidTxArchiveService;
+
+    @BeforeEach
+    public void setUp() {
+        rfidTxArchiveService = new RfidTxArchiveService(rfidTxRepository, rfidRepository, locationRepository,
+                rfidTxBackfillService, rfidTxDayExporter, transactionManager);
+        ReflectionTestUtils.setField(rfidTxArchiveService, "enabled", true);
+        ReflectionTestUtils.setField(rfidTxArchiveService, "ageDays", 90);
+        ReflectionTestUtils.setField(rfidTxArchiveService, "location", tempDir.resolve("archive").toString());
+        ReflectionTestUtils.setField(rfidTxArchiveService, "s3Region", "");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        rfidTxArchiveService.close();
+    }
+
+    @Test
+    public void testArchiveDay_WritesTheDayPerSiteAndDeletesItsHours() throws Exception {
+        exportDay(2, "TAG001,EPC001,2023-08-01 10:00:00.250000,10,-51.50,true,1,12345",
+                "TAG002,EPC002,2023-08-01 10:30:00.000000,20,,,2,");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.deleteByScanDateRange(DAY.atTime(10, 0), DAY.atTime(11, 0))).thenReturn(2);
+
+        assertEquals(2, rfidTxArchiveService.archiveDay(DAY));
+
+        assertTrue(Files.isDirectory(tempDir.resolve("archive/scan_day=" + DAY + "/site_id=1")));
+        assertTrue(Files.isDirectory(tempDir.resolve("archive/scan_day=" + DAY + "/site_id=2")));
+        verify(rfidTxRepository, times(1)).deleteByScanDateRange(any(), any());
+    }
+
+    @Test
+    public void testArchiveDay_HourWithLateReads_IsKept() throws Exception {
+        exportDay(1, "TAG001,EPC001,2023-08-01 10:00:00.250000,10,-51.50,true,1,12345");
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(rfidTxRepository.deleteByScanDateRange(DAY.atTime(10, 0), DAY.atTime(11, 0))).thenReturn(2);
+
+        assertEquals(0, rfidTxArchiveService.archiveDay(DAY));
+
+        assertTrue(status.isRollbackOnly());
+    }
+
+    @Test
+    public void testMergeArchived_AddsTheArchivedReadsOfTheRangeAndSiteOnceEach() throws Exception {
+        exportDay(3, "TAG001,EPC001,2023-08-01 10:00:00.250000,10,-51.50,true,1,12345",
+                "TAG002,EPC002,2023-08-01 10:30:00.000000,10,-60.00,,1,12345",
+                "TAG003,EPC003,2023-08-01 10:45:00.000000,20,-40.00,true,2,12345");
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.deleteByScanDateRange(DAY.atTime(10, 0), DAY.atTime(11, 0))).thenReturn(3);
+        rfidTxArchiveService.archiveDay(DAY);
+        Location dock = new Location();
+        dock.setLocationId(10L);
+        when(locationRepository.findAllById(anyIterable())).thenReturn(List.of(dock));
+        when(rfidRepository.findAllById(anyIterable())).thenReturn(List.of());
+        // still in RFID_Tx between the export and the delete
+        RfidTx hot = new RfidTx();
+        hot.setTagId("TAG002");
+        hot.setEpc("EPC002");
+        hot.setScanDate(DAY.atTime(10, 30));
+        hot.setRssi(new BigDecimal("-59.00"));
+
+        List<RfidTx> reads = rfidTxArchiveService.mergeArchived(List.of(hot), DAY.atStartOfDay(), DAY.atTime(23, 59, 59), 1L, null);
+
+        assertEquals(2, reads.size());
+        assertEquals("TAG001", reads.get(0).getTagId());
+        assertEquals(LocalDateTime.of(2023, 8, 1, 10, 0, 0, 250_000_000), reads.get(0).getScanDate());
+        assertEquals(0, new BigDecimal("-51.50").compareTo(reads.get(0).getRssi()));
+        assertEquals(Boolean.TRUE, reads.get(0).getLocationWinner());
+        assertEquals(1L, reads.get(0).getSiteId());
+        assertSame(dock, reads.get(0).getLocation());
+        assertSame(hot, reads.get(1));
+    }
+
+    @Test
+    public void testMergeArchived_NoArchiveFiles_ReturnsTheHotReads() {
+        List<RfidTx> hot = List.of(new RfidTx());
+
+        assertSame(hot, rfidTxArchiveService.mergeArchived(hot, DAY.atStartOfDay(), DAY.atTime(23, 59, 59), null, null));
+
+        verifyNoInteractions(rfidRepository, locationRepository);
+    }
+
+    // the export of the day, every read at 10:00-11:00
+    private void exportDay(long reads, String... rows) throws Exception {
+        long[] readsPerHour = new long[24];
+        readsPerHour[10] = reads;
+        when(rfidTxDayExporter.exportDay(eq(DAY), any())).thenAnswer(invocation -> {
+            Path csv = invocation.getArgument(1);
+            Files.writeString(csv, RfidTxDayExporter.COLUMNS.replace(" ", "") + "\n" + String.join("\n", rows) + "\n");
+            return new RfidTxDayExporter.DayExport(readsPerHour, 42L);
+        });
+    }
+}
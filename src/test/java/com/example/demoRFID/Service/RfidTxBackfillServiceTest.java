@@ -0,0 +1,79 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Repository.RfidTxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxBackfillServiceTest {
+
+    private static final LocalDateTime SCAN_DATE = LocalDateTime.of(2023, 8, 1, 10, 0);
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RfidTxBackfillService rfidTxBackfillService;
+
+    @BeforeEach
+    public void setUp() {
+        when(meterRegistryProvider.getIfAvailable(any())).thenReturn(meterRegistry);
+        rfidTxBackfillService = new RfidTxBackfillService(rfidTxRepository, meterRegistryProvider);
+        ReflectionTestUtils.setField(rfidTxBackfillService, "enabled", true);
+        ReflectionTestUtils.setField(rfidTxBackfillService, "chunkMinutes", 60L);
+    }
+
+    @Test
+    public void testBackfill_OnlyUnfillableReadsLeft_IsCompleteAndCountsThem() {
+        // a read at a location without site stays without siteId after its chunk
+        when(rfidTxRepository.findMinScanDateToBackfill(any())).thenReturn(SCAN_DATE, SCAN_DATE, null);
+        when(rfidTxRepository.backfillSiteAndRefCode(SCAN_DATE, SCAN_DATE.plusHours(1))).thenReturn(5);
+        when(rfidTxRepository.countLeftToBackfill()).thenReturn(List.<Object[]>of(new Object[]{2L, 2L}));
+
+        rfidTxBackfillService.backfill();
+
+        assertTrue(rfidTxBackfillService.isComplete());
+        assertEquals(2L, rfidTxBackfillService.getUnfillable());
+        assertEquals(2.0, meterRegistry.get("rfid.backfill.unfillable").gauge().value());
+    }
+
+    @Test
+    public void testBackfill_FillableReadsWrittenDuringTheRun_NotCompleteUntilTheNextRun() {
+        when(rfidTxRepository.findMinScanDateToBackfill(any())).thenReturn(SCAN_DATE, SCAN_DATE, null);
+        when(rfidTxRepository.countLeftToBackfill()).thenReturn(List.<Object[]>of(new Object[]{3L, 1L}));
+
+        rfidTxBackfillService.backfill();
+
+        assertFalse(rfidTxBackfillService.isComplete());
+        assertEquals(1L, rfidTxBackfillService.getUnfillable());
+    }
+
+    @Test
+    public void testBackfill_EveryReadFilled_IsComplete() {
+        when(rfidTxRepository.findMinScanDateToBackfill(any())).thenReturn(SCAN_DATE, null, null);
+
+        rfidTxBackfillService.backfill();
+
+        assertTrue(rfidTxBackfillService.isComplete());
+        assertEquals(0L, rfidTxBackfillService.getUnfillable());
+        verify(rfidTxRepository, never()).countLeftToBackfill();
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.Request.RfidTxBulkRequest;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.RfidTxBulkResult;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxBulkServiceTest {
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private ReadBurstRepository readBurstRepository;
+
+    @Mock
+    private SiteService siteService;
+
+    @Mock
+    private LocationService locationService;
+
+    @Mock
+    private CurrentLocationIndex currentLocationIndex;
+
+    @Mock
+    private ReadSuppressionWindow readSuppressionWindow;
+
+    @Mock
+    private LocationArbiter locationArbiter;
+
+    @InjectMocks
+    private RfidTxBulkService rfidTxBulkService;
+
+    private Site site;
+    private Location location;
+    private RfidTxBulkRequest request;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rfidTxBulkService, "chunkRows", 2);
+        site = new Site();
+        site.setSiteId(1L);
+        site.setSiteName("SITE1");
+        location = new Location();
+        location.setLocationId(10L);
+        location.setLocationName("DOCK");
+        location.setSite(site);
+
+        request = new RfidTxBulkRequest();
+        request.setSiteName("site1");
+        request.setLocationName("dock");
+        request.setStartDate("2023-08-01 10:00:00");
+        request.setEndDate("2023-08-01 11:59:59");
+    }
+
+    @Test
+    public void testDeleteRfidTx_NoSiteNorEpc_ThrowsInvalidInputException() {
+        request.setSiteName(null);
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidTxBulkService.deleteRfidTx(request));
+
+        assertEquals(ErrorMessage.BULK_FILTER_REQUIRED.getMessage(), exception.getMessage());
+        verifyNoInteractions(rfidTxRepository);
+    }
+
+    @Test
+    public void testDeleteRfidTx_DeletesChunksOfBoundedRowsAndUncountsTheReads() {
+        LocalDateTime start = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        LocalDateTime third = start.plusMinutes(30);
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+        // the third matching read starts the second chunk, which reaches the end of the range
+        when(rfidTxRepository.findScanDatesMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of(third));
+        when(rfidTxRepository.findScanDatesMatching(third, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(rfidTxRepository.findTagsMatching(any(), any(), eq(1L), eq(10L), isNull()))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 2L, new BigDecimal("-100")}));
+        when(rfidTxRepository.deleteMatching(any(), any(), eq(1L), eq(10L), isNull())).thenReturn(2);
+        when(readBurstRepository.findFirstSeenMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(readBurstRepository.findTagsMatching(start, end, end, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 40L, new BigDecimal("-2000")}));
+        when(readBurstRepository.deleteMatching(start, end, end, 1L, 10L, null)).thenReturn(1);
+
+        RfidTxBulkResult result = rfidTxBulkService.deleteRfidTx(request);
+
+        assertEquals(4, result.getReads());
+        assertEquals(1, result.getBursts());
+        assertEquals(1, result.getTags());
+        verify(rfidTxRepository).deleteMatching(start, third, 1L, 10L, null);
+        verify(rfidTxRepository).deleteMatching(third, end, 1L, 10L, null);
+        verify(currentLocationIndex).onRangeChanged("TAG001", "EPC001", start, third);
+        verify(currentLocationIndex).onRangeChanged("TAG001", "EPC001", third, end);
+        verify(currentLocationIndex, times(2)).onReadsDeleted("TAG001", "EPC001", 2L, new BigDecimal("-100"));
+        verify(currentLocationIndex).onReadsDeleted("TAG001", "EPC001", 40L, new BigDecimal("-2000"));
+        verify(readSuppressionWindow, times(3)).evict("TAG001", "EPC001");
+    }
+
+    @Test
+    public void testDeleteRfidTx_RowsSharingTheChunkStart_ChunkCoversThatScanDate() {
+        LocalDateTime start = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        LocalDateTime next = start.plusNanos(1_000);
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+        when(rfidTxRepository.findScanDatesMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of(start));
+        when(rfidTxRepository.findScanDatesMatching(next, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(rfidTxRepository.findTagsMatching(start, next, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 3L, new BigDecimal("-150")}));
+        when(rfidTxRepository.findTagsMatching(next, end, 1L, 10L, null)).thenReturn(List.of());
+        when(rfidTxRepository.deleteMatching(start, next, 1L, 10L, null)).thenReturn(3);
+        when(readBurstRepository.findFirstSeenMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(readBurstRepository.findTagsMatching(start, end, end, 1L, 10L, null)).thenReturn(List.of());
+
+        RfidTxBulkResult result = rfidTxBulkService.deleteRfidTx(request);
+
+        assertEquals(3, result.getReads());
+        assertEquals(0, result.getBursts());
+        verify(rfidTxRepository, never()).deleteMatching(next, end, 1L, 10L, null);
+        verify(readBurstRepository, never()).deleteMatching(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testDeleteRfidTx_WinnerDeleted_ElectsTheWindowAgainAmongTheReadsLeft() {
+        LocalDateTime start = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        Location gate = new Location();
+        gate.setLocationId(11L);
+        gate.setLocationName("GATE");
+        gate.setSite(site);
+        // the dock read that won the window is deleted, the gate read left lost to it
+        RfidTx loser = read(start.plusSeconds(1), gate, false);
+        LocationArbiter.Decision decision = new LocationArbiter.Decision(11L, true, loser.getScanDate(),
+                loser.getScanDate(), Set.of(11L));
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+        when(rfidTxRepository.findScanDatesMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(rfidTxRepository.findTagsMatching(start, end, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 1L, new BigDecimal("-45")}));
+        when(rfidTxRepository.deleteMatching(start, end, 1L, 10L, null)).thenReturn(1);
+        when(locationArbiter.electAgain(eq(start), eq(end.minusNanos(1_000)), any(LocationArbiter.ReadLoader.class)))
+                .thenReturn(List.of(decision));
+        when(readBurstRepository.findFirstSeenMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(readBurstRepository.findTagsMatching(start, end, end, 1L, 10L, null)).thenReturn(List.of());
+
+        RfidTxBulkResult result = rfidTxBulkService.deleteRfidTx(request);
+
+        assertEquals(1, result.getReads());
+        verify(rfidTxRepository).updateLocationWinner("TAG001", "EPC001", decision.windowStart(), decision.windowEnd(), Set.of(11L), 11L);
+        verify(currentLocationIndex).onReadsDeleted("TAG001", "EPC001", 1L, new BigDecimal("-45"));
+        InOrder order = inOrder(rfidTxRepository, currentLocationIndex);
+        order.verify(rfidTxRepository).deleteMatching(start, end, 1L, 10L, null);
+        order.verify(currentLocationIndex).onRangeChanged("TAG001", "EPC001", start, end);
+        order.verify(rfidTxRepository).updateLocationWinner(any(), any(), any(), any(), any(), any());
+        order.verify(currentLocationIndex).refresh("TAG001", "EPC001");
+    }
+
+    @Test
+    public void testDeleteRfidTx_SeveralChunks_ElectsEachTagOnceOverItsWholeRange() {
+        LocalDateTime start = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        LocalDateTime next = start.plusMinutes(30);
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+        when(rfidTxRepository.findScanDatesMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of(next));
+        when(rfidTxRepository.findScanDatesMatching(next, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(rfidTxRepository.findTagsMatching(start, next, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 2L, new BigDecimal("-90")}));
+        when(rfidTxRepository.findTagsMatching(next, end, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 1L, new BigDecimal("-45")}));
+        when(rfidTxRepository.deleteMatching(start, next, 1L, 10L, null)).thenReturn(2);
+        when(rfidTxRepository.deleteMatching(next, end, 1L, 10L, null)).thenReturn(1);
+        when(readBurstRepository.findFirstSeenMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(readBurstRepository.findTagsMatching(start, end, end, 1L, 10L, null)).thenReturn(List.of());
+
+        rfidTxBulkService.deleteRfidTx(request);
+
+        // a window crossing the chunk bound is elected once both chunks are deleted
+        InOrder order = inOrder(rfidTxRepository, locationArbiter);
+        order.verify(rfidTxRepository).deleteMatching(next, end, 1L, 10L, null);
+        order.verify(locationArbiter).electAgain(eq(start), eq(end.minusNanos(1_000)), any(LocationArbiter.ReadLoader.class));
+        verify(locationArbiter, times(1)).electAgain(any(), any(), any(LocationArbiter.ReadLoader.class));
+    }
+
+    @Test
+    public void testReassignLocation_UpdatesTheWindowsElectedAgain() {
+        LocalDateTime start = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocalDateTime end = start.plusHours(2);
+        Location gate = new Location();
+        gate.setLocationId(11L);
+        gate.setLocationName("GATE");
+        gate.setSite(site);
+        request.setNewLocationName("gate");
+        RfidTx stale = read(start.plusSeconds(1), gate, false);
+        LocationArbiter.Decision first = new LocationArbiter.Decision(11L, true, stale.getScanDate(),
+                stale.getScanDate(), Set.of(11L));
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+        when(locationService.locationNameMatchesSite("GATE", "SITE1")).thenReturn(Optional.of(gate));
+        when(rfidTxRepository.findScanDatesMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(rfidTxRepository.findTagsMatching(start, end, 1L, 10L, null))
+                .thenReturn(List.<Object[]>of(new Object[]{"TAG001", "EPC001", 2L, new BigDecimal("-100")}));
+        when(rfidTxRepository.reassignMatching(gate, 1L, start, end, 1L, 10L, null)).thenReturn(2);
+        // only the window of the stale read is flagged differently from its election
+        when(locationArbiter.electAgain(eq(start), eq(end.minusNanos(1_000)), any(LocationArbiter.ReadLoader.class)))
+                .thenReturn(List.of(first));
+        when(readBurstRepository.findFirstSeenMatching(start, end, 1L, 10L, null, PageRequest.of(2, 1))).thenReturn(List.of());
+        when(readBurstRepository.findTagsMatching(start, end, end, 1L, 10L, null)).thenReturn(List.of());
+
+        RfidTxBulkResult result = rfidTxBulkService.reassignLocation(request);
+
+        assertEquals(2, result.getReads());
+        verify(rfidTxRepository).updateLocationWinner("TAG001", "EPC001", first.windowStart(), first.windowEnd(), Set.of(11L), 11L);
+        verify(rfidTxRepository, times(1)).updateLocationWinner(any(), any(), any(), any(), any(), any());
+        verify(currentLocationIndex).onRangeChanged("TAG001", "EPC001", start, end);
+        verify(currentLocationIndex, never()).onReadsDeleted(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    public void testReassignLocation_NoNewLocation_ThrowsInvalidInputException() {
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite("DOCK", "SITE1")).thenReturn(Optional.of(location));
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidTxBulkService.reassignLocation(request));
+
+        assertEquals(ErrorMessage.BULK_NEW_LOCATION_REQUIRED.getMessage(), exception.getMessage());
+        verify(rfidTxRepository, never()).reassignMatching(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private RfidTx read(LocalDateTime scanDate, Location location, Boolean locationWinner) {
+        RfidTx read = new RfidTx();
+        read.setTagId("TAG001");
+        read.setEpc("EPC001");
+        read.setScanDate(scanDate);
+        read.setLocation(location);
+        read.setSiteId(location.getSite().getSiteId());
+        read.setLocationWinner(locationWinner);
+        return read;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Utils.DuckDbUtils;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxExportServiceTest {
+
+    @Mock
+    private SiteService siteService;
+
+    @Mock
+    private RfidTxArchiveService rfidTxArchiveService;
+
+    @Mock
+    private DataSource dataSource;
+
+    @InjectMocks
+    private RfidTxExportService rfidTxExportService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rfidTxExportService, "maxDays", 31L);
+    }
+
+    @Test
+    public void testExportRfidTx_UnknownColumn_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidTxExportService.exportRfidTx(
+                "2023-08-01 00:00:00", "2023-08-01 23:59:59", null, "tagId, scanDate, siteName"));
+
+        assertEquals(ErrorMessage.EXPORT_COLUMNS.format(RfidTxExportService.COLUMNS.keySet()), exception.getMessage());
+        verifyNoInteractions(dataSource);
+    }
+
+    @Test
+    public void testExportRfidTx_DatesOutOfOrder_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidTxExportService.exportRfidTx(
+                "2023-08-02 00:00:00", "2023-08-01 00:00:00", null, null));
+
+        assertEquals(ErrorMessage.DATE_ORDER_ERROR.getMessage(), exception.getMessage());
+        verifyNoInteractions(siteService, dataSource);
+    }
+
+    @Test
+    public void testExportRfidTx_RangeLongerThanMaxDays_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> rfidTxExportService.exportRfidTx(
+                "2023-08-01 00:00:00", "2023-09-01 00:00:00", null, null));
+
+        assertEquals(ErrorMessage.EXPORT_RANGE.format(31L), exception.getMessage());
+        verifyNoInteractions(siteService, dataSource);
+    }
+
+    @Test
+    public void testExportRfidTx_WritesTheRequestedColumnsOfTheRangeAndSiteAsParquet() throws Exception {
+        DriverManagerDataSource h2 = new DriverManagerDataSource("jdbc:h2:mem:rfid_export;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(h2);
+        jdbcTemplate.execute("CREATE TABLE location (location_id BIGINT PRIMARY KEY, site_id BIGINT)");
+        jdbcTemplate.execute("CREATE TABLE rfid_tx (tag_id BIGINT, epc VARBINARY(12), scan_date TIMESTAMP(6), location_id BIGINT,"
+                + " rssi DECIMAL(5,2), location_winner BOOLEAN, site_id BIGINT, ref_code BIGINT)");
+        jdbcTemplate.update("INSERT INTO location VALUES (10, 1), (20, 2)");
+        LocalDateTime scanDate = LocalDateTime.of(2023, 8, 1, 10, 0, 0, 250_000_000);
+        insert(jdbcTemplate, "TAG001", "3074257BF7194E4000001A85", scanDate, 10L, new BigDecimal("-51.50"));
+        insert(jdbcTemplate, "TAG002", "EPC002", scanDate.plusMinutes(1), 10L, null);
+        insert(jdbcTemplate, "TAG003", "EPC003", scanDate, 20L, new BigDecimal("-40.00"));
+        insert(jdbcTemplate, "TAG004", "EPC004", scanDate.plusDays(1), 10L, new BigDecimal("-40.00"));
+        Site site = new Site();
+        site.setSiteId(1L);
+        when(siteService.findBySiteName("SITE1")).thenReturn(Optional.of(site));
+        when(rfidTxArchiveService.archiveFiles()).thenReturn(tempDir.resolve("archive") + "/*/*/*.parquet");
+        when(rfidTxArchiveService.reachesArchive(any())).thenReturn(false);
+        RfidTxExportService exportService = new RfidTxExportService(siteService, rfidTxArchiveService, h2);
+        ReflectionTestUtils.setField(exportService, "maxDays", 31L);
+        // H2 rejects the MySQL streaming fetch size
+        ((JdbcTemplate) ReflectionTestUtils.getField(exportService, "streamingJdbcTemplate")).setFetchSize(-1);
+
+        Path parquet = exportService.exportRfidTx("2023-08-01 00:00:00", "2023-08-01 23:59:59", "site1", "epc, scanDate, rssi");
+
+        try (Connection duckDb = DuckDbUtils.open("jdbc:duckdb:", tempDir.toString(), "");
+             Statement statement = duckDb.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT * FROM read_parquet(" + DuckDbUtils.literal(parquet.toString())
+                     + ") ORDER BY \"scanDate\"")) {
+            assertEquals(3, rows.getMetaData().getColumnCount());
+            assertEquals("epc", rows.getMetaData().getColumnName(1));
+            assertEquals("scanDate", rows.getMetaData().getColumnName(2));
+            assertEquals("rssi", rows.getMetaData().getColumnName(3));
+            assertTrue(rows.next());
+            assertEquals("3074257BF7194E4000001A85", rows.getString("epc"));
+            assertEquals(scanDate, rows.getTimestamp("scanDate").toLocalDateTime());
+            assertEquals(0, new BigDecimal("-51.50").compareTo(rows.getBigDecimal("rssi")));
+            assertTrue(rows.next());
+            assertEquals("EPC002", rows.getString("epc"));
+            assertNull(rows.getBigDecimal("rssi"));
+            assertFalse(rows.next());
+        } finally {
+            Files.deleteIfExists(parquet);
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, String tagId, String epc, LocalDateTime scanDate, Long locationId,
+                               BigDecimal rssi) {
+        jdbcTemplate.update("INSERT INTO rfid_tx (tag_id, epc, scan_date, location_id, rssi, location_winner, site_id, ref_code)"
+                        + " VALUES (?, ?, ?, ?, ?, true, NULL, 12345)", RfidKeyCodec.encodeTagId(tagId), RfidKeyCodec.encodeEpc(epc),
+                Timestamp.valueOf(scanDate), locationId, rssi);
+    }
+}
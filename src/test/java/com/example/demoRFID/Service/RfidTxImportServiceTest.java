@@ -0,0 +1,157 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.ErrorMessage;
+import com.example.demoRFID.Model.Exceptions.InvalidInputException;
+import com.example.demoRFID.Model.Exceptions.ResourceNotFoundException;
+import com.example.demoRFID.Model.Location;
+import com.example.demoRFID.Model.RfidKey;
+import com.example.demoRFID.Model.RfidTx;
+import com.example.demoRFID.Model.Site;
+import com.example.demoRFID.Repository.LocationRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.example.demoRFID.Constants.REFCODE_LENGTH;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxImportServiceTest {
+
+    @Mock
+    private LocationRepository locationRepository;
+
+    @Mock
+    private CurrentLocationIndex currentLocationIndex;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private RfidTxImportService rfidTxImportService;
+
+    @TempDir
+    Path workDir;
+
+    private RfidTxImportService.Snapshot snapshot;
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(rfidTxImportService, "workDir", workDir.toString());
+        Site site = new Site();
+        site.setSiteId(1L);
+        site.setSiteName("MAIN..STORE");
+        Location location = new Location();
+        location.setLocationId(10L);
+        location.setLocationName("DOCK");
+        location.setSite(site);
+        snapshot = new RfidTxImportService.Snapshot(Map.of("MAIN..STORE|DOCK", location), Set.of("MAIN..STORE"),
+                Map.of(RfidKey.of("TAG001", "EPC001"), 12345L));
+    }
+
+    @Test
+    public void testStartImport_MissingColumn_ThrowsInvalidInputExceptionAndDropsTheFile() throws Exception {
+        byte[] csv = "siteName,locationName,tagId,epc,refCode,scanDate\n".getBytes(StandardCharsets.UTF_8);
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class,
+                () -> rfidTxImportService.startImport(new ByteArrayInputStream(csv)));
+
+        assertEquals(ErrorMessage.IMPORT_HEADER.format(RfidTxImportService.COLUMNS), exception.getMessage());
+        try (var files = Files.list(workDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void testGetStatus_UnknownImport_ThrowsResourceNotFoundException() {
+        assertThrows(ResourceNotFoundException.class, () -> rfidTxImportService.getStatus("../application"));
+    }
+
+    @Test
+    public void testParse_ResolvesValidLinesAndRejectsTheOthers() {
+        int[] columns = RfidTxImportService.columns("scanDate,siteName,locationName,tagId,epc,refCode,rssi");
+
+        RfidTxImportService.Block block = rfidTxImportService.parse(List.of(
+                "2023-08-01 10:00:00,main store,dock,tag001,epc001,12345,-51.5",
+                "",
+                "2023-08-01 10:00:01,\"main store\",dock,TAG001,EPC001,123,-51.5",
+                "2023-08-01 10:00:02,MAIN STORE,YARD,TAG001,EPC001,12345,-51.5",
+                "2023-08-01 10:00:03,MAIN STORE,DOCK,TAG002,EPC002,12345,-51.5",
+                "2023-08-01 10:00:04,MAIN STORE,DOCK,TAG001,EPC001,12345"), 101, columns, snapshot);
+
+        assertEquals(6, block.lines());
+        assertEquals(1, block.reads().size());
+        RfidTxImportService.Read read = block.reads().get(0);
+        assertEquals("TAG001", read.tagId());
+        assertEquals("EPC001", read.epc());
+        assertEquals(LocalDateTime.of(2023, 8, 1, 10, 0), read.scanDate());
+        assertEquals(10L, read.location().getLocationId());
+        assertEquals(12345L, read.refCode());
+        assertEquals(List.of(
+                "103,\"" + ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH) + "\",2023-08-01 10:00:01,\"main store\",dock,TAG001,EPC001,123,-51.5\n",
+                "104,\"" + ErrorMessage.LOCATION_NOT_IN_SITE.getMessage() + "\",2023-08-01 10:00:02,MAIN STORE,YARD,TAG001,EPC001,12345,-51.5\n",
+                "105,\"" + ErrorMessage.TAG_ID_EPC_NO_MATCH.getMessage() + "\",2023-08-01 10:00:03,MAIN STORE,DOCK,TAG002,EPC002,12345,-51.5\n",
+                "106,\"" + ErrorMessage.IMPORT_COLUMN_COUNT.format(7, 6) + "\",2023-08-01 10:00:04,MAIN STORE,DOCK,TAG001,EPC001,12345\n"),
+                block.rejects());
+    }
+
+    @Test
+    public void testWrite_ReadAlreadyStoredOrRepeated_IsNotCountedAgain() throws Exception {
+        LocalDateTime scanDate = LocalDateTime.of(2023, 8, 1, 10, 0);
+        Location dock = snapshot.locations().get("MAIN..STORE|DOCK");
+        // stored by the first run of a resumed import
+        RfidTxImportService.Read stored = new RfidTxImportService.Read("TAG001", "EPC001", scanDate, dock, new BigDecimal("-51.5"), 12345L);
+        RfidTxImportService.Read added = new RfidTxImportService.Read("TAG001", "EPC001", scanDate.plusSeconds(1), dock, new BigDecimal("-52.5"), 12345L);
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(RfidKeyCodec.encodeTagId("TAG001"));
+        when(row.getBytes(2)).thenReturn(RfidKeyCodec.encodeEpc("EPC001"));
+        when(row.getTimestamp(3)).thenReturn(Timestamp.valueOf(scanDate));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        rfidTxImportService.write(List.of(stored, added, added));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(List.of(stored, added, added)), eq(3), any());
+        ArgumentCaptor<RfidTx> applied = ArgumentCaptor.forClass(RfidTx.class);
+        verify(currentLocationIndex, times(1)).onAdded(applied.capture(), eq("MAIN..STORE"), eq("DOCK"));
+        assertEquals(scanDate.plusSeconds(1), applied.getValue().getScanDate());
+        assertEquals(new BigDecimal("-52.5"), applied.getValue().getRssi());
+    }
+}
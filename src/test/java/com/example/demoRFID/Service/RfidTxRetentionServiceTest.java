@@ -0,0 +1,168 @@
+package com.example.demoRFID.Service;
+
+import com.example.demoRFID.Model.ReadBurst;
+import com.example.demoRFID.Repository.ReadBurstRepository;
+import com.example.demoRFID.Repository.RfidTxRepository;
+import com.example.demoRFID.Utils.RfidKeyCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RfidTxRetentionServiceTest {
+
+    private static final PageRequest CHUNK = PageRequest.of(0, 2);
+
+    @Mock
+    private RfidTxRepository rfidTxRepository;
+
+    @Mock
+    private ReadBurstRepository readBurstRepository;
+
+    @Mock
+    private RfidTxBackfillService rfidTxBackfillService;
+
+    @Mock
+    private CurrentLocationIndex currentLocationIndex;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RfidTxRetentionService rfidTxRetentionService;
+
+    @BeforeEach
+    public void setUp() {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        rfidTxRetentionService = new RfidTxRetentionService(rfidTxRepository, readBurstRepository, rfidTxBackfillService,
+                currentLocationIndex, transactionManager, jdbcTemplate, dataSource, beanFactory.getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(rfidTxRetentionService, "enabled", true);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "days", 365);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "siteDays", "");
+        ReflectionTestUtils.setField(rfidTxRetentionService, "chunkSize", 2);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "minSleepMs", 0L);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "maxSleepMs", 0L);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "replicaLagQuery", "");
+        ReflectionTestUtils.setField(rfidTxRetentionService, "maxPoolUtilization", 0.5);
+        ReflectionTestUtils.setField(rfidTxRetentionService, "maxRunMinutes", 60L);
+    }
+
+    @Test
+    public void testPurge_DeletesChunksUntilAShortChunkAndUncountsTheirReads() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.findOldest(any(), eq(2))).thenReturn(
+                List.of(read("TAG001", "EPC001", "-50.00"), read("TAG002", "EPC002", "-60.00")),
+                List.<Object[]>of(read("TAG001", "EPC001", "-40.00")));
+        when(rfidTxRepository.deleteOldest(any(), eq(2))).thenReturn(2, 1);
+        when(readBurstRepository.findOldest(any(), eq(CHUNK))).thenReturn(List.of());
+
+        rfidTxRetentionService.purge();
+
+        verify(rfidTxRepository, times(2)).deleteOldest(any(), eq(2));
+        verify(currentLocationIndex).onReadsDeleted("TAG001", "EPC001", 1L, new BigDecimal("-50.00"));
+        verify(currentLocationIndex).onReadsDeleted("TAG002", "EPC002", 1L, new BigDecimal("-60.00"));
+        verify(currentLocationIndex).onReadsDeleted("TAG001", "EPC001", 1L, new BigDecimal("-40.00"));
+        verify(currentLocationIndex, times(2)).onRangeChanged(eq("TAG001"), eq("EPC001"), eq(LocalDateTime.MIN), any());
+        verify(readBurstRepository, never()).deleteAllByIdInBatch(any());
+        assertEquals(3, meterRegistry.get("rfid.retention.deleted").tag("site", "default").counter().count());
+    }
+
+    @Test
+    public void testPurge_PurgesTheBurstsPastRetentionAndUncountsTheirReads() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.findOldest(any(), eq(2))).thenReturn(List.of());
+        when(rfidTxRepository.deleteOldest(any(), eq(2))).thenReturn(0);
+        when(readBurstRepository.findOldest(any(), eq(CHUNK))).thenReturn(
+                List.of(burst(7L, "TAG001", 5L, "-250.00"), burst(8L, "TAG001", 2L, "-90.00")), List.of());
+
+        rfidTxRetentionService.purge();
+
+        verify(readBurstRepository).deleteAllByIdInBatch(List.of(7L, 8L));
+        verify(currentLocationIndex).onReadsDeleted("TAG001", "EPC001", 7L, new BigDecimal("-340.00"));
+        verify(currentLocationIndex).onRangeChanged(eq("TAG001"), eq("EPC001"), eq(LocalDateTime.MIN), any());
+        assertEquals(2, meterRegistry.get("rfid.retention.deleted-bursts").tag("site", "default").counter().count());
+    }
+
+    @Test
+    public void testPurge_SiteRetention_DeletesEachSiteWithItsOwnDays() {
+        ReflectionTestUtils.setField(rfidTxRetentionService, "siteDays", "3=30");
+        when(rfidTxBackfillService.isComplete()).thenReturn(true);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(rfidTxRepository.findOldestExceptSites(any(), eq(Set.of(3L)), eq(2))).thenReturn(List.of());
+        when(rfidTxRepository.deleteOldestExceptSites(any(), eq(Set.of(3L)), eq(2))).thenReturn(0);
+        when(readBurstRepository.findOldestExceptSites(any(), eq(Set.of(3L)), eq(CHUNK))).thenReturn(List.of());
+        when(rfidTxRepository.findOldestOfSite(eq(3L), any(), eq(2))).thenReturn(List.<Object[]>of(read("TAG003", "EPC003", "-70.00")));
+        when(rfidTxRepository.deleteOldestOfSite(eq(3L), any(), eq(2))).thenReturn(1);
+        when(readBurstRepository.findOldestOfSite(eq(3L), any(), eq(CHUNK))).thenReturn(List.of());
+
+        rfidTxRetentionService.purge();
+
+        verify(rfidTxRepository, never()).deleteOldest(any(), anyInt());
+        verify(currentLocationIndex).onReadsDeleted("TAG003", "EPC003", 1L, new BigDecimal("-70.00"));
+        assertEquals(1, meterRegistry.get("rfid.retention.deleted").tag("site", "3").counter().count());
+    }
+
+    @Test
+    public void testPurge_SiteRetentionBeforeTheBackfill_IsPostponed() {
+        ReflectionTestUtils.setField(rfidTxRetentionService, "siteDays", "3=30");
+        when(rfidTxBackfillService.isComplete()).thenReturn(false);
+
+        rfidTxRetentionService.purge();
+
+        verifyNoInteractions(transactionManager, rfidTxRepository, readBurstRepository, currentLocationIndex);
+    }
+
+    @Test
+    public void testPurge_DeadlinePassed_StopsBeforeTheNextChunk() {
+        ReflectionTestUtils.setField(rfidTxRetentionService, "maxRunMinutes", -1L);
+
+        rfidTxRetentionService.purge();
+
+        verifyNoInteractions(transactionManager, readBurstRepository, currentLocationIndex);
+        verify(rfidTxRepository, never()).deleteOldest(any(), anyInt());
+    }
+
+    // a locked row of findOldest, tagId and epc in their stored form
+    private Object[] read(String tagId, String epc, String rssi) {
+        return new Object[]{RfidKeyCodec.encodeTagId(tagId), RfidKeyCodec.encodeEpc(epc), new BigDecimal(rssi)};
+    }
+
+    private ReadBurst burst(Long burstId, String tagId, Long readCount, String rssiSum) {
+        ReadBurst burst = new ReadBurst();
+        burst.setBurstId(burstId);
+        burst.setTagId(tagId);
+        burst.setEpc("EPC001");
+        burst.setReadCount(readCount);
+        burst.setRssiSum(new BigDecimal(rssiSum));
+        return burst;
+    }
+}
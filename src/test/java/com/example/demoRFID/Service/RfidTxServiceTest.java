@@ -13,6 +13,7 @@ import com.example.demoRFID.Utils.ValidationUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -25,8 +26,11 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+import static com.example.demoRFID.Constants.REFCODE_LENGTH;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
@@ -45,6 +49,24 @@ public class RfidTxServiceTest {
     @Mock
     private SiteService siteService;
 
+    @Mock
+    private ReadBurstService readBurstService;
+
+    @Mock
+    private ReadSuppressionWindow readSuppressionWindow;
+
+    @Mock
+    private LocationArbiter locationArbiter;
+
+    @Mock
+    private CurrentLocationIndex currentLocationIndex;
+
+    @Mock
+    private RfidTxBackfillService rfidTxBackfillService;
+
+    @Mock
+    private RfidTxArchiveService rfidTxArchiveService;
+
     @InjectMocks
     private RfidTxService rfidTxService;
 
@@ -115,6 +137,35 @@ public class RfidTxServiceTest {
         }
     }
 
+    @Test
+    public void testGetLatestScans_BackfillComplete_UsesSiteIdQuery() {
+
+        try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class);
+             MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
+
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat("2023-08-01 10:00:00")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-01 10:00:00"))
+                    .thenReturn(LocalDateTime.of(2023, 8, 1, 10, 0,0));
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat("2023-08-02 12:00:00")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-02 12:00:00"))
+                    .thenReturn(LocalDateTime.of(2023, 8, 2, 12, 0,0));
+            validationUtilsMockedStatic.when(() ->ValidationUtils.areDatesInOrder(LocalDateTime.of(2023, 8, 1, 10, 0,0), LocalDateTime.of(2023, 8, 2, 12, 0,0))).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidEPCFormat("EPC123")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringCompositeNames("SiteName", ".."))
+                    .thenReturn("SITENAME");
+            site.setSiteId(7L);
+
+            when(rfidTxBackfillService.isComplete()).thenReturn(true);
+            when(siteService.findBySiteName("SITENAME")).thenReturn(Optional.of(site));
+            when(rfidTxRepository.findLatestScansBySiteId(any(), any(), any(), eq(7L))).thenReturn(List.of(new LatestEPC()));
+
+            List<LatestEPC> result = rfidTxService.getLatestScans("2023-08-01 10:00:00", "2023-08-02 12:00:00", "EPC123", "SiteName");
+
+            assertEquals(1, result.size());
+            verify(rfidTxRepository, never()).findLatestScans(any(), any(), any(), any());
+        }
+    }
+
     @Test
     public void testGetLatestScans_InvalidDate_ThrowsInvalidInputException() {
         try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class)) {
@@ -128,6 +179,87 @@ public class RfidTxServiceTest {
             verify(rfidTxRepository, never()).findLatestScans(any(), any(), any(), any());
         }
     }
+    @Test
+    public void testGetRfidTxByRefCodeAndScanDateRange_ValidInput() {
+        when(rfidTxRepository.findByRefCodeAndScanDateBetween(12345L, LocalDateTime.of(2023, 8, 1, 10, 0, 0),
+                LocalDateTime.of(2023, 8, 2, 12, 0, 0))).thenReturn(List.of(existingRfidTx));
+
+        List<RfidTx> result = rfidTxService.getRfidTxByRefCodeAndScanDateRange("12345", "2023-08-01 10:00:00", "2023-08-02 12:00:00");
+
+        assertEquals(List.of(existingRfidTx), result);
+    }
+
+    @Test
+    public void testGetRfidTxByRefCodeAndScanDateRange_InvalidRefCode_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.getRfidTxByRefCodeAndScanDateRange("12", "2023-08-01 10:00:00", "2023-08-02 12:00:00");
+        });
+
+        assertTrue(exception.getMessage().contains(ErrorMessage.INVALID_REFCODE.format(REFCODE_LENGTH)));
+        verify(rfidTxRepository, never()).findByRefCodeAndScanDateBetween(any(), any(), any());
+    }
+
+    @Test
+    public void testGetRfidTxByRefCodeAndScanDateRange_WithFields_SelectsOnlyTheFields() {
+        LocalDateTime from = LocalDateTime.of(2023, 8, 1, 10, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 8, 2, 12, 0, 0);
+        Map<String, Object> row = Map.of("epc", "EPC123", "scanDate", from, "location", location);
+        when(rfidTxRepository.findProjection(List.of("epc", "scanDate", "location"), null, null, from, to, null, 12345L))
+                .thenReturn(List.of(row));
+
+        List<Map<String, Object>> result = rfidTxService.getRfidTxByRefCodeAndScanDateRange("12345", "2023-08-01 10:00:00",
+                "2023-08-02 12:00:00", " EPC,scandate,location,epc");
+
+        assertEquals(List.of(row), result);
+        verify(rfidTxRepository, never()).findByRefCodeAndScanDateBetween(any(), any(), any());
+    }
+
+    @Test
+    public void testGetRfidTxByRefCodeAndScanDateRange_WithFieldsReachingTheArchive_MergesOnTheKey() {
+        LocalDateTime from = LocalDateTime.of(2023, 8, 1, 10, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 8, 2, 12, 0, 0);
+        List<Map<String, Object>> hot = List.of(Map.of("epc", "EPC123", "tagId", "TAG123", "scanDate", from));
+        List<Map<String, Object>> merged = List.of(Map.of("epc", "EPC123"));
+        when(rfidTxArchiveService.reachesArchive(from)).thenReturn(true);
+        when(rfidTxRepository.findProjection(List.of("epc", "tagId", "scanDate"), null, null, from, to, null, 12345L)).thenReturn(hot);
+        when(rfidTxArchiveService.mergeArchivedProjection(hot, List.of("epc"), from, to, null, 12345L)).thenReturn(merged);
+
+        List<Map<String, Object>> result = rfidTxService.getRfidTxByRefCodeAndScanDateRange("12345", "2023-08-01 10:00:00",
+                "2023-08-02 12:00:00", "epc");
+
+        assertEquals(merged, result);
+    }
+
+    @Test
+    public void testGetRfidTxByEpcAndTagId_WithFieldsAndInvalidEpc_ReportsTheFormatMessages() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.getRfidTxByEpcAndTagId("EPC12", "TAG123", "epc");
+        });
+
+        assertEquals(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT.getMessage(), exception.getMessage());
+        verify(rfidTxRepository, never()).findProjection(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetRfidTxByCriteria_WithFieldsAndInvalidDate_ReportsTheFormatMessage() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.getRfidTxByCriteria(null, null, "2023-08-01T10:00", null, "epc");
+        });
+
+        assertEquals(ErrorMessage.DATE_FORMAT.getMessage(), exception.getMessage());
+        verify(rfidTxRepository, never()).findProjection(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetRfidTxByRefCodeAndScanDateRange_UnknownField_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.getRfidTxByRefCodeAndScanDateRange("12345", "2023-08-01 10:00:00", "2023-08-02 12:00:00", "epc,rfid");
+        });
+
+        assertEquals(ErrorMessage.RFIDTX_FIELDS.format(RfidTxRepository.FIELDS), exception.getMessage());
+        verify(rfidTxRepository, never()).findProjection(any(), any(), any(), any(), any(), any(), any());
+    }
+
     @Test
     public void testGetLatestScans_InvalidEPCFormat() {
         try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class);
@@ -383,6 +515,79 @@ public class RfidTxServiceTest {
 
             assertNotNull(result);
             verify(rfidTxRepository, times(1)).save(any(RfidTx.class));
+            verify(readSuppressionWindow, times(1)).record("SITENAME", "LOCATIONNAME", existingRfidTx);
+        }
+    }
+
+    @Test
+    public void testAddRfidTx_ReadOlderThanItsWindow_IsElectedAgainstTheStoredReads() {
+        LocalDateTime scanDate = LocalDateTime.of(2023, 8, 1, 10, 0);
+        LocationArbiter.Decision decision = new LocationArbiter.Decision(2L, true, scanDate.minusNanos(500_000_000),
+                scanDate, Set.of(1L, 2L));
+        try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class);
+             MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
+
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat("2023-08-01 10:00:00")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-01 10:00:00"))
+                    .thenReturn(scanDate);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidEPCFormat("EPC123")).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidRefCode("12345")).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidTagFormat("TAG123")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringCompositeNames("LocationName",".."))
+                    .thenReturn("LOCATIONNAME");
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringCompositeNames("SiteName",".."))
+                    .thenReturn("SITENAME");
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToInt("12345", -1))
+                    .thenReturn(12345);
+
+            when(locationService.locationNameExists("LOCATIONNAME")).thenReturn(true);
+            when(siteService.siteNameExists("SITENAME")).thenReturn(true);
+            when(locationService.locationNameMatchesSite("LOCATIONNAME", "SITENAME")).thenReturn(Optional.of(location));
+            when(rfidService.checkTagIdMatchesEpc("TAG123", "EPC123")).thenReturn(true);
+            when(rfidService.isRefCodeValidForTagIdAndEpc("TAG123", "EPC123", "12345")).thenReturn(true);
+            when(rfidTxRepository.findById(any())).thenReturn(Optional.empty());
+            when(rfidTxRepository.save(any(RfidTx.class))).thenReturn(existingRfidTx);
+            // admit leaves a read older than the live window of its tag to the stored reads
+            when(locationArbiter.admit("TAG123", "EPC123", "SITENAME", 1L, scanDate, new BigDecimal("75.5")))
+                    .thenReturn(Optional.empty());
+            when(locationArbiter.electAgain(eq(scanDate), eq(scanDate), any(LocationArbiter.ReadLoader.class)))
+                    .thenReturn(List.of(decision));
+
+            RfidTx result = rfidTxService.addRfidTx(validRfidTxRequest);
+
+            assertEquals(Boolean.FALSE, result.getLocationWinner());
+            InOrder order = inOrder(rfidTxRepository, currentLocationIndex);
+            order.verify(rfidTxRepository).save(any(RfidTx.class));
+            order.verify(rfidTxRepository).updateLocationWinner("TAG123", "EPC123", decision.windowStart(), scanDate, Set.of(1L, 2L), 2L);
+            order.verify(currentLocationIndex).refresh("TAG123", "EPC123");
+        }
+    }
+
+    @Test
+    public void testAddRfidTx_RepeatedRead_IsSuppressedWithoutDatabaseAccess() {
+        try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class);
+             MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
+
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat("2023-08-01 10:00:00")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-01 10:00:00"))
+                    .thenReturn(LocalDateTime.of(2023, 8, 1, 10, 0));
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidEPCFormat("EPC123")).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidRefCode("12345")).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidTagFormat("TAG123")).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringCompositeNames("LocationName",".."))
+                    .thenReturn("LOCATIONNAME");
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringCompositeNames("SiteName",".."))
+                    .thenReturn("SITENAME");
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToInt("12345", -1))
+                    .thenReturn(12345);
+
+            when(readSuppressionWindow.trySuppress("TAG123", "EPC123", 12345L, "SITENAME", "LOCATIONNAME",
+                    LocalDateTime.of(2023, 8, 1, 10, 0), new BigDecimal("75.5"))).thenReturn(Optional.of(existingRfidTx));
+
+            RfidTx result = rfidTxService.addRfidTx(validRfidTxRequest);
+
+            assertEquals(existingRfidTx, result);
+            verifyNoInteractions(locationService, siteService, rfidService, rfidTxRepository);
         }
     }
 
@@ -623,7 +828,7 @@ public class RfidTxServiceTest {
             when(locationService.locationNameExists("LocationName")).thenReturn(true);
             when(siteService.siteNameExists("SiteName")).thenReturn(true);
             when(locationService.locationNameMatchesSite("LocationName", "SiteName"))
-                    .thenReturn(Optional.of(new Location()));
+                    .thenReturn(Optional.of(location));
             when(rfidService.checkTagIdMatchesEpc("TAG123", "EPC123")).thenReturn(true);
             when(rfidService.isRefCodeValidForTagIdAndEpc("TAG123", "EPC123", "12345")).thenReturn(false);
 
@@ -665,7 +870,7 @@ public class RfidTxServiceTest {
             when(locationService.locationNameExists("LocationName")).thenReturn(true);
             when(siteService.siteNameExists("SiteName")).thenReturn(true);
             when(locationService.locationNameMatchesSite("LocationName", "SiteName"))
-                    .thenReturn(Optional.of(new Location()));
+                    .thenReturn(Optional.of(location));
             when(rfidService.checkTagIdMatchesEpc("TAG123", "EPC123")).thenReturn(false);
 
             InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
@@ -834,7 +1039,7 @@ public class RfidTxServiceTest {
                 rfidTxService.getRfidTxByEpcAndTagId(epc, tagId);
             });
 
-            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT));
+            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT.getMessage()));
             verify(rfidTxRepository, times(0)).findByEpcAndTagId(anyString(), anyString());
         }
     }
@@ -852,7 +1057,7 @@ public class RfidTxServiceTest {
                 rfidTxService.getRfidTxByEpcAndTagId(epc, tagId);
             });
 
-            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT));
+            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT.getMessage()));
             verify(rfidTxRepository, times(0)).findByEpcAndTagId(anyString(), anyString());
         }
     }
@@ -869,7 +1074,7 @@ public class RfidTxServiceTest {
                 rfidTxService.getRfidTxByEpcAndTagId(epc, tagId);
             });
 
-            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT));
+            assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage() + ErrorMessage.EPC_FORMAT.getMessage()));
             verify(rfidTxRepository, times(0)).findByEpcAndTagId(anyString(), anyString());
         }
     }
@@ -901,6 +1106,35 @@ public class RfidTxServiceTest {
             verify(rfidTxRepository, times(1)).findByScanDateBetween(startDateTime, endDateTime);
         }
     }
+    @Test
+    public void testGetRfidTxByScanDateRange_RangeReachesArchive_MergesArchivedReads() {
+        String startDate = "2023-08-01 10:00:00";
+        String endDate = "2023-08-02 12:00:00";
+        LocalDateTime startDateTime = LocalDateTime.of(2023, 8, 1, 10, 0, 0);
+        LocalDateTime endDateTime = LocalDateTime.of(2023, 8, 2, 12, 0, 0);
+        List<RfidTx> hotList = List.of();
+        List<RfidTx> mergedList = Arrays.asList(new RfidTx(), new RfidTx(), new RfidTx());
+
+        try (MockedStatic<ValidationUtils> validationUtilsMockedStatic = mockStatic(ValidationUtils.class);
+             MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
+
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat(startDate)).thenReturn(true);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.isValidDateFormat(endDate)).thenReturn(true);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate(startDate)).thenReturn(startDateTime);
+            conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate(endDate)).thenReturn(endDateTime);
+            validationUtilsMockedStatic.when(() -> ValidationUtils.areDatesInOrder(startDateTime, endDateTime)).thenReturn(true);
+
+            when(rfidTxRepository.findByScanDateBetween(startDateTime, endDateTime)).thenReturn(Optional.of(hotList));
+            when(rfidTxArchiveService.reachesArchive(startDateTime)).thenReturn(true);
+            when(rfidTxArchiveService.mergeArchived(hotList, startDateTime, endDateTime, null, null)).thenReturn(mergedList);
+
+            List<RfidTx> result = rfidTxService.getRfidTxByScanDateRange(startDate, endDate);
+
+            assertEquals(3, result.size());
+            verify(rfidTxArchiveService, times(1)).mergeArchived(hotList, startDateTime, endDateTime, null, null);
+        }
+    }
+
     @Test
     public void testGetRfidTxByScanDateRange_ValidDateRangeNoResults() {
         String startDate = "2023-08-01 10:00:00";
@@ -1217,10 +1451,14 @@ public class RfidTxServiceTest {
                 .thenReturn(Optional.of(location));
         when(rfidTxRepository.save(any(RfidTx.class))).thenReturn(existingRfidTx);
 
+        BigDecimal previousRssi = existingRfidTx.getRssi();
+
         RfidTx result = rfidTxService.updateRfidTx("TAG123", "EPC123", "2023-08-01 10:00:00", validRfidTxUpdateRequest);
 
         assertNotNull(result);
         verify(rfidTxRepository, times(1)).save(any(RfidTx.class));
+        // the RSSI sum of the tag trades the previous RSSI for the new one
+        verify(currentLocationIndex, times(1)).onUpdated(existingRfidTx, previousRssi, "UPDATEDSITENAME", "UPDATEDLOCATIONNAME");
     }
 
     @Test
@@ -1240,10 +1478,14 @@ public class RfidTxServiceTest {
         try (MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
             conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-01 10:00:00"))
                     .thenReturn(LocalDateTime.of(2023, 8, 1, 10, 0));
-            when(rfidTxRepository.existsById(any(RfidTxId.class))).thenReturn(true);
+            when(rfidTxRepository.findById(any(RfidTxId.class))).thenReturn(Optional.of(existingRfidTx));
 
             assertDoesNotThrow(() -> rfidTxService.deleteRfidTx("TAG123", "EPC123", "2023-08-01 10:00:00"));
             verify(rfidTxRepository, times(1)).deleteById(any(RfidTxId.class));
+            verify(readSuppressionWindow, times(1)).evict("TAG123", "EPC123");
+            // the deleted read is uncounted with its own RSSI
+            verify(currentLocationIndex, times(1)).onDeleted("TAG123", "EPC123", LocalDateTime.of(2023, 8, 1, 10, 0),
+                    existingRfidTx.getRssi());
         }
     }
 
@@ -1252,7 +1494,7 @@ public class RfidTxServiceTest {
         try (MockedStatic<ConversionUtils> conversionUtilsMockedStatic = mockStatic(ConversionUtils.class)) {
             conversionUtilsMockedStatic.when(() -> ConversionUtils.convertStringToDate("2023-08-01 10:00:00"))
                     .thenReturn(LocalDateTime.of(2023, 8, 1, 10, 0));
-            when(rfidTxRepository.existsById(any(RfidTxId.class))).thenReturn(false);
+            when(rfidTxRepository.findById(any(RfidTxId.class))).thenReturn(Optional.empty());
 
             ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> {
                 rfidTxService.deleteRfidTx("TAG123", "EPC123", "2023-08-01 10:00:00");
@@ -1262,4 +1504,82 @@ public class RfidTxServiceTest {
             verify(rfidTxRepository, never()).deleteById(any(RfidTxId.class));
         }
     }
+
+    @Test
+    public void testDeleteRfidTx_MalformedKey_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.deleteRfidTx("TAG12A", "EPC1234", "2023-08-01 10:00:00");
+        });
+
+        assertTrue(exception.getMessage().contains(ErrorMessage.TAG_ID_FORMAT.getMessage()));
+        assertTrue(exception.getMessage().contains(ErrorMessage.EPC_FORMAT.getMessage()));
+        verifyNoInteractions(rfidTxRepository);
+    }
+
+    @Test
+    public void testDeleteRfidTx_LowerCaseKey_IsLookedUpInItsStoredForm() {
+        when(rfidTxRepository.findById(new RfidTxId("TAG123", "EPC123", LocalDateTime.of(2023, 8, 1, 10, 0))))
+                .thenReturn(Optional.of(existingRfidTx));
+
+        rfidTxService.deleteRfidTx("tag123", "epc123", "2023-08-01 10:00:00");
+
+        verify(rfidTxRepository, times(1)).deleteById(new RfidTxId("TAG123", "EPC123", LocalDateTime.of(2023, 8, 1, 10, 0)));
+        verify(readSuppressionWindow, times(1)).evict("TAG123", "EPC123");
+    }
+
+    @Test
+    public void testDeleteRfidTx_WinnerDeleted_ElectsTheWindowAgainBeforeRefreshingTheLocation() {
+        LocalDateTime scanDate = LocalDateTime.of(2023, 8, 1, 10, 0);
+        RfidTx loser = new RfidTx();
+        loser.setTagId("TAG123");
+        loser.setEpc("EPC123");
+        loser.setScanDate(scanDate.plusNanos(200_000_000));
+        loser.setLocationWinner(false);
+        LocationArbiter.Decision decision = new LocationArbiter.Decision(2L, true, loser.getScanDate(),
+                loser.getScanDate(), Set.of(2L));
+        when(rfidTxRepository.findById(any(RfidTxId.class))).thenReturn(Optional.of(existingRfidTx));
+        when(locationArbiter.electAgain(eq(scanDate), eq(scanDate), any(LocationArbiter.ReadLoader.class)))
+                .thenReturn(List.of(decision));
+
+        rfidTxService.deleteRfidTx("TAG123", "EPC123", "2023-08-01 10:00:00");
+
+        InOrder order = inOrder(rfidTxRepository, currentLocationIndex);
+        order.verify(rfidTxRepository).deleteById(any(RfidTxId.class));
+        order.verify(rfidTxRepository).updateLocationWinner("TAG123", "EPC123", decision.windowStart(), decision.windowEnd(), Set.of(2L), 2L);
+        order.verify(currentLocationIndex).refresh("TAG123", "EPC123");
+    }
+
+    @Test
+    public void testUpdateRfidTx_WindowWinnerChanges_ReflagsTheWindowAndTheUpdatedRead() {
+        LocalDateTime scanDate = LocalDateTime.of(2023, 8, 1, 10, 0);
+        // the RSSI of the read drops below the one of the other location of its window
+        existingRfidTx.setLocationWinner(true);
+        LocationArbiter.Decision decision = new LocationArbiter.Decision(2L, true, scanDate,
+                scanDate.plusNanos(500_000_000), Set.of(1L, 2L));
+        when(rfidTxRepository.findById(any(RfidTxId.class))).thenReturn(Optional.of(existingRfidTx));
+        when(siteService.findBySiteName(eq("UPDATEDSITENAME"))).thenReturn(Optional.of(site));
+        when(locationService.locationNameMatchesSite(eq("UPDATEDLOCATIONNAME"), eq("UPDATEDSITENAME")))
+                .thenReturn(Optional.of(location));
+        when(rfidTxRepository.save(any(RfidTx.class))).thenReturn(existingRfidTx);
+        when(locationArbiter.electAgain(eq(scanDate), eq(scanDate), any(LocationArbiter.ReadLoader.class)))
+                .thenReturn(List.of(decision));
+
+        RfidTx result = rfidTxService.updateRfidTx("TAG123", "EPC123", "2023-08-01 10:00:00", validRfidTxUpdateRequest);
+
+        assertEquals(Boolean.FALSE, result.getLocationWinner());
+        InOrder order = inOrder(rfidTxRepository, currentLocationIndex);
+        order.verify(rfidTxRepository).save(existingRfidTx);
+        order.verify(rfidTxRepository).updateLocationWinner("TAG123", "EPC123", decision.windowStart(), decision.windowEnd(), Set.of(1L, 2L), 2L);
+        order.verify(currentLocationIndex).refresh("TAG123", "EPC123");
+    }
+
+    @Test
+    public void testUpdateRfidTx_MalformedScanDate_ThrowsInvalidInputException() {
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> {
+            rfidTxService.updateRfidTx("TAG123", "EPC123", "2023-08-01T10:00", validRfidTxUpdateRequest);
+        });
+
+        assertTrue(exception.getMessage().contains(ErrorMessage.DATE_FORMAT.getMessage()));
+        verify(rfidTxRepository, never()).findById(any(RfidTxId.class));
+    }
 }
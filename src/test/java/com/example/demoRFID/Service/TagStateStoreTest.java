@@ -0,0 +1,123 @@
+package com.example.demoRFID.Service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagStateStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private TagStateStore open(int capacity) {
+        return new TagStateStore(true, tempDir.resolve("tag-state.dat").toString(), capacity);
+    }
+
+    @Test
+    public void testAdd_DistinguishesLeadingZerosAndRejectsOtherFormats() {
+        TagStateStore store = open(16);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+
+        assertTrue(store.add("TAG1", "EPC001", 1L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertTrue(store.add("TAG01", "EPC001", 2L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertTrue(store.add("TAG9999999999", "EPC999", 3L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertTrue(store.add("TAG1", "3074257BF7194E4000001A85", 4L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertFalse(store.add("TAG", "EPC001", 5L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertFalse(store.add("TAG12345678901", "EPC001", 5L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertFalse(store.add("TAG1", "EPC01", 5L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        assertFalse(store.add("TAG1A", "EPC001", 5L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+
+        assertEquals(4, store.size());
+        assertEquals(1L, store.get("TAG1", "EPC001").orElseThrow().locationId());
+        assertEquals(2L, store.get("TAG01", "EPC001").orElseThrow().locationId());
+        assertEquals(4L, store.get("TAG1", "3074257bf7194e4000001a85").orElseThrow().locationId());
+    }
+
+    @Test
+    public void testAdd_CountsReadsAndKeepsTheNewestLastRead() {
+        TagStateStore store = open(16);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+
+        store.add("TAG1", "EPC001", 7L, now, new BigDecimal("-50.25"), 1, new BigDecimal("-50.25"), true);
+        store.add("TAG1", "EPC001", 8L, now.minusSeconds(5), new BigDecimal("-60.75"), 1, new BigDecimal("-60.75"), true);
+
+        Optional<TagStateStore.TagState> state = store.get("TAG1", "EPC001");
+        assertTrue(state.isPresent());
+        assertEquals(7L, state.get().locationId());
+        assertEquals(now, state.get().lastScanDate());
+        assertEquals(new BigDecimal("-50.25"), state.get().lastRssi());
+        assertEquals(2, state.get().readCount());
+        assertEquals(new BigDecimal("-55.50"), state.get().averageRssi());
+        assertFalse(store.get("TAG2", "EPC001").isPresent());
+    }
+
+    @Test
+    public void testSubtract_UncountsDeletedReadsAndNeverGoesBelowZero() {
+        TagStateStore store = open(16);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+        store.add("TAG1", "EPC001", 7L, now, new BigDecimal("-50"), 3, new BigDecimal("-150"), true);
+
+        store.subtract("TAG1", "EPC001", 2, new BigDecimal("-110"));
+
+        TagStateStore.TagState state = store.get("TAG1", "EPC001").orElseThrow();
+        assertEquals(1, state.readCount());
+        assertEquals(new BigDecimal("-40.00"), state.averageRssi());
+        assertEquals(now, state.lastScanDate());
+
+        store.subtract("TAG1", "EPC001", 5, new BigDecimal("-200"));
+        store.subtract("TAG2", "EPC001", 1, BigDecimal.ONE);
+
+        assertEquals(0, store.get("TAG1", "EPC001").orElseThrow().readCount());
+        assertFalse(store.get("TAG2", "EPC001").isPresent());
+    }
+
+    @Test
+    public void testRemove_KeepsCollidingTagsReachable() {
+        TagStateStore store = open(16);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+        // 14 tags in 16 slots (the 90% limit) force long probe sequences
+        for (int i = 0; i < 14; i++) {
+            assertTrue(store.add("TAG" + i, "EPC001", i + 1, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+        }
+        assertFalse(store.add("TAG99", "EPC001", 1L, now, BigDecimal.ONE, 1, BigDecimal.ONE, true));
+
+        for (int i = 0; i < 14; i += 2) {
+            store.remove("TAG" + i, "EPC001");
+        }
+
+        assertEquals(7, store.size());
+        for (int i = 0; i < 14; i++) {
+            Optional<TagStateStore.TagState> state = store.get("TAG" + i, "EPC001");
+            if (i % 2 == 0) {
+                assertFalse(state.isPresent());
+            } else {
+                assertEquals(i + 1, state.orElseThrow().locationId());
+            }
+        }
+    }
+
+    @Test
+    public void testReopen_CleanFileIsRestoredAndDirtyFileIsRebuilt() {
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+        TagStateStore store = open(16);
+        store.add("TAG1", "EPC001", 7L, now, BigDecimal.TEN, 3, new BigDecimal("30"), true);
+        store.setHighWaterMark(now);
+        store.close();
+
+        TagStateStore reopened = open(16);
+        assertTrue(reopened.isRestored());
+        assertEquals(now, reopened.getHighWaterMark());
+        assertEquals(3, reopened.get("TAG1", "EPC001").orElseThrow().readCount());
+
+        // not closed: a crash, the next open starts empty
+        TagStateStore afterCrash = open(16);
+        assertFalse(afterCrash.isRestored());
+        assertFalse(afterCrash.get("TAG1", "EPC001").isPresent());
+    }
+}